@@ -0,0 +1,176 @@
+package org.clafer.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+import org.chocosolver.solver.Model;
+import org.clafer.ast.compiler.AstCompiler;
+import org.clafer.ast.compiler.AstSolutionMap;
+import org.clafer.collection.Pair;
+import org.clafer.compiler.ClaferCompiler;
+import org.clafer.compiler.ClaferSolver;
+import org.clafer.ir.IrModule;
+import org.clafer.ir.analysis.LinearEquationOptimizer;
+import org.clafer.ir.analysis.Optimizer;
+import org.clafer.ir.analysis.deduction.Coalesce;
+import org.clafer.ir.analysis.deduction.FBBT;
+import org.clafer.ir.compiler.IrCompiler;
+import org.clafer.ir.compiler.IrSolutionMap;
+import org.clafer.javascript.Javascript;
+import org.clafer.javascript.JavascriptFile;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times each stage of the Clafer to Choco pipeline on the test models.
+ *
+ * Each stage is measured in isolation. The input to a stage is the output of
+ * the previous stage computed once during setup, so a regression in one stage
+ * does not hide behind another.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PipelineBenchmark {
+
+    /**
+     * The maximum number of instances to enumerate per invocation when
+     * measuring throughput.
+     */
+    private static final int MaxInstances = 1000;
+
+    @Param({
+        "optimization/contractorPackaging_small.js",
+        "optimization/contractorPackaging_medium.js",
+        "optimization/contractorPackaging_large.js",
+        "optimization/NECSIS-Workshop_Modeling_Quality_4.js",
+        "solve-positive/AADL_cruise_control_impl_expanded.js",
+        "solve-positive/Linux_model.js",
+        "solve-positive/eCos_model.js"
+    })
+    public String model;
+
+    private File file;
+    private JavascriptFile javascriptFile;
+    private IrModule astModule;
+    private IrModule optimizedModule;
+    private IrModule propagatedModule;
+
+    static File resource(String name) throws URISyntaxException {
+        URL url = PipelineBenchmark.class.getResource("/" + name);
+        if (url == null) {
+            throw new IllegalArgumentException("Unknown test model " + name + ".");
+        }
+        return new File(url.toURI());
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, URISyntaxException {
+        file = resource(model);
+        javascriptFile = Javascript.readModel(file);
+        astModule = new IrModule();
+        AstCompiler.compile(javascriptFile.getModel(), javascriptFile.getScope(), astModule,
+                javascriptFile.getOption().isFullSymmetryBreaking());
+        optimizedModule = Optimizer.optimize(astModule);
+        propagatedModule = new FBBT().propagate(optimizedModule).getSnd();
+    }
+
+    @Benchmark
+    public JavascriptFile readModel() throws IOException {
+        return Javascript.readModel(file);
+    }
+
+    @Benchmark
+    public AstSolutionMap astCompile() {
+        return AstCompiler.compile(javascriptFile.getModel(), javascriptFile.getScope(), new IrModule(),
+                javascriptFile.getOption().isFullSymmetryBreaking());
+    }
+
+    @Benchmark
+    public IrModule optimize() {
+        return Optimizer.optimize(astModule);
+    }
+
+    @Benchmark
+    public Pair<Coalesce, IrModule> propagate() {
+        return new FBBT().propagate(optimizedModule);
+    }
+
+    @Benchmark
+    public IrModule linearEquationOptimize() {
+        return LinearEquationOptimizer.optimize(propagatedModule);
+    }
+
+    /**
+     * The entire IR pipeline including constructive disjunction and posting the
+     * Choco constraints.
+     */
+    @Benchmark
+    public IrSolutionMap irCompile() {
+        return IrCompiler.compile(astModule, new Model(),
+                javascriptFile.getOption().isFullOptimizations());
+    }
+
+    @Benchmark
+    public boolean firstInstance(Solving solving) {
+        return solving.solver.find();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void instances(Solving solving, Instances instances) {
+        ClaferSolver solver = solving.solver;
+        for (int i = 0; i < MaxInstances && solver.find(); i++) {
+            instances.instances++;
+        }
+    }
+
+    /**
+     * A freshly compiled solver for every invocation so that the compilation is
+     * not part of the measurement.
+     */
+    @State(Scope.Thread)
+    public static class Solving {
+
+        ClaferSolver solver;
+
+        @Setup(Level.Invocation)
+        public void setup(PipelineBenchmark benchmark) {
+            JavascriptFile javascriptFile = benchmark.javascriptFile;
+            solver = ClaferCompiler.compile(javascriptFile.getModel(), javascriptFile.getScope(),
+                    javascriptFile.getOption());
+        }
+    }
+
+    /**
+     * Reports the number of instances found per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Instances {
+
+        public long instances;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            instances = 0;
+        }
+    }
+}
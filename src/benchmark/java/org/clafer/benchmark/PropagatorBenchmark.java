@@ -0,0 +1,212 @@
+package org.clafer.benchmark;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.concurrent.TimeUnit;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.clafer.choco.constraint.ProfilingPropagationEngine;
+import org.clafer.choco.constraint.PropagatorProfile;
+import org.clafer.test.TestReflection;
+import org.clafer.test.TestUtil;
+import org.junit.Test;
+import org.junit.internal.AssumptionViolatedException;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the propagators through the constraints checked by
+ * ConstraintQuickTest. Each constraint is posted on random variables generated
+ * by TestReflection for the parameters of the test's setup method, like the
+ * quick tests do. The variables are generated from a fixed seed so every run
+ * measures the same inputs and the results can be compared against a saved
+ * baseline with {@link PropagatorBenchmarkReport}.
+ *
+ * Run with {@code -prof gc} to also measure the allocations per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropagatorBenchmark {
+
+    /**
+     * The number of different inputs measured in turn.
+     */
+    private static final int Inputs = 64;
+    /**
+     * The maximum number of solutions to enumerate per invocation.
+     */
+    private static final int MaxSolutions = 100;
+    /**
+     * The maximum number of attempts to generate an input the setup method
+     * accepts.
+     */
+    private static final int MaxAttempts = 1000;
+
+    /**
+     * The ConstraintQuickTest test in org.clafer.choco.constraint.
+     */
+    @Param({
+        "AcyclicTest", "AndTest", "ArrayEqualTest", "ArrayToSetTest", "ConcatTest",
+        "ConnectedTest", "ContainsImpliesEqualTest", "ContinuousTest", "ContinuousUnionTest",
+        "ElementArraySupportTest", "ElementTest", "ElementValueSupportTest", "EqualXY_ZTest",
+        "IfThenElseTest", "IntChannelTest", "JoinFunctionNoCardTest", "JoinFunctionTest",
+        "JoinRelationTest", "LengthTest", "LexChainChannelTest", "LoneTest", "MaskTest",
+        "MemberDefaultTest", "MemberNonemptyTest", "MemberTest", "NotMemberTest", "OffsetTest",
+        "OneTest", "OrTest", "PrefixTest", "ReflexiveTest", "SelectNTest", "SetBoundedTest",
+        "SetDifferenceTest", "SetEqualTest", "SetLowBoundTest", "SetMaxTest", "SetMinTest",
+        "SetStrictHighBoundTest", "SetSumTest", "SetTernaryNoCardTest", "SetTernaryTest",
+        "SetUnionDisjointTest", "SetUnionTest", "SingletonFilterTest", "SingletonTest",
+        "SortedSetTest", "StringEqualTest", "StringLessThanEqualTest", "StringLessThanTest",
+        "StringNotEqualTest", "SubarrayTest", "SubsetEqTest", "SuffixTest", "TernaryTest",
+        "TransitiveClosureTest", "TransitiveReflexiveClosureTest", "TransitiveTest",
+        "UnreachableTest"
+    })
+    public String constraint;
+
+    /**
+     * The integers in the domains range from -bound to bound.
+     */
+    @Param({"4", "16", "64"})
+    public int bound;
+
+    private Object test;
+    private Method setup;
+
+    @Setup(Level.Trial)
+    public void setup() throws ReflectiveOperationException {
+        Class<?> testClass = Class.forName("org.clafer.choco.constraint." + constraint);
+        test = testClass.newInstance();
+        for (Method method : testClass.getMethods()) {
+            if (method.isAnnotationPresent(Test.class) && Constraint.class.equals(method.getReturnType())) {
+                setup = method;
+            }
+        }
+        if (setup == null) {
+            throw new IllegalArgumentException(constraint + " has no setup method.");
+        }
+    }
+
+    /**
+     * Post the constraint on the input with the given index.
+     */
+    Model post(int input) throws ReflectiveOperationException {
+        TestUtil.setSeed(input);
+        Parameter[] parameters = setup.getParameters();
+        for (int attempt = 0; attempt < MaxAttempts; attempt++) {
+            Model model = new Model();
+            Object[] args = new Object[parameters.length];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = TestReflection.randVar(
+                        parameters[i].getName(),
+                        parameters[i].getAnnotations(),
+                        parameters[i].getType(),
+                        model, bound);
+            }
+            try {
+                model.post((Constraint) setup.invoke(test, args));
+                return model;
+            } catch (InvocationTargetException e) {
+                if (!(e.getCause() instanceof AssumptionViolatedException)) {
+                    throw e;
+                }
+            }
+        }
+        throw new IllegalStateException("No input for " + constraint + " after " + MaxAttempts + " attempts.");
+    }
+
+    /**
+     * The initial propagation of the constraint to a fixpoint.
+     */
+    @Benchmark
+    public boolean fixpoint(Posted posted) {
+        try {
+            posted.solver.propagate();
+            return true;
+        } catch (ContradictionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Search for solutions with a random strategy, reporting the number of
+     * propagator executions per second. The executions are counted by
+     * {@link ProfilingPropagationEngine} which adds its own overhead.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void search(Searching searching, Propagations propagations) {
+        Solver solver = searching.solver;
+        for (int i = 0; i < MaxSolutions && solver.solve(); i++) {
+        }
+        for (PropagatorProfile.Entry entry : searching.engine.getProfile().getByPropagator()) {
+            propagations.propagations += entry.getCalls();
+        }
+    }
+
+    /**
+     * A freshly posted constraint for every invocation so that the setup is
+     * not part of the measurement.
+     */
+    @State(Scope.Thread)
+    public static class Posted {
+
+        private int input = 0;
+        Solver solver;
+
+        @Setup(Level.Invocation)
+        public void setup(PropagatorBenchmark benchmark) throws ReflectiveOperationException {
+            solver = benchmark.post(input++ % Inputs).getSolver();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Searching {
+
+        private int input = 0;
+        Solver solver;
+        ProfilingPropagationEngine engine;
+
+        @Setup(Level.Invocation)
+        public void setup(PropagatorBenchmark benchmark) throws ReflectiveOperationException {
+            Model model = benchmark.post(input++ % Inputs);
+            solver = model.getSolver();
+            engine = new ProfilingPropagationEngine(model);
+            solver.setEngine(engine);
+            TestUtil.randomizeStrategy(solver);
+        }
+    }
+
+    /**
+     * Reports the number of propagator executions per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Propagations {
+
+        public long propagations;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            propagations = 0;
+        }
+    }
+}
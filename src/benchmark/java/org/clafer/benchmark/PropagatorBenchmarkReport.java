@@ -0,0 +1,181 @@
+package org.clafer.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.json.JsonParser;
+
+/**
+ * Compares the results of two JMH runs saved with {@code -rf json -rff file}
+ * and reports the benchmarks that got slower. A benchmark regressed if its
+ * score got worse by more than the threshold and by more than the error
+ * margins of both runs combined. The counters reported by the benchmarks and
+ * the allocations per operation reported by {@code -prof gc} are compared the
+ * same way.
+ *
+ * <pre>
+ * java org.clafer.benchmark.PropagatorBenchmarkReport baseline.json current.json [threshold]
+ * </pre>
+ *
+ * Exits with status 1 if anything regressed.
+ */
+public class PropagatorBenchmarkReport {
+
+    /**
+     * The default relative change that counts as a regression.
+     */
+    private static final double DefaultThreshold = 0.1;
+    private static final String Allocations = "\u00b7gc.alloc.rate.norm";
+
+    private PropagatorBenchmarkReport() {
+    }
+
+    private static class Score {
+
+        final double score;
+        final double error;
+        final String unit;
+        final boolean higherIsBetter;
+
+        Score(double score, double error, String unit, boolean higherIsBetter) {
+            this.score = score;
+            this.error = Double.isNaN(error) ? 0 : error;
+            this.unit = unit;
+            this.higherIsBetter = higherIsBetter;
+        }
+
+        /**
+         * @return the relative change from the baseline, positive if worse
+         */
+        double regression(Score baseline) {
+            double change = (score - baseline.score) / baseline.score;
+            return higherIsBetter ? -change : change;
+        }
+
+        boolean significant(Score baseline) {
+            return Math.abs(score - baseline.score) > error + baseline.error;
+        }
+    }
+
+    private static Map<String, Score> read(String file) throws IOException {
+        String json = new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+        Context context = Context.enter();
+        try {
+            Scriptable scope = context.initStandardObjects();
+            List<?> results = (List<?>) new JsonParser(context, scope).parseValue(json);
+            Map<String, Score> scores = new TreeMap<>();
+            for (Object result : results) {
+                Map<?, ?> benchmark = (Map<?, ?>) result;
+                String name = benchmark.get("benchmark") + params((Map<?, ?>) benchmark.get("params"));
+                boolean throughput = "thrpt".equals(benchmark.get("mode"));
+                scores.put(name, score((Map<?, ?>) benchmark.get("primaryMetric"), throughput));
+                Map<?, ?> secondary = (Map<?, ?>) benchmark.get("secondaryMetrics");
+                if (secondary != null) {
+                    for (Map.Entry<?, ?> metric : secondary.entrySet()) {
+                        String key = metric.getKey().toString();
+                        // Profiler metrics are prefixed with a dot, the rest are
+                        // counters reported by the benchmark itself.
+                        if (Allocations.equals(key)) {
+                            scores.put(name + " allocations", score((Map<?, ?>) metric.getValue(), false));
+                        } else if (!key.startsWith("\u00b7")) {
+                            scores.put(name + ":" + key, score((Map<?, ?>) metric.getValue(), throughput));
+                        }
+                    }
+                }
+            }
+            return scores;
+        } catch (JsonParser.ParseException e) {
+            throw new IOException("Malformed JMH results in " + file + ".", e);
+        } finally {
+            Context.exit();
+        }
+    }
+
+    private static String params(Map<?, ?> params) {
+        if (params == null || params.isEmpty()) {
+            return "";
+        }
+        Map<String, Object> sorted = new TreeMap<>();
+        params.forEach((key, value) -> sorted.put(key.toString(), value));
+        return sorted.toString();
+    }
+
+    private static Score score(Map<?, ?> metric, boolean higherIsBetter) {
+        return new Score(
+                number(metric.get("score")),
+                number(metric.get("scoreError")),
+                (String) metric.get("scoreUnit"),
+                higherIsBetter);
+    }
+
+    /**
+     * JMH writes undefined values such as the error of a single iteration as
+     * the string "NaN".
+     */
+    private static double number(Object value) {
+        return value instanceof Number
+                ? ((Number) value).doubleValue()
+                : Double.parseDouble(value.toString());
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: PropagatorBenchmarkReport baseline.json current.json [threshold]");
+            System.exit(2);
+        }
+        Map<String, Score> baseline = read(args[0]);
+        Map<String, Score> current = read(args[1]);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DefaultThreshold;
+
+        Map<String, Double> regressions = new LinkedHashMap<>();
+        Map<String, Double> improvements = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (Map.Entry<String, Score> entry : baseline.entrySet()) {
+            Score now = current.get(entry.getKey());
+            if (now == null) {
+                missing.add(entry.getKey());
+                continue;
+            }
+            double regression = now.regression(entry.getValue());
+            if (Math.abs(regression) > threshold && now.significant(entry.getValue())) {
+                (regression > 0 ? regressions : improvements).put(entry.getKey(), regression);
+            }
+        }
+
+        System.out.println(regressions.size() + " regressions, " + improvements.size()
+                + " improvements, " + (baseline.size() - missing.size()) + " compared.");
+        print("Regressions", regressions, baseline, current);
+        print("Improvements", improvements, baseline, current);
+        if (!missing.isEmpty()) {
+            System.out.println();
+            System.out.println("Missing from " + args[1] + ":");
+            missing.forEach(name -> System.out.println("  " + name));
+        }
+        System.exit(regressions.isEmpty() ? 0 : 1);
+    }
+
+    private static void print(String title, Map<String, Double> changes,
+            Map<String, Score> baseline, Map<String, Score> current) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        System.out.println();
+        System.out.println(title + ":");
+        changes.entrySet().stream()
+                .sorted((a, b) -> Double.compare(Math.abs(b.getValue()), Math.abs(a.getValue())))
+                .forEach(change -> {
+                    Score before = baseline.get(change.getKey());
+                    Score after = current.get(change.getKey());
+                    System.out.println(String.format("  %+7.1f%%  %s: %.3f -> %.3f %s",
+                            100 * change.getValue(), change.getKey(), before.score, after.score, after.unit));
+                });
+    }
+}
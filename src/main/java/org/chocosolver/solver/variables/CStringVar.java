@@ -4,6 +4,11 @@ import java.util.Arrays;
 import org.clafer.choco.constraint.Constraints;
 
 /**
+ * A string of at most {@code chars.length} characters. Each character is an
+ * integer variable and the characters at and after the length are the
+ * terminator 0. The string constraints propagate over the characters
+ * directly, so a string is as many variables as the longest string allowed by
+ * the scope.
  *
  * @author jimmy
  */
@@ -1,12 +1,14 @@
 package org.clafer.ast.analysis;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import org.clafer.assertion.Assertion;
 import org.clafer.ast.AstAbstractClafer;
 import org.clafer.ast.AstBoolExpr;
@@ -143,6 +145,97 @@ public class Analysis {
         return analysis;
     }
 
+    /**
+     * Move the analysis onto a structurally identical model. The results about
+     * the Clafers, the references, and the constraints are carried over to the
+     * corresponding parts of the other model. The results about expressions
+     * are not, the rebound analysis holds the expressions of the other model as
+     * they were written and no types. Only the AST compiler needs the analyzed
+     * expressions, so only rebind an analysis that is already compiled.
+     *
+     * @param model the structurally identical model
+     * @param clafers the Clafer in the other model for each Clafer in this
+     * model
+     * @param objectives the objectives of the other model, in the same order
+     * as the objectives of this analysis
+     * @return the analysis of the other model
+     */
+    public Analysis rebind(AstModel model, Map<AstClafer, AstClafer> clafers, Objective[] objectives) {
+        if (objectives.length != this.objectives.length) {
+            throw new IllegalArgumentException();
+        }
+        Analysis rebound = new Analysis(model, rebindScope(scope, clafers), objectives, assertions,
+                rebindList(abstractClafers, x -> rebind(x, clafers)),
+                rebindList(concreteClafers, x -> rebind(x, clafers)),
+                rebindList(clafersInParentAndSubOrder, x -> rebindSet(x, y -> rebind(y, clafers))));
+        if (rebound.constraints.size() != constraints.size()) {
+            throw new IllegalArgumentException();
+        }
+        Map<AstConstraint, AstConstraint> constraintMap = new HashMap<>(constraints.size());
+        for (int i = 0; i < constraints.size(); i++) {
+            constraintMap.put(constraints.get(i), rebound.constraints.get(i));
+        }
+        rebound.hardConstraints = rebindSet(hardConstraints, constraintMap::get);
+        rebound.cardMap = rebindKeys(cardMap, x -> rebind(x, clafers), x -> x);
+        rebound.globalCardMap = rebindKeys(globalCardMap, x -> rebind(x, clafers), x -> x);
+        rebound.formatMap = rebindKeys(formatMap, x -> rebind(x, clafers), x -> x);
+        rebound.offsetMap = rebindKeys(offsetMap, x -> rebind(x, clafers), x -> x.rebind(y -> rebind(y, clafers)));
+        rebound.partialSolutionMap = rebindKeys(partialSolutionMap, x -> rebind(x, clafers), x -> x);
+        rebound.partialIntsMap = rebindKeys(partialIntsMap, x -> rebind(x, clafers), x -> x);
+        rebound.breakableChildrenMap = rebindKeys(breakableChildrenMap, x -> rebind(x, clafers),
+                x -> Arrays.stream(x).map(y -> rebind(y, clafers)).toArray(AstConcreteClafer[]::new));
+        rebound.breakableRefsMap = rebindKeys(breakableRefsMap, x -> rebind(x, clafers), x -> x);
+        rebound.breakableTargetsMap = rebindKeys(breakableTargetsMap, x -> rebind(x, clafers),
+                x -> Arrays.stream(x).map(y -> rebind(y, clafers)).toArray(AstRef[]::new));
+        rebound.inverseMap = rebindKeys(inverseMap, x -> rebind(x, clafers), x -> rebind(x, clafers));
+        return rebound;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends AstClafer> T rebind(T clafer, Map<AstClafer, AstClafer> clafers) {
+        AstClafer rebound = clafers.get(clafer);
+        // Primitive types are shared by every model.
+        return rebound == null ? clafer : (T) rebound;
+    }
+
+    private static AstRef rebind(AstRef ref, Map<AstClafer, AstClafer> clafers) {
+        return rebind(ref.getSourceType(), clafers).getRef();
+    }
+
+    private static Scope rebindScope(Scope scope, Map<AstClafer, AstClafer> clafers) {
+        Map<AstClafer, Integer> scopes = new HashMap<>();
+        for (AstClafer scoped : scope.getScoped()) {
+            scopes.put(rebind(scoped, clafers), scope.getScope(scoped));
+        }
+        return new Scope(scopes, scope.getDefaultScope(), scope.getIntLow(), scope.getIntHigh(),
+                scope.getMulLow(), scope.getMulHigh(), scope.getStringLength(), scope.getCharLow(), scope.getCharHigh());
+    }
+
+    private static <T> List<T> rebindList(List<T> list, Function<T, T> rebind) {
+        List<T> rebound = new ArrayList<>(list.size());
+        for (T t : list) {
+            rebound.add(rebind.apply(t));
+        }
+        return rebound;
+    }
+
+    private static <T> Set<T> rebindSet(Set<T> set, Function<T, T> rebind) {
+        Set<T> rebound = new HashSet<>(set.size());
+        for (T t : set) {
+            rebound.add(rebind.apply(t));
+        }
+        return rebound;
+    }
+
+    private static <K, V> Map<K, V> rebindKeys(Map<K, V> map, Function<K, K> key, Function<V, V> value) {
+        if (map == null) {
+            return null;
+        }
+        Map<K, V> rebound = new HashMap<>(map.size());
+        map.forEach((k, v) -> rebound.put(key.apply(k), value.apply(v)));
+        return rebound;
+    }
+
     private <T> T notNull(String analysisName, T t) {
         if (t == null) {
             throw new AnalysisException(analysisName + " not yet analyzed.");
@@ -1,6 +1,8 @@
 package org.clafer.ast.analysis;
 
+import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Function;
 import org.clafer.ast.AstAbstractClafer;
 import org.clafer.ast.AstClafer;
 import org.clafer.common.Check;
@@ -33,6 +35,16 @@ public class Offsets {
         return reverseOffsets[offset];
     }
 
+    Offsets rebind(Function<AstClafer, AstClafer> clafers) {
+        Map<AstClafer, Integer> rebound = new HashMap<>(offsets.size());
+        offsets.forEach((sub, offset) -> rebound.put(clafers.apply(sub), offset));
+        AstClafer[] reverse = new AstClafer[reverseOffsets.length];
+        for (int i = 0; i < reverse.length; i++) {
+            reverse[i] = clafers.apply(reverseOffsets[i]);
+        }
+        return new Offsets((AstAbstractClafer) clafers.apply(sup), rebound, reverse);
+    }
+
     @Override
     public String toString() {
         return sup + "=>" + offsets;
@@ -11,6 +11,7 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.clafer.assertion.Assertion;
 import org.clafer.ast.AstAbstractClafer;
 import org.clafer.ast.AstArithm;
@@ -133,6 +134,7 @@ import static org.clafer.ir.Irs.boolChannel;
 import static org.clafer.ir.Irs.boundInt;
 import static org.clafer.ir.Irs.card;
 import static org.clafer.ir.Irs.concat;
+import static org.clafer.ir.Irs.connected;
 import static org.clafer.ir.Irs.constant;
 import static org.clafer.ir.Irs.count;
 import static org.clafer.ir.Irs.countNotEqual;
@@ -225,21 +227,28 @@ public class AstCompiler {
     private final IrModule module;
     private final List<Symmetry> symmetries = new ArrayList<>();
     private final boolean fullSymmetryBreaking;
+    /**
+     * If true then the constraints are expanded for each instance in parallel.
+     * The compiled module is the same regardless.
+     */
+    private final boolean parallelExpansion;
 
-    private AstCompiler(AstModel model, Scope scope, IrModule module, Analyzer[] analyzers, boolean fullSymmetryBreaking) {
-        this(model, scope, new Objective[0], module, analyzers, fullSymmetryBreaking);
+    private AstCompiler(AstModel model, Scope scope, IrModule module, Analyzer[] analyzers, boolean fullSymmetryBreaking, boolean parallelExpansion) {
+        this(model, scope, new Objective[0], module, analyzers, fullSymmetryBreaking, parallelExpansion);
     }
 
-    private AstCompiler(AstModel model, Scope scope, Objective[] objectives, IrModule module, Analyzer[] analyzers, boolean fullSymmetryBreaking) {
+    private AstCompiler(AstModel model, Scope scope, Objective[] objectives, IrModule module, Analyzer[] analyzers, boolean fullSymmetryBreaking, boolean parallelExpansion) {
         this.analysis = Analysis.analyze(model, scope, objectives, analyzers);
         this.module = Check.notNull(module);
         this.fullSymmetryBreaking = fullSymmetryBreaking;
+        this.parallelExpansion = parallelExpansion;
     }
 
-    private AstCompiler(AstModel model, Scope scope, Assertion[] assertions, IrModule module, Analyzer[] analyzers, boolean fullSymmetryBreaking) {
+    private AstCompiler(AstModel model, Scope scope, Assertion[] assertions, IrModule module, Analyzer[] analyzers, boolean fullSymmetryBreaking, boolean parallelExpansion) {
         this.analysis = Analysis.analyze(model, scope, assertions, analyzers);
         this.module = Check.notNull(module);
         this.fullSymmetryBreaking = fullSymmetryBreaking;
+        this.parallelExpansion = parallelExpansion;
     }
 
     public static AstSolutionMap compile(AstModel in, Scope scope, IrModule out, boolean fullSymmetryBreaking) {
@@ -247,7 +256,11 @@ public class AstCompiler {
     }
 
     public static AstSolutionMap compile(AstModel in, Scope scope, IrModule out, Analyzer[] analyzers, boolean fullSymmetryBreaking) {
-        AstCompiler compiler = new AstCompiler(in, scope, out, analyzers, fullSymmetryBreaking);
+        return compile(in, scope, out, analyzers, fullSymmetryBreaking, false);
+    }
+
+    public static AstSolutionMap compile(AstModel in, Scope scope, IrModule out, Analyzer[] analyzers, boolean fullSymmetryBreaking, boolean parallelExpansion) {
+        AstCompiler compiler = new AstCompiler(in, scope, out, analyzers, fullSymmetryBreaking, parallelExpansion);
         return compiler.compile();
     }
 
@@ -256,8 +269,12 @@ public class AstCompiler {
     }
 
     public static AstSolutionMap compile(AstModel in, Scope scope, Objective[] objectives, IrModule out, Analyzer[] analyzers, boolean fullSymmetryBreaking) {
+        return compile(in, scope, objectives, out, analyzers, fullSymmetryBreaking, false);
+    }
+
+    public static AstSolutionMap compile(AstModel in, Scope scope, Objective[] objectives, IrModule out, Analyzer[] analyzers, boolean fullSymmetryBreaking, boolean parallelExpansion) {
         AstCompiler compiler = new AstCompiler(in, scope, objectives,
-                out, analyzers, fullSymmetryBreaking);
+                out, analyzers, fullSymmetryBreaking, parallelExpansion);
         return compiler.compile();
     }
 
@@ -266,8 +283,12 @@ public class AstCompiler {
     }
 
     public static AstSolutionMap compile(AstModel in, Scope scope, Assertion[] assertions, IrModule out, Analyzer[] analyzers, boolean fullSymmetryBreaking) {
+        return compile(in, scope, assertions, out, analyzers, fullSymmetryBreaking, false);
+    }
+
+    public static AstSolutionMap compile(AstModel in, Scope scope, Assertion[] assertions, IrModule out, Analyzer[] analyzers, boolean fullSymmetryBreaking, boolean parallelExpansion) {
         AstCompiler compiler = new AstCompiler(in, scope, assertions,
-                out, analyzers, fullSymmetryBreaking);
+                out, analyzers, fullSymmetryBreaking, parallelExpansion);
         return compiler.compile();
     }
 
@@ -376,30 +397,33 @@ public class AstCompiler {
             }
         }
 
+        List<AstConstraint> constraints = analysis.getConstraints();
+        Expansion[][] expansions = new Expansion[constraints.size()][];
+        for (int i = 0; i < expansions.length; i++) {
+            AstConstraint constraint = constraints.get(i);
+            expansions[i] = new Expansion[getScope(constraint.getContext())];
+            for (int j = 0; j < expansions[i].length; j++) {
+                expansions[i][j] = new Expansion(constraint, i, j);
+            }
+        }
+        Stream<Expansion> expansionStream = Stream.of(expansions).flatMap(Stream::of);
+        (parallelExpansion ? expansionStream.parallel() : expansionStream).forEach(Expansion::compile);
+
+        // Merge in the same order as the serial expansion.
         Map<AstConstraint, IrBoolVar> softVars = new HashMap<>();
-        for (AstConstraint constraint : analysis.getConstraints()) {
-            AstClafer clafer = constraint.getContext();
-            AstBoolExpr expr = analysis.getExpr(constraint);
-            int scope = getScope(clafer);
+        for (int i = 0; i < expansions.length; i++) {
+            AstConstraint constraint = constraints.get(i);
             if (analysis.isHard(constraint)) {
-                for (int j = 0; j < scope; j++) {
-                    ExpressionCompiler expressionCompiler = new ExpressionCompiler(clafer, j);
-                    IrBoolExpr thisConstraint = expressionCompiler.compile(expr);
-                    IrBoolExpr conditionalConstraint = isConditional(expr)
-                            ? implies(memberships.get(clafer)[j], thisConstraint)
-                            : thisConstraint;
-                    module.addConstraint(conditionalConstraint);
+                for (Expansion expansion : expansions[i]) {
+                    module.addConstraints(expansion.getAuxiliary().getConstraints());
+                    module.addConstraint(expansion.getConstraint());
                 }
             } else {
                 IrBoolVar softVar = bool(constraint.toString());
                 softVars.put(constraint, softVar);
-                for (int j = 0; j < scope; j++) {
-                    ExpressionCompiler expressionCompiler = new ExpressionCompiler(clafer, j);
-                    IrBoolExpr thisConstraint = expressionCompiler.compile(expr);
-                    IrBoolExpr conditionalConstraint = isConditional(expr)
-                            ? implies(memberships.get(clafer)[j], thisConstraint)
-                            : thisConstraint;
-                    module.addConstraint(ifOnlyIf(softVar, conditionalConstraint));
+                for (Expansion expansion : expansions[i]) {
+                    module.addConstraints(expansion.getAuxiliary().getConstraints());
+                    module.addConstraint(ifOnlyIf(softVar, expansion.getConstraint()));
                 }
                 module.addVariable(softVar);
             }
@@ -1124,18 +1148,79 @@ public class AstCompiler {
     private final Map<AstClafer, IrStringVar[]> refStrings = new HashMap<>();
     private final Map<AstClafer, IrIntExpr[][]> indices = new HashMap<>();
     private int countCount = 0;
-    private int concatRefsCount = 0;
-    private int localCount = 0;
+
+    /**
+     * A constraint expanded for one instance of its context. Expansions do not
+     * modify the compiler so they can be compiled in any order, including
+     * concurrently.
+     */
+    private class Expansion {
+
+        private final AstConstraint constraint;
+        private final int index;
+        private final int thisId;
+        private final IrModule auxiliary = new IrModule(0);
+        private IrBoolExpr compiled;
+
+        private Expansion(AstConstraint constraint, int index, int thisId) {
+            this.constraint = constraint;
+            this.index = index;
+            this.thisId = thisId;
+        }
+
+        private void compile() {
+            AstClafer clafer = constraint.getContext();
+            AstBoolExpr expr = analysis.getExpr(constraint);
+            ExpressionCompiler expressionCompiler = new ExpressionCompiler(clafer, thisId,
+                    auxiliary, "C" + index + "." + thisId + "_");
+            IrBoolExpr thisConstraint = expressionCompiler.compile(expr);
+            compiled = isConditional(expr)
+                    ? implies(memberships.get(clafer)[thisId], thisConstraint)
+                    : thisConstraint;
+        }
+
+        /**
+         * @return the constraints created while compiling the expression
+         */
+        private IrModule getAuxiliary() {
+            return auxiliary;
+        }
+
+        /**
+         * @return the compiled constraint
+         */
+        private IrBoolExpr getConstraint() {
+            assert compiled != null;
+            return compiled;
+        }
+    }
 
     private class ExpressionCompiler implements AstExprVisitor<Void, IrExpr> {
 
         private final AstClafer thisType;
         private final int thisId;
         private final Map<AstLocal, IrIntExpr> locals = new HashMap<>();
+        /**
+         * Where to add the constraints for any auxiliary variables.
+         */
+        private final IrModule module;
+        /**
+         * Prefix for the names of auxiliary variables to keep them unique
+         * between different expression compilers.
+         */
+        private final String label;
+        private int concatRefsCount = 0;
+        private int localCount = 0;
 
         private ExpressionCompiler(AstClafer thisType, int thisId) {
+            this(thisType, thisId, AstCompiler.this.module, "");
+        }
+
+        private ExpressionCompiler(AstClafer thisType, int thisId, IrModule module, String label) {
             this.thisType = thisType;
             this.thisId = thisId;
+            this.module = module;
+            this.label = label;
         }
 
         private IrExpr compile(AstExpr expr) {
@@ -1643,7 +1728,7 @@ public class AstCompiler {
             assert setType.hasRef();
             IrIntVar[] refs = refPointers.get(setType);
             String name = monoid.getClass().getSimpleName();
-            int count = concatRefsCount++;
+            String count = label + concatRefsCount++;
 
             IrBoolExpr[] members;
             if (set instanceof AstGlobal) {
@@ -1885,7 +1970,7 @@ public class AstCompiler {
                 for (int i = env.getLowBound(); i <= env.getHighBound(); i++) {
                     members[i] = new Pair<>(constant(i),
                             ker.contains(i) ? True
-                                    : bool(Util.intercalate("/", AstUtil.getNames(decl.getLocals())) + "#" + i + "#" + localCount++));
+                                    : bool(Util.intercalate("/", AstUtil.getNames(decl.getLocals())) + "#" + i + "#" + label + localCount++));
                 }
                 module.addConstraint(boolChannel(Pair.mapSnd(members), setBody));
                 if (decl.isDisjoint() && members.length < decl.getLocals().length) {
@@ -2046,24 +2131,9 @@ public class AstCompiler {
 
         @Override
         public IrExpr visit(AstConnected ast, Void a) {
-            // TODO node instanceof IrIntExpr
-            IrSetExpr nodes = (IrSetExpr) compile(ast.getNodes());
-            IrExpr relation = compile(ast.getRelation());
-
-            IrBoolExpr[] membership = null;
-            if (ast.getNodes() instanceof AstGlobal) {
-                membership = memberships.get(((AstGlobal) ast.getNodes()).getType());
-            }
-
-            IrSetArrayExpr transitiveClosure = transitiveClosure(asRelation(relation, getCommonSupertype(ast.getRelation())), !ast.isDirected());
-            IrBoolExpr[] connectedClosure = new IrBoolExpr[transitiveClosure.length()];
-            for (int i = 0; i < connectedClosure.length; i++) {
-                connectedClosure[i] = implies(
-                        membership == null ? member(constant(i), nodes) : membership[i],
-                        subsetEq(nodes, get(transitiveClosure, i)));
-            }
-
-            return and(connectedClosure);
+            IrSetExpr nodes = asSet(compile(ast.getNodes()));
+            IrSetArrayExpr relation = asRelation(compile(ast.getRelation()), getCommonSupertype(ast.getRelation()));
+            return connected(nodes, relation, ast.isDirected());
         }
     };
 
@@ -1,6 +1,8 @@
 package org.clafer.ast.compiler;
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import org.clafer.assertion.Assertion;
 import org.clafer.ast.AstClafer;
@@ -144,6 +146,53 @@ public class AstSolutionMap {
         return notNull(assertion + " not a compiled assertion", assertionVars.get(assertion));
     }
 
+    /**
+     * Move the solution map onto a structurally identical model. The variables
+     * are the same, they are found through the corresponding Clafers,
+     * constraints, and objectives of the other model.
+     *
+     * @param model the structurally identical model
+     * @param clafers the Clafer in the other model for each Clafer in this
+     * model
+     * @param objectives the objectives of the other model, in the same order
+     * as the objectives of the analysis
+     * @return the solution map of the other model
+     * @see Analysis#rebind
+     */
+    public AstSolutionMap rebind(AstModel model, Map<AstClafer, AstClafer> clafers, Objective[] objectives) {
+        Analysis rebound = analysis.rebind(model, clafers, objectives);
+        Map<AstConstraint, AstConstraint> constraints = new HashMap<>();
+        for (int i = 0; i < rebound.getConstraints().size(); i++) {
+            constraints.put(analysis.getConstraints().get(i), rebound.getConstraints().get(i));
+        }
+        Map<Objective, Objective> objectiveMap = new HashMap<>();
+        for (int i = 0; i < objectives.length; i++) {
+            objectiveMap.put(analysis.getObjectives()[i], objectives[i]);
+        }
+        return new AstSolutionMap(model,
+                rebindKeys(memberVars, clafers),
+                rebindKeys(siblingVars, clafers),
+                rebindKeys(siblingBounds, clafers),
+                rebindKeys(refVars, clafers),
+                rebindKeys(refStrings, clafers),
+                rebindKeys(softVars, constraints),
+                sumSoftVar,
+                rebindKeys(objectiveVars, objectiveMap),
+                assertionVars,
+                rebound);
+    }
+
+    private static <K, V> Map<K, V> rebindKeys(Map<K, V> map, Map<? super K, ? extends K> keys) {
+        // Keep the order of the soft variables.
+        Map<K, V> rebound = new LinkedHashMap<>(map.size());
+        map.forEach((k, v) -> {
+            K key = keys.get(k);
+            // Primitive types are shared by every model.
+            rebound.put(key == null ? k : key, v);
+        });
+        return rebound;
+    }
+
     private static <T> T notNull(String message, T t) {
         if (t == null) {
             throw new AstException(message);
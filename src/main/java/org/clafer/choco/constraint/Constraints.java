@@ -1,7 +1,6 @@
 package org.clafer.choco.constraint;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import org.chocosolver.solver.Model;
 import org.chocosolver.solver.constraints.Constraint;
@@ -31,7 +30,7 @@ import org.clafer.choco.constraint.propagator.PropAcyclic;
 import org.clafer.choco.constraint.propagator.PropAnd;
 import org.clafer.choco.constraint.propagator.PropArrayToSet;
 import org.clafer.choco.constraint.propagator.PropArrayToSetCard;
-import org.clafer.choco.constraint.propagator.PropAtMostTransitiveClosure;
+import org.clafer.choco.constraint.propagator.PropConnected;
 import org.clafer.choco.constraint.propagator.PropContainsImpliesEqual;
 import org.clafer.choco.constraint.propagator.PropContainsImpliesEqualCard;
 import org.clafer.choco.constraint.propagator.PropContainsImpliesEqualCard2;
@@ -56,7 +55,6 @@ import org.clafer.choco.constraint.propagator.PropNotEqualXY_Z;
 import org.clafer.choco.constraint.propagator.PropOne;
 import org.clafer.choco.constraint.propagator.PropOr;
 import org.clafer.choco.constraint.propagator.PropReflexive;
-import org.clafer.choco.constraint.propagator.PropSamePrefix;
 import org.clafer.choco.constraint.propagator.PropSelectN;
 import org.clafer.choco.constraint.propagator.PropSetDifference;
 import org.clafer.choco.constraint.propagator.PropSetEqual;
@@ -71,10 +69,15 @@ import org.clafer.choco.constraint.propagator.PropSetUnion;
 import org.clafer.choco.constraint.propagator.PropSetUnionCard;
 import org.clafer.choco.constraint.propagator.PropSingleton;
 import org.clafer.choco.constraint.propagator.PropSingletonFilter;
+import org.clafer.choco.constraint.propagator.PropStringEqual;
+import org.clafer.choco.constraint.propagator.PropStringLessThan;
+import org.clafer.choco.constraint.propagator.PropStringNotEqual;
 import org.clafer.choco.constraint.propagator.PropSubsetEqCard;
+import org.clafer.choco.constraint.propagator.PropSubstring;
 import org.clafer.choco.constraint.propagator.PropTernary;
 import org.clafer.choco.constraint.propagator.PropTransitive;
 import org.clafer.choco.constraint.propagator.PropTransitiveCard;
+import org.clafer.choco.constraint.propagator.PropTransitiveClosure;
 import org.clafer.choco.constraint.propagator.PropTransitiveUnreachable;
 import org.clafer.choco.constraint.propagator.PropUnreachable;
 import org.clafer.choco.constraint.propagator.PropUtil;
@@ -89,8 +92,6 @@ import org.clafer.common.Util;
  */
 public class Constraints {
 
-    private static int varNum = 0;
-
     private Constraints() {
     }
 
@@ -508,43 +509,20 @@ public class Constraints {
         return new Constraint("acyclic", new PropAcyclic(edges));
     }
 
+    /**
+     * A constraint enforcing that every node can reach every other node.
+     * {@code j ∈ edges[i]} implies that there is an edge from node i to node
+     * j. Paths can go through any node of the graph.
+     *
+     * @param nodes the nodes that are connected
+     * @param edges the edges of the graph
+     * @param directed {@code true} if the nodes need to be strongly connected
+     * and every node needs to reach itself through at least one edge,
+     * {@code false} if edges can be followed in both directions
+     * @return constraint enforcing the nodes are connected
+     */
     public static Constraint connected(SetVar nodes, SetVar[] edges, boolean directed) {
-        return nodes.getModel().trueConstraint();
-//        int nodes_upper = PropUtil.maxEnv(nodes) + 1;
-//        boolean fixed_nodes = nodes.isInstantiated();
-//
-//        UndirectedGraph GLB = new UndirectedGraph(s, nodes_upper, SetType.BITSET, fixed_nodes);
-//        UndirectedGraph GUB = new UndirectedGraph(s, nodes_upper, SetType.BITSET, fixed_nodes);
-//
-//        //add nodes
-//        if (!fixed_nodes) {
-//            for (int n = nodes.getKernelFirst(); n != SetVar.END; n = nodes.getKernelNext()) {
-//                GLB.addNode(n);
-//            }
-//            for (int n = nodes.getEnvelopeFirst(); n != SetVar.END; n = nodes.getEnvelopeNext()) {
-//                GUB.addNode(n);
-//            }
-//        }
-//        //add edges
-//        for (int i = 0; i < edges.length; i++) {
-//            SetVar edge = edges[i];
-//            for (int n = edge.getKernelFirst(); n != SetVar.END; n = edge.getKernelNext()) {
-//                if (n < nodes_upper) {
-//                    GLB.addEdge(i, n);
-//                }
-//            }
-//            for (int n = edge.getEnvelopeFirst(); n != SetVar.END; n = edge.getEnvelopeNext()) {
-//                if (n < nodes_upper) {
-//                    GUB.addEdge(i, n);
-//                }
-//            }
-//        }
-//
-//        IUndirectedGraphVar g = GraphVarFactory.undirected_graph_var("ConnectedVar" + varNum++, GLB, GUB, s);
-//        s.post(GCF.nodes_channeling(g, nodes));
-//        s.post(GCF.neighbors_channeling(g, edges));
-//
-//        return GCF.connected(g);
+        return new Constraint("connected", new PropConnected(nodes, edges, directed));
     }
 
     /**
@@ -994,32 +972,45 @@ public class Constraints {
     }
 
     /**
-     * TODO STRING
+     * A constraint enforcing {@code string1 = string2}. The shorter string is
+     * padded with the terminator.
+     *
+     * @param chars1 the characters of the left string
+     * @param length1 the length of the left string
+     * @param chars2 the characters of the right string
+     * @param length2 the length of the right string
+     * @return constraint {@code string1 = string2}
      */
     public static Constraint equal(
-            IntVar[] chars1, IntVar length1,
-            IntVar[] chars2, IntVar length2) {
-        Propagators propagators = new Propagators(chars1.length + chars2.length + 1);
-        propagators.eq(length1, length2);
-        for (int i = 0; i < Math.min(chars1.length, chars2.length); i++) {
-            propagators.eq(chars1[i], chars2[i]);
-        }
-        for (int i = Math.min(chars1.length, chars2.length); i < chars1.length; i++) {
-            propagators.eq(chars1[i], 0);
-        }
-        for (int i = Math.min(chars1.length, chars2.length); i < chars2.length; i++) {
-            propagators.eq(chars2[i], 0);
-        }
-        return propagators.toConstraint("arrayEqual", length1.getModel());
+            final IntVar[] chars1, final IntVar length1,
+            final IntVar[] chars2, final IntVar length2) {
+        return new Constraint("stringEqual", new PropStringEqual(chars1, length1, chars2, length2)) {
+            @Override
+            public Constraint makeOpposite() {
+                return notEqual(chars1, length1, chars2, length2);
+            }
+        };
     }
 
     /**
-     * TODO STRING
+     * A constraint enforcing {@code string1 ≠ string2}. The shorter string is
+     * padded with the terminator.
+     *
+     * @param chars1 the characters of the left string
+     * @param length1 the length of the left string
+     * @param chars2 the characters of the right string
+     * @param length2 the length of the right string
+     * @return constraint {@code string1 ≠ string2}
      */
     public static Constraint notEqual(
-            IntVar[] chars1, IntVar length1,
-            IntVar[] chars2, IntVar length2) {
-        return equal(chars1, length1, chars2, length2).getOpposite();
+            final IntVar[] chars1, final IntVar length1,
+            final IntVar[] chars2, final IntVar length2) {
+        return new Constraint("stringNotEqual", new PropStringNotEqual(chars1, length1, chars2, length2)) {
+            @Override
+            public Constraint makeOpposite() {
+                return equal(chars1, length1, chars2, length2);
+            }
+        };
     }
 
     public static Constraint equal(IntVar[] chars1, IntVar[] chars2) {
@@ -1036,18 +1027,44 @@ public class Constraints {
         return propagators.toConstraint("ArrayEqual", chars1[0].getModel());
     }
 
-    public static Constraint lessThan(IntVar[] chars1, IntVar[] chars2) {
-        int maxLength = Math.max(chars1.length, chars2.length);
-        return chars1[0].getModel().lexLess(
-                pad(chars1, maxLength, chars1[0].getModel().intVar(0)),
-                pad(chars2, maxLength, chars1[0].getModel().intVar(0)));
+    /**
+     * A constraint enforcing {@code string1 < string2} lexicographically. The
+     * shorter string is padded with the terminator.
+     *
+     * @param chars1 the characters of the left string
+     * @param length1 the length of the left string
+     * @param chars2 the characters of the right string
+     * @param length2 the length of the right string
+     * @return constraint {@code string1 < string2}
+     */
+    public static Constraint lessThan(
+            IntVar[] chars1, IntVar length1,
+            IntVar[] chars2, IntVar length2) {
+        if (chars1.length == 0 && chars2.length == 0) {
+            // Both strings are empty.
+            return length1.getModel().falseConstraint();
+        }
+        return new Constraint("stringLessThan", new PropStringLessThan(chars1, chars2, true));
     }
 
-    public static Constraint lessThanEqual(IntVar[] chars1, IntVar[] chars2) {
-        int maxLength = Math.max(chars1.length, chars2.length);
-        return chars1[0].getModel().lexLessEq(
-                pad(chars1, maxLength, chars1[0].getModel().intVar(0)),
-                pad(chars2, maxLength, chars1[0].getModel().intVar(0)));
+    /**
+     * A constraint enforcing {@code string1 ≤ string2} lexicographically. The
+     * shorter string is padded with the terminator.
+     *
+     * @param chars1 the characters of the left string
+     * @param length1 the length of the left string
+     * @param chars2 the characters of the right string
+     * @param length2 the length of the right string
+     * @return constraint {@code string1 ≤ string2}
+     */
+    public static Constraint lessThanEqual(
+            IntVar[] chars1, IntVar length1,
+            IntVar[] chars2, IntVar length2) {
+        if (chars1.length == 0 && chars2.length == 0) {
+            // Both strings are empty.
+            return length1.getModel().trueConstraint();
+        }
+        return new Constraint("stringLessThanEqual", new PropStringLessThan(chars1, chars2, false));
     }
 
     private static IntVar[] charsAt(Model model, IntVar[][] strings, int index) {
@@ -1085,7 +1102,13 @@ public class Constraints {
     }
 
     /**
-     * TODO STRING
+     * A constraint enforcing that {@code prefix} is a prefix of {@code word}.
+     *
+     * @param prefix the characters of the prefix
+     * @param prefixLength the length of the prefix
+     * @param word the characters of the word
+     * @param wordLength the length of the word
+     * @return constraint {@code prefix} is a prefix of {@code word}
      */
     public static Constraint prefix(
             IntVar[] prefix, IntVar prefixLength,
@@ -1093,44 +1116,42 @@ public class Constraints {
         if (prefixLength.getLB() > wordLength.getUB()) {
             return prefixLength.getModel().falseConstraint();
         }
-        return new Propagators(2)
-                .leq(prefixLength, wordLength)
-                .post(new PropSamePrefix(prefixLength, prefix, word))
-                .toConstraint("Prefix", prefixLength.getModel());
+        return new Constraint("Prefix",
+                new PropSubstring(prefix, prefixLength, null, word, wordLength, false));
     }
 
+    /**
+     * A constraint enforcing that {@code suffix} is a suffix of {@code word}.
+     *
+     * @param suffix the characters of the suffix
+     * @param suffixLength the length of the suffix
+     * @param word the characters of the word
+     * @param wordLength the length of the word
+     * @return constraint {@code suffix} is a suffix of {@code word}
+     */
     public static Constraint suffix(
             IntVar[] suffix, IntVar suffixLength,
             IntVar[] word, IntVar wordLength) {
         if (suffix.length == 0) {
             return suffixLength.getModel().trueConstraint();
         }
-        Model model = suffixLength.getModel();
         if (suffixLength.getLB() > wordLength.getUB()) {
-            return model.falseConstraint();
+            return suffixLength.getModel().falseConstraint();
         }
-        IntVar prefixLength = model.intVar("SuffixVar" + varNum++,
-                Math.min(wordLength.getLB() - suffixLength.getUB(), 0),
-                wordLength.getUB() - suffixLength.getLB(), false);
-        model.post(new Constraint("SuffixVarSum",
-                sumEq(new IntVar[]{prefixLength, suffixLength}, wordLength)));
-
-        Propagators propagators = new Propagators(2 * suffix.length + 1);
-        propagators.leq(suffixLength, wordLength);
-        for (int i = 0; i < suffix.length; i++) {
-            IntVar[] pad = pad(word, prefixLength.getUB() + i + 1, model.intVar(0));
-            // See ICF.element(value, table, index, offset);
-            // TODO: Needs to add the same propagator twice because the implementation
-            // is not guaranteed to be idempotent. If it ever becomes idempotent, then
-            // follow their implementation.
-            propagators.post(new PropElementV_fast(suffix[i], pad, prefixLength, -i, true));
-            propagators.post(new PropElementV_fast(suffix[i], pad, prefixLength, -i, true));
-        }
-        return propagators.toConstraint("Suffix", suffixLength.getModel());
+        return new Constraint("Suffix",
+                new PropSubstring(suffix, suffixLength, null, word, wordLength, true));
     }
 
     /**
-     * TODO STRING
+     * A constraint enforcing {@code concat = left ++ right}.
+     *
+     * @param left the characters of the left string
+     * @param leftLength the length of the left string
+     * @param right the characters of the right string
+     * @param rightLength the length of the right string
+     * @param concat the characters of the concatenation
+     * @param concatLength the length of the concatenation
+     * @return constraint {@code concat = left ++ right}
      */
     public static Constraint concat(
             IntVar[] left, IntVar leftLength,
@@ -1139,22 +1160,24 @@ public class Constraints {
         if (leftLength.getLB() + rightLength.getLB() > concatLength.getUB()) {
             return leftLength.getModel().falseConstraint();
         }
-        List<Propagator<IntVar>> propagators = new ArrayList<>();
-        propagators.add(sumEq(new IntVar[]{leftLength, rightLength}, concatLength));
-        propagators.add(new PropSamePrefix(leftLength, left, concat));
-        for (int i = 0; i < right.length; i++) {
-            IntVar[] pad = pad(concat, left.length + i + 1, leftLength.getModel().intVar(0));
-            // See ICF.element(value, table, index, offset);
-            // TODO: Needs to add the same propagator twice because the implementation
-            // is not guaranteed to be idempotent. If it ever becomes idempotent, then
-            // follow their implementation.
-            propagators.add(new PropElementV_fast(right[i], pad, leftLength, -i, true));
-            propagators.add(new PropElementV_fast(right[i], pad, leftLength, -i, true));
-        }
         return new Constraint("Concat",
-                propagators.toArray(new Propagator<?>[propagators.size()]));
+                sumEq(new IntVar[]{leftLength, rightLength}, concatLength),
+                new PropSubstring(left, leftLength, null, concat, concatLength, false),
+                new PropSubstring(right, rightLength, leftLength, concat, concatLength, true));
     }
 
+    /**
+     * A constraint enforcing that {@code subarray} is the subarray of
+     * {@code suparray} starting at {@code index}. The subarray is padded with
+     * -1.
+     *
+     * @param subarray the elements of the subarray
+     * @param sublength the length of the subarray
+     * @param index the start of the subarray
+     * @param suparray the elements of the array
+     * @return constraint {@code subarray} is the subarray of {@code suparray}
+     * starting at {@code index}
+     */
     public static Constraint subarray(IntVar[] subarray, IntVar sublength, IntVar index, IntVar[] suparray) {
         if (sublength.getUB() < 0 || index.getUB() < 0 || suparray.length == 0) {
             return sublength.getModel().falseConstraint();
@@ -1162,43 +1185,10 @@ public class Constraints {
         if (subarray.length == 0) {
             return new Constraint(null, new PropEqualXC(sublength, 0), new PropLessOrEqualXC(index, suparray.length - 1));
         }
-        Propagators propagators = new Propagators(subarray.length + suparray.length + 1);
-        for (int i = 0; i < subarray.length; i++) {
-            IntVar[] pad = new IntVar[suparray.length];
-            int j;
-            for (j = 0; j < pad.length && j + i < suparray.length; j++) {
-                pad[j] = suparray[j + i];
-            }
-            for (; j < pad.length; j++) {
-                pad[j] = sublength.getModel().intVar(-1);
-            }
-            propagators.elementValueSupport(subarray[i], pad, index, 0, -1);
-        }
-        for (int i = 0; i < suparray.length; i++) {
-            IntVar[] pad = new IntVar[suparray.length + 1];
-            int j;
-            for (j = 0; j < i && i - j >= 0 && i - j < subarray.length; j++) {
-                pad[j] = subarray[i - j];
-            }
-            for (; j < pad.length; j++) {
-                pad[j] = sublength.getModel().intVar(-1);
-            }
-            propagators.elementArraySupport(suparray[i], pad, index, 0, -1);
-        }
-        propagators.length(subarray, sublength, -1);
-        return propagators.toConstraint("Substring", index.getModel());
-    }
-
-    private static IntVar[] pad(IntVar[] chars, int length, IntVar zero) {
-        if (length == chars.length) {
-            return chars;
-        }
-        if (length < chars.length) {
-            return Arrays.copyOf(chars, length);
-        }
-        IntVar[] pad = Arrays.copyOf(chars, length);
-        Arrays.fill(pad, chars.length, pad.length, zero);
-        return pad;
+        return new Constraint("Substring",
+                new PropSubstring(subarray, sublength, index, suparray, null, false),
+                new PropLessOrEqualXC(index, suparray.length - 1),
+                new PropLength(subarray, sublength, -1));
     }
 
     public static Constraint containsImpliesEqualTest(SetVar cond, int z,
@@ -1230,15 +1220,13 @@ public class Constraints {
         if (relation.length != closure.length) {
             throw new IllegalArgumentException();
         }
-        Propagators propagators = new Propagators(3 * relation.length + 3);
+        Propagators propagators = new Propagators(3 * relation.length + 1);
         for (int i = 0; i < relation.length; i++) {
             propagators.subsetEq(relation[i], closure[i]);
             propagators.leq(relation[i].getCard(), closure[i].getCard());
             propagators.post(new PropTransitiveCard(closure[i], Var.mapCard(closure)));
         }
-        propagators.post(new PropAtMostTransitiveClosure(relation, closure, false));
-        propagators.post(new PropTransitive(closure));
-        propagators.post(new PropTransitiveUnreachable(closure));
+        propagators.post(new PropTransitiveClosure(relation, closure, false));
         return propagators.toConstraint("transitive", relation[0].getModel());
     }
 
@@ -1246,16 +1234,13 @@ public class Constraints {
         if (relation.length != closure.length) {
             throw new IllegalArgumentException();
         }
-        Propagators propagators = new Propagators(3 * relation.length + 4);
+        Propagators propagators = new Propagators(3 * relation.length + 1);
         for (int i = 0; i < relation.length; i++) {
             propagators.subsetEq(relation[i], closure[i]);
             propagators.leq(relation[i].getCard(), closure[i].getCard());
             propagators.post(new PropTransitiveCard(closure[i], Var.mapCard(closure)));
         }
-        propagators.post(new PropAtMostTransitiveClosure(relation, closure, true));
-        propagators.post(new PropReflexive(closure));
-        propagators.post(new PropTransitive(closure));
-        propagators.post(new PropTransitiveUnreachable(closure));
+        propagators.post(new PropTransitiveClosure(relation, closure, true));
         return propagators.toConstraint("transitiveReflexive", relation[0].getModel());
     }
 }
@@ -0,0 +1,170 @@
+package org.clafer.choco.constraint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.clafer.common.Check;
+
+/**
+ * Statistics of the propagators collected by a
+ * {@link ProfilingPropagationEngine}, summed per propagator class and per
+ * constraint. The profile is a snapshot, it does not change as the search
+ * continues.
+ */
+public class PropagatorProfile {
+
+    private final List<Entry> byPropagator;
+    private final List<Entry> byConstraint;
+
+    PropagatorProfile(List<Entry> propagators) {
+        this.byPropagator = group(propagators, Entry::getPropagator);
+        this.byConstraint = group(propagators, Entry::getConstraint);
+    }
+
+    private PropagatorProfile(List<Entry> byPropagator, List<Entry> byConstraint) {
+        this.byPropagator = group(byPropagator, Entry::getPropagator);
+        this.byConstraint = group(byConstraint, Entry::getConstraint);
+    }
+
+    /**
+     * Sum the statistics of several searches, for example the copies of a
+     * portfolio.
+     *
+     * @param profiles the profiles
+     * @return the sum of the profiles
+     */
+    public static PropagatorProfile sum(List<PropagatorProfile> profiles) {
+        List<Entry> byPropagator = new ArrayList<>();
+        List<Entry> byConstraint = new ArrayList<>();
+        for (PropagatorProfile profile : profiles) {
+            byPropagator.addAll(profile.byPropagator);
+            byConstraint.addAll(profile.byConstraint);
+        }
+        return new PropagatorProfile(byPropagator, byConstraint);
+    }
+
+    private static List<Entry> group(List<Entry> propagators, Function<Entry, String> key) {
+        Map<String, Entry> groups = new LinkedHashMap<>();
+        for (Entry propagator : propagators) {
+            groups.merge(key.apply(propagator), propagator, Entry::plus);
+        }
+        List<Entry> entries = new ArrayList<>(groups.values());
+        entries.sort(Comparator.comparingLong(Entry::getTime).reversed());
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * @return the statistics per propagator class, slowest first
+     */
+    public List<Entry> getByPropagator() {
+        return byPropagator;
+    }
+
+    /**
+     * @return the statistics per constraint name, slowest first
+     */
+    public List<Entry> getByConstraint() {
+        return byConstraint;
+    }
+
+    private static void append(StringBuilder result, String header, List<Entry> entries, Function<Entry, String> key) {
+        result.append(String.format("%-40s %12s %12s %10s %14s%n", header, "calls", "time (ms)", "fails", "modifications"));
+        for (Entry entry : entries) {
+            result.append(String.format("%-40s %12d %12.3f %10d %14d%n",
+                    key.apply(entry), entry.getCalls(), entry.getTime() / 1e6, entry.getFails(), entry.getModifications()));
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        append(result, "Propagator", byPropagator, Entry::getPropagator);
+        result.append(System.lineSeparator());
+        append(result, "Constraint", byConstraint, Entry::getConstraint);
+        return result.toString();
+    }
+
+    /**
+     * The statistics of one propagator or of a group of propagators.
+     */
+    public static class Entry {
+
+        private final String propagator;
+        private final String constraint;
+        private final long calls;
+        private final long time;
+        private final long fails;
+        private final long modifications;
+
+        Entry(String propagator, String constraint, long calls, long time, long fails, long modifications) {
+            this.propagator = Check.notNull(propagator);
+            this.constraint = Check.notNull(constraint);
+            this.calls = calls;
+            this.time = time;
+            this.fails = fails;
+            this.modifications = modifications;
+        }
+
+        /**
+         * @return the name of the class of the propagator
+         */
+        public String getPropagator() {
+            return propagator;
+        }
+
+        /**
+         * @return the name of the constraint that posted the propagator
+         */
+        public String getConstraint() {
+            return constraint;
+        }
+
+        /**
+         * @return the number of times the propagator was executed
+         */
+        public long getCalls() {
+            return calls;
+        }
+
+        /**
+         * @return the time spent in the propagator in nanoseconds
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * @return the number of contradictions the propagator raised
+         */
+        public long getFails() {
+            return fails;
+        }
+
+        /**
+         * @return the number of domain modifications the propagator made
+         */
+        public long getModifications() {
+            return modifications;
+        }
+
+        Entry plus(Entry entry) {
+            return new Entry(
+                    propagator.equals(entry.propagator) ? propagator : "*",
+                    constraint.equals(entry.constraint) ? constraint : "*",
+                    calls + entry.calls,
+                    time + entry.time,
+                    fails + entry.fails,
+                    modifications + entry.modifications);
+        }
+
+        @Override
+        public String toString() {
+            return propagator + "/" + constraint + " calls=" + calls + " time=" + time
+                    + "ns fails=" + fails + " modifications=" + modifications;
+        }
+    }
+}
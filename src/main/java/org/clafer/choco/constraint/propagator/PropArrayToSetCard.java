@@ -1,6 +1,5 @@
 package org.clafer.choco.constraint.propagator;
 
-import gnu.trove.iterator.TIntIntIterator;
 import gnu.trove.map.hash.TIntIntHashMap;
 import java.util.Arrays;
 import org.chocosolver.solver.constraints.Propagator;
@@ -9,6 +8,7 @@ import org.chocosolver.solver.exception.ContradictionException;
 import org.chocosolver.solver.variables.IntVar;
 import org.chocosolver.solver.variables.Variable;
 import org.chocosolver.solver.variables.events.IntEventType;
+import org.chocosolver.solver.variables.events.PropagatorEventType;
 import org.chocosolver.util.ESat;
 
 /**
@@ -22,15 +22,17 @@ public class PropArrayToSetCard extends Propagator<Variable> {
     private final IntVar[] as;
     private final IntVar sCard;
     private final Integer globalCardinality;
+    private final ValueCounts counts;
 
     public PropArrayToSetCard(IntVar[] as, IntVar sCard, Integer globalCardinality) {
-        super(buildArray(sCard, as), PropagatorPriority.LINEAR, false);
+        super(buildArray(sCard, as), PropagatorPriority.LINEAR, true);
         if (as.length == 0) {
             throw new IllegalArgumentException();
         }
         this.as = as;
         this.sCard = sCard;
         this.globalCardinality = globalCardinality;
+        this.counts = new ValueCounts(sCard.getEnvironment(), as);
     }
 
     private static Variable[] buildArray(IntVar sCard, IntVar[] as) {
@@ -71,73 +73,44 @@ public class PropArrayToSetCard extends Propagator<Variable> {
         return IntEventType.boundAndInst();
     }
 
-    private int countAdditionalSameRefsAllowed(TIntIntHashMap map) {
-        assert hasGlobalCardinality();
-        int gc = getGlobalCardinality();
-
-        int allowed = 0;
-
-        if (gc != 1) {
-            TIntIntIterator iter = map.iterator();
-            for (int i = map.size(); i-- > 0;) {
-                iter.advance();
-                assert iter.value() > 0;
-                assert iter.value() <= gc;
-                allowed += gc - iter.value();
-            }
-            assert !iter.hasNext();
-        }
-
-        return allowed;
-    }
-
-    private TIntIntHashMap countRefs() {
-        TIntIntHashMap map = new TIntIntHashMap(as.length);
-        for (IntVar a : as) {
-            if (a.isInstantiated()) {
-                map.adjustOrPutValue(a.getValue(), 1, 1);
-            }
-        }
-        return map;
-    }
-
-    private TIntIntHashMap constrainGlobalCardinality() throws ContradictionException {
-        assert hasGlobalCardinality();
-        TIntIntHashMap map = new TIntIntHashMap(as.length);
-        for (int i = 0; i < as.length; i++) {
-            constrainGlobalCardinality(i, i, map);
-        }
-        assert map.size() == countRefs().size();
-        return map;
-    }
-
-    private void constrainGlobalCardinality(int index, int explored, TIntIntHashMap map) throws ContradictionException {
-        assert hasGlobalCardinality();
-        assert index <= explored;
-        assert explored < as.length;
-
-        IntVar a = as[index];
-        if (a.isInstantiated()) {
-            int value = a.getValue();
-            int count = map.adjustOrPutValue(value, 1, 1);
+    /**
+     * Count an instantiated variable. If the global cardinality is reached,
+     * remove the value from the uncounted variables.
+     */
+    private void count(int i) throws ContradictionException {
+        int value = as[i].getValue();
+        int count = counts.count(i, value);
+        if (hasGlobalCardinality()) {
             int gc = getGlobalCardinality();
-
             if (count == gc) {
-                for (int j = 0; j < explored; j++) {
-                    IntVar b = as[j];
-                    if (!b.isInstantiatedTo(value) && b.removeValue(value, this)) {
-                        constrainGlobalCardinality(j, explored, map);
+                for (int j = 0; j < as.length; j++) {
+                    if (!counts.isCounted(j) && as[j].removeValue(value, this) && as[j].isInstantiated()) {
+                        count(j);
                     }
                 }
-                for (int j = explored + 1; j < as.length; j++) {
-                    as[j].removeValue(value, this);
-                }
             } else if (count > gc) {
                 fails();
             }
         }
     }
 
+    private void countIfInstantiated(int i) throws ContradictionException {
+        if (!counts.isCounted(i) && as[i].isInstantiated()) {
+            count(i);
+        }
+    }
+
+    /**
+     * @param gc the global cardinality
+     * @param distinct the number of different values instantiated
+     * @param instantiated the number of instantiated variables, at most gc
+     * per value
+     * @return how many more variables can be instantiated to an existing value
+     */
+    private static int countAdditionalSameRefsAllowed(int gc, int distinct, int instantiated) {
+        return gc == 1 ? 0 : gc * distinct - instantiated;
+    }
+
     private static int divRoundUp(int a, int b) {
         assert a >= 0;
         assert b > 0;
@@ -145,22 +118,20 @@ public class PropArrayToSetCard extends Propagator<Variable> {
         return (a + b - 1) / b;
     }
 
-    @Override
-    public void propagate(int evtmask) throws ContradictionException {
+    /**
+     * Variables that are instantiated but not counted yet are treated as
+     * uninstantiated, which is weaker but sound. They are counted once their
+     * instantiation event arrives.
+     */
+    private void filter() throws ContradictionException {
         boolean changed;
         do {
             changed = false;
-            TIntIntHashMap map = hasGlobalCardinality() ? constrainGlobalCardinality() : countRefs();
-            int instCard = map.size();
-            int uninstantiated = 0;
-            for (IntVar a : as) {
-                if (!a.isInstantiated()) {
-                    uninstantiated++;
-                }
-            }
+            int instCard = counts.getDistinct();
+            int uninstantiated = as.length - counts.getTotal();
             int minCard = Math.max(1, instCard
                     + (hasGlobalCardinality()
-                    ? divRoundUp(Math.max(0, uninstantiated - countAdditionalSameRefsAllowed(map)), getGlobalCardinality())
+                    ? divRoundUp(Math.max(0, uninstantiated - countAdditionalSameRefsAllowed(getGlobalCardinality(), instCard, counts.getTotal())), getGlobalCardinality())
                     : 0));
             int maxCard = instCard + uninstantiated;
 
@@ -170,23 +141,37 @@ public class PropArrayToSetCard extends Propagator<Variable> {
             if (uninstantiated != 0) {
                 if (instCard == sCard.getUB()) {
                     // The rest must be duplicates.
-                    for (IntVar a : as) {
-                        assert !a.isInstantiated() || map.contains(a.getValue());
-                        if (!a.isInstantiated()) {
-                            changed |= PropUtil.domSubsetSet(a, map.keySet(), this) && a.isInstantiated();
+                    for (int i = 0; i < as.length; i++) {
+                        if (!counts.isCounted(i)) {
+                            IntVar a = as[i];
+                            int ub = a.getUB();
+                            for (int j = a.getLB(); j <= ub; j = a.nextValue(j)) {
+                                if (counts.getCount(j) == 0) {
+                                    a.removeValue(j, this);
+                                }
+                            }
+                            if (a.isInstantiated()) {
+                                count(i);
+                                changed = true;
+                            }
                         }
                     }
                 }
                 if (maxCard == sCard.getLB()) {
                     // No more duplicate values.
-                    for (IntVar a : as) {
-                        if (!a.isInstantiated()) {
-                            TIntIntIterator iter = map.iterator();
-                            for (int i = map.size(); i-- > 0;) {
-                                iter.advance();
-                                changed |= a.removeValue(iter.key(), this) && a.isInstantiated();
+                    for (int i = 0; i < as.length; i++) {
+                        if (!counts.isCounted(i)) {
+                            IntVar a = as[i];
+                            int ub = a.getUB();
+                            for (int j = a.getLB(); j <= ub; j = a.nextValue(j)) {
+                                if (counts.getCount(j) > 0) {
+                                    a.removeValue(j, this);
+                                }
+                            }
+                            if (a.isInstantiated()) {
+                                count(i);
+                                changed = true;
                             }
-                            assert !iter.hasNext();
                         }
                     }
                 }
@@ -194,6 +179,24 @@ public class PropArrayToSetCard extends Propagator<Variable> {
         } while (changed);
     }
 
+    @Override
+    public void propagate(int evtmask) throws ContradictionException {
+        if (PropagatorEventType.isFullPropagation(evtmask)) {
+            for (int i = 0; i < as.length; i++) {
+                countIfInstantiated(i);
+            }
+        }
+        filter();
+    }
+
+    @Override
+    public void propagate(int idxVarInProp, int mask) throws ContradictionException {
+        if (isAVar(idxVarInProp)) {
+            countIfInstantiated(getAVarIndex(idxVarInProp));
+        }
+        forcePropagate(PropagatorEventType.CUSTOM_PROPAGATION);
+    }
+
     @Override
     public ESat isEntailed() {
         TIntIntHashMap map = new TIntIntHashMap();
@@ -212,7 +215,7 @@ public class PropArrayToSetCard extends Propagator<Variable> {
         int instCard = map.size();
         int minCard = instCard
                 + (hasGlobalCardinality()
-                ? divRoundUp(Math.max(0, uninstantiated - countAdditionalSameRefsAllowed(map)), getGlobalCardinality())
+                ? divRoundUp(Math.max(0, uninstantiated - countAdditionalSameRefsAllowed(gc, instCard, as.length - uninstantiated)), getGlobalCardinality())
                 : 0);
         int maxCard = instCard + uninstantiated;
 
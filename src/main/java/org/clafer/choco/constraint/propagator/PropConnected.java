@@ -0,0 +1,704 @@
+package org.clafer.choco.constraint.propagator;
+
+import java.util.Arrays;
+import org.chocosolver.memory.IStateInt;
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.constraints.PropagatorPriority;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.SetVar;
+import org.chocosolver.solver.variables.events.PropagatorEventType;
+import org.chocosolver.solver.variables.events.SetEventType;
+import org.chocosolver.util.ESat;
+import org.chocosolver.util.objects.setDataStructures.ISet;
+import org.chocosolver.util.objects.setDataStructures.ISetIterator;
+
+/**
+ * Every node in {@code nodes} can reach every other node in {@code nodes}.
+ * {@code j ∈ edges[i]} implies that there is an edge from node i to node j.
+ * Paths can go through any node, not only the nodes in {@code nodes}. Edges to
+ * nodes outside of {@code [0, edges.length)} are ignored. If the graph is
+ * undirected, every edge can be followed in both directions. If the graph is
+ * directed, the nodes must be strongly connected and every node must also
+ * reach itself through at least one edge, so a single node needs a cycle.
+ *
+ * The propagator removes every node that is not connected to the first node
+ * that entered the kernel. If the graph is undirected, the propagator also
+ * forces every bridge that separates two nodes in the kernel. If the graph is
+ * directed, the propagator forces the only outgoing and the only incoming arc
+ * of the nodes in the kernel, and every strong bridge on the way from the
+ * root to a node in the kernel and back, found with dominator trees.
+ *
+ * The kernels and envelopes of the edges are mirrored in rows of bits, one
+ * bit per node, along with their transpose. Only the rows of the edges that
+ * changed since the last propagation are reloaded. The mirror is only valid in
+ * the world it was loaded in, a backtrackable stamp detects when the solver
+ * has backtracked past it and everything is reloaded. The nodes reachable in
+ * the envelope are only searched again after an arc leaving the reached nodes
+ * is removed. The components of the kernel are kept in a union-find with
+ * backtrackable leaders. Once every node in the kernel is in the same
+ * component, an undirected graph has no bridge left to force.
+ */
+public class PropConnected extends Propagator<SetVar> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final SetVar nodes;
+    private final SetVar[] edges;
+    private final boolean directed;
+    private final int n;
+    private final int words;
+    private final long[][] kerOut;
+    private final long[][] kerIn;
+    private final long[][] envOut;
+    private final long[][] envIn;
+    /**
+     * The rows that changed since the last propagation. Indexed like vars.
+     */
+    private final boolean[] dirty;
+    private final IStateInt stamp;
+    private int loadedStamp = -1;
+    private int stamps = 0;
+    /**
+     * The leaders of the components of the kernel.
+     */
+    private final IStateInt[] leaders;
+    /**
+     * Every node is reached from the root, and in a directed graph also
+     * reaches the root, therefore the root cannot change.
+     */
+    private final IStateInt root;
+    /**
+     * The nodes reachable from the root in the envelope and, if directed, the
+     * nodes that reach the root in the envelope.
+     */
+    private final long[] forward;
+    private final long[] backward;
+    private int reachRoot = -1;
+    private boolean reachValid = false;
+    // Scratch space for the searches.
+    private final int[] stack;
+    private final int[] disc;
+    private final int[] low;
+    private final int[] kernel;
+    private final int[] parent;
+    private final int[] cursor;
+    private final long[] row;
+
+    public PropConnected(SetVar nodes, SetVar[] edges, boolean directed) {
+        super(buildArray(nodes, edges), PropagatorPriority.LINEAR, true);
+        this.nodes = nodes;
+        this.edges = edges;
+        this.directed = directed;
+        this.n = edges.length;
+        this.words = (n + 63) >>> 6;
+        this.kerOut = new long[n][words];
+        this.kerIn = new long[n][words];
+        this.envOut = new long[n][words];
+        this.envIn = new long[n][words];
+        this.dirty = new boolean[n + 1];
+        this.stamp = nodes.getEnvironment().makeInt(0);
+        this.leaders = new IStateInt[n];
+        for (int i = 0; i < n; i++) {
+            this.leaders[i] = nodes.getEnvironment().makeInt(i);
+        }
+        this.root = nodes.getEnvironment().makeInt(-1);
+        this.forward = new long[words];
+        this.backward = new long[words];
+        this.stack = new int[n];
+        this.disc = new int[n];
+        this.low = new int[n];
+        this.kernel = new int[n];
+        this.parent = new int[n];
+        this.cursor = new int[n];
+        this.row = new long[words];
+    }
+
+    private static SetVar[] buildArray(SetVar nodes, SetVar[] edges) {
+        SetVar[] array = new SetVar[edges.length + 1];
+        array[0] = nodes;
+        System.arraycopy(edges, 0, array, 1, edges.length);
+        return array;
+    }
+
+    @Override
+    public int getPropagationConditions(int vIdx) {
+        return SetEventType.all();
+    }
+
+    private static boolean get(long[] row, int i) {
+        return (row[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private static void set(long[] row, int i) {
+        row[i >>> 6] |= 1L << i;
+    }
+
+    private static void clear(long[] row, int i) {
+        row[i >>> 6] &= ~(1L << i);
+    }
+
+    private static int nextSetBit(long[] row, int from) {
+        int w = from >>> 6;
+        if (w >= row.length) {
+            return -1;
+        }
+        long word = row[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == row.length) {
+                return -1;
+            }
+            word = row[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    private static int cardinality(long[] row) {
+        int count = 0;
+        for (long word : row) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    private void load(ISet set, long[] row) {
+        Arrays.fill(row, 0);
+        ISetIterator iter = set.iterator();
+        while (iter.hasNext()) {
+            int i = iter.nextInt();
+            if (i >= 0 && i < n) {
+                set(row, i);
+            }
+        }
+    }
+
+    private void loadAll() {
+        for (int i = 0; i < n; i++) {
+            Arrays.fill(kerIn[i], 0);
+            Arrays.fill(envIn[i], 0);
+        }
+        for (int i = 0; i < n; i++) {
+            load(edges[i].getLB(), kerOut[i]);
+            load(edges[i].getUB(), envOut[i]);
+            for (int j = nextSetBit(envOut[i], 0); j != -1; j = nextSetBit(envOut[i], j + 1)) {
+                set(envIn[j], i);
+            }
+            for (int j = nextSetBit(kerOut[i], 0); j != -1; j = nextSetBit(kerOut[i], j + 1)) {
+                set(kerIn[j], i);
+                union(i, j);
+            }
+        }
+        reachValid = false;
+    }
+
+    /**
+     * Reload the row of node i and update the transpose, the components, and
+     * the reached nodes with the difference.
+     */
+    private void load(int i) {
+        long[] env = envOut[i];
+        System.arraycopy(env, 0, row, 0, words);
+        load(edges[i].getUB(), env);
+        for (int w = 0; w < words; w++) {
+            long removed = row[w] & ~env[w];
+            while (removed != 0) {
+                int j = (w << 6) + Long.numberOfTrailingZeros(removed);
+                removed &= removed - 1;
+                clear(envIn[j], i);
+                if (reachValid && isReachArc(i, j)) {
+                    reachValid = false;
+                }
+            }
+        }
+        long[] ker = kerOut[i];
+        System.arraycopy(ker, 0, row, 0, words);
+        load(edges[i].getLB(), ker);
+        for (int w = 0; w < words; w++) {
+            long added = ker[w] & ~row[w];
+            while (added != 0) {
+                int j = (w << 6) + Long.numberOfTrailingZeros(added);
+                added &= added - 1;
+                set(kerIn[j], i);
+                union(i, j);
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the arc from i to j can be on a path the last
+     * search followed, {@code false} otherwise
+     */
+    private boolean isReachArc(int i, int j) {
+        if (directed) {
+            return i == reachRoot || get(forward, i) || j == reachRoot || get(backward, j);
+        }
+        return get(forward, i);
+    }
+
+    private void force(int i, int j) throws ContradictionException {
+        if (edges[i].force(j, this)) {
+            set(kerOut[i], j);
+            set(kerIn[j], i);
+            union(i, j);
+        }
+    }
+
+    private int getLeader(int node) {
+        int leader = leaders[node].get();
+        if (leader == node) {
+            return node;
+        }
+        // Find the real leader.
+        int realLeader = getLeader(leader);
+        // Remember the real leader.
+        if (realLeader != leader) {
+            leaders[node].set(realLeader);
+        }
+        return realLeader;
+    }
+
+    private void union(int i, int j) {
+        int leaderI = getLeader(i);
+        int leaderJ = getLeader(j);
+        if (leaderI < leaderJ) {
+            leaders[leaderJ].set(leaderI);
+        } else if (leaderJ < leaderI) {
+            leaders[leaderI].set(leaderJ);
+        }
+    }
+
+    private boolean isOneComponent(int root, ISet ker) {
+        int leader = getLeader(root);
+        ISetIterator iter = ker.iterator();
+        while (iter.hasNext()) {
+            if (getLeader(iter.nextInt()) != leader) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Mark every node reachable from the root following the arcs of out and,
+     * if in is not null, also the arcs of in. The root is only marked if
+     * reflexive or it is on a cycle.
+     */
+    private void reach(int root, long[][] out, long[][] in, boolean reflexive, long[] seen) {
+        Arrays.fill(seen, 0);
+        int size = 0;
+        if (reflexive) {
+            set(seen, root);
+            stack[size++] = root;
+        } else {
+            size = push(out[root], seen, size);
+            if (in != null) {
+                size = push(in[root], seen, size);
+            }
+        }
+        while (size > 0) {
+            int i = stack[--size];
+            size = push(out[i], seen, size);
+            if (in != null) {
+                size = push(in[i], seen, size);
+            }
+        }
+    }
+
+    private int push(long[] successors, long[] seen, int size) {
+        for (int w = 0; w < words; w++) {
+            long unseen = successors[w] & ~seen[w];
+            if (unseen != 0) {
+                seen[w] |= unseen;
+                do {
+                    stack[size++] = (w << 6) + Long.numberOfTrailingZeros(unseen);
+                    unseen &= unseen - 1;
+                } while (unseen != 0);
+            }
+        }
+        return size;
+    }
+
+    private void reach(int root, long[][] out, long[][] in) {
+        if (directed) {
+            reach(root, out, null, false, forward);
+            reach(root, in, null, false, backward);
+        } else {
+            reach(root, out, in, true, forward);
+        }
+    }
+
+    private boolean connected(int i) {
+        return get(forward, i) && (!directed || get(backward, i));
+    }
+
+    /**
+     * Every node in the kernel must reach and be reached from a node in the
+     * kernel, itself included. A node in the kernel with only one outgoing or
+     * only one incoming arc must use that arc in every solution.
+     */
+    private void forceOnlyArcs(ISet ker) throws ContradictionException {
+        ISetIterator iter = ker.iterator();
+        while (iter.hasNext()) {
+            int i = iter.nextInt();
+            if (cardinality(envOut[i]) == 1) {
+                force(i, nextSetBit(envOut[i], 0));
+            }
+            if (cardinality(envIn[i]) == 1) {
+                force(nextSetBit(envIn[i], 0), i);
+            }
+        }
+    }
+
+    /**
+     * The number of arcs between two different nodes, in either direction.
+     */
+    private int arcs(int i, int j) {
+        return (get(envOut[i], j) ? 1 : 0) + (get(envIn[i], j) ? 1 : 0);
+    }
+
+    /**
+     * The next neighbour of i at or after the cursor, following the arcs in
+     * either direction.
+     */
+    private int nextNeighbour(int i, int from) {
+        long[] out = envOut[i];
+        long[] in = envIn[i];
+        int w = from >>> 6;
+        if (w >= words) {
+            return -1;
+        }
+        long word = (out[w] | in[w]) & (-1L << from);
+        while (word == 0) {
+            if (++w == words) {
+                return -1;
+            }
+            word = out[w] | in[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Search the component of the root for bridges with an iterative low-link
+     * search. Two arcs between the same nodes in opposite directions are
+     * parallel edges and not bridges. A bridge with nodes in the kernel on
+     * both sides must be in every solution.
+     */
+    private void forceBridges(int root, ISet ker) throws ContradictionException {
+        Arrays.fill(disc, -1);
+        int time = 0;
+        int size = 0;
+        int kerSize = ker.size();
+        disc[root] = low[root] = time++;
+        kernel[root] = 1;
+        parent[root] = -1;
+        cursor[root] = 0;
+        stack[size++] = root;
+        while (size > 0) {
+            int i = stack[size - 1];
+            int j = nextNeighbour(i, cursor[i]);
+            if (j != -1) {
+                cursor[i] = j + 1;
+                if (j == i || (j == parent[i] && arcs(i, j) == 1)) {
+                    // A self loop, or the only edge to the parent.
+                    continue;
+                }
+                if (disc[j] == -1) {
+                    disc[j] = low[j] = time++;
+                    kernel[j] = ker.contains(j) ? 1 : 0;
+                    parent[j] = i;
+                    cursor[j] = 0;
+                    stack[size++] = j;
+                } else {
+                    low[i] = Math.min(low[i], disc[j]);
+                }
+            } else {
+                size--;
+                int p = parent[i];
+                if (p != -1) {
+                    low[p] = Math.min(low[p], low[i]);
+                    kernel[p] += kernel[i];
+                    if (low[i] > disc[p] && kernel[i] > 0 && kernel[i] < kerSize) {
+                        if (get(envOut[p], i)) {
+                            force(p, i);
+                        } else {
+                            force(i, p);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Compute the dominator tree of the nodes reachable from the root
+     * following the arcs of out with the iterative algorithm of Cooper,
+     * Harvey, and Kennedy. The postorder of the search is stored in disc and
+     * the immediate dominators in low, both -1 for unreachable nodes.
+     *
+     * @return the number of reachable nodes, indexed by postorder in kernel
+     */
+    private int dominators(int root, long[][] out, long[][] in) {
+        Arrays.fill(disc, -1);
+        Arrays.fill(low, -1);
+        int time = 0;
+        int size = 0;
+        // Mark the nodes on the stack, disc is only set once they are done.
+        Arrays.fill(parent, 0);
+        parent[root] = 1;
+        cursor[root] = 0;
+        stack[size++] = root;
+        while (size > 0) {
+            int i = stack[size - 1];
+            int j = nextSetBit(out[i], cursor[i]);
+            if (j != -1) {
+                cursor[i] = j + 1;
+                if (parent[j] == 0) {
+                    parent[j] = 1;
+                    cursor[j] = 0;
+                    stack[size++] = j;
+                }
+            } else {
+                size--;
+                disc[i] = time;
+                kernel[time++] = i;
+            }
+        }
+        low[root] = root;
+        boolean changed;
+        do {
+            changed = false;
+            // Reverse postorder, skipping the root.
+            for (int t = time - 2; t >= 0; t--) {
+                int v = kernel[t];
+                int idom = -1;
+                for (int p = nextSetBit(in[v], 0); p != -1; p = nextSetBit(in[v], p + 1)) {
+                    if (low[p] != -1) {
+                        idom = idom == -1 ? p : intersect(p, idom);
+                    }
+                }
+                if (idom != low[v]) {
+                    low[v] = idom;
+                    changed = true;
+                }
+            }
+        } while (changed);
+        return time;
+    }
+
+    private int intersect(int a, int b) {
+        while (a != b) {
+            while (disc[a] < disc[b]) {
+                a = low[a];
+            }
+            while (disc[b] < disc[a]) {
+                b = low[b];
+            }
+        }
+        return a;
+    }
+
+    private boolean dominates(int dominator, int node) {
+        while (node != dominator) {
+            int idom = low[node];
+            if (idom == node) {
+                return false;
+            }
+            node = idom;
+        }
+        return true;
+    }
+
+    /**
+     * Every path from the root to a node in the kernel, or from a node in the
+     * kernel to the root if backwards, must use the arc into v from its
+     * immediate dominator u if the other predecessors of v can only be
+     * reached through v. Such an arc is a strong bridge that must be in every
+     * solution if v dominates a node in the kernel.
+     */
+    private void forceStrongBridges(int root, ISet ker, boolean backwards) throws ContradictionException {
+        long[][] out = backwards ? envIn : envOut;
+        long[][] in = backwards ? envOut : envIn;
+        int reached = dominators(root, out, in);
+        // Count the nodes in the kernel dominated by each node, children in
+        // the dominator tree finish before their parents.
+        int[] count = cursor;
+        Arrays.fill(count, 0);
+        for (int t = 0; t < reached - 1; t++) {
+            int v = kernel[t];
+            if (ker.contains(v)) {
+                count[v]++;
+            }
+            count[low[v]] += count[v];
+        }
+        for (int t = 0; t < reached - 1; t++) {
+            int v = kernel[t];
+            int u = low[v];
+            if (count[v] == 0 || !get(out[u], v)) {
+                continue;
+            }
+            boolean bridge = true;
+            for (int w = nextSetBit(in[v], 0); w != -1 && bridge; w = nextSetBit(in[v], w + 1)) {
+                bridge = w == u || disc[w] == -1 || dominates(v, w);
+            }
+            if (bridge) {
+                if (backwards) {
+                    force(v, u);
+                } else {
+                    force(u, v);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the kernel of the edges already connects the
+     * nodes in the kernel, {@code false} otherwise
+     */
+    private boolean isKernelConnected(int root, ISet ker) {
+        if (!isOneComponent(root, ker)) {
+            // Not even weakly connected.
+            return false;
+        }
+        if (!directed) {
+            return true;
+        }
+        reach(root, kerOut, null, false, row);
+        ISetIterator iter = ker.iterator();
+        while (iter.hasNext()) {
+            if (!get(row, iter.nextInt())) {
+                return false;
+            }
+        }
+        reach(root, kerIn, null, false, row);
+        iter = ker.iterator();
+        while (iter.hasNext()) {
+            if (!get(row, iter.nextInt())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void propagate(int evtmask) throws ContradictionException {
+        if (PropagatorEventType.isFullPropagation(evtmask)) {
+            ISetIterator iter = nodes.getUB().iterator();
+            while (iter.hasNext()) {
+                int i = iter.nextInt();
+                if (i < 0 || i >= n) {
+                    nodes.remove(i, this);
+                }
+            }
+        }
+        boolean nodesChanged = dirty[0];
+        if (stamp.get() != loadedStamp) {
+            loadAll();
+            nodesChanged = true;
+        } else {
+            for (int i = 0; i < n; i++) {
+                if (dirty[i + 1]) {
+                    load(i);
+                }
+            }
+        }
+        Arrays.fill(dirty, false);
+        // The mirror is about to change, it is only valid in this world.
+        loadedStamp = ++stamps;
+        stamp.set(loadedStamp);
+
+        ISet ker = nodes.getLB();
+        if (ker.isEmpty()) {
+            return;
+        }
+        int r = root.get();
+        if (r == -1) {
+            r = ker.iterator().nextInt();
+            root.set(r);
+        }
+        boolean reachChanged = !reachValid || r != reachRoot;
+        if (reachChanged) {
+            reach(r, envOut, envIn);
+            reachRoot = r;
+            reachValid = true;
+        }
+        if (reachChanged || nodesChanged) {
+            ISetIterator iter = nodes.getUB().iterator();
+            while (iter.hasNext()) {
+                int i = iter.nextInt();
+                if (!connected(i)) {
+                    nodes.remove(i, this);
+                }
+            }
+        }
+        if (directed) {
+            forceOnlyArcs(ker);
+            if (reachChanged || nodesChanged) {
+                forceStrongBridges(r, ker, false);
+                forceStrongBridges(r, ker, true);
+            }
+        } else if ((reachChanged || nodesChanged) && ker.size() > 1 && !isOneComponent(r, ker)) {
+            forceBridges(r, ker);
+        }
+        if (nodes.isInstantiated() && isKernelConnected(r, ker)) {
+            setPassive();
+        }
+    }
+
+    @Override
+    public void propagate(int idx, int mask) throws ContradictionException {
+        dirty[idx] = true;
+        forcePropagate(PropagatorEventType.CUSTOM_PROPAGATION);
+    }
+
+    @Override
+    public ESat isEntailed() {
+        ISet ker = nodes.getLB();
+        ISetIterator iter = ker.iterator();
+        while (iter.hasNext()) {
+            int i = iter.nextInt();
+            if (i < 0 || i >= n) {
+                return ESat.FALSE;
+            }
+        }
+        if (ker.isEmpty()) {
+            return nodes.isInstantiated() ? ESat.TRUE : ESat.UNDEFINED;
+        }
+        int r = ker.iterator().nextInt();
+        long[][] out = new long[n][words];
+        long[][] in = new long[n][words];
+        for (boolean envelope : new boolean[]{true, false}) {
+            for (int i = 0; i < n; i++) {
+                Arrays.fill(in[i], 0);
+            }
+            for (int i = 0; i < n; i++) {
+                load(envelope ? edges[i].getUB() : edges[i].getLB(), out[i]);
+                for (int j = nextSetBit(out[i], 0); j != -1; j = nextSetBit(out[i], j + 1)) {
+                    set(in[j], i);
+                }
+            }
+            long[] forwardReach = new long[words];
+            long[] backwardReach = new long[words];
+            if (directed) {
+                reach(r, out, null, false, forwardReach);
+                reach(r, in, null, false, backwardReach);
+            } else {
+                reach(r, out, in, true, forwardReach);
+            }
+            iter = ker.iterator();
+            while (iter.hasNext()) {
+                int i = iter.nextInt();
+                if (!get(forwardReach, i) || (directed && !get(backwardReach, i))) {
+                    return envelope ? ESat.FALSE : ESat.UNDEFINED;
+                }
+            }
+            if (envelope && !nodes.isInstantiated()) {
+                return ESat.UNDEFINED;
+            }
+        }
+        return ESat.TRUE;
+    }
+
+    @Override
+    public String toString() {
+        return "connected(" + nodes + ", " + Arrays.toString(edges) + ", " + (directed ? "directed" : "undirected") + ")";
+    }
+}
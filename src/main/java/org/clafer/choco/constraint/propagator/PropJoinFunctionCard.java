@@ -1,6 +1,5 @@
 package org.clafer.choco.constraint.propagator;
 
-import gnu.trove.iterator.TIntIntIterator;
 import gnu.trove.map.hash.TIntIntHashMap;
 import java.util.Arrays;
 import org.chocosolver.solver.constraints.Propagator;
@@ -9,7 +8,9 @@ import org.chocosolver.solver.exception.ContradictionException;
 import org.chocosolver.solver.variables.IntVar;
 import org.chocosolver.solver.variables.SetVar;
 import org.chocosolver.solver.variables.Variable;
+import org.chocosolver.solver.variables.delta.ISetDeltaMonitor;
 import org.chocosolver.solver.variables.events.IntEventType;
+import org.chocosolver.solver.variables.events.PropagatorEventType;
 import org.chocosolver.solver.variables.events.SetEventType;
 import org.chocosolver.util.ESat;
 import org.chocosolver.util.objects.setDataStructures.ISetIterator;
@@ -23,18 +24,22 @@ public class PropJoinFunctionCard extends Propagator<Variable> {
     private static final long serialVersionUID = 1L;
 
     private final SetVar take;
+    private final ISetDeltaMonitor takeD;
     private final IntVar takeCard;
     private final IntVar[] refs;
     private final IntVar toCard;
     private final Integer globalCardinality;
+    private final ValueCounts counts;
 
     public PropJoinFunctionCard(SetVar take, IntVar takeCard, IntVar[] refs, IntVar toCard, Integer globalCardinality) {
-        super(buildArray(take, takeCard, toCard, refs), PropagatorPriority.LINEAR, false);
+        super(buildArray(take, takeCard, toCard, refs), PropagatorPriority.LINEAR, true);
         this.take = take;
+        this.takeD = take.monitorDelta(this);
         this.takeCard = takeCard;
         this.refs = refs;
         this.toCard = toCard;
         this.globalCardinality = globalCardinality;
+        this.counts = new ValueCounts(take.getEnvironment(), refs);
     }
 
     private static Variable[] buildArray(SetVar take, IntVar takeCard, IntVar toCard, IntVar[] refs) {
@@ -76,13 +81,6 @@ public class PropJoinFunctionCard extends Propagator<Variable> {
         return globalCardinality.intValue();
     }
 
-//    @Override
-//    public boolean advise(int idxVarInProp, int mask) {
-//        if (isRefVar(idxVarInProp)) {
-//            return take.getUB().contains(getRefVarIndex(idxVarInProp));
-//        }
-//        return super.advise(idxVarInProp, mask);
-//    }
     @Override
     public int getPropagationConditions(int vIdx) {
         if (isTakeVar(vIdx)) {
@@ -95,76 +93,48 @@ public class PropJoinFunctionCard extends Propagator<Variable> {
         return IntEventType.boundAndInst();
     }
 
-    private int countAdditionalSameRefsAllowed(TIntIntHashMap map) {
-        assert hasGlobalCardinality();
-        int gc = getGlobalCardinality();
-
-        int allowed = 0;
-
-        if (gc != 1) {
-            TIntIntIterator iter = map.iterator();
-            for (int i = map.size(); i-- > 0;) {
-                iter.advance();
-                assert iter.value() > 0;
-                assert iter.value() <= gc;
-                allowed += gc - iter.value();
-            }
-            assert !iter.hasNext();
-        }
-
-        return allowed;
-    }
-
-    private TIntIntHashMap countRefs() {
-        TIntIntHashMap map = new TIntIntHashMap(take.getLB().size());
-        ISetIterator iter = take.getLB().iterator();
-        while (iter.hasNext()) {
-            int i = iter.nextInt();
-            IntVar ref = refs[i];
-            if (ref.isInstantiated()) {
-                map.adjustOrPutValue(ref.getValue(), 1, 1);
-            }
-        }
-        return map;
-    }
-
-    private TIntIntHashMap constrainGlobalCardinality() throws ContradictionException {
-        assert hasGlobalCardinality();
-        int[] ker = PropUtil.iterateKer(take);
-        TIntIntHashMap map = new TIntIntHashMap(ker.length);
-        for (int i = 0; i < ker.length; i++) {
-            constrainGlobalCardinality(ker, i, i, map);
-        }
-        return map;
+    /**
+     * @param gc the global cardinality
+     * @param distinct the number of different values instantiated
+     * @param instantiated the number of instantiated variables, at most gc
+     * per value
+     * @return how many more variables can be instantiated to an existing value
+     */
+    private static int countAdditionalSameRefsAllowed(int gc, int distinct, int instantiated) {
+        return gc == 1 ? 0 : gc * distinct - instantiated;
     }
 
-    private void constrainGlobalCardinality(int[] ker, int index, int explored, TIntIntHashMap map) throws ContradictionException {
-        assert hasGlobalCardinality();
-        assert index <= explored;
-        assert explored < ker.length;
-
-        IntVar a = refs[ker[index]];
-        if (a.isInstantiated()) {
-            int value = a.getValue();
-            int count = map.adjustOrPutValue(value, 1, 1);
+    /**
+     * Count an instantiated reference in the kernel. If the global
+     * cardinality is reached, remove the value from the uncounted references
+     * in the kernel.
+     */
+    private void count(int i) throws ContradictionException {
+        assert take.getLB().contains(i);
+        int value = refs[i].getValue();
+        int count = counts.count(i, value);
+        if (hasGlobalCardinality()) {
             int gc = getGlobalCardinality();
-
             if (count == gc) {
-                for (int j = 0; j < explored; j++) {
-                    IntVar b = refs[ker[j]];
-                    if (!b.isInstantiatedTo(value) && b.removeValue(value, this)) {
-                        constrainGlobalCardinality(ker, j, explored, map);
+                ISetIterator iter = take.getLB().iterator();
+                while (iter.hasNext()) {
+                    int j = iter.nextInt();
+                    if (!counts.isCounted(j) && refs[j].removeValue(value, this) && refs[j].isInstantiated()) {
+                        count(j);
                     }
                 }
-                for (int j = explored + 1; j < ker.length; j++) {
-                    refs[ker[j]].removeValue(value, this);
-                }
             } else if (count > gc) {
                 fails();
             }
         }
     }
 
+    private void countIfInstantiated(int i) throws ContradictionException {
+        if (!counts.isCounted(i) && refs[i].isInstantiated()) {
+            count(i);
+        }
+    }
+
     private static int divRoundUp(int a, int b) {
         assert a >= 0;
         assert b > 0;
@@ -172,25 +142,21 @@ public class PropJoinFunctionCard extends Propagator<Variable> {
         return (a + b - 1) / b;
     }
 
-    @Override
-    public void propagate(int evtmask) throws ContradictionException {
+    /**
+     * References in the kernel that are instantiated but not counted yet are
+     * treated as uninstantiated, which is weaker but sound. They are counted
+     * once their event arrives.
+     */
+    private void filter() throws ContradictionException {
         takeCard.updateLowerBound(take.getLB().size(), this);
         takeCard.updateUpperBound(take.getUB().size(), this);
 
-        ISetIterator takeEnv = take.getUB().iterator();
-        while (takeEnv.hasNext()) {
-            int i = takeEnv.nextInt();
-            if (i < 0 || i >= refs.length) {
-                take.remove(i, this);
-            }
-        }
-
         boolean changed;
         do {
             changed = false;
-            TIntIntHashMap map = hasGlobalCardinality() ? constrainGlobalCardinality() : countRefs();
-            int instCard = map.size();
+            int instCard = counts.getDistinct();
             int kerSize = take.getLB().size();
+            int kerUninstantiated = kerSize - counts.getTotal();
 
             int minUninstantiated;
             int maxUninstantiated;
@@ -199,22 +165,14 @@ public class PropJoinFunctionCard extends Propagator<Variable> {
             boolean cardChanged;
             do {
                 cardChanged = false;
-                int kerUninstantiated = 0;
-                takeEnv.reset();
-                while (takeEnv.hasNext()) {
-                    int i = takeEnv.nextInt();
-                    if (!refs[i].isInstantiated()) {
-                        if (take.getLB().contains(i)) {
-                            kerUninstantiated++;
-                        }
-                    }
-                }
                 assert takeCard.getLB() >= kerSize;
                 minUninstantiated = takeCard.getLB() - kerSize + kerUninstantiated;
                 maxUninstantiated = takeCard.getUB() - kerSize + kerUninstantiated;
                 minCard = instCard
                         + (hasGlobalCardinality()
-                                ? divRoundUp(Math.max(0, minUninstantiated - countAdditionalSameRefsAllowed(map)), getGlobalCardinality())
+                                ? divRoundUp(Math.max(0, minUninstantiated
+                                                - countAdditionalSameRefsAllowed(getGlobalCardinality(), instCard, counts.getTotal())),
+                                        getGlobalCardinality())
                                 : 0);
                 maxCard = instCard + maxUninstantiated;
 
@@ -233,10 +191,18 @@ public class PropJoinFunctionCard extends Propagator<Variable> {
                     ISetIterator takeKer = take.getLB().iterator();
                     while (takeKer.hasNext()) {
                         int i = takeKer.nextInt();
-                        IntVar ref = refs[i];
-                        assert !ref.isInstantiated() || map.contains(ref.getValue());
-                        if (!ref.isInstantiated()) {
-                            changed |= PropUtil.domSubsetSet(ref, map.keySet(), this) && ref.isInstantiated();
+                        if (!counts.isCounted(i)) {
+                            IntVar ref = refs[i];
+                            int ub = ref.getUB();
+                            for (int j = ref.getLB(); j <= ub; j = ref.nextValue(j)) {
+                                if (counts.getCount(j) == 0) {
+                                    ref.removeValue(j, this);
+                                }
+                            }
+                            if (ref.isInstantiated()) {
+                                count(i);
+                                changed = true;
+                            }
                         }
                     }
                 }
@@ -245,14 +211,18 @@ public class PropJoinFunctionCard extends Propagator<Variable> {
                     ISetIterator takeKer = take.getLB().iterator();
                     while (takeKer.hasNext()) {
                         int i = takeKer.nextInt();
-                        IntVar ref = refs[i];
-                        if (!ref.isInstantiated()) {
-                            TIntIntIterator iter = map.iterator();
-                            for (int j = map.size(); j-- > 0;) {
-                                iter.advance();
-                                changed |= ref.removeValue(iter.key(), this) && ref.isInstantiated();
+                        if (!counts.isCounted(i)) {
+                            IntVar ref = refs[i];
+                            int ub = ref.getUB();
+                            for (int j = ref.getLB(); j <= ub; j = ref.nextValue(j)) {
+                                if (counts.getCount(j) > 0) {
+                                    ref.removeValue(j, this);
+                                }
+                            }
+                            if (ref.isInstantiated()) {
+                                count(i);
+                                changed = true;
                             }
-                            assert !iter.hasNext();
                         }
                     }
                 }
@@ -260,10 +230,46 @@ public class PropJoinFunctionCard extends Propagator<Variable> {
         } while (changed);
     }
 
+    @Override
+    public void propagate(int evtmask) throws ContradictionException {
+        if (PropagatorEventType.isFullPropagation(evtmask)) {
+            ISetIterator takeEnv = take.getUB().iterator();
+            while (takeEnv.hasNext()) {
+                int i = takeEnv.nextInt();
+                if (i < 0 || i >= refs.length) {
+                    take.remove(i, this);
+                }
+            }
+            ISetIterator takeKer = take.getLB().iterator();
+            while (takeKer.hasNext()) {
+                countIfInstantiated(takeKer.nextInt());
+            }
+        }
+        filter();
+    }
+
+    @Override
+    public void propagate(int idxVarInProp, int mask) throws ContradictionException {
+        if (isTakeVar(idxVarInProp)) {
+            takeD.freeze();
+            takeD.forEach(this::countIfInstantiated, SetEventType.ADD_TO_KER);
+            takeD.unfreeze();
+        } else if (isRefVar(idxVarInProp)) {
+            int i = getRefVarIndex(idxVarInProp);
+            if (!take.getLB().contains(i)) {
+                // Only the references in the kernel are counted.
+                return;
+            }
+            countIfInstantiated(i);
+        }
+        forcePropagate(PropagatorEventType.CUSTOM_PROPAGATION);
+    }
+
     @Override
     public ESat isEntailed() {
         TIntIntHashMap map = new TIntIntHashMap();
         int gc = hasGlobalCardinality() ? getGlobalCardinality() : Integer.MAX_VALUE;
+        int instantiated = 0;
         ISetIterator takeKer = take.getLB().iterator();
         while (takeKer.hasNext()) {
             int i = takeKer.nextInt();
@@ -275,6 +281,7 @@ public class PropJoinFunctionCard extends Propagator<Variable> {
                 if (map.adjustOrPutValue(ref.getValue(), 1, 1) > gc) {
                     return ESat.FALSE;
                 }
+                instantiated++;
             }
         }
 
@@ -295,7 +302,7 @@ public class PropJoinFunctionCard extends Propagator<Variable> {
         }
         int minCard = instCard
                 + (hasGlobalCardinality()
-                        ? divRoundUp(Math.max(0, minUninstantiated - countAdditionalSameRefsAllowed(map)), getGlobalCardinality())
+                        ? divRoundUp(Math.max(0, minUninstantiated - countAdditionalSameRefsAllowed(gc, instCard, instantiated)), getGlobalCardinality())
                         : 0);
         int maxCard = instCard + maxUninstantiated;
 
@@ -8,6 +8,7 @@ import org.chocosolver.solver.variables.IntVar;
 import org.chocosolver.solver.variables.SetVar;
 import org.chocosolver.solver.variables.Variable;
 import org.chocosolver.solver.variables.events.IntEventType;
+import org.chocosolver.solver.variables.events.PropagatorEventType;
 import org.chocosolver.solver.variables.events.SetEventType;
 import org.chocosolver.util.ESat;
 import org.chocosolver.util.objects.setDataStructures.ISetIterator;
@@ -26,7 +27,7 @@ public class PropJoinInjectiveRelationCard extends Propagator<Variable> {
     private final IntVar toCard;
 
     public PropJoinInjectiveRelationCard(SetVar take, IntVar takeCard, IntVar[] childrenCards, IntVar toCard) {
-        super(buildArray(take, takeCard, toCard, childrenCards), PropagatorPriority.LINEAR, false);
+        super(buildArray(take, takeCard, toCard, childrenCards), PropagatorPriority.LINEAR, true);
         this.take = take;
         this.takeCard = takeCard;
         this.childrenCards = childrenCards;
@@ -63,13 +64,6 @@ public class PropJoinInjectiveRelationCard extends Propagator<Variable> {
         return idx - 3;
     }
 
-//    @Override
-//    public boolean advise(int idxVarInProp, int mask) {
-//        if (isChildCardVar(idxVarInProp)) {
-//            return take.getUB().contains(getChildCardVarIndex(idxVarInProp));
-//        }
-//        return super.advise(idxVarInProp, mask);
-//    }
     @Override
     public int getPropagationConditions(int vIdx) {
         if (isTakeVar(vIdx)) {
@@ -81,14 +75,30 @@ public class PropJoinInjectiveRelationCard extends Propagator<Variable> {
 
     @Override
     public void propagate(int evtmask) throws ContradictionException {
-        ISetIterator takeEnv = take.getUB().iterator();
-        while (takeEnv.hasNext()) {
-            int i = takeEnv.nextInt();
-            if (i < 0 || i >= childrenCards.length) {
-                take.remove(i, this);
+        if (PropagatorEventType.isFullPropagation(evtmask)) {
+            ISetIterator takeEnv = take.getUB().iterator();
+            while (takeEnv.hasNext()) {
+                int i = takeEnv.nextInt();
+                if (i < 0 || i >= childrenCards.length) {
+                    take.remove(i, this);
+                }
             }
         }
+        filter();
+    }
+
+    @Override
+    public void propagate(int idxVarInProp, int mask) throws ContradictionException {
+        if (isChildCardVar(idxVarInProp)
+                && !take.getUB().contains(getChildCardVarIndex(idxVarInProp))) {
+            // Children outside the envelope do not contribute.
+            return;
+        }
+        forcePropagate(PropagatorEventType.CUSTOM_PROPAGATION);
+    }
 
+    private void filter() throws ContradictionException {
+        ISetIterator takeEnv = take.getUB().iterator();
         boolean changed;
         do {
             int minCard = 0;
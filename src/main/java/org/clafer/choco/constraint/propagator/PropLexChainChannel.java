@@ -1,6 +1,7 @@
 package org.clafer.choco.constraint.propagator;
 
 import java.util.Arrays;
+import org.chocosolver.memory.IStateInt;
 import org.chocosolver.solver.constraints.Propagator;
 import org.chocosolver.solver.constraints.PropagatorPriority;
 import org.chocosolver.solver.exception.ContradictionException;
@@ -14,6 +15,14 @@ import org.chocosolver.util.ESat;
  *
  * 0 &lt; ints[i] &lt; |{ints}|
  *
+ * For every pair of strings, the length of their common prefix of equal
+ * instantiated characters is kept between propagations and restored on
+ * backtrack. The prefix only grows along a branch so comparisons resume after
+ * it rather than rescanning the strings from the start. The orderings of the
+ * pairs are computed once per pass and shared with the rank assignment, and
+ * pairs whose ordering is decided are skipped when channeling the ints back to
+ * the strings.
+ *
  * @author jimmy
  */
 public class PropLexChainChannel extends Propagator<IntVar> {
@@ -22,11 +31,20 @@ public class PropLexChainChannel extends Propagator<IntVar> {
 
     private final IntVar[][] strings;
     private final IntVar[] ints;
+    // The length of the common prefix of each pair of strings.
+    private final IStateInt[] prefixes;
+    // The ordering of each pair of strings found in the latest pass.
+    private final Ordering[] orderings;
 
     public PropLexChainChannel(IntVar[][] strings, IntVar[] ints) {
-        super(buildArray(strings, ints), PropagatorPriority.CUBIC, false);
+        super(buildArray(strings, ints), PropagatorPriority.QUADRATIC, false);
         this.strings = strings;
         this.ints = ints;
+        this.prefixes = new IStateInt[strings.length * (strings.length - 1) / 2];
+        for (int i = 0; i < prefixes.length; i++) {
+            this.prefixes[i] = model.getEnvironment().makeInt(0);
+        }
+        this.orderings = new Ordering[prefixes.length];
     }
 
     private static IntVar[] buildArray(IntVar[][] strings, IntVar[] ints) {
@@ -49,45 +67,71 @@ public class PropLexChainChannel extends Propagator<IntVar> {
         return IntEventType.boundAndInst();
     }
 
-    private static Ordering compareString(IntVar[] a, IntVar[] b) {
-        return compareString(a, b, 0);
+    /**
+     * @param i the smaller index
+     * @param j the larger index
+     * @return the index of the pair in prefixes and orderings
+     */
+    private int pair(int i, int j) {
+        assert i < j;
+        return i * (2 * strings.length - i - 1) / 2 + j - i - 1;
     }
 
-    private static Ordering compareString(IntVar[] a, IntVar[] b, int index) {
-        if (index == a.length) {
-            return a.length == b.length ? Ordering.EQ : Ordering.LT;
+    /**
+     * Extend the common prefix of the two strings as far as possible.
+     *
+     * @return the length of the common prefix
+     */
+    private int prefix(int i, int j) {
+        IStateInt prefix = prefixes[i < j ? pair(i, j) : pair(j, i)];
+        IntVar[] a = strings[i];
+        IntVar[] b = strings[j];
+        int length = Math.min(a.length, b.length);
+        int index = prefix.get();
+        while (index < length && compare(a[index], b[index]) == Ordering.EQ) {
+            index++;
         }
-        if (index == b.length) {
-            assert a.length != b.length;
-            return Ordering.GT;
+        if (index != prefix.get()) {
+            prefix.set(index);
         }
-        Ordering ord = compare(a[index], b[index]);
-        switch (ord) {
-            case EQ:
-                return compareString(a, b, index + 1);
-            case LE:
-                switch (compareString(a, b, index + 1)) {
-                    case LT:
-                        return Ordering.LT;
-                    case LE:
-                    case EQ:
-                        return Ordering.LE;
-                    default:
-                        return Ordering.UNKNOWN;
-                }
-            case GE:
-                switch (compareString(a, b, index + 1)) {
-                    case GT:
-                        return Ordering.GT;
-                    case GE:
-                    case EQ:
-                        return Ordering.GE;
-                    default:
+        return index;
+    }
+
+    private Ordering compareString(int i, int j) {
+        return compareString(strings[i], strings[j], prefix(i, j));
+    }
+
+    private static Ordering compareString(IntVar[] a, IntVar[] b, int index) {
+        // The ordering of the characters seen so far, either EQ, LE, or GE.
+        Ordering seen = Ordering.EQ;
+        for (int i = index; i < a.length && i < b.length; i++) {
+            Ordering ord = compare(a[i], b[i]);
+            switch (ord) {
+                case EQ:
+                    break;
+                case LE:
+                case GE:
+                    if (Ordering.EQ.equals(seen)) {
+                        seen = ord;
+                    } else if (!seen.equals(ord)) {
                         return Ordering.UNKNOWN;
-                }
-            default:
-                return ord;
+                    }
+                    break;
+                case LT:
+                    return Ordering.GE.equals(seen) ? Ordering.UNKNOWN : Ordering.LT;
+                case GT:
+                    return Ordering.LE.equals(seen) ? Ordering.UNKNOWN : Ordering.GT;
+                default:
+                    return Ordering.UNKNOWN;
+            }
+        }
+        if (a.length == b.length) {
+            return seen;
+        }
+        if (a.length < b.length) {
+            return Ordering.GE.equals(seen) ? Ordering.UNKNOWN : Ordering.LT;
         }
+        return Ordering.LE.equals(seen) ? Ordering.UNKNOWN : Ordering.GT;
     }
 
     private static Ordering compare(IntVar a, IntVar b) {
@@ -113,9 +157,13 @@ public class PropLexChainChannel extends Propagator<IntVar> {
         return Ordering.UNKNOWN;
     }
 
-    private boolean equalString(IntVar[] a, IntVar[] b) throws ContradictionException {
+    private boolean equalString(int i, int j) throws ContradictionException {
+        return equalString(strings[i], strings[j], prefix(i, j));
+    }
+
+    private boolean equalString(IntVar[] a, IntVar[] b, int index) throws ContradictionException {
         boolean changed = false;
-        for (int i = 0; i < a.length; i++) {
+        for (int i = index; i < a.length; i++) {
             changed |= equal(a[i], b[i]);
         }
         return changed;
@@ -129,8 +177,8 @@ public class PropLexChainChannel extends Propagator<IntVar> {
                 | b.updateUpperBound(a.getUB(), this);
     }
 
-    private boolean lessThanString(IntVar[] a, IntVar[] b) throws ContradictionException {
-        return lessThanString(a, b, 0);
+    private boolean lessThanString(int i, int j) throws ContradictionException {
+        return lessThanString(strings[i], strings[j], prefix(i, j));
     }
 
     private boolean lessThanString(IntVar[] a, IntVar[] b, int index) throws ContradictionException {
@@ -178,8 +226,8 @@ public class PropLexChainChannel extends Propagator<IntVar> {
                 | b.updateLowerBound(a.getLB() + 1, this);
     }
 
-    private boolean lessThanEqualString(IntVar[] a, IntVar[] b) throws ContradictionException {
-        return lessThanEqualString(a, b, 0);
+    private boolean lessThanEqualString(int i, int j) throws ContradictionException {
+        return lessThanEqualString(strings[i], strings[j], prefix(i, j));
     }
 
     private boolean lessThanEqualString(IntVar[] a, IntVar[] b, int index) throws ContradictionException {
@@ -245,7 +293,7 @@ public class PropLexChainChannel extends Propagator<IntVar> {
             if (notSmaller[i]) {
                 for (int j = i + 1; j < strings.length; j++) {
                     if (notSmaller[j]) {
-                        Ordering ord = compareString(strings[i], strings[j]);
+                        Ordering ord = orderings[pair(i, j)];
                         switch (ord) {
                             case LE:
                                 lessThanEqual[i] = true;
@@ -274,6 +322,13 @@ public class PropLexChainChannel extends Propagator<IntVar> {
 
     // Idempotent.
     private boolean propagateStrings() throws ContradictionException {
+        // Only the ints change below so the strings are compared only once.
+        int pair = 0;
+        for (int i = 0; i < strings.length; i++) {
+            for (int j = i + 1; j < strings.length; j++) {
+                orderings[pair++] = compareString(i, j);
+            }
+        }
         boolean changed = false;
         boolean repeat;
         do {
@@ -281,10 +336,11 @@ public class PropLexChainChannel extends Propagator<IntVar> {
             int eqs = 0;
             boolean[] notSmallest = new boolean[strings.length];
             boolean[] lessThanEqual = new boolean[strings.length];
+            pair = 0;
             for (int i = 0; i < strings.length; i++) {
                 boolean equivalenceClass = false;
                 for (int j = i + 1; j < strings.length; j++) {
-                    Ordering ord = compareString(strings[i], strings[j]);
+                    Ordering ord = orderings[pair++];
                     switch (ord) {
                         case EQ:
                             repeat |= equal(ints[i], ints[j]);
@@ -333,23 +389,29 @@ public class PropLexChainChannel extends Propagator<IntVar> {
         boolean repeat;
         do {
             repeat = false;
+            int pair = 0;
             for (int i = 0; i < ints.length; i++) {
                 for (int j = i + 1; j < ints.length; j++) {
+                    if (orderings[pair++].isDecided()) {
+                        // The ordering still holds since the strings were
+                        // compared and the ints are already ordered to match.
+                        continue;
+                    }
                     switch (compare(ints[i], ints[j])) {
                         case EQ:
-                            repeat |= equalString(strings[i], strings[j]);
+                            repeat |= equalString(i, j);
                             break;
                         case LT:
-                            repeat |= lessThanString(strings[i], strings[j]);
+                            repeat |= lessThanString(i, j);
                             break;
                         case LE:
-                            repeat |= lessThanEqualString(strings[i], strings[j]);
+                            repeat |= lessThanEqualString(i, j);
                             break;
                         case GT:
-                            repeat |= lessThanString(strings[j], strings[i]);
+                            repeat |= lessThanString(j, i);
                             break;
                         case GE:
-                            repeat |= lessThanEqualString(strings[j], strings[i]);
+                            repeat |= lessThanEqualString(j, i);
                             break;
                     }
                 }
@@ -371,7 +433,7 @@ public class PropLexChainChannel extends Propagator<IntVar> {
         for (int i = 0; i < strings.length; i++) {
             for (int j = i + 1; j < strings.length; j++) {
                 Ordering intOrdering = compare(ints[i], ints[j]);
-                Ordering ord = compareString(strings[i], strings[j]);
+                Ordering ord = compareString(strings[i], strings[j], prefixes[pair(i, j)].get());
                 if (intOrdering.contradicts(ord)) {
                     return ESat.FALSE;
                 }
@@ -413,6 +475,13 @@ public class PropLexChainChannel extends Propagator<IntVar> {
         GE,
         UNKNOWN;
 
+        /**
+         * @return true if the ordering cannot change on the current branch
+         */
+        boolean isDecided() {
+            return EQ.equals(this) || LT.equals(this) || GT.equals(this);
+        }
+
         boolean contradicts(Ordering ord) {
             switch (this) {
                 case EQ:
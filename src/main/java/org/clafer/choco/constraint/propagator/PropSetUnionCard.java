@@ -1,11 +1,15 @@
 package org.clafer.choco.constraint.propagator;
 
 import java.util.Arrays;
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.memory.IStateInt;
+import org.chocosolver.memory.IStateIntVector;
 import org.chocosolver.solver.constraints.Propagator;
 import org.chocosolver.solver.constraints.PropagatorPriority;
 import org.chocosolver.solver.exception.ContradictionException;
 import org.chocosolver.solver.variables.IntVar;
 import org.chocosolver.solver.variables.events.IntEventType;
+import org.chocosolver.solver.variables.events.PropagatorEventType;
 import org.chocosolver.util.ESat;
 import org.clafer.common.Util;
 
@@ -17,6 +21,19 @@ public class PropSetUnionCard extends Propagator<IntVar> {
 
     private final IntVar[] setCards;
     private final IntVar unionCard;
+    /*
+     * The bounds of the set cardinalities are cached so that an event on one
+     * cardinality does not rescan the others. The cache is only refreshed for
+     * the cardinalities that change, so a stale cache is always weaker than
+     * the actual bounds.
+     */
+    private final IStateIntVector setCardUbs;
+    // The sum of setCardUbs.
+    private final IStateInt sumUb;
+    // At most the largest lower bound.
+    private final IStateInt maxLb;
+    // At least the largest upper bound.
+    private final IStateInt maxUb;
 
     private static PropagatorPriority computePriority(int nbvars) {
         switch (nbvars) {
@@ -32,9 +49,23 @@ public class PropSetUnionCard extends Propagator<IntVar> {
     }
 
     public PropSetUnionCard(IntVar[] setCards, IntVar unionCard) {
-        super(Util.snoc(setCards, unionCard), computePriority(setCards.length), false);
+        super(Util.snoc(setCards, unionCard), computePriority(setCards.length), true);
         this.setCards = setCards;
         this.unionCard = unionCard;
+        IEnvironment environment = unionCard.getEnvironment();
+        this.setCardUbs = environment.makeIntVector(setCards.length, 0);
+        int sum = 0;
+        int lb = 0;
+        int ub = 0;
+        for (int i = 0; i < setCards.length; i++) {
+            setCardUbs.quickSet(i, setCards[i].getUB());
+            sum += setCards[i].getUB();
+            lb = Math.max(lb, setCards[i].getLB());
+            ub = Math.max(ub, setCards[i].getUB());
+        }
+        this.sumUb = environment.makeInt(sum);
+        this.maxLb = environment.makeInt(lb);
+        this.maxUb = environment.makeInt(ub);
     }
 
     private boolean isSetCardVar(int idx) {
@@ -54,29 +85,62 @@ public class PropSetUnionCard extends Propagator<IntVar> {
         return IntEventType.boundAndInst();
     }
 
+    private void refresh(int i) {
+        IntVar setCard = setCards[i];
+        int ub = setCard.getUB();
+        int old = setCardUbs.quickGet(i);
+        if (ub != old) {
+            setCardUbs.quickSet(i, ub);
+            sumUb.add(ub - old);
+        }
+        if (setCard.getLB() > maxLb.get()) {
+            maxLb.set(setCard.getLB());
+        }
+    }
+
     @Override
     public void propagate(int evtmask) throws ContradictionException {
+        if (PropagatorEventType.isFullPropagation(evtmask)) {
+            for (int i = 0; i < setCards.length; i++) {
+                refresh(i);
+            }
+        }
         boolean changed;
         do {
             changed = false;
-            int min = 0;
-            int max = 0;
-            for (IntVar setCard : setCards) {
-                min = Math.max(min, setCard.getLB());
-                max += setCard.getUB();
-            }
+            int min = maxLb.get();
+            int max = sumUb.get();
             unionCard.updateLowerBound(min, this);
             unionCard.updateUpperBound(max, this);
             int lb = unionCard.getLB();
             int ub = unionCard.getUB();
 
-            for (IntVar setCard : setCards) {
-                changed |= setCard.updateUpperBound(ub, this);
-                changed |= setCard.updateLowerBound(lb - max + setCard.getUB(), this);
+            // Every cardinality is at most maxUb and at least 0.
+            if (ub < maxUb.get() || lb - max + maxUb.get() > 0) {
+                int newMaxUb = 0;
+                for (int i = 0; i < setCards.length; i++) {
+                    IntVar setCard = setCards[i];
+                    boolean setCardChanged = setCard.updateUpperBound(ub, this);
+                    setCardChanged |= setCard.updateLowerBound(lb - max + setCard.getUB(), this);
+                    if (setCardChanged) {
+                        refresh(i);
+                        changed = true;
+                    }
+                    newMaxUb = Math.max(newMaxUb, setCard.getUB());
+                }
+                maxUb.set(newMaxUb);
             }
         } while (changed);
     }
 
+    @Override
+    public void propagate(int idxVarInProp, int mask) throws ContradictionException {
+        if (isSetCardVar(idxVarInProp)) {
+            refresh(getSetCardVarIndex(idxVarInProp));
+        }
+        forcePropagate(PropagatorEventType.CUSTOM_PROPAGATION);
+    }
+
     @Override
     public ESat isEntailed() {
         int min = 0;
@@ -0,0 +1,127 @@
+package org.clafer.choco.constraint.propagator;
+
+import java.util.Arrays;
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.constraints.PropagatorPriority;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.util.ESat;
+
+/**
+ * Two strings are equal. Replaces one binary equality per character with a
+ * single propagator that only intersects the pair of the character that
+ * changed.
+ */
+public class PropStringEqual extends Propagator<IntVar> {
+
+    private final IntVar[] chars1;
+    private final IntVar length1;
+    private final IntVar[] chars2;
+    private final IntVar length2;
+
+    public PropStringEqual(IntVar[] chars1, IntVar length1, IntVar[] chars2, IntVar length2) {
+        super(buildArray(chars1, length1, chars2, length2), PropagatorPriority.LINEAR, true);
+        this.chars1 = chars1;
+        this.length1 = length1;
+        this.chars2 = chars2;
+        this.length2 = length2;
+    }
+
+    private static IntVar[] buildArray(IntVar[] chars1, IntVar length1, IntVar[] chars2, IntVar length2) {
+        IntVar[] array = new IntVar[2 + chars1.length + chars2.length];
+        array[0] = length1;
+        array[1] = length2;
+        System.arraycopy(chars1, 0, array, 2, chars1.length);
+        System.arraycopy(chars2, 0, array, 2 + chars1.length, chars2.length);
+        return array;
+    }
+
+    private boolean isLengthVar(int idx) {
+        return idx < 2;
+    }
+
+    private boolean isChars1Var(int idx) {
+        return idx >= 2 && idx < 2 + chars1.length;
+    }
+
+    private int getChars1VarIndex(int idx) {
+        return idx - 2;
+    }
+
+    private boolean isChars2Var(int idx) {
+        return idx >= 2 + chars1.length;
+    }
+
+    private int getChars2VarIndex(int idx) {
+        return idx - 2 - chars1.length;
+    }
+
+    @Override
+    public void propagate(int evtmask) throws ContradictionException {
+        PropUtil.domSubsetDom(length1, length2, this);
+        PropUtil.domSubsetDom(length2, length1, this);
+        int common = Math.min(chars1.length, chars2.length);
+        for (int i = 0; i < common; i++) {
+            PropUtil.domSubsetDom(chars1[i], chars2[i], this);
+            PropUtil.domSubsetDom(chars2[i], chars1[i], this);
+        }
+        for (int i = common; i < chars1.length; i++) {
+            chars1[i].instantiateTo(0, this);
+        }
+        for (int i = common; i < chars2.length; i++) {
+            chars2[i].instantiateTo(0, this);
+        }
+    }
+
+    @Override
+    public void propagate(int idxVarInProp, int mask) throws ContradictionException {
+        if (isLengthVar(idxVarInProp)) {
+            if (idxVarInProp == 0) {
+                PropUtil.domSubsetDom(length2, length1, this);
+            } else {
+                PropUtil.domSubsetDom(length1, length2, this);
+            }
+        } else if (isChars1Var(idxVarInProp)) {
+            int id = getChars1VarIndex(idxVarInProp);
+            if (id < chars2.length) {
+                PropUtil.domSubsetDom(chars2[id], chars1[id], this);
+            }
+        } else {
+            assert isChars2Var(idxVarInProp);
+            int id = getChars2VarIndex(idxVarInProp);
+            if (id < chars1.length) {
+                PropUtil.domSubsetDom(chars1[id], chars2[id], this);
+            }
+        }
+    }
+
+    @Override
+    public ESat isEntailed() {
+        if (!PropUtil.isDomIntersectDom(length1, length2)) {
+            return ESat.FALSE;
+        }
+        int common = Math.min(chars1.length, chars2.length);
+        for (int i = 0; i < common; i++) {
+            if (!PropUtil.isDomIntersectDom(chars1[i], chars2[i])) {
+                return ESat.FALSE;
+            }
+        }
+        for (int i = common; i < chars1.length; i++) {
+            if (!chars1[i].contains(0)) {
+                return ESat.FALSE;
+            }
+        }
+        for (int i = common; i < chars2.length; i++) {
+            if (!chars2[i].contains(0)) {
+                return ESat.FALSE;
+            }
+        }
+        return isCompletelyInstantiated() ? ESat.TRUE : ESat.UNDEFINED;
+    }
+
+    @Override
+    public String toString() {
+        return "stringEqual(" + Arrays.toString(chars1) + ", " + length1 + ", "
+                + Arrays.toString(chars2) + ", " + length2 + ")";
+    }
+}
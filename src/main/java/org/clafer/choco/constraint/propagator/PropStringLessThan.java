@@ -0,0 +1,147 @@
+package org.clafer.choco.constraint.propagator;
+
+import java.util.Arrays;
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.constraints.PropagatorPriority;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.util.ESat;
+
+/**
+ * One string is lexicographically less than, or equal to if not strict,
+ * another. The shorter string is padded with the terminator without creating
+ * variables for the padding. Only the first pair of characters not known to be
+ * equal is filtered. It is forced to be less than or equal, and less than if
+ * the rest of the strings cannot break the tie.
+ */
+public class PropStringLessThan extends Propagator<IntVar> {
+
+    private final IntVar[] chars1;
+    private final IntVar[] chars2;
+    private final boolean strict;
+
+    public PropStringLessThan(IntVar[] chars1, IntVar[] chars2, boolean strict) {
+        super(buildArray(chars1, chars2), PropagatorPriority.LINEAR, false);
+        this.chars1 = chars1;
+        this.chars2 = chars2;
+        this.strict = strict;
+    }
+
+    private static IntVar[] buildArray(IntVar[] chars1, IntVar[] chars2) {
+        IntVar[] array = new IntVar[chars1.length + chars2.length];
+        System.arraycopy(chars1, 0, array, 0, chars1.length);
+        System.arraycopy(chars2, 0, array, chars1.length, chars2.length);
+        return array;
+    }
+
+    private int pairs() {
+        return Math.max(chars1.length, chars2.length);
+    }
+
+    private static int getLB(IntVar[] chars, int i) {
+        return i < chars.length ? chars[i].getLB() : 0;
+    }
+
+    private static int getUB(IntVar[] chars, int i) {
+        return i < chars.length ? chars[i].getUB() : 0;
+    }
+
+    private static boolean isInstantiated(IntVar[] chars, int i) {
+        return i >= chars.length || chars[i].isInstantiated();
+    }
+
+    /**
+     * @return the first pair not known to be equal
+     */
+    private int firstUndecided() {
+        int pairs = pairs();
+        int i = 0;
+        while (i < pairs
+                && isInstantiated(chars1, i) && isInstantiated(chars2, i)
+                && getLB(chars1, i) == getLB(chars2, i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return {@code true} if the strings from the pair onwards can satisfy
+     * the order, {@code false} otherwise
+     */
+    private boolean canBreakTie(int from) {
+        int pairs = pairs();
+        for (int i = from; i < pairs; i++) {
+            int lb1 = getLB(chars1, i);
+            int ub2 = getUB(chars2, i);
+            if (lb1 < ub2) {
+                return true;
+            }
+            if (lb1 > ub2) {
+                return false;
+            }
+        }
+        return !strict;
+    }
+
+    private boolean updateUpperBound(IntVar[] chars, int i, int ub) throws ContradictionException {
+        if (i < chars.length) {
+            return chars[i].updateUpperBound(ub, this);
+        }
+        if (0 > ub) {
+            fails();
+        }
+        return false;
+    }
+
+    private boolean updateLowerBound(IntVar[] chars, int i, int lb) throws ContradictionException {
+        if (i < chars.length) {
+            return chars[i].updateLowerBound(lb, this);
+        }
+        if (0 < lb) {
+            fails();
+        }
+        return false;
+    }
+
+    @Override
+    public void propagate(int evtmask) throws ContradictionException {
+        boolean changed;
+        do {
+            int i = firstUndecided();
+            if (i == pairs()) {
+                if (strict) {
+                    fails();
+                }
+                setPassive();
+                return;
+            }
+            if (getUB(chars1, i) < getLB(chars2, i)) {
+                setPassive();
+                return;
+            }
+            int gap = canBreakTie(i + 1) ? 0 : 1;
+            changed = updateUpperBound(chars1, i, getUB(chars2, i) - gap);
+            changed |= updateLowerBound(chars2, i, getLB(chars1, i) + gap);
+        } while (changed);
+    }
+
+    @Override
+    public ESat isEntailed() {
+        int i = firstUndecided();
+        if (i == pairs()) {
+            return strict ? ESat.FALSE : ESat.TRUE;
+        }
+        if (getUB(chars1, i) < getLB(chars2, i)) {
+            return ESat.TRUE;
+        }
+        if (getLB(chars1, i) > getUB(chars2, i)) {
+            return ESat.FALSE;
+        }
+        return ESat.UNDEFINED;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(chars1) + (strict ? " < " : " <= ") + Arrays.toString(chars2);
+    }
+}
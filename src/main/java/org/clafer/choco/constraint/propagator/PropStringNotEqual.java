@@ -0,0 +1,129 @@
+package org.clafer.choco.constraint.propagator;
+
+import java.util.Arrays;
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.constraints.PropagatorPriority;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.util.ESat;
+
+/**
+ * Two strings are not equal. The shorter string is padded with the
+ * terminator. Once every pair of characters but one is known to be equal, the
+ * last pair is forced to differ.
+ */
+public class PropStringNotEqual extends Propagator<IntVar> {
+
+    private final IntVar[] chars1;
+    private final IntVar length1;
+    private final IntVar[] chars2;
+    private final IntVar length2;
+
+    public PropStringNotEqual(IntVar[] chars1, IntVar length1, IntVar[] chars2, IntVar length2) {
+        super(buildArray(chars1, length1, chars2, length2), PropagatorPriority.LINEAR, false);
+        this.chars1 = chars1;
+        this.length1 = length1;
+        this.chars2 = chars2;
+        this.length2 = length2;
+    }
+
+    private static IntVar[] buildArray(IntVar[] chars1, IntVar length1, IntVar[] chars2, IntVar length2) {
+        IntVar[] array = new IntVar[2 + chars1.length + chars2.length];
+        array[0] = length1;
+        array[1] = length2;
+        System.arraycopy(chars1, 0, array, 2, chars1.length);
+        System.arraycopy(chars2, 0, array, 2 + chars1.length, chars2.length);
+        return array;
+    }
+
+    /**
+     * The pairs are the lengths followed by the characters.
+     */
+    private int pairs() {
+        return 1 + Math.max(chars1.length, chars2.length);
+    }
+
+    /**
+     * @return the left of the pair, or null for the terminator
+     */
+    private IntVar left(int pair) {
+        return pair == 0 ? length1 : pair - 1 < chars1.length ? chars1[pair - 1] : null;
+    }
+
+    /**
+     * @return the right of the pair, or null for the terminator
+     */
+    private IntVar right(int pair) {
+        return pair == 0 ? length2 : pair - 1 < chars2.length ? chars2[pair - 1] : null;
+    }
+
+    private static boolean isInstantiated(IntVar var) {
+        return var == null || var.isInstantiated();
+    }
+
+    private static int getValue(IntVar var) {
+        return var == null ? 0 : var.getValue();
+    }
+
+    private static boolean isDisjoint(IntVar left, IntVar right) {
+        if (left == null) {
+            return !right.contains(0);
+        }
+        if (right == null) {
+            return !left.contains(0);
+        }
+        return !PropUtil.isDomIntersectDom(left, right);
+    }
+
+    @Override
+    public void propagate(int evtmask) throws ContradictionException {
+        int undecided = -1;
+        for (int i = 0; i < pairs(); i++) {
+            IntVar left = left(i);
+            IntVar right = right(i);
+            if (isDisjoint(left, right)) {
+                setPassive();
+                return;
+            }
+            if (!isInstantiated(left) || !isInstantiated(right)) {
+                if (undecided != -1) {
+                    // At least two pairs can still differ.
+                    return;
+                }
+                undecided = i;
+            }
+        }
+        if (undecided == -1) {
+            fails();
+        }
+        IntVar left = left(undecided);
+        IntVar right = right(undecided);
+        if (isInstantiated(left)) {
+            right.removeValue(getValue(left), this);
+            setPassive();
+        } else if (isInstantiated(right)) {
+            left.removeValue(getValue(right), this);
+            setPassive();
+        }
+    }
+
+    @Override
+    public ESat isEntailed() {
+        boolean instantiated = true;
+        for (int i = 0; i < pairs(); i++) {
+            IntVar left = left(i);
+            IntVar right = right(i);
+            if (isDisjoint(left, right)) {
+                return ESat.TRUE;
+            }
+            instantiated &= isInstantiated(left) && isInstantiated(right);
+        }
+        return instantiated ? ESat.FALSE : ESat.UNDEFINED;
+    }
+
+    @Override
+    public String toString() {
+        return "stringNotEqual(" + Arrays.toString(chars1) + ", " + length1 + ", "
+                + Arrays.toString(chars2) + ", " + length2 + ")";
+    }
+}
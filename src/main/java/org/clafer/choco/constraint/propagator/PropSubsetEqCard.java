@@ -6,6 +6,8 @@ import org.chocosolver.solver.exception.ContradictionException;
 import org.chocosolver.solver.variables.IntVar;
 import org.chocosolver.solver.variables.SetVar;
 import org.chocosolver.solver.variables.Variable;
+import org.chocosolver.solver.variables.events.IntEventType;
+import org.chocosolver.solver.variables.events.SetEventType;
 import org.chocosolver.util.ESat;
 import org.chocosolver.util.objects.setDataStructures.ISet;
 import org.chocosolver.util.objects.setDataStructures.ISetIterator;
@@ -29,6 +31,25 @@ public class PropSubsetEqCard extends Propagator<Variable> {
         this.supCard = supCard;
     }
 
+    @Override
+    public int getPropagationConditions(int vIdx) {
+        switch (vIdx) {
+            case 0:
+                // Only the envelope of sub is read.
+                return SetEventType.REMOVE_FROM_ENVELOPE.getMask();
+            case 1:
+                // Only the lower bound of subCard is read.
+                return IntEventType.INCLOW.getMask() | IntEventType.INSTANTIATE.getMask();
+            case 2:
+                return SetEventType.all();
+            case 3:
+                // Only the upper bound of supCard is read.
+                return IntEventType.DECUPP.getMask() | IntEventType.INSTANTIATE.getMask();
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
     private static int sizeOfIntersection(ISet a, ISet b) {
         ISetIterator iter = a.iterator();
         int count = 0;
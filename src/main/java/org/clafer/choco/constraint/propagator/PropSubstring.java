@@ -0,0 +1,268 @@
+package org.clafer.choco.constraint.propagator;
+
+import java.util.Arrays;
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.constraints.PropagatorPriority;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.util.ESat;
+
+/**
+ * {@code sub[i] = sup[start + i]} for every {@code i < subLength}. The start
+ * is {@code offset} if given, otherwise 0, or {@code supLength - subLength} if
+ * the substring is a suffix. If the substring is a suffix then
+ * {@code start + subLength = supLength}, otherwise
+ * {@code start + subLength ≤ supLength}. Without {@code supLength}, the
+ * substring only needs to fit in {@code sup}.
+ *
+ * The propagator reasons over the possible alignments instead of one element
+ * constraint per character. For every start, it finds how many characters in
+ * a row of the substring can match the string, which bounds the length of the
+ * substring at that start. A start, length, and string length is supported if
+ * the substring fits. Every character that is covered by the substring in
+ * every supported alignment is restricted to the characters it can be aligned
+ * with.
+ */
+public class PropSubstring extends Propagator<IntVar> {
+
+    private final IntVar[] sub;
+    private final IntVar subLength;
+    private final IntVar offset;
+    private final IntVar[] sup;
+    private final IntVar supLength;
+    private final boolean suffix;
+    /**
+     * The shortest and longest supported length at each start, -1 if the
+     * start is unsupported.
+     */
+    private final int[] minLength;
+    private final int[] maxLength;
+
+    /**
+     * @param sub the characters of the substring
+     * @param subLength the length of the substring
+     * @param offset the start of the substring, or null if the start is fixed
+     * @param sup the characters of the string
+     * @param supLength the length of the string, or null if the substring only
+     * needs to fit
+     * @param suffix if the substring ends where the string ends
+     */
+    public PropSubstring(IntVar[] sub, IntVar subLength, IntVar offset, IntVar[] sup, IntVar supLength, boolean suffix) {
+        super(buildArray(sub, subLength, offset, sup, supLength), PropagatorPriority.QUADRATIC, false);
+        if (suffix && supLength == null) {
+            throw new IllegalArgumentException();
+        }
+        this.sub = sub;
+        this.subLength = subLength;
+        this.offset = offset;
+        this.sup = sup;
+        this.supLength = supLength;
+        this.suffix = suffix;
+        this.minLength = new int[sup.length + 1];
+        this.maxLength = new int[sup.length + 1];
+    }
+
+    private static IntVar[] buildArray(IntVar[] sub, IntVar subLength, IntVar offset, IntVar[] sup, IntVar supLength) {
+        IntVar[] array = new IntVar[1 + sub.length + sup.length
+                + (offset == null ? 0 : 1) + (supLength == null ? 0 : 1)];
+        int i = 0;
+        array[i++] = subLength;
+        if (offset != null) {
+            array[i++] = offset;
+        }
+        if (supLength != null) {
+            array[i++] = supLength;
+        }
+        System.arraycopy(sub, 0, array, i, sub.length);
+        System.arraycopy(sup, 0, array, i + sub.length, sup.length);
+        return array;
+    }
+
+    private boolean isStart(int start) {
+        if (offset != null) {
+            return offset.contains(start);
+        }
+        // The start of a suffix is derived from the lengths.
+        return suffix || start == 0;
+    }
+
+    private boolean isEnd(int end) {
+        if (supLength == null) {
+            return true;
+        }
+        return suffix ? supLength.contains(end) : end <= supLength.getUB();
+    }
+
+    /**
+     * Find the supported lengths at each start.
+     *
+     * @return {@code true} if some alignment is supported, {@code false}
+     * otherwise
+     */
+    private boolean findSupports() {
+        boolean supported = false;
+        int ub = Math.min(subLength.getUB(), sub.length);
+        for (int start = 0; start <= sup.length; start++) {
+            minLength[start] = -1;
+            maxLength[start] = -1;
+            if (!isStart(start)) {
+                continue;
+            }
+            int fits = Math.min(ub, sup.length - start);
+            for (int length = subLength.nextValue(-1); length <= fits; length = subLength.nextValue(length)) {
+                // Characters before the length are known to match.
+                for (int i = Math.max(maxLength[start], 0); i < length; i++) {
+                    if (!PropUtil.isDomIntersectDom(sub[i], sup[start + i])) {
+                        fits = -1;
+                        break;
+                    }
+                }
+                if (length > fits) {
+                    break;
+                }
+                if (isEnd(start + length)) {
+                    if (minLength[start] == -1) {
+                        minLength[start] = length;
+                    }
+                    maxLength[start] = length;
+                    supported = true;
+                }
+            }
+        }
+        return supported;
+    }
+
+    private boolean filter() throws ContradictionException {
+        if (!findSupports()) {
+            fails();
+        }
+        boolean changed = false;
+        int ub = subLength.getUB();
+        for (int length = subLength.getLB(); length <= ub; length = subLength.nextValue(length)) {
+            boolean supported = false;
+            for (int start = 0; start <= sup.length && !supported; start++) {
+                supported = minLength[start] != -1 && isSupported(start, length);
+            }
+            if (!supported) {
+                changed |= subLength.removeValue(length, this);
+            }
+        }
+        if (offset != null) {
+            ub = offset.getUB();
+            for (int start = offset.getLB(); start <= ub; start = offset.nextValue(start)) {
+                if (start < 0 || start > sup.length || minLength[start] == -1) {
+                    changed |= offset.removeValue(start, this);
+                }
+            }
+        }
+        if (supLength != null) {
+            if (suffix) {
+                ub = supLength.getUB();
+                for (int end = supLength.getLB(); end <= ub; end = supLength.nextValue(end)) {
+                    boolean supported = false;
+                    for (int start = 0; start <= end && start <= sup.length && !supported; start++) {
+                        supported = minLength[start] != -1 && isSupported(start, end - start);
+                    }
+                    if (!supported) {
+                        changed |= supLength.removeValue(end, this);
+                    }
+                }
+            } else {
+                int minEnd = Integer.MAX_VALUE;
+                for (int start = 0; start <= sup.length; start++) {
+                    if (minLength[start] != -1) {
+                        minEnd = Math.min(minEnd, start + minLength[start]);
+                    }
+                }
+                changed |= supLength.updateLowerBound(minEnd, this);
+            }
+        }
+        // The characters of the substring covered in every alignment.
+        int covered = Integer.MAX_VALUE;
+        for (int start = 0; start <= sup.length; start++) {
+            if (minLength[start] != -1) {
+                covered = Math.min(covered, minLength[start]);
+            }
+        }
+        for (int i = 0; i < covered; i++) {
+            changed |= filterSubChar(i);
+        }
+        for (int j = 0; j < sup.length; j++) {
+            if (isSupCovered(j)) {
+                changed |= filterSupChar(j);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * The length is supported at the start if it is between the shortest and
+     * the longest supported length and the substring ends where it needs to.
+     * Every length in between fits since the characters before the longest
+     * length match.
+     */
+    private boolean isSupported(int start, int length) {
+        return length >= minLength[start] && length <= maxLength[start]
+                && subLength.contains(length) && isEnd(start + length);
+    }
+
+    private boolean isSupCovered(int j) {
+        for (int start = 0; start <= sup.length; start++) {
+            if (minLength[start] != -1 && (j < start || j >= start + minLength[start])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean filterSubChar(int i) throws ContradictionException {
+        boolean changed = false;
+        IntVar c = sub[i];
+        int ub = c.getUB();
+        for (int v = c.getLB(); v <= ub; v = c.nextValue(v)) {
+            boolean supported = false;
+            for (int start = 0; start <= sup.length && !supported; start++) {
+                supported = minLength[start] != -1 && sup[start + i].contains(v);
+            }
+            if (!supported) {
+                changed |= c.removeValue(v, this);
+            }
+        }
+        return changed;
+    }
+
+    private boolean filterSupChar(int j) throws ContradictionException {
+        boolean changed = false;
+        IntVar c = sup[j];
+        int ub = c.getUB();
+        for (int v = c.getLB(); v <= ub; v = c.nextValue(v)) {
+            boolean supported = false;
+            for (int start = 0; start <= j && !supported; start++) {
+                supported = minLength[start] != -1 && sub[j - start].contains(v);
+            }
+            if (!supported) {
+                changed |= c.removeValue(v, this);
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public void propagate(int evtmask) throws ContradictionException {
+        while (filter());
+    }
+
+    @Override
+    public ESat isEntailed() {
+        if (!findSupports()) {
+            return ESat.FALSE;
+        }
+        return isCompletelyInstantiated() ? ESat.TRUE : ESat.UNDEFINED;
+    }
+
+    @Override
+    public String toString() {
+        return "substring(" + Arrays.toString(sub) + ", " + subLength + ", " + offset + ", "
+                + Arrays.toString(sup) + ", " + supLength + (suffix ? ", suffix" : "") + ")";
+    }
+}
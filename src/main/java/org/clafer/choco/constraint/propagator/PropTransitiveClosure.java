@@ -0,0 +1,465 @@
+package org.clafer.choco.constraint.propagator;
+
+import java.util.Arrays;
+import org.chocosolver.memory.IStateInt;
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.constraints.PropagatorPriority;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.SetVar;
+import org.chocosolver.solver.variables.events.PropagatorEventType;
+import org.chocosolver.solver.variables.events.SetEventType;
+import org.chocosolver.util.ESat;
+import org.chocosolver.util.objects.setDataStructures.ISet;
+import org.chocosolver.util.objects.setDataStructures.ISetIterator;
+
+/**
+ * {@code closure} is the transitive closure of {@code relation}, or the
+ * transitive reflexive closure if {@code reflexive}.
+ *
+ * The kernels and envelopes of the variables are mirrored in rows of bits,
+ * one bit per node. Only the rows of the variables that changed since the
+ * last propagation are reloaded. The mirror is only valid in the world it was
+ * loaded in, a backtrackable stamp detects when the solver has backtracked
+ * past it and everything is reloaded. The closure of the envelope of the
+ * relation is computed over the strongly connected components and is only
+ * recomputed after the envelope of the relation shrinks.
+ */
+public class PropTransitiveClosure extends Propagator<SetVar> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final SetVar[] relation;
+    private final SetVar[] closure;
+    private final boolean reflexive;
+    private final int n;
+    private final int words;
+    private final long[][] relationKer;
+    private final long[][] relationEnv;
+    private final long[][] closureKer;
+    private final long[][] closureEnv;
+    /**
+     * The transitive closure of the envelope of the relation.
+     */
+    private final long[][] maxClosure;
+    private boolean maxClosureValid = false;
+    /**
+     * The transitive closure of the kernel of the closure.
+     */
+    private final long[][] minClosure;
+    /**
+     * The rows that changed since the last propagation. Indexed like vars.
+     */
+    private final boolean[] dirty;
+    /**
+     * The rows that the last filter changed. Indexed like vars.
+     */
+    private final boolean[] touched;
+    private final IStateInt stamp;
+    private int loadedStamp = -1;
+    private int stamps = 0;
+    // Scratch space for computing the closures.
+    private final int[] index;
+    private final int[] low;
+    private final int[] component;
+    private final int[] cursor;
+    private final int[] callStack;
+    private final int[] componentStack;
+    private final boolean[] onStack;
+    private final long[] row;
+
+    public PropTransitiveClosure(SetVar[] relation, SetVar[] closure, boolean reflexive) {
+        super(buildArray(relation, closure), PropagatorPriority.QUADRATIC, true);
+        if (relation.length != closure.length) {
+            throw new IllegalArgumentException();
+        }
+        this.relation = relation;
+        this.closure = closure;
+        this.reflexive = reflexive;
+        this.n = relation.length;
+        this.words = (n + 63) >>> 6;
+        this.relationKer = new long[n][words];
+        this.relationEnv = new long[n][words];
+        this.closureKer = new long[n][words];
+        this.closureEnv = new long[n][words];
+        this.maxClosure = new long[n][words];
+        this.minClosure = new long[n][words];
+        this.dirty = new boolean[2 * n];
+        this.touched = new boolean[2 * n];
+        this.stamp = relation[0].getEnvironment().makeInt(0);
+        this.index = new int[n];
+        this.low = new int[n];
+        this.component = new int[n];
+        this.cursor = new int[n];
+        this.callStack = new int[n];
+        this.componentStack = new int[n];
+        this.onStack = new boolean[n];
+        this.row = new long[words];
+    }
+
+    private static SetVar[] buildArray(SetVar[] relation, SetVar[] closure) {
+        SetVar[] array = new SetVar[relation.length + closure.length];
+        System.arraycopy(relation, 0, array, 0, relation.length);
+        System.arraycopy(closure, 0, array, relation.length, closure.length);
+        return array;
+    }
+
+    @Override
+    public int getPropagationConditions(int vIdx) {
+        return SetEventType.all();
+    }
+
+    private static boolean get(long[] row, int i) {
+        return (row[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private static void set(long[] row, int i) {
+        row[i >>> 6] |= 1L << i;
+    }
+
+    private static void clear(long[] row, int i) {
+        row[i >>> 6] &= ~(1L << i);
+    }
+
+    private static int nextSetBit(long[] row, int from) {
+        int w = from >>> 6;
+        if (w >= row.length) {
+            return -1;
+        }
+        long word = row[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == row.length) {
+                return -1;
+            }
+            word = row[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    private void load(ISet set, long[] row) {
+        Arrays.fill(row, 0);
+        ISetIterator iter = set.iterator();
+        while (iter.hasNext()) {
+            int i = iter.nextInt();
+            if (i >= 0 && i < n) {
+                set(row, i);
+            }
+        }
+    }
+
+    private void load(int i) {
+        if (i < n) {
+            load(relation[i].getLB(), relationKer[i]);
+            load(relation[i].getUB(), relationEnv[i]);
+        } else {
+            load(closure[i - n].getLB(), closureKer[i - n]);
+            load(closure[i - n].getUB(), closureEnv[i - n]);
+        }
+    }
+
+    /**
+     * Compute the transitive closure of a graph. The strongly connected
+     * components are found with Tarjan's algorithm, which completes a
+     * component only after every component it reaches, so the closure of a
+     * component is the union of its successors and their closures.
+     */
+    private void transitiveClosure(long[][] graph, long[][] reach) {
+        Arrays.fill(index, -1);
+        Arrays.fill(onStack, false);
+        int counter = 0;
+        int components = 0;
+        int componentSize = 0;
+        for (int root = 0; root < n; root++) {
+            if (index[root] != -1) {
+                continue;
+            }
+            int calls = 0;
+            index[root] = low[root] = counter++;
+            cursor[root] = 0;
+            callStack[calls++] = root;
+            componentStack[componentSize++] = root;
+            onStack[root] = true;
+            while (calls > 0) {
+                int i = callStack[calls - 1];
+                int j = nextSetBit(graph[i], cursor[i]);
+                if (j != -1) {
+                    cursor[i] = j + 1;
+                    if (index[j] == -1) {
+                        index[j] = low[j] = counter++;
+                        cursor[j] = 0;
+                        callStack[calls++] = j;
+                        componentStack[componentSize++] = j;
+                        onStack[j] = true;
+                    } else if (onStack[j]) {
+                        low[i] = Math.min(low[i], index[j]);
+                    }
+                } else {
+                    calls--;
+                    if (calls > 0) {
+                        int parent = callStack[calls - 1];
+                        low[parent] = Math.min(low[parent], low[i]);
+                    }
+                    if (low[i] == index[i]) {
+                        int start = componentSize;
+                        do {
+                            start--;
+                            component[componentStack[start]] = components;
+                            onStack[componentStack[start]] = false;
+                        } while (componentStack[start] != i);
+                        Arrays.fill(row, 0);
+                        for (int m = start; m < componentSize; m++) {
+                            long[] successors = graph[componentStack[m]];
+                            for (int w = 0; w < words; w++) {
+                                row[w] |= successors[w];
+                            }
+                            for (int k = nextSetBit(successors, 0); k != -1; k = nextSetBit(successors, k + 1)) {
+                                if (component[k] != components) {
+                                    long[] kReach = reach[k];
+                                    for (int w = 0; w < words; w++) {
+                                        row[w] |= kReach[w];
+                                    }
+                                }
+                            }
+                        }
+                        for (int m = start; m < componentSize; m++) {
+                            System.arraycopy(row, 0, reach[componentStack[m]], 0, words);
+                        }
+                        componentSize = start;
+                        components++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Filter the mirror until fixpoint.
+     *
+     * @return {@code false} if the constraint is unsatisfiable, {@code true}
+     * otherwise
+     */
+    private boolean filter() {
+        boolean changed;
+        do {
+            changed = false;
+            if (!maxClosureValid) {
+                transitiveClosure(relationEnv, maxClosure);
+                maxClosureValid = true;
+            }
+            for (int i = 0; i < n; i++) {
+                long[] ker = closureKer[i];
+                long[] env = closureEnv[i];
+                long[] max = maxClosure[i];
+                long[] relKer = relationKer[i];
+                long[] relEnv = relationEnv[i];
+                for (int w = 0; w < words; w++) {
+                    long word = (env[w] & max[w]) | (reflexive && (i >>> 6) == w ? env[w] & (1L << i) : 0);
+                    if (word != env[w]) {
+                        env[w] = word;
+                        changed = true;
+                        touched[n + i] = true;
+                    }
+                    word = ker[w] | relKer[w] | (reflexive && (i >>> 6) == w ? 1L << i : 0);
+                    if (word != ker[w]) {
+                        ker[w] = word;
+                        changed = true;
+                        touched[n + i] = true;
+                    }
+                    if ((relEnv[w] & ~env[w]) != 0) {
+                        relEnv[w] &= env[w];
+                        maxClosureValid = false;
+                        changed = true;
+                        touched[i] = true;
+                    }
+                    if ((ker[w] & ~env[w]) != 0 || (relKer[w] & ~relEnv[w]) != 0) {
+                        return false;
+                    }
+                }
+            }
+            // The kernel of the closure is closed under transitivity.
+            transitiveClosure(closureKer, minClosure);
+            for (int i = 0; i < n; i++) {
+                long[] ker = closureKer[i];
+                long[] env = closureEnv[i];
+                long[] min = minClosure[i];
+                for (int w = 0; w < words; w++) {
+                    if ((min[w] & ~ker[w]) != 0) {
+                        ker[w] |= min[w];
+                        changed = true;
+                        touched[n + i] = true;
+                        if ((ker[w] & ~env[w]) != 0) {
+                            return false;
+                        }
+                    }
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                long[] ker = closureKer[i];
+                long[] env = closureEnv[i];
+                for (int j = nextSetBit(ker, 0); j != -1; j = nextSetBit(ker, j + 1)) {
+                    /*
+                     * if
+                     *   i ---> j
+                     *   i -/-> k
+                     * then
+                     *   j -/-> k
+                     */
+                    if (i != j) {
+                        long[] jEnv = closureEnv[j];
+                        long[] jKer = closureKer[j];
+                        for (int w = 0; w < words; w++) {
+                            if ((jEnv[w] & ~env[w]) != 0) {
+                                jEnv[w] &= env[w];
+                                changed = true;
+                                touched[n + j] = true;
+                                if ((jKer[w] & ~jEnv[w]) != 0) {
+                                    return false;
+                                }
+                            }
+                        }
+                    }
+                }
+                for (int j = nextSetBit(env, 0); j != -1; j = nextSetBit(env, j + 1)) {
+                    /*
+                     * if
+                     *   i -/-> k
+                     *   j ---> k
+                     * then
+                     *   i -/-> j
+                     */
+                    if (!get(ker, j)) {
+                        long[] jKer = closureKer[j];
+                        for (int w = 0; w < words; w++) {
+                            if ((jKer[w] & ~env[w]) != 0) {
+                                clear(env, j);
+                                changed = true;
+                                touched[n + i] = true;
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+        } while (changed);
+        return true;
+    }
+
+    private void store(SetVar var, long[] ker, long[] env) throws ContradictionException {
+        ISetIterator iter = var.getUB().iterator();
+        while (iter.hasNext()) {
+            int i = iter.nextInt();
+            if (!get(env, i)) {
+                var.remove(i, this);
+            }
+        }
+        for (int i = nextSetBit(ker, 0); i != -1; i = nextSetBit(ker, i + 1)) {
+            var.force(i, this);
+        }
+    }
+
+    @Override
+    public void propagate(int evtmask) throws ContradictionException {
+        if (PropagatorEventType.isFullPropagation(evtmask)) {
+            for (SetVar var : vars) {
+                ISetIterator iter = var.getUB().iterator();
+                while (iter.hasNext()) {
+                    int i = iter.nextInt();
+                    if (i < 0 || i >= n) {
+                        var.remove(i, this);
+                    }
+                }
+            }
+        }
+        if (stamp.get() != loadedStamp) {
+            for (int i = 0; i < vars.length; i++) {
+                load(i);
+            }
+            maxClosureValid = false;
+        } else {
+            for (int i = 0; i < vars.length; i++) {
+                if (dirty[i]) {
+                    load(i);
+                }
+            }
+        }
+        Arrays.fill(dirty, false);
+        Arrays.fill(touched, false);
+        // The mirror is about to change, it is only valid in this world.
+        loadedStamp = ++stamps;
+        stamp.set(loadedStamp);
+        if (!filter()) {
+            fails();
+        }
+        for (int i = 0; i < n; i++) {
+            if (touched[i]) {
+                touched[i] = false;
+                store(relation[i], relationKer[i], relationEnv[i]);
+            }
+            if (touched[n + i]) {
+                touched[n + i] = false;
+                store(closure[i], closureKer[i], closureEnv[i]);
+            }
+        }
+    }
+
+    @Override
+    public void propagate(int idx, int mask) throws ContradictionException {
+        dirty[idx] = true;
+        if (idx < n && (mask & SetEventType.REMOVE_FROM_ENVELOPE.getMask()) != 0) {
+            maxClosureValid = false;
+        }
+        forcePropagate(PropagatorEventType.CUSTOM_PROPAGATION);
+    }
+
+    @Override
+    public ESat isEntailed() {
+        long[][] relEnv = new long[n][words];
+        for (int i = 0; i < n; i++) {
+            if (!isKerInRange(relation[i]) || !isKerInRange(closure[i])) {
+                return ESat.FALSE;
+            }
+            if (!PropUtil.isKerSubsetEnv(relation[i], closure[i])) {
+                return ESat.FALSE;
+            }
+            if (reflexive && !closure[i].getUB().contains(i)) {
+                return ESat.FALSE;
+            }
+            load(relation[i].getUB(), relEnv[i]);
+        }
+        long[][] max = new long[n][words];
+        transitiveClosure(relEnv, max);
+        for (int i = 0; i < n; i++) {
+            SetVar var = closure[i];
+            ISetIterator iter = var.getLB().iterator();
+            while (iter.hasNext()) {
+                int j = iter.nextInt();
+                if (reflexive && i == j) {
+                    continue;
+                }
+                if (!get(max[i], j)) {
+                    return ESat.FALSE;
+                }
+                if (i != j && !PropUtil.isKerSubsetEnv(closure[j], var)) {
+                    return ESat.FALSE;
+                }
+            }
+        }
+        return isCompletelyInstantiated() ? ESat.TRUE : ESat.UNDEFINED;
+    }
+
+    private boolean isKerInRange(SetVar var) {
+        ISetIterator iter = var.getLB().iterator();
+        while (iter.hasNext()) {
+            int i = iter.nextInt();
+            if (i < 0 || i >= n) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "transitiveClosure(" + Arrays.toString(relation) + ", " + Arrays.toString(closure)
+                + (reflexive ? ", reflexive" : "") + ")";
+    }
+}
@@ -0,0 +1,87 @@
+package org.clafer.choco.constraint.propagator;
+
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.memory.IStateBitSet;
+import org.chocosolver.memory.IStateInt;
+import org.chocosolver.memory.IStateIntVector;
+import org.chocosolver.solver.variables.IntVar;
+
+/**
+ * Backtrackable counts of how many instantiated variables take each value.
+ * Propagators count a variable once it is instantiated, so the counts are
+ * maintained as instantiation events arrive instead of rescanning the
+ * variables. Every variable is counted at most once.
+ */
+class ValueCounts {
+
+    private final int offset;
+    private final IStateIntVector counts;
+    private final IStateBitSet counted;
+    private final IStateInt distinct;
+    private final IStateInt total;
+
+    ValueCounts(IEnvironment environment, IntVar[] vars) {
+        int low = Integer.MAX_VALUE;
+        int high = Integer.MIN_VALUE;
+        for (IntVar var : vars) {
+            low = Math.min(low, var.getLB());
+            high = Math.max(high, var.getUB());
+        }
+        this.offset = low;
+        this.counts = environment.makeIntVector(vars.length == 0 ? 0 : high - low + 1, 0);
+        this.counted = environment.makeBitSet(vars.length);
+        this.distinct = environment.makeInt(0);
+        this.total = environment.makeInt(0);
+    }
+
+    /**
+     * @param i the index of the variable
+     * @return {@code true} if the variable is counted, {@code false}
+     * otherwise
+     */
+    boolean isCounted(int i) {
+        return counted.get(i);
+    }
+
+    /**
+     * Count the variable at the index.
+     *
+     * @param i the index of the variable
+     * @param value the value of the variable
+     * @return the number of variables with the value, including this one
+     */
+    int count(int i, int value) {
+        assert !isCounted(i);
+        counted.set(i);
+        total.add(1);
+        int count = counts.quickGet(value - offset) + 1;
+        counts.quickSet(value - offset, count);
+        if (count == 1) {
+            distinct.add(1);
+        }
+        return count;
+    }
+
+    /**
+     * @param value the value
+     * @return the number of counted variables with the value
+     */
+    int getCount(int value) {
+        int index = value - offset;
+        return index >= 0 && index < counts.size() ? counts.quickGet(index) : 0;
+    }
+
+    /**
+     * @return the number of different values counted
+     */
+    int getDistinct() {
+        return distinct.get();
+    }
+
+    /**
+     * @return the number of counted variables
+     */
+    int getTotal() {
+        return total.get();
+    }
+}
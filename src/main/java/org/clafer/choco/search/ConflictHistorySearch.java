@@ -0,0 +1,32 @@
+package org.clafer.choco.search;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.search.strategy.decision.Decision;
+import org.chocosolver.solver.search.strategy.strategy.AbstractStrategy;
+import org.chocosolver.solver.search.strategy.strategy.ConflictOrderingSearch;
+import org.chocosolver.solver.variables.Variable;
+
+/**
+ * Conflict ordering search that tolerates failures before the first decision.
+ * Choco's implementation stamps the variable of the last decision on every
+ * failure, but the root decision has no variable. The root fails whenever the
+ * search is restarted on a problem that became unsatisfiable, like after an
+ * optimizer posts a bound that cannot be improved.
+ *
+ * @param <V> the type of the variables
+ */
+public class ConflictHistorySearch<V extends Variable> extends ConflictOrderingSearch<V> {
+
+    public ConflictHistorySearch(Model model, AbstractStrategy<V> mainStrategy) {
+        super(model, mainStrategy);
+    }
+
+    @Override
+    public void onContradiction(ContradictionException cex) {
+        Decision<?> decision = model.getSolver().getDecisionPath().getLastDecision();
+        if (decision.getDecisionVariable() != null) {
+            super.onContradiction(cex);
+        }
+    }
+}
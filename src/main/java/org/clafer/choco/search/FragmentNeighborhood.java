@@ -0,0 +1,155 @@
+package org.clafer.choco.search;
+
+import gnu.trove.map.hash.TObjectIntHashMap;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.search.limits.ACounter;
+import org.chocosolver.solver.search.limits.ICounter;
+import org.chocosolver.solver.search.loop.lns.neighbors.INeighbor;
+import org.chocosolver.solver.search.strategy.assignments.DecisionOperator;
+import org.chocosolver.solver.search.strategy.decision.DecisionPath;
+import org.chocosolver.solver.search.strategy.decision.IntDecision;
+import org.chocosolver.solver.variables.IntVar;
+
+/**
+ * Relaxes a random fragment of the best solution and fixes the rest of the
+ * variables to their values in the best solution. The fragments are groups of
+ * variables that are worth changing together, for example the variables of a
+ * subtree of Clafers. If the fragment has more variables than the size of the
+ * neighborhood, then only a random subset of the fragment is relaxed. If the
+ * fragment has fewer, then random variables outside the fragment are relaxed
+ * as well.
+ * <p>
+ * The size of the neighborhood starts small and grows every time a
+ * neighborhood is exhausted or reaches its fail limit without improving the
+ * solution. An improvement shrinks the neighborhood back to its initial size.
+ * Once the neighborhood relaxes every variable, the search is complete and
+ * exhausting it proves the best solution is optimal.
+ * </p>
+ */
+public class FragmentNeighborhood implements INeighbor {
+
+    private final IntVar[] vars;
+    private final int[][] fragments;
+    private final int[] bestSolution;
+    private final Random random;
+    private final int initialSize;
+    private final BitSet relaxed;
+    private int size;
+    private boolean improved = false;
+
+    /**
+     * @param fragments the groups of variables to relax together
+     * @param seed the seed for choosing the fragments
+     */
+    public FragmentNeighborhood(IntVar[][] fragments, long seed) {
+        TObjectIntHashMap<IntVar> index = new TObjectIntHashMap<>();
+        this.fragments = new int[fragments.length][];
+        for (int i = 0; i < fragments.length; i++) {
+            this.fragments[i] = Arrays.stream(fragments[i]).mapToInt(var -> {
+                index.putIfAbsent(var, index.size());
+                return index.get(var);
+            }).distinct().toArray();
+        }
+        this.vars = new IntVar[index.size()];
+        index.forEachEntry((var, i) -> {
+            vars[i] = var;
+            return true;
+        });
+        this.bestSolution = new int[vars.length];
+        this.random = new Random(seed);
+        this.initialSize = Math.max(1, vars.length / 10);
+        this.relaxed = new BitSet(vars.length);
+        this.size = initialSize;
+    }
+
+    @Override
+    public void init() {
+    }
+
+    @Override
+    public void recordSolution() {
+        for (int i = 0; i < vars.length; i++) {
+            bestSolution[i] = vars[i].getValue();
+        }
+        improved = true;
+    }
+
+    @Override
+    public void loadFromSolution(Solution solution) {
+        for (int i = 0; i < vars.length; i++) {
+            bestSolution[i] = solution.getIntVal(vars[i]);
+        }
+        improved = true;
+    }
+
+    @Override
+    public void fixSomeVariables(DecisionPath decisionPath) {
+        if (isSearchComplete()) {
+            return;
+        }
+        relaxed.clear();
+        if (fragments.length > 0) {
+            int[] fragment = fragments[random.nextInt(fragments.length)];
+            for (int i = fragment.length - 1; i >= 0 && relaxed.cardinality() < size; i--) {
+                // Partial Fisher-Yates shuffle.
+                int j = random.nextInt(i + 1);
+                int swap = fragment[i];
+                fragment[i] = fragment[j];
+                fragment[j] = swap;
+                relaxed.set(fragment[i]);
+            }
+        }
+        while (relaxed.cardinality() < size) {
+            relaxed.set(random.nextInt(vars.length));
+        }
+        for (int i = relaxed.nextClearBit(0); i < vars.length; i = relaxed.nextClearBit(i + 1)) {
+            // The value might have been pruned by the bound on the objective.
+            if (vars[i].contains(bestSolution[i])) {
+                IntDecision decision = decisionPath.makeIntDecision(vars[i], DecisionOperator.int_eq, bestSolution[i]);
+                decision.setRefutable(false);
+                decisionPath.pushDecision(decision);
+            }
+        }
+    }
+
+    @Override
+    public void restrictLess() {
+        if (improved) {
+            size = initialSize;
+            improved = false;
+        } else {
+            size = Math.min(vars.length, size + (size + 1) / 2);
+        }
+    }
+
+    @Override
+    public boolean isSearchComplete() {
+        return size >= vars.length;
+    }
+
+    /**
+     * Restart the neighborhood after the given number of fails. The limit is
+     * lifted once the search is complete.
+     *
+     * @param model the model
+     * @param fails the number of fails
+     * @return a counter that restarts the neighborhood
+     */
+    public ICounter failCounter(Model model, long fails) {
+        return new ACounter(model.getSolver().getMeasures(), fails) {
+            @Override
+            public long currentValue() {
+                return measures.getFailCount();
+            }
+
+            @Override
+            public boolean isMet() {
+                return !isSearchComplete() && super.isMet();
+            }
+        };
+    }
+}
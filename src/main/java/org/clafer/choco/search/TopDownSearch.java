@@ -0,0 +1,62 @@
+package org.clafer.choco.search;
+
+import java.util.Arrays;
+import org.chocosolver.memory.IStateInt;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.search.strategy.assignments.DecisionOperator;
+import org.chocosolver.solver.search.strategy.decision.Decision;
+import org.chocosolver.solver.search.strategy.strategy.AbstractStrategy;
+import org.chocosolver.solver.variables.IntVar;
+
+/**
+ * Branch on the variables level by level. A level is only branched on once
+ * every variable in the levels above it is instantiated. Within a level, the
+ * variable with the smallest domain is assigned its lower bound first.
+ * <p>
+ * The compiler passes the membership and cardinality variables of the Clafers
+ * top-down along the hierarchy, followed by the references. The children of
+ * an absent parent are fixed by propagation once the parent is decided, so
+ * the search never branches on them, unlike a heuristic that interleaves the
+ * children with the undecided parents.
+ * </p>
+ */
+public class TopDownSearch extends AbstractStrategy<IntVar> {
+
+    private final Model model;
+    private final IntVar[][] levels;
+    // Every level before this one is instantiated.
+    private final IStateInt level;
+
+    public TopDownSearch(Model model, IntVar[]... levels) {
+        super(Arrays.stream(levels).flatMap(Arrays::stream).toArray(IntVar[]::new));
+        this.model = model;
+        this.levels = levels;
+        this.level = model.getEnvironment().makeInt(0);
+    }
+
+    @Override
+    public Decision<IntVar> getDecision() {
+        for (int i = level.get(); i < levels.length; i++) {
+            IntVar best = null;
+            for (IntVar var : levels[i]) {
+                if (!var.isInstantiated() && (best == null || var.getDomainSize() < best.getDomainSize())) {
+                    best = var;
+                }
+            }
+            if (best != null) {
+                level.set(i);
+                return computeDecision(best);
+            }
+        }
+        level.set(levels.length);
+        return null;
+    }
+
+    @Override
+    protected Decision<IntVar> computeDecision(IntVar var) {
+        if (var == null || var.isInstantiated()) {
+            return null;
+        }
+        return model.getSolver().getDecisionPath().makeIntDecision(var, DecisionOperator.int_eq, var.getLB());
+    }
+}
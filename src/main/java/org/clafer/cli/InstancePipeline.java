@@ -0,0 +1,109 @@
+package org.clafer.cli;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Supplier;
+import org.clafer.instance.InstanceModel;
+
+/**
+ * Prints instances on a separate thread so that the search does not wait on
+ * the output. The search hands over snapshots of its solutions through a
+ * bounded queue and only waits when the printer falls too far behind.
+ */
+class InstancePipeline implements AutoCloseable {
+
+    /**
+     * Prints a single instance.
+     */
+    @FunctionalInterface
+    interface Format {
+
+        void print(int index, InstanceModel instance, Appendable out) throws IOException;
+    }
+
+    private static final Supplier<InstanceModel> End = () -> null;
+    private final BlockingQueue<Supplier<InstanceModel>> queue;
+    private final Writer out;
+    private final Format format;
+    private final Thread printer;
+    private volatile Throwable failure = null;
+
+    /**
+     * @param out the buffered writer to print to
+     * @param capacity the maximum number of instances waiting to be printed
+     * @param format how to print each instance
+     */
+    InstancePipeline(Writer out, int capacity, Format format) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.out = out;
+        this.format = format;
+        this.printer = new Thread(this::print, "instance-printer");
+        this.printer.setDaemon(true);
+        this.printer.start();
+    }
+
+    private void print() {
+        try {
+            int index = 0;
+            Supplier<InstanceModel> snapshot;
+            while ((snapshot = queue.take()) != End) {
+                format.print(++index, snapshot.get(), out);
+            }
+            out.flush();
+        } catch (IOException | RuntimeException | Error e) {
+            failure = e;
+            // Keep taking so that the search is not blocked forever.
+            try {
+                while (queue.take() != End) {
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        } catch (InterruptedException e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Queue the instance for printing. Blocks if the queue is full.
+     *
+     * @param snapshot the snapshot of the instance
+     * @throws IOException if printing an earlier instance failed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void print(Supplier<InstanceModel> snapshot) throws IOException, InterruptedException {
+        checkFailure();
+        queue.put(snapshot);
+    }
+
+    /**
+     * Wait until every queued instance is printed.
+     *
+     * @throws IOException if printing failed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Override
+    public void close() throws IOException, InterruptedException {
+        queue.put(End);
+        printer.join();
+        checkFailure();
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable e = failure;
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        }
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        if (e != null) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -15,22 +15,29 @@ public class Main
     public static void main(String[] args) throws Exception {
         OptionParser parser = new OptionParser() {
             {
+                accepts( "assertionGroup", "In validation mode with --parallel, the number of assertions checked together on each solver." ).withRequiredArg().ofType( Integer.class );
+                accepts( "compact", "Print each instance on a single line." );
                 accepts( "dataFile", "Text file to store time (in seconds) to find each instance.").withRequiredArg()
                         .ofType( File.class ).describedAs("text file");
                 accepts( "file", "Input file in .cfr or .js format" ).withRequiredArg().ofType( File.class )
                     .describedAs( "Clafer model file (.cfr) or Clafer Javascript file (.js)." );
                 accepts( "help", "Show help.").forHelp();
+                accepts( "lns", "Optimize a single objective with large neighborhood search." );
                 accepts( "maxint", "Specify maximum integer value." ).withRequiredArg().ofType( Integer.class );
                 accepts( "minint", "Specify minimum integer value." ).withRequiredArg().ofType( Integer.class );
                 accepts( "moo", "Run in multi-objective optimization mode." );
                 accepts( "n", "Specify the maximum number of instances." ).withRequiredArg().ofType( Integer.class );
                 accepts( "noprint", "Don't print the instances to the console or a file");
                 accepts( "output", "Output instances to the given file." ).withRequiredArg().ofType( File.class ).describedAs( "text file" );
+                accepts( "parallel", "In validation mode, check each assertion on its own solver using the given number of threads." ).withRequiredArg().ofType( Integer.class );
+                accepts( "portfolio", "Search with the given number of differently configured solvers in parallel." ).withRequiredArg().ofType( Integer.class );
                 accepts( "prettify", "Use simple and pretty output format (not formal)." );
+                accepts( "profile", "Print statistics about each propagator after the search." );
+                accepts( "stream", "Print the instances on a separate thread while the search continues." );
                 accepts( "sysml", "Print the instances as SysMLv2" );
                 accepts( "repl", "Run in REPL (interactive) mode." );
                 accepts( "scope", "Override the default global scope value." ).withRequiredArg().ofType( Integer.class );
-                accepts( "search", "PreferSmallerInstances/PreferLargerInstances/Random" ).withRequiredArg().ofType( ClaferSearchStrategy.class );
+                accepts( "search", "PreferSmallerInstances/PreferLargerInstances/Random/TopDown/DomOverWDeg/ActivityBased/ConflictHistory/LastConflict" ).withRequiredArg().ofType( ClaferSearchStrategy.class );
                 accepts( "time", "Time how long it takes to find all instances (and print if it is turned on");
                 accepts( "v", "Run in validation mode; checks all assertions." );
                 accepts( "version", "Display the tool version" );
@@ -94,7 +101,10 @@ public class Main
 
         PrintStream outStream = System.out;
 
-        if (options.has("output"))
+        // when streaming, Normal writes the output file itself
+        boolean streaming = !options.has("v") && !options.has("repl") && Normal.isStreaming(options);
+
+        if (options.has("output") && !streaming)
         {
             File outputFile = (File) options.valueOf("output");
             outStream = new PrintStream(outputFile);
@@ -1,7 +1,13 @@
 package org.clafer.cli;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.OutputStreamWriter;
 import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import joptsimple.OptionSet;
 import org.clafer.compiler.ClaferCompiler;
 import org.clafer.compiler.ClaferOption;
@@ -12,14 +18,14 @@ import org.clafer.instance.InstanceModel;
 import org.clafer.javascript.JavascriptFile;
 import org.clafer.objective.Objective;
 import org.clafer.scope.Scope;
-import org.clafer.ast.AstModel;
-import org.sysml.ast.SysmlProperty;
-import org.sysml.ast.SysmlPropertyDef;
-import org.sysml.compiler.AstSysmlCompiler;
-import org.sysml.pprinter.SysmlPrinter;
 
 
 public class Normal {
+    // Whether the instances are printed on a separate thread
+    public static boolean isStreaming(OptionSet options) {
+        return options.has("stream") && !options.has("noprint");
+    }
+
     // Running the model itself(instantiating or optimizing)
     public static void runNormal(JavascriptFile  javascriptFile, OptionSet options, PrintStream outStream) throws Exception {
 
@@ -36,6 +42,12 @@ public class Normal {
         ClaferOption compilerOption = javascriptFile.getOption();
         if (options.has("search"))
             compilerOption = compilerOption.setStrategy((ClaferSearchStrategy) options.valueOf("search"));
+        if (options.has("portfolio"))
+            compilerOption = compilerOption.portfolio((Integer) options.valueOf("portfolio"));
+        if (options.has("profile"))
+            compilerOption = compilerOption.profilePropagators();
+        if (options.has("lns"))
+            compilerOption = compilerOption.largeNeighborhoodSearch();
 
         // pick the right solver
         ClaferSearch solver = objectives.length == 0
@@ -65,42 +77,72 @@ public class Normal {
         else
             n = -1;
 
-        while (solver.find()) {
-            if (dataTackingOn) {
-                elapsedTime = (double) (System.nanoTime() - startTime) / 1000000000;
-                dataStream.println(elapsedTime + ", " + (index + 1));
-            }
+        boolean compact = options.has("compact");
+        InstancePipeline.Format format;
+        if (sysml)
+            format = new SysmlOutput(javascriptFile.getModel())::printInstance;
+        else if (compact)
+            format = Utils::printCompactInstance;
+        else
+            format = (i, instance, out) -> Utils.printInstance(i, instance, prettify, out);
+        // print on another thread while the search continues
+        Writer streamWriter = null;
+        InstancePipeline pipeline = null;
+        if (isStreaming(options)) {
+            streamWriter = options.has("output")
+                ? Files.newBufferedWriter(((File) options.valueOf("output")).toPath(), StandardCharsets.UTF_8)
+                : new BufferedWriter(Channels.newWriter(Channels.newChannel(outStream), StandardCharsets.UTF_8.name()), 1 << 16);
+            pipeline = new InstancePipeline(streamWriter, 1024, format);
+        } else if (sysml && !printOff) {
+            // SysML packages are large, write them in batches
+            streamWriter = new BufferedWriter(new OutputStreamWriter(outStream, StandardCharsets.UTF_8), 1 << 16);
+        }
 
-            if (n >= 0 && index == n)
-                break;
+        try {
+            while (solver.find()) {
+                if (dataTackingOn) {
+                    elapsedTime = (double) (System.nanoTime() - startTime) / 1000000000;
+                    dataStream.println(elapsedTime + ", " + (index + 1));
+                }
 
-            if (printOff) {
-                ++index;
-            } else {
-                if (sysml) {
-                    outStream.append("package Architecture {\n");
-                    outStream.append("    import ScalarValues::*;\n");
-                    AstModel top = javascriptFile.getModel();
-                    SysmlPrinter pprinter = new SysmlPrinter(outStream);
-                    AstSysmlCompiler compiler = new AstSysmlCompiler();
-                    SysmlPropertyDef[] models = compiler.compile(top, top);
-                    for (SysmlPropertyDef model: models){
-                        pprinter.visit(model, "    ");
-                    }
+                if (n >= 0 && index == n)
+                    break;
 
-                    InstanceModel instance = solver.instance();
-                    instance.printSysml(outStream, "    ");
-                    outStream.append("}\n");
+                if (printOff) {
+                    ++index;
+                } else if (pipeline != null) {
+                    ++index;
+                    pipeline.print(solver.snapshot());
                 } else {
-                    outStream.println("=== Instance " + (++index) + " Begin ===\n");
-                    InstanceModel instance = solver.instance();
-                    if (prettify)
-                        instance.print(outStream);
+                    if (sysml) {
+                        format.print(++index, solver.instance(), streamWriter);
+                    } else if (compact) {
+                        Utils.printCompactInstance(++index, solver.instance(), outStream);
+                    } else {
+                        outStream.println("=== Instance " + (++index) + " Begin ===\n");
+                        InstanceModel instance = solver.instance();
+                        if (prettify)
+                            instance.print(outStream);
+                        else
+                            for (InstanceClafer c : instance.getTopClafers())
+                                Utils.printClafer(c, outStream);
+                        outStream.println("\n--- Instance " + (index) + " End ---\n");
+                    }
+                }
+            }
+        } finally {
+            // Print the queued instances even if the search hit a limit
+            if (pipeline != null) {
+                try {
+                    pipeline.close();
+                } finally {
+                    if (options.has("output"))
+                        streamWriter.close();
                     else
-                        for (InstanceClafer c : instance.getTopClafers())
-                            Utils.printClafer(c, outStream);
-                    outStream.println("\n--- Instance " + (index) + " End ---\n");
+                        streamWriter.flush();
                 }
+            } else if (streamWriter != null) {
+                streamWriter.flush();
             }
         }
         if (!sysml) {
@@ -117,5 +159,6 @@ public class Normal {
                     System.out.println("Generated " + (n == -1 ? "all " : "") + index + " optimal instance(s) within the scope\n");
             }
         }
+        solver.getPropagatorProfile().ifPresent(System.out::println);
     }
 }
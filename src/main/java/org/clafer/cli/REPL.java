@@ -13,6 +13,7 @@ import org.clafer.ast.AstModel;
 import static org.clafer.ast.Asts.global;
 import static org.clafer.ast.Asts.sum;
 import org.clafer.compiler.ClaferCompiler;
+import org.clafer.compiler.CompiledModelCache;
 import org.clafer.compiler.ClaferOption;
 import org.clafer.compiler.ClaferSearch;
 import org.clafer.compiler.ClaferSearchStrategy;
@@ -26,6 +27,8 @@ import org.clafer.scope.Scope;
 
 public class REPL {
     private static int instanceID = 0; // id of an instance generated previously
+    // going back to an earlier scope of the same model reuses the earlier compile
+    private static final CompiledModelCache compiledModels = new CompiledModelCache(16);
 
     private static String prompt(BufferedReader br) throws IOException {
         System.out.print("\nClaferChocoIG> ");
@@ -48,8 +51,12 @@ public class REPL {
       System.out.println("ma`x`imize <claferUID>              Find a solution where <claferUID>.dref is maximal.");
       System.out.println("minimiz'e' <claferUID>              Find a solution where <claferUID>.dref is minimal.");
       System.out.println("sta't's                             Display statistics about the current search.");
+      System.out.println("'P'rofile                           Display statistics about each propagator, or start profiling.");
       System.out.println("'O'ptions                           Display the current solver options.");
       System.out.println("strate'g'y <smaller|larger|random>  Set search strategy to prefer smaller, prefer larger, or random.");
+      System.out.println("  <topdown>                         Or to prefer smaller, deciding the Clafers top-down before references.");
+      System.out.println("  <domwdeg|activity|conflict|       Or to dom/wdeg, activity-based, conflict history, or last conflict");
+      System.out.println("   lastconflict>                    search, which learn from failures and restart.");
       System.out.println("'o'ptimizations                     Toggle optimizations basic/full.");
       System.out.println("symmetry'B'reaking                  Toggle symmetry breaking basic/full.");
       System.out.println("'q'uit                              Exit the REPL sesssion.");
@@ -85,6 +92,8 @@ public class REPL {
     public static String commandMinimizeS         = "z";
     public static String commandStatsL            = "stats";
     public static String commandStatsS            = "t";
+    public static String commandProfileL          = "Profile";
+    public static String commandProfileS          = "P";
     public static String commandOptionsL          = "Options";
     public static String commandOptionsS          = "O";
     public static String commandOptimizationsL    = "optimizations";
@@ -104,14 +113,20 @@ public class REPL {
         ClaferOption compilerOption = javascriptFile.getOption();
         if (options.has("search"))
             compilerOption = compilerOption.setStrategy((ClaferSearchStrategy) options.valueOf("search"));
+        if (options.has("portfolio"))
+            compilerOption = compilerOption.portfolio((Integer) options.valueOf("portfolio"));
+        if (options.has("profile"))
+            compilerOption = compilerOption.profilePropagators();
+        if (options.has("lns"))
+            compilerOption = compilerOption.largeNeighborhoodSearch();
 
         AstModel model = javascriptFile.getModel();
         Objective[] objectives = javascriptFile.getObjectives();
         ClaferSearch solver = null;
         if (objectives.length == 0)
-              solver = ClaferCompiler.compile(model, scope, compilerOption);
+              solver = ClaferCompiler.compile(model, scope, compilerOption, compiledModels);
             else
-              solver = ClaferCompiler.compile(model, scope, objectives, compilerOption);
+              solver = ClaferCompiler.compile(model, scope, objectives, compilerOption, compiledModels);
 
         boolean prettify = options.has("prettify");
 
@@ -142,12 +157,31 @@ public class REPL {
                 continue;
             }
 
+            if (s.equals(commandProfileS) || s.equals(commandProfileL)) {
+                if (solver != null && solver.getPropagatorProfile().isPresent()) {
+                    System.out.println(solver.getPropagatorProfile().get());
+                }
+                else {
+                    // profiling is chosen when compiling
+                    compilerOption = compilerOption.profilePropagators();
+                    solver = compileModel(model, scope, objectives, compilerOption);
+                    System.out.println("Profiling the propagators from the first instance");
+                }
+                continue;
+            }
+
             if (s.equals(commandOptionsS) || s.equals(commandOptionsL)) {
-                String strategy = (compilerOption.getStrategy() == ClaferSearchStrategy.PreferSmallerInstances)
-                                  ? "smaller"
-                                  : ((compilerOption.getStrategy() == ClaferSearchStrategy.PreferLargerInstances)
-                                      ? "larger" : "random"
-                                    );
+                String strategy;
+                switch (compilerOption.getStrategy()) {
+                  case PreferSmallerInstances: strategy = "smaller";      break;
+                  case PreferLargerInstances:  strategy = "larger";       break;
+                  case TopDown:                strategy = "topdown";      break;
+                  case DomOverWDeg:            strategy = "domwdeg";      break;
+                  case ActivityBased:          strategy = "activity";     break;
+                  case ConflictHistory:        strategy = "conflict";     break;
+                  case LastConflict:           strategy = "lastconflict"; break;
+                  default:                     strategy = "random";
+                }
 
                 System.out.println
                 ( "Options:"
@@ -465,8 +499,13 @@ public class REPL {
                 if (commandParts.length != 2 ||
                     (!"smaller".equals(commandParts[1]) &&
                      !"larger".equals(commandParts[1]) &&
-                     !"random".equals(commandParts[1]))) {
-                    System.out.println("The format of the command is: '" + commandStrategyS + " <smaller|larger|random>'");
+                     !"random".equals(commandParts[1]) &&
+                     !"topdown".equals(commandParts[1]) &&
+                     !"domwdeg".equals(commandParts[1]) &&
+                     !"activity".equals(commandParts[1]) &&
+                     !"conflict".equals(commandParts[1]) &&
+                     !"lastconflict".equals(commandParts[1]))) {
+                    System.out.println("The format of the command is: '" + commandStrategyS + " <smaller|larger|random|topdown|domwdeg|activity|conflict|lastconflict>'");
                     System.out.println("Given: '" + s + "'");
                     continue;
                 }
@@ -483,6 +522,26 @@ public class REPL {
                     System.out.println("Search strategy: random");
                     compilerOption = compilerOption.setStrategy(ClaferSearchStrategy.Random);
                     break;
+                  case "topdown":
+                    compilerOption = compilerOption.setStrategy(ClaferSearchStrategy.TopDown);
+                    System.out.println("Search strategy: topdown");
+                    break;
+                  case "domwdeg":
+                    compilerOption = compilerOption.setStrategy(ClaferSearchStrategy.DomOverWDeg);
+                    System.out.println("Search strategy: domwdeg");
+                    break;
+                  case "activity":
+                    compilerOption = compilerOption.setStrategy(ClaferSearchStrategy.ActivityBased);
+                    System.out.println("Search strategy: activity");
+                    break;
+                  case "conflict":
+                    compilerOption = compilerOption.setStrategy(ClaferSearchStrategy.ConflictHistory);
+                    System.out.println("Search strategy: conflict");
+                    break;
+                  case "lastconflict":
+                    compilerOption = compilerOption.setStrategy(ClaferSearchStrategy.LastConflict);
+                    System.out.println("Search strategy: lastconflict");
+                    break;
                 }
                 continue;
             }
@@ -524,9 +583,9 @@ public class REPL {
         instanceID = 0; // reset instance ID
         try {
             if (objectives.length == 0)
-              solver = ClaferCompiler.compile(model, scope, compilerOption);
+              solver = ClaferCompiler.compile(model, scope, compilerOption, compiledModels);
             else
-              solver = ClaferCompiler.compile(model, scope, objectives, compilerOption);
+              solver = ClaferCompiler.compile(model, scope, objectives, compilerOption, compiledModels);
         }
         catch (Exception e) {
             solver = null;
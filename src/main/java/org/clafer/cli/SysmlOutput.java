@@ -0,0 +1,54 @@
+package org.clafer.cli;
+
+import java.io.IOException;
+import org.clafer.ast.AstModel;
+import org.clafer.instance.InstanceModel;
+import org.sysml.ast.SysmlPropertyDef;
+import org.sysml.compiler.AstSysmlCompiler;
+import org.sysml.pprinter.SysmlPrinter;
+
+/**
+ * Prints instances as SysML v2 packages. Every package repeats the same part
+ * definitions compiled from the model, so they are compiled and rendered once
+ * up front and only the instance itself is compiled per instance.
+ */
+class SysmlOutput {
+
+    private static final String Indent = "    ";
+    private final String header;
+
+    /**
+     * @param model the model the instances belong to
+     */
+    SysmlOutput(AstModel model) {
+        StringBuilder header = new StringBuilder();
+        header.append("package Architecture {\n");
+        header.append(Indent).append("import ScalarValues::*;\n");
+        SysmlPrinter pprinter = new SysmlPrinter(header);
+        try {
+            for (SysmlPropertyDef definition : new AstSysmlCompiler().compile(model, model)) {
+                pprinter.visit(definition, Indent);
+            }
+        } catch (IOException e) {
+            // StringBuilder does not throw IOException.
+            throw new Error(e);
+        }
+        this.header = header.toString();
+    }
+
+    /**
+     * Print the instance as a package containing the part definitions of the
+     * model followed by the parts of the instance.
+     *
+     * @param index the index of the instance, unused since SysML packages are
+     * not numbered
+     * @param instance the instance
+     * @param out the output to print to
+     * @throws IOException an IO error occurred
+     */
+    void printInstance(int index, InstanceModel instance, Appendable out) throws IOException {
+        out.append(header);
+        instance.printSysml(out, Indent);
+        out.append("}\n");
+    }
+}
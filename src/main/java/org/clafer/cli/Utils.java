@@ -12,6 +12,7 @@ import org.clafer.ast.AstConcreteClafer;
 import org.clafer.ast.AstModel;
 import org.clafer.ast.AstUtil;
 import org.clafer.instance.InstanceClafer;
+import org.clafer.instance.InstanceModel;
 import org.clafer.javascript.JavascriptFile;
 import org.clafer.scope.Scope;
 
@@ -207,6 +208,90 @@ public static InstanceClafer getInstanceValueByName(InstanceClafer[] topClafers,
         }
     }
 
+    /**
+     * Print the instance in the same format as the CLI always has.
+     */
+    public static void printInstance(int index, InstanceModel instance, boolean prettify, Appendable out) throws IOException {
+        out.append("=== Instance " + index + " Begin ===\n").append(System.lineSeparator());
+        if (prettify)
+            instance.print(out);
+        else
+            for (InstanceClafer c : instance.getTopClafers())
+                printClafer(c, out);
+        out.append(System.lineSeparator()).append("--- Instance " + index + " End ---\n").append(System.lineSeparator());
+    }
+
+    /**
+     * Print the instance on a single line, for example
+     * {@code 3: Person { name = "Alice" } Person$1 { name = "Bob" }}.
+     */
+    public static void printCompactInstance(int index, InstanceModel instance, Appendable out) throws IOException {
+        out.append(Integer.toString(index)).append(':');
+        for (InstanceClafer c : instance.getTopClafers()) {
+            out.append(' ');
+            printCompactClafer(c, out);
+        }
+        out.append(System.lineSeparator());
+    }
+
+    private static void printCompactClafer(InstanceClafer clafer, Appendable out) throws IOException {
+        out.append(clafer.getType().getName()).append(countSuffix(clafer.getId()));
+        if (clafer.hasRef()) {
+            out.append(" = ");
+            if (clafer.getRef() instanceof InstanceClafer) {
+                InstanceClafer refClafer = (InstanceClafer) clafer.getRef();
+                out.append(refClafer.getType().getName()).append(countSuffix(refClafer.getId()));
+            } else if (clafer.getRef() instanceof String) {
+                printCompactString((String) clafer.getRef(), out);
+            } else
+                out.append(clafer.getRef().toString());
+        }
+        if (clafer.hasChildren()) {
+            out.append(" {");
+            for (InstanceClafer child : clafer.getChildren()) {
+                out.append(' ');
+                printCompactClafer(child, out);
+            }
+            out.append(" }");
+        }
+    }
+
+    /**
+     * Print the string quoted, escaping quotes, backslashes, and control
+     * characters so that the instance stays on one line and braces inside the
+     * string can be told apart from the structure.
+     */
+    private static void printCompactString(String string, Appendable out) throws IOException {
+        out.append('"');
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c == 0x7f) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
     public static String countSuffix(int count) {
         return count == 0 ? "" : "$" + Integer.toString(count);
     }
@@ -2,11 +2,16 @@ package org.clafer.cli;
 
 import java.io.File;
 import java.io.PrintStream;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 import joptsimple.OptionSet;
 import org.clafer.assertion.Assertion;
 import org.clafer.compiler.ClaferAsserter;
 import org.clafer.compiler.ClaferCompiler;
 import org.clafer.compiler.ClaferOption;
+import org.clafer.compiler.ClaferParallelAsserter;
+import org.clafer.compiler.ClaferParallelAsserter.Verdict;
 import org.clafer.compiler.ClaferSearchStrategy;
 import org.clafer.instance.InstanceClafer;
 import org.clafer.instance.InstanceModel;
@@ -33,25 +38,21 @@ public class Validate {
             compilerOption = compilerOption.setStrategy((ClaferSearchStrategy) options.valueOf("search"));
         }
 
+        boolean prettify = options.has("prettify");
+        if (options.has("parallel")) {
+            runParallel(javascriptFile, scope, options, prettify, outStream);
+            return;
+        }
+
         ClaferAsserter solver = ClaferCompiler.compile(javascriptFile.getModel(), scope, assertions, javascriptFile.getOption());
 
         int index = 0; // optimal instance id
-        boolean prettify = options.has("prettify");
 
         while (solver.find()) {
             System.out.println("Failed assertion(s):");
             for (Assertion failedAssertion : solver.failedAssertions())
               System.out.println("  " + failedAssertion);
-            outStream.println("\n=== Counterexample " + (++index) + " Begin ===\n");
-            InstanceModel instance = solver.instance();
-
-            if (prettify)
-                instance.print(outStream);
-            else {
-                for (InstanceClafer c : instance.getTopClafers())
-                    Utils.printClafer(c, outStream);
-            }
-            outStream.println("\n--- Counterexample " + (index) + " End ---\n");
+            printCounterexample(++index, solver.instance(), prettify, outStream);
         }
 
         if (index == 0)
@@ -59,4 +60,44 @@ public class Validate {
         else
           System.out.println("Generated all " + index + " counterexample(s) within the scope\n");
     }
+
+    // Check groups of assertions on separate solvers in parallel
+    private static void runParallel(JavascriptFile javascriptFile, Scope scope, OptionSet options, boolean prettify, PrintStream outStream) throws Exception {
+        Assertion[] assertions = javascriptFile.getAssertions();
+        int threads = (Integer) options.valueOf("parallel");
+        int groupSize = options.has("assertionGroup") ? (Integer) options.valueOf("assertionGroup") : 1;
+
+        ClaferParallelAsserter asserter = ClaferCompiler.compileParallelAsserter(
+                javascriptFile.getModel(), scope, assertions, javascriptFile.getOption(), groupSize);
+        Verdict[] verdicts = asserter.check(threads);
+
+        System.out.println("Assertion verdict(s):");
+        for (Verdict verdict : verdicts)
+            System.out.println("  " + verdict.getStatus() + " (" + verdict.getTime() + " ms) " + verdict.getAssertion());
+
+        // assertions in the same group can share a counterexample
+        int index = 0;
+        Set<InstanceModel> printed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Verdict verdict : verdicts) {
+            InstanceModel counterexample = verdict.getCounterexample();
+            if (counterexample != null && printed.add(counterexample))
+                printCounterexample(++index, counterexample, prettify, outStream);
+        }
+
+        if (index == 0)
+          System.out.println("No counterexamples found within the scope. All assertions may hold.");
+        else
+          System.out.println("Generated " + index + " counterexample(s) within the scope\n");
+    }
+
+    private static void printCounterexample(int index, InstanceModel instance, boolean prettify, PrintStream outStream) throws Exception {
+        outStream.println("\n=== Counterexample " + index + " Begin ===\n");
+        if (prettify)
+            instance.print(outStream);
+        else {
+            for (InstanceClafer c : instance.getTopClafers())
+                Utils.printClafer(c, outStream);
+        }
+        outStream.println("\n--- Counterexample " + index + " End ---\n");
+    }
 }
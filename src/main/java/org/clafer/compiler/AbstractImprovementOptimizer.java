@@ -1,8 +1,11 @@
 package org.clafer.compiler;
 
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 import org.chocosolver.solver.Solution;
 import org.chocosolver.solver.Solver;
 import org.chocosolver.solver.variables.IntVar;
+import org.clafer.instance.InstanceModel;
 
 /**
  *
@@ -14,6 +17,7 @@ public abstract class AbstractImprovementOptimizer implements ClaferOptimizer {
     protected final ClaferSolutionMap solutionMap;
     protected final boolean[] maximizes;
     protected final IntVar[] scores;
+    private BiConsumer<InstanceModel, int[]> improvementListener = null;
 
     public AbstractImprovementOptimizer(Solver solver, ClaferSolutionMap solutionMap, boolean[] maximizes, IntVar[] scores) {
         this.solver = solver;
@@ -40,4 +44,41 @@ public abstract class AbstractImprovementOptimizer implements ClaferOptimizer {
     }
 
     public abstract Solution solution();
+
+    @Override
+    public ClaferOptimizer onImprovement(BiConsumer<InstanceModel, int[]> listener) {
+        improvementListener = improvementListener == null
+                ? listener
+                : improvementListener.andThen(listener);
+        return this;
+    }
+
+    /**
+     * Publish the current solution of the solver as an improvement.
+     */
+    protected void improved() {
+        int[] values = new int[scores.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = scores[i].getValue();
+        }
+        improved(solutionMap::getInstance, values);
+    }
+
+    /**
+     * Publish an improvement. The instance is only built if someone is
+     * listening.
+     *
+     * @param instance the improving instance
+     * @param values the objective values of the instance
+     */
+    protected void improved(Supplier<InstanceModel> instance, int[] values) {
+        if (improvementListener != null) {
+            improvementListener.accept(instance.get(), values);
+        }
+    }
+
+    @Override
+    public InstanceSnapshot snapshot() {
+        return getSolutionMap().getSnapshot(solution());
+    }
 }
@@ -7,34 +7,53 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.chocosolver.solver.Model;
 import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.search.limits.FailCounter;
 import org.chocosolver.solver.search.limits.NodeCounter;
+import org.chocosolver.solver.search.loop.move.MoveLNS;
 import org.chocosolver.solver.search.strategy.Search;
 import org.chocosolver.solver.search.strategy.strategy.AbstractStrategy;
 import org.chocosolver.solver.variables.BoolVar;
 import org.chocosolver.solver.variables.IntVar;
 import org.clafer.assertion.Assertion;
 import org.clafer.ast.AstAbstractClafer;
+import org.clafer.ast.AstChildRelation;
 import org.clafer.ast.AstClafer;
 import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstExpr;
+import org.clafer.ast.AstExprRewriter;
+import org.clafer.ast.AstGlobal;
+import org.clafer.ast.AstJoin;
 import org.clafer.ast.AstModel;
 import org.clafer.ast.AstRef;
+import org.clafer.ast.AstRefRelation;
 import org.clafer.ast.AstStringClafer;
 import org.clafer.ast.AstUtil;
+import org.clafer.ast.analysis.Analysis;
 import org.clafer.ast.analysis.UnsatAnalyzer;
 import org.clafer.ast.compiler.AstCompiler;
 import org.clafer.ast.compiler.AstSolutionMap;
+import org.clafer.choco.constraint.ProfilingPropagationEngine;
+import org.clafer.choco.search.ConflictHistorySearch;
+import org.clafer.choco.search.FragmentNeighborhood;
+import org.clafer.choco.search.TopDownSearch;
 import org.clafer.collection.Either;
+import org.clafer.collection.Pair;
 import org.clafer.common.Check;
 import org.clafer.common.UnsatisfiableException;
 import org.clafer.common.Util;
+import org.clafer.compiler.CompiledModelCache.CompiledModel;
 import org.clafer.graph.GraphUtil;
 import org.clafer.graph.KeyGraph;
 import org.clafer.graph.Vertex;
@@ -42,10 +61,12 @@ import org.clafer.ir.IrBoolVar;
 import org.clafer.ir.IrIntVar;
 import org.clafer.ir.IrModule;
 import org.clafer.ir.IrStringVar;
+import org.clafer.ir.analysis.deduction.Coalesce;
 import org.clafer.ir.compiler.IrCompiler;
 import org.clafer.ir.compiler.IrSolutionMap;
 import org.clafer.objective.Objective;
 import org.clafer.scope.Scopable;
+import org.clafer.scope.Scope;
 
 /**
  * Compiles from AST -> Choco
@@ -74,6 +95,12 @@ public class ClaferCompiler {
     }
 
     private static List<IntVar> getDecisionVars(AstClafer clafer, ClaferSolutionMap map) {
+        List<IntVar> vars = getMembershipVars(clafer, map);
+        vars.addAll(getRefVars(clafer, map));
+        return vars;
+    }
+
+    private static List<IntVar> getMembershipVars(AstClafer clafer, ClaferSolutionMap map) {
         List<IntVar> vars = new ArrayList<>();
         if (clafer instanceof AstConcreteClafer) {
             IrIntVar[] siblingBounds = map.getAstSolution().getSiblingBounds(clafer);
@@ -95,6 +122,11 @@ public class ClaferCompiler {
                 }
             }
         }
+        return vars;
+    }
+
+    private static List<IntVar> getRefVars(AstClafer clafer, ClaferSolutionMap map) {
+        List<IntVar> vars = new ArrayList<>();
         if (clafer.hasRef()) {
             AstRef ref = clafer.getRef();
             if (ref.getTargetType() instanceof AstStringClafer) {
@@ -130,6 +162,11 @@ public class ClaferCompiler {
     }
 
     private static List<List<IntVar>> getDecisionVars(AstModel model, ClaferOption option, ClaferSolutionMap map) {
+        return getDecisionClafers(model, option).stream()
+                .map(x -> getDecisionVars(x, map)).collect(Collectors.toList());
+    }
+
+    private static List<List<AstClafer>> getDecisionClafers(AstModel model, ClaferOption option) {
         KeyGraph<AstClafer> dependency = new KeyGraph<>();
         for (AstAbstractClafer abstractClafer : model.getAbstracts()) {
             Vertex<AstClafer> node = dependency.getVertex(abstractClafer);
@@ -155,7 +192,51 @@ public class ClaferCompiler {
                 .collect(Collectors.groupingBy(priorities::get))
                 .entrySet().stream()
                 .sorted(Comparator.comparing(Entry::getKey))
-                .map(Entry::getValue).map(x -> getDecisionVars(x, map)).collect(Collectors.toList());
+                .map(Entry::getValue).collect(Collectors.toList());
+    }
+
+    /**
+     * Branch on the membership and cardinality variables of each group of
+     * Clafers top-down along the hierarchy, then on their references. Clafers
+     * at the same depth with smaller scopes are decided first.
+     */
+    private static List<AbstractStrategy<?>> topDownStrategies(AstModel model, ClaferOption option, ClaferSolutionMap map) {
+        Analysis analysis = map.getAstSolution().getAnalysis();
+        List<Set<AstClafer>> depths = analysis.getClafersInParentAndSubOrder();
+        TObjectIntMap<AstClafer> depth = new TObjectIntHashMap<>(Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR, depths.size());
+        for (int i = 0; i < depths.size(); i++) {
+            for (AstClafer clafer : depths.get(i)) {
+                depth.put(clafer, i);
+            }
+        }
+        List<AbstractStrategy<?>> strategies = new ArrayList<>();
+        for (List<AstClafer> clafers : getDecisionClafers(model, option)) {
+            List<IntVar[]> levels = clafers.stream()
+                    .sorted(Comparator.comparingInt((AstClafer x) -> depth.get(x)).thenComparingInt(x -> analysis.getScope(x)))
+                    .collect(Collectors.groupingBy(depth::get, TreeMap::new, Collectors.toList()))
+                    .values().stream()
+                    .map(x -> getDecisionVars(x, y -> getMembershipVars(y, map)))
+                    .filter(x -> x.length > 0)
+                    .collect(Collectors.toList());
+            IntVar[] refs = getDecisionVars(clafers, y -> getRefVars(y, map));
+            if (refs.length > 0) {
+                levels.add(refs);
+            }
+            if (!levels.isEmpty()) {
+                strategies.add(new TopDownSearch(levels.get(0)[0].getModel(), levels.toArray(new IntVar[levels.size()][])));
+            }
+        }
+        return strategies;
+    }
+
+    private static IntVar[] getDecisionVars(List<AstClafer> clafers, Function<AstClafer, List<IntVar>> vars) {
+        return clafers.stream().flatMap(x -> vars.apply(x).stream()).toArray(IntVar[]::new);
+    }
+
+    private static List<AbstractStrategy<?>> strategies(AstModel model, ClaferOption options, ClaferSolutionMap map) {
+        return ClaferSearchStrategy.TopDown.equals(options.getStrategy())
+                ? topDownStrategies(model, options, map)
+                : intStrategies(getDecisionVars(model, options, map), options);
     }
 
     private static void set(Solver solver, List<AbstractStrategy<?>> strategies) {
@@ -181,6 +262,12 @@ public class ClaferCompiler {
                 return firstFailInDomainMax(vars);
             case Random:
                 return Optional.of(Search.randomSearch(vars, System.nanoTime()));
+            case DomOverWDeg:
+                return Optional.of(Search.domOverWDegSearch(vars));
+            case ConflictHistory:
+                return Optional.of(new ConflictHistorySearch<>(vars[0].getModel(), Search.minDomLBSearch(vars)));
+            case LastConflict:
+                return Optional.of(Search.lastConflict(Search.minDomLBSearch(vars)));
             default:
                 throw new IllegalArgumentException();
         }
@@ -188,16 +275,175 @@ public class ClaferCompiler {
 
     private static List<AbstractStrategy<?>> intStrategies(List<List<IntVar>> vars, ClaferOption options) {
         List<AbstractStrategy<?>> strategies = new ArrayList<>();
+        if (ClaferSearchStrategy.ActivityBased.equals(options.getStrategy())) {
+            // Activity-based search installs its own restarts so only one can
+            // be created per solver.
+            IntVar[] ivars = flatten(vars);
+            if (ivars.length > 0) {
+                strategies.add(Search.activityBasedSearch(ivars));
+            }
+            return strategies;
+        }
         for (List<IntVar> ivars : vars) {
             intStrategy(ivars.toArray(new IntVar[ivars.size()]), options).ifPresent(strategies::add);
         }
         return strategies;
     }
 
-    private static void restartPolicy(Solver solver, ClaferOption options) {
+    private static Solver solver(Model model, ClaferOption options) {
+        Solver solver = model.getSolver();
+        if (options.isProfilePropagators()) {
+            solver.setEngine(new ProfilingPropagationEngine(model));
+        }
+        return solver;
+    }
+
+    private static IntVar[] flatten(List<List<IntVar>> vars) {
+        return vars.stream().flatMap(List::stream).toArray(IntVar[]::new);
+    }
+
+    /**
+     * Whether or not the strategy learns from the failures of the search. The
+     * learning strategies restart on their own.
+     */
+    private static boolean learns(ClaferSearchStrategy strategy) {
+        switch (strategy) {
+            case DomOverWDeg:
+            case ActivityBased:
+            case ConflictHistory:
+            case LastConflict:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Configure the restarts of the strategy. When enumerating, the subtrees
+     * explored before a restart are recorded as nogoods so the learning
+     * strategies do not find duplicate instances. Activity-based search also
+     * restarts after every solution which would find the same instance again,
+     * so it does not restart when enumerating. When optimizing, the restarts
+     * are kept until the optimum is found.
+     *
+     * @param solver the solver
+     * @param options the options
+     * @param enumerate whether or not the solver enumerates every instance
+     */
+    private static void restartPolicy(Solver solver, ClaferOption options, boolean enumerate) {
         switch (options.getStrategy()) {
             case Random:
-                solver.setLubyRestart(16, 16, new NodeCounter(solver, 16), Integer.MAX_VALUE);
+                lubyRestart(solver);
+                return;
+            case DomOverWDeg:
+            case ConflictHistory:
+                solver.setLubyRestart(500, 2, new FailCounter(solver.getModel(), 500), Integer.MAX_VALUE);
+                break;
+            case LastConflict:
+                solver.setGeometricalRestart(100, 1.5, new FailCounter(solver.getModel(), 100), Integer.MAX_VALUE);
+                break;
+            case ActivityBased:
+                if (enumerate) {
+                    Portfolio.stopRestarts(solver);
+                }
+                return;
+            default:
+                return;
+        }
+        if (enumerate) {
+            solver.setNoGoodRecordingFromRestarts();
+        }
+    }
+
+    /**
+     * Optimize with large neighborhood search. The neighborhoods relax the
+     * decision variables of a subtree of Clafers, the references, or the
+     * Clafers in the objective.
+     *
+     * @param solver the solver
+     * @param model the model
+     * @param objective the objective
+     * @param map the solution map
+     */
+    private static void largeNeighborhoodSearch(Solver solver, AstModel model, Objective objective, ClaferSolutionMap map) {
+        List<IntVar[]> fragments = new ArrayList<>();
+        for (AstClafer clafer : AstUtil.getClafers(model)) {
+            fragments.add(getDecisionVars(AstUtil.getNestedClafers(clafer), x -> getDecisionVars(x, map)));
+        }
+        fragments.add(getDecisionVars(AstUtil.getClafers(model), x -> getRefVars(x, map)));
+        Set<AstClafer> objectiveClafers = new HashSet<>();
+        new AstExprRewriter<Set<AstClafer>>() {
+            @Override
+            public AstExpr visit(AstGlobal ast, Set<AstClafer> a) {
+                a.add(ast.getType());
+                return ast;
+            }
+
+            @Override
+            public AstExpr visit(AstJoin ast, Set<AstClafer> a) {
+                rewrite(ast.getRight(), a);
+                return super.visit(ast, a);
+            }
+
+            @Override
+            public AstExpr visit(AstChildRelation ast, Set<AstClafer> a) {
+                a.add(ast.getChildType());
+                return ast;
+            }
+
+            @Override
+            public AstExpr visit(AstRefRelation ast, Set<AstClafer> a) {
+                a.add(ast.getRef().getSourceType());
+                return ast;
+            }
+        }.rewrite(objective.getExpr(), objectiveClafers);
+        fragments.add(getDecisionVars(new ArrayList<>(objectiveClafers), x -> getDecisionVars(x, map)));
+        fragments.removeIf(x -> x.length == 0);
+        FragmentNeighborhood neighborhood = new FragmentNeighborhood(
+                fragments.toArray(new IntVar[fragments.size()][]), System.nanoTime());
+        solver.setMove(new MoveLNS(solver.getMove(), neighborhood, neighborhood.failCounter(solver.getModel(), 100)));
+    }
+
+    private static void lubyRestart(Solver solver) {
+        solver.setLubyRestart(16, 16, new NodeCounter(solver, 16), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Configure the search of a copy in a portfolio. The first copy searches
+     * as configured by the options. The next copies try the other strategies,
+     * then random search, each with their own seed. When optimizing, the random
+     * copies alternate between searching with and without restarts, and the
+     * winner stops restarting once the optimum is found unless the options ask
+     * for random instances. When enumerating, only random instances are
+     * searched with restarts since the winner would otherwise find duplicate
+     * instances. If the options ask for random instances then every copy
+     * searches randomly. The learning strategies are only searched by the
+     * first copy.
+     *
+     * @param solver the solver of the copy
+     * @param in the model
+     * @param solution the solution map of the copy
+     * @param options the options
+     * @param copy the index of the copy in the portfolio
+     * @param optimize whether or not the copies optimize an objective
+     */
+    private static void portfolioSearch(Solver solver, AstModel in, ClaferSolutionMap solution,
+            ClaferOption options, int copy, boolean optimize) {
+        ClaferSearchStrategy strategy = options.getStrategy();
+        boolean restart = ClaferSearchStrategy.Random.equals(strategy);
+        if (copy > 0 && (optimize || !restart)) {
+            List<ClaferSearchStrategy> others = new ArrayList<>(Arrays.asList(ClaferSearchStrategy.values()));
+            others.remove(strategy);
+            others.removeIf(ClaferCompiler::learns);
+            strategy = copy - 1 < others.size() ? others.get(copy - 1) : ClaferSearchStrategy.Random;
+            restart = optimize && ClaferSearchStrategy.Random.equals(strategy) && copy % 2 == 0;
+        }
+        ClaferOption copyOptions = options.setStrategy(strategy);
+        set(solver, strategies(in, copyOptions, solution));
+        if (restart) {
+            lubyRestart(solver);
+        } else if (learns(strategy)) {
+            restartPolicy(solver, copyOptions, !optimize);
         }
     }
 
@@ -215,24 +461,61 @@ public class ClaferCompiler {
         return Optional.of(Search.minDomLBSearch(vars));
     }
 
+    /**
+     * Run the AST compiler and the IR optimizations, or find their output in
+     * the cache.
+     *
+     * @param in the model
+     * @param scope the scope
+     * @param objectives the objectives, possibly empty
+     * @param options the options
+     * @param cache the cache or null
+     * @return the compiled model
+     */
+    private static CompiledModel compileModel(AstModel in, Scope scope, Objective[] objectives,
+            ClaferOption options, CompiledModelCache cache) {
+        Supplier<CompiledModel> compile = () -> {
+            IrModule module = new IrModule();
+            AstSolutionMap astSolution = AstCompiler.compile(in, scope, objectives, module,
+                    AstCompiler.DefaultAnalyzers, options.isFullSymmetryBreaking(), options.isParallelExpansion());
+            return new CompiledModel(in, astSolution, IrCompiler.optimize(module, options.isFullOptimizations()));
+        };
+        return cache == null ? compile.get() : cache.get(in, scope, objectives, options, compile);
+    }
+
     public static ClaferSolver compile(AstModel in, Scopable scope) {
         return compile(in, scope, ClaferOption.Default);
     }
 
     public static ClaferSolver compile(AstModel in, Scopable scope, ClaferOption options) {
-        try {
-            Model model = new Model();
-            IrModule module = new IrModule();
-
-            AstSolutionMap astSolution = AstCompiler.compile(in, scope.toScope(), module,
-                    options.isFullSymmetryBreaking());
-            IrSolutionMap irSolution = IrCompiler.compile(module, model, options.isFullOptimizations());
-            ClaferSolutionMap solution = new ClaferSolutionMap(astSolution, irSolution);
+        return compile(in, scope, options, null);
+    }
 
-            Solver solver = model.getSolver();
-            set(solver, intStrategies(getDecisionVars(in, options, solution), options));
-            restartPolicy(solver, options);
-            return new ClaferSolver(solver, solution, options.getStrategy() == ClaferSearchStrategy.Random);
+    /**
+     * Compile the model, reusing the work of an earlier compile of the same
+     * model with the same scope and options.
+     *
+     * @param in the model
+     * @param scope the scope
+     * @param options the options
+     * @param cache the cache of compiled models, or null to not cache
+     * @return the solver
+     */
+    public static ClaferSolver compile(AstModel in, Scopable scope, ClaferOption options, CompiledModelCache cache) {
+        try {
+            CompiledModel compiled = compileModel(in, scope.toScope(), new Objective[0], options, cache);
+            // Each copy in the portfolio is compiled from the same IR.
+            ClaferSolver[] copies = new ClaferSolver[options.getPortfolio()];
+            for (int i = 0; i < copies.length; i++) {
+                Model model = new Model();
+                IrSolutionMap irSolution = IrCompiler.compileOptimized(compiled.getOptimized(), model);
+                ClaferSolutionMap solution = new ClaferSolutionMap(compiled.getAstSolution(), irSolution);
+
+                Solver solver = solver(model, options);
+                portfolioSearch(solver, in, solution, options, i, false);
+                copies[i] = new ClaferSolver(solver, solution, options.getStrategy() == ClaferSearchStrategy.Random);
+            }
+            return copies.length == 1 ? copies[0] : new ClaferPortfolioSolver(copies);
         } catch (UnsatisfiableException e) {
             return new ClaferSolver();
         }
@@ -243,15 +526,28 @@ public class ClaferCompiler {
     }
 
     public static ClaferOptimizer compile(AstModel in, Scopable scope, Objective[] objectives, ClaferOption options) {
+        return compile(in, scope, objectives, options, null);
+    }
+
+    /**
+     * Compile the model, reusing the work of an earlier compile of the same
+     * model with the same scope, objectives, and options.
+     *
+     * @param in the model
+     * @param scope the scope
+     * @param objectives the objectives
+     * @param options the options
+     * @param cache the cache of compiled models, or null to not cache
+     * @return the optimizer
+     */
+    public static ClaferOptimizer compile(AstModel in, Scopable scope, Objective[] objectives, ClaferOption options,
+            CompiledModelCache cache) {
         Check.noNullsNotEmpty(objectives);
         try {
             Model model = new Model();
-            IrModule module = new IrModule();
-
-            AstSolutionMap astSolution = AstCompiler.compile(
-                    in, scope.toScope(), objectives, module,
-                    options.isFullSymmetryBreaking());
-            IrSolutionMap irSolution = IrCompiler.compile(module, model, options.isFullOptimizations());
+            CompiledModel compiled = compileModel(in, scope.toScope(), objectives, options, cache);
+            AstSolutionMap astSolution = compiled.getAstSolution();
+            IrSolutionMap irSolution = IrCompiler.compileOptimized(compiled.getOptimized(), model);
             ClaferSolutionMap solution = new ClaferSolutionMap(astSolution, irSolution);
 
             IrIntVar[] objectiveIrVars = new IrIntVar[objectives.length];
@@ -262,6 +558,8 @@ public class ClaferCompiler {
 
             boolean[] maximizes = new boolean[objectives.length];
             IntVar[] scores = new IntVar[objectives.length];
+            IrIntVar[] scoreIrVars = new IrIntVar[objectives.length];
+            Objective[] scoreObjectives = new Objective[objectives.length];
             int variableScores = 0;
             Integer[] fixedScores = new Integer[objectives.length];
             for (int i = 0; i < objectives.length; i++) {
@@ -270,20 +568,34 @@ public class ClaferCompiler {
                 } else {
                     maximizes[variableScores] = objectives[i].isMaximize();
                     scores[variableScores] = objectiveVars[i].getRight();
+                    scoreObjectives[variableScores] = objectives[i];
+                    scoreIrVars[variableScores] = objectiveIrVars[i];
                     variableScores++;
                 }
             }
             maximizes = Arrays.copyOf(maximizes, variableScores);
             scores = Arrays.copyOf(scores, variableScores);
 
-            Solver solver = model.getSolver();
-            set(solver, intStrategies(getDecisionVars(in, options, solution), options));
-            restartPolicy(solver, options);
+            Solver solver = solver(model, options);
+            set(solver, strategies(in, options, solution));
+            restartPolicy(solver, options, maximizes.length == 0);
+            if (options.isLargeNeighborhoodSearch() && maximizes.length == 1 && !options.isPortfolio()) {
+                largeNeighborhoodSearch(solver, in, scoreObjectives[0], solution);
+            }
+            boolean restarts = options.getStrategy() == ClaferSearchStrategy.Random;
             ClaferOptimizer optimizer = maximizes.length == 0
                     ? new ClaferNoObjectiveOptimizer(new ClaferSolver(solver, solution))
                     : maximizes.length == 1
-                            ? new EquivalentParetoSolver(new ClaferSingleObjectiveOptimizer(solver, solution, maximizes[0], scores[0]))
-                            : new EquivalentParetoSolver(new ClaferMultiObjectiveOptimizerGIA(solver, solution, maximizes, scores));
+                            ? new EquivalentParetoSolver(options.isPortfolio()
+                                    ? compilePortfolio(compiled, options, solver, solution,
+                                            maximizes[0], scoreIrVars[0])
+                                    : new ClaferSingleObjectiveOptimizer(solver, solution, maximizes[0], scores[0]),
+                                    restarts)
+                            : new EquivalentParetoSolver(options.isPortfolio()
+                                    ? compileParallel(compiled, options, solver, solution,
+                                            maximizes, scores, Arrays.copyOf(scoreIrVars, variableScores))
+                                    : new ClaferMultiObjectiveOptimizerGIA(solver, solution, maximizes, scores),
+                                    restarts);
 
             return variableScores < fixedScores.length
                     ? new PartiallyKnownOptimizer(optimizer, fixedScores)
@@ -293,6 +605,58 @@ public class ClaferCompiler {
         }
     }
 
+    /**
+     * Compile the rest of the copies in a portfolio for a single objective.
+     * Multiple objectives are explored by {@link #compileParallel} instead
+     * since the copies cannot share a Pareto front through a single bound.
+     */
+    private static ClaferPortfolioOptimizer compilePortfolio(CompiledModel compiled, ClaferOption options,
+            Solver solver, ClaferSolutionMap solution, boolean maximize, IrIntVar scoreIrVar) {
+        Solver[] solvers = new Solver[options.getPortfolio()];
+        ClaferSolutionMap[] solutions = new ClaferSolutionMap[solvers.length];
+        IntVar[] scores = new IntVar[solvers.length];
+        for (int i = 0; i < solvers.length; i++) {
+            if (i == 0) {
+                solvers[i] = solver;
+                solutions[i] = solution;
+            } else {
+                Model model = new Model();
+                IrSolutionMap irSolution = IrCompiler.compileOptimized(compiled.getOptimized(), model);
+                solvers[i] = solver(model, options);
+                solutions[i] = new ClaferSolutionMap(compiled.getAstSolution(), irSolution);
+                portfolioSearch(solvers[i], compiled.getModel(), solutions[i], options, i, true);
+            }
+            scores[i] = solutions[i].getIrSolution().getVar(scoreIrVar).getRight();
+        }
+        return new ClaferPortfolioOptimizer(solvers, solutions, maximize, scores,
+                options.getStrategy() == ClaferSearchStrategy.Random);
+    }
+
+    /**
+     * Compile the copies that explore the Pareto front in parallel. The main
+     * copy only enumerates the solutions of the Pareto points found by the
+     * other copies.
+     */
+    private static ClaferParallelMultiObjectiveOptimizer compileParallel(CompiledModel compiled, ClaferOption options,
+            Solver solver, ClaferSolutionMap solution, boolean[] maximizes, IntVar[] scores, IrIntVar[] scoreIrVars) {
+        Solver[] solvers = new Solver[options.getPortfolio()];
+        ClaferSolutionMap[] solutions = new ClaferSolutionMap[solvers.length];
+        IntVar[][] copyScores = new IntVar[solvers.length][];
+        for (int i = 0; i < solvers.length; i++) {
+            Model model = new Model();
+            IrSolutionMap irSolution = IrCompiler.compileOptimized(compiled.getOptimized(), model);
+            solvers[i] = solver(model, options);
+            solutions[i] = new ClaferSolutionMap(compiled.getAstSolution(), irSolution);
+            set(solvers[i], strategies(compiled.getModel(), options, solutions[i]));
+            copyScores[i] = new IntVar[scoreIrVars.length];
+            for (int j = 0; j < scoreIrVars.length; j++) {
+                copyScores[i][j] = irSolution.getVar(scoreIrVars[j]).getRight();
+            }
+        }
+        return new ClaferParallelMultiObjectiveOptimizer(solver, solution, maximizes, scores,
+                solvers, solutions, copyScores);
+    }
+
     public static ClaferAsserter compile(AstModel in, Scopable scope, Assertion... assertions) {
         return compile(in, scope, assertions, ClaferOption.Default);
     }
@@ -305,7 +669,7 @@ public class ClaferCompiler {
 
             AstSolutionMap astSolution = AstCompiler.compile(
                     in, scope.toScope(), assertions, module,
-                    options.isFullSymmetryBreaking());
+                    AstCompiler.DefaultAnalyzers, options.isFullSymmetryBreaking(), options.isParallelExpansion());
             IrSolutionMap irSolution = IrCompiler.compile(module, model, options.isFullOptimizations());
             ClaferSolutionMap solution = new ClaferSolutionMap(astSolution, irSolution);
 
@@ -314,15 +678,58 @@ public class ClaferCompiler {
                 assertionMap.put(assertion, irSolution.getVar(astSolution.getAssertionVar(assertion)));
             }
 
-            Solver solver = model.getSolver();
-            set(solver, intStrategies(getDecisionVars(in, options, solution), options));
-            restartPolicy(solver, options);
+            Solver solver = solver(model, options);
+            set(solver, strategies(in, options, solution));
+            restartPolicy(solver, options, true);
             return new ClaferAsserter(solver, solution, assertionMap);
         } catch (UnsatisfiableException e) {
             return new ClaferAsserter();
         }
     }
 
+    /**
+     * Compile the model to check groups of assertions in parallel, each group
+     * on its own solver. The AST compiler and the IR optimizations run once,
+     * the solvers are compiled from the optimized IR as the groups are
+     * checked.
+     *
+     * @param in the model
+     * @param scope the scope
+     * @param assertions the assertions
+     * @param options the options
+     * @param groupSize the number of assertions checked together
+     * @return the asserter
+     */
+    public static ClaferParallelAsserter compileParallelAsserter(AstModel in, Scopable scope, Assertion[] assertions,
+            ClaferOption options, int groupSize) {
+        Check.noNullsNotEmpty(assertions);
+        Assertion[][] groups = ClaferParallelAsserter.group(assertions, groupSize);
+        try {
+            IrModule module = new IrModule();
+            AstSolutionMap astSolution = AstCompiler.compile(
+                    in, scope.toScope(), assertions, module,
+                    AstCompiler.DefaultAnalyzers, options.isFullSymmetryBreaking(), options.isParallelExpansion());
+            Pair<Coalesce, IrModule> optimized = IrCompiler.optimize(module, options.isFullOptimizations());
+            return new ClaferParallelAsserter(groups, group -> {
+                Model model = new Model();
+                IrSolutionMap irSolution = IrCompiler.compileOptimized(optimized, model);
+                ClaferSolutionMap solution = new ClaferSolutionMap(astSolution, irSolution);
+
+                Map<Assertion, Either<Boolean, BoolVar>> assertionMap = new HashMap<>(group.length);
+                for (Assertion assertion : group) {
+                    assertionMap.put(assertion, irSolution.getVar(astSolution.getAssertionVar(assertion)));
+                }
+
+                Solver solver = solver(model, options);
+                set(solver, strategies(in, options, solution));
+                restartPolicy(solver, options, true);
+                return new ClaferAsserter(solver, solution, assertionMap);
+            });
+        } catch (UnsatisfiableException e) {
+            return new ClaferParallelAsserter(groups, group -> new ClaferAsserter());
+        }
+    }
+
     public static ClaferUnsat compileUnsat(AstModel in, Scopable scope) {
         return compileUnsat(in, scope.toScope(), ClaferOption.Default);
     }
@@ -333,15 +740,15 @@ public class ClaferCompiler {
 
         AstSolutionMap astSolution = AstCompiler.compile(in, scope.toScope(), module,
                 Util.cons(new UnsatAnalyzer(), AstCompiler.DefaultAnalyzers),
-                options.isFullSymmetryBreaking());
+                options.isFullSymmetryBreaking(), options.isParallelExpansion());
         IrSolutionMap irSolution = IrCompiler.compile(module, model, options.isFullOptimizations());
         ClaferSolutionMap solution = new ClaferSolutionMap(astSolution, irSolution);
 
-        Solver solver = model.getSolver();
+        Solver solver = solver(model, options);
         set(solver,
                 Util.maybeCons(firstFailInDomainMax(Either.filterRight(irSolution.getVars(astSolution.getSoftVars()))),
-                        intStrategies(getDecisionVars(in, options, solution), options)));
-        restartPolicy(solver, options);
+                        strategies(in, options, solution)));
+        restartPolicy(solver, options, false);
         return new ClaferUnsat(solver, solution);
     }
 
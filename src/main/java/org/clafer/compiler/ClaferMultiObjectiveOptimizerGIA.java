@@ -118,6 +118,7 @@ public class ClaferMultiObjectiveOptimizerGIA extends AbstractImprovementOptimiz
             for (int i = 0; i < best.length; i++) {
                 best[i] = scores[i].getValue();
             }
+            improved();
 
             for (int i = 0; i < bounds.length; i++) {
                 push(solver.getModel().arithm(bounds[i], maximizes[i] ? ">=" : "<=", best[i]));
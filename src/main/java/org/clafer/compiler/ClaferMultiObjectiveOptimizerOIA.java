@@ -44,6 +44,7 @@ public class ClaferMultiObjectiveOptimizerOIA extends AbstractImprovementOptimiz
                 final Solution currentSolution = solution;
                 solutions.removeIf(s -> dominates(currentSolution, s));
                 solutions.add(solution);
+                improved();
                 List<Constraint> better = new ArrayList<>(scores.length);
                 for (int i = 0; i < scores.length; i++) {
                     better.add(solver.getModel().arithm(
@@ -1,6 +1,9 @@
 package org.clafer.compiler;
 
+import java.util.Optional;
+import java.util.function.BiConsumer;
 import org.chocosolver.solver.Solver;
+import org.clafer.choco.constraint.PropagatorProfile;
 import org.clafer.instance.InstanceModel;
 
 /**
@@ -30,6 +33,15 @@ public class ClaferNoObjectiveOptimizer implements ClaferOptimizer {
         return new int[0];
     }
 
+    /**
+     * Without objectives there is nothing to improve, so the listener is never
+     * called.
+     */
+    @Override
+    public ClaferOptimizer onImprovement(BiConsumer<InstanceModel, int[]> listener) {
+        return this;
+    }
+
     @Override
     public int instanceCount() {
         return solver.instanceCount();
@@ -40,6 +52,11 @@ public class ClaferNoObjectiveOptimizer implements ClaferOptimizer {
         return solver.allInstances();
     }
 
+    @Override
+    public Optional<PropagatorProfile> getPropagatorProfile() {
+        return solver.getPropagatorProfile();
+    }
+
     @Override
     public Solver getInternalSolver() {
         return solver.getInternalSolver();
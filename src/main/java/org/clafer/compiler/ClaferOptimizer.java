@@ -1,9 +1,27 @@
 package org.clafer.compiler;
 
+import java.util.function.BiConsumer;
+import org.clafer.instance.InstanceModel;
+
 /**
  * Search for optimal instances.
  *
  * @author jimmy
  */
 public interface ClaferOptimizer extends ClaferSearch, OptimalInstanceIterator {
+
+    /**
+     * Listen for the improving instances found while searching for the
+     * optimal instances. The listener receives each improving instance and its
+     * objective values as soon as it is found, long before {@link #find()}
+     * returns. For multiple objectives, each instance improves on the last one
+     * found while searching for the same Pareto point. The listener is called
+     * on the thread of the search, or on the threads of the copies in a
+     * portfolio, but never concurrently.
+     *
+     * @param listener the listener of the improving instances and their
+     * objective values
+     * @return this optimizer
+     */
+    ClaferOptimizer onImprovement(BiConsumer<InstanceModel, int[]> listener);
 }
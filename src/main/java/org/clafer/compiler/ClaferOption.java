@@ -28,6 +28,24 @@ public class ClaferOption {
      * branching.
      */
     private final Set<AstClafer>[] branchingPriority;
+    /**
+     * If true then expand the constraints for every instance on multiple
+     * threads. The compiled model is identical either way.
+     */
+    private final boolean parallelExpansion;
+    /**
+     * The number of differently configured copies of the model to search in
+     * parallel. One means no portfolio.
+     */
+    private final int portfolio;
+    /**
+     * If true then record statistics of every propagator during the search.
+     */
+    private final boolean profilePropagators;
+    /**
+     * If true then optimize a single objective with large neighborhood search.
+     */
+    private final boolean largeNeighborhoodSearch;
 
     /**
      * Use the default options.
@@ -36,15 +54,19 @@ public class ClaferOption {
     public static final ClaferOption Basic = new ClaferOption(ClaferSearchStrategy.PreferSmallerInstances, true, true);
     public static final ClaferOption Default = Optimized;
 
-    private ClaferOption(ClaferSearchStrategy strategy, boolean basicSymmetryBreaking, boolean basicOptimizations, Set<AstClafer>[] branchingPriority) {
+    private ClaferOption(ClaferSearchStrategy strategy, boolean basicSymmetryBreaking, boolean basicOptimizations, Set<AstClafer>[] branchingPriority, boolean parallelExpansion, int portfolio, boolean profilePropagators, boolean largeNeighborhoodSearch) {
         this.strategy = Check.notNull(strategy);
         this.basicSymmetryBreaking = basicSymmetryBreaking;
         this.basicOptimizations = basicOptimizations;
         this.branchingPriority = branchingPriority;
+        this.parallelExpansion = parallelExpansion;
+        this.portfolio = portfolio;
+        this.profilePropagators = profilePropagators;
+        this.largeNeighborhoodSearch = largeNeighborhoodSearch;
     }
 
     private ClaferOption(ClaferSearchStrategy strategy, boolean basicSymmetryBreaking, boolean basicOptimizations) {
-        this(strategy, basicSymmetryBreaking, basicOptimizations, new Set[0]);
+        this(strategy, basicSymmetryBreaking, basicOptimizations, new Set[0], false, 1, false, false);
     }
 
     public ClaferSearchStrategy getStrategy() {
@@ -52,7 +74,7 @@ public class ClaferOption {
     }
 
     public ClaferOption setStrategy(ClaferSearchStrategy strategy) {
-        return new ClaferOption(strategy, basicSymmetryBreaking, basicOptimizations);
+        return new ClaferOption(strategy, basicSymmetryBreaking, basicOptimizations, branchingPriority, parallelExpansion, portfolio, profilePropagators, largeNeighborhoodSearch);
     }
 
     public boolean isBasicSymmetryBreaking() {
@@ -64,11 +86,11 @@ public class ClaferOption {
     }
 
     public ClaferOption basicSymmetryBreaking() {
-        return new ClaferOption(strategy, true, basicOptimizations);
+        return new ClaferOption(strategy, true, basicOptimizations, branchingPriority, parallelExpansion, portfolio, profilePropagators, largeNeighborhoodSearch);
     }
 
     public ClaferOption fullSymmetryBreaking() {
-        return new ClaferOption(strategy, false, basicOptimizations);
+        return new ClaferOption(strategy, false, basicOptimizations, branchingPriority, parallelExpansion, portfolio, profilePropagators, largeNeighborhoodSearch);
     }
 
     public boolean isBasicOptimizations() {
@@ -80,11 +102,11 @@ public class ClaferOption {
     }
 
     public ClaferOption basicOptimizations() {
-        return new ClaferOption(strategy, basicSymmetryBreaking, true);
+        return new ClaferOption(strategy, basicSymmetryBreaking, true, branchingPriority, parallelExpansion, portfolio, profilePropagators, largeNeighborhoodSearch);
     }
 
     public ClaferOption fullOptimizations() {
-        return new ClaferOption(strategy, basicSymmetryBreaking, false);
+        return new ClaferOption(strategy, basicSymmetryBreaking, false, branchingPriority, parallelExpansion, portfolio, profilePropagators, largeNeighborhoodSearch);
     }
 
     public Set<AstClafer>[] getBranchingPriority() {
@@ -107,13 +129,100 @@ public class ClaferOption {
      * @return
      */
     public ClaferOption setBranchingPriority(Set<AstClafer>... branchingPriority) {
-        return new ClaferOption(strategy, basicSymmetryBreaking, basicOptimizations, branchingPriority);
+        return new ClaferOption(strategy, basicSymmetryBreaking, basicOptimizations, branchingPriority, parallelExpansion, portfolio, profilePropagators, largeNeighborhoodSearch);
+    }
+
+    public boolean isParallelExpansion() {
+        return parallelExpansion;
+    }
+
+    /**
+     * Expand the constraints for each instance on multiple threads. Useful for
+     * large scopes. Does not change the compiled model.
+     *
+     * @return the options with parallel expansion
+     */
+    public ClaferOption parallelExpansion() {
+        return new ClaferOption(strategy, basicSymmetryBreaking, basicOptimizations, branchingPriority, true, portfolio, profilePropagators, largeNeighborhoodSearch);
+    }
+
+    public ClaferOption serialExpansion() {
+        return new ClaferOption(strategy, basicSymmetryBreaking, basicOptimizations, branchingPriority, false, portfolio, profilePropagators, largeNeighborhoodSearch);
+    }
+
+    public int getPortfolio() {
+        return portfolio;
+    }
+
+    public boolean isPortfolio() {
+        return portfolio > 1;
+    }
+
+    /**
+     * Search with several copies of the model in parallel, each on its own
+     * thread and each with a different search strategy. The first copy to find
+     * an instance wins and enumerates the rest of the instances alone. When
+     * optimizing a single objective, the copies share the best objective value
+     * found so far. When optimizing multiple objectives, the copies instead
+     * explore disjoint boxes of the objective space and share the Pareto
+     * points they find. The first copy uses the strategy in these options.
+     * Costs one compilation of the IR and one Choco model per copy.
+     *
+     * @param portfolio the number of copies
+     * @return the options with a portfolio of the given size
+     */
+    public ClaferOption portfolio(int portfolio) {
+        if (portfolio < 1) {
+            throw new IllegalArgumentException("Portfolio size must be positive, not " + portfolio + ".");
+        }
+        return new ClaferOption(strategy, basicSymmetryBreaking, basicOptimizations, branchingPriority, parallelExpansion, portfolio, profilePropagators, largeNeighborhoodSearch);
+    }
+
+    public boolean isProfilePropagators() {
+        return profilePropagators;
+    }
+
+    /**
+     * Record how often each propagator runs, how long it takes, how often it
+     * fails, and how many domain modifications it makes. The statistics are
+     * available through {@link ClaferSearch#getPropagatorProfile()}. Slows
+     * down the search slightly.
+     *
+     * @return the options with profiled propagators
+     */
+    public ClaferOption profilePropagators() {
+        return new ClaferOption(strategy, basicSymmetryBreaking, basicOptimizations, branchingPriority, parallelExpansion, portfolio, true, largeNeighborhoodSearch);
+    }
+
+    public boolean isLargeNeighborhoodSearch() {
+        return largeNeighborhoodSearch;
+    }
+
+    /**
+     * Optimize a single objective with large neighborhood search. Once the
+     * first instance is found, the search repeatedly fixes most of the best
+     * instance and searches for a better instance among the rest, like a
+     * subtree of Clafers, the references, or the Clafers in the objective.
+     * Finds good instances much sooner on large models, but proving the best
+     * instance is optimal takes longer, so it is meant to be used with a time
+     * limit. On reaching the limit, the best instance found is available
+     * through {@link ReachedLimitBestKnownException}. Ignored for multiple
+     * objectives and portfolios.
+     *
+     * @return the options with large neighborhood search
+     */
+    public ClaferOption largeNeighborhoodSearch() {
+        return new ClaferOption(strategy, basicSymmetryBreaking, basicOptimizations, branchingPriority, parallelExpansion, portfolio, profilePropagators, true);
     }
 
     @Override
     public String toString() {
         return strategy + "\n"
                 + (basicSymmetryBreaking ? "perform only basic symmetry breaking\n" : "perform full symmetry breaking\n")
-                + (basicOptimizations ? "perform only basic optimizations\n" : "perform full optimizations\n");
+                + (basicOptimizations ? "perform only basic optimizations\n" : "perform full optimizations\n")
+                + (parallelExpansion ? "expand constraints in parallel\n" : "")
+                + (portfolio > 1 ? "search a portfolio of " + portfolio + " copies in parallel\n" : "")
+                + (profilePropagators ? "profile the propagators\n" : "")
+                + (largeNeighborhoodSearch ? "optimize with large neighborhood search\n" : "");
     }
 }
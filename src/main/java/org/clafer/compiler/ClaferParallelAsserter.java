@@ -0,0 +1,214 @@
+package org.clafer.compiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import org.clafer.assertion.Assertion;
+import org.clafer.common.Check;
+import org.clafer.common.UnsatisfiableException;
+import org.clafer.instance.InstanceModel;
+
+/**
+ * Checks groups of assertions independently, each group on its own solver and
+ * the groups in parallel. Every group is compiled from the same optimized IR
+ * and searches for counterexamples until every assertion in the group is
+ * violated or no counterexample is left. Unlike {@link ClaferAsserter}, a
+ * difficult assertion does not hold back the verdicts of the others.
+ */
+public class ClaferParallelAsserter {
+
+    /**
+     * The outcome of checking a single assertion.
+     */
+    public static enum Status {
+
+        /**
+         * No counterexample exists within the scope.
+         */
+        Holds,
+        /**
+         * A counterexample was found.
+         */
+        Violated,
+        /**
+         * The limit was reached before the assertion was decided.
+         */
+        Unknown;
+    }
+
+    /**
+     * The verdict of a single assertion.
+     */
+    public static class Verdict {
+
+        private final Assertion assertion;
+        private final Status status;
+        private final InstanceModel counterexample;
+        private final long time;
+
+        Verdict(Assertion assertion, Status status, InstanceModel counterexample, long time) {
+            this.assertion = Check.notNull(assertion);
+            this.status = Check.notNull(status);
+            this.counterexample = counterexample;
+            this.time = time;
+        }
+
+        public Assertion getAssertion() {
+            return assertion;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * @return the first counterexample found if violated, otherwise null
+         */
+        public InstanceModel getCounterexample() {
+            return counterexample;
+        }
+
+        /**
+         * @return the milliseconds from the start of the group's search until
+         * the assertion was decided
+         */
+        public long getTime() {
+            return time;
+        }
+
+        @Override
+        public String toString() {
+            return status + " in " + time + "ms: " + assertion;
+        }
+    }
+
+    private final Assertion[][] groups;
+    /**
+     * Compiles a solver for the group of assertions. Throws
+     * UnsatisfiableException if the model has no instances.
+     */
+    private final Function<Assertion[], ClaferAsserter> compiler;
+    private long timeLimit = -1;
+
+    ClaferParallelAsserter(Assertion[][] groups, Function<Assertion[], ClaferAsserter> compiler) {
+        this.groups = Check.noNulls(groups);
+        this.compiler = Check.notNull(compiler);
+    }
+
+    /**
+     * Limit the search of each group.
+     *
+     * @param ms the time limit in milliseconds
+     * @return this asserter
+     */
+    public ClaferParallelAsserter limitTime(long ms) {
+        this.timeLimit = ms;
+        return this;
+    }
+
+    /**
+     * Check every assertion.
+     *
+     * @param threads the number of groups to check at the same time
+     * @return the verdicts in the same order as the assertions were given
+     */
+    public Verdict[] check(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Threads must be positive, not " + threads + ".");
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, groups.length)));
+        try {
+            List<Future<List<Verdict>>> futures = new ArrayList<>(groups.length);
+            for (Assertion[] group : groups) {
+                futures.add(executor.submit(() -> check(group)));
+            }
+            List<Verdict> verdicts = new ArrayList<>();
+            for (Future<List<Verdict>> future : futures) {
+                verdicts.addAll(future.get());
+            }
+            return verdicts.toArray(new Verdict[verdicts.size()]);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Verdict> check(Assertion[] group) {
+        long start = System.currentTimeMillis();
+        ClaferAsserter asserter;
+        try {
+            asserter = compiler.apply(group);
+        } catch (UnsatisfiableException e) {
+            asserter = new ClaferAsserter();
+        }
+        if (timeLimit >= 0) {
+            asserter.limitTime(timeLimit);
+        }
+        Verdict[] verdicts = new Verdict[group.length];
+        Status undecided = Status.Holds;
+        try {
+            while (asserter.find()) {
+                long time = System.currentTimeMillis() - start;
+                InstanceModel counterexample = null;
+                for (Assertion failed : asserter.failedAssertions()) {
+                    int index = indexOf(group, failed);
+                    if (verdicts[index] == null) {
+                        if (counterexample == null) {
+                            counterexample = asserter.instance();
+                        }
+                        verdicts[index] = new Verdict(failed, Status.Violated, counterexample, time);
+                    }
+                }
+            }
+        } catch (ReachedLimitException e) {
+            undecided = Status.Unknown;
+        }
+        long time = System.currentTimeMillis() - start;
+        for (int i = 0; i < verdicts.length; i++) {
+            if (verdicts[i] == null) {
+                verdicts[i] = new Verdict(group[i], undecided, null, time);
+            }
+        }
+        return Arrays.asList(verdicts);
+    }
+
+    private static int indexOf(Assertion[] group, Assertion assertion) {
+        for (int i = 0; i < group.length; i++) {
+            if (group[i].equals(assertion)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException(assertion + " is not in the group.");
+    }
+
+    /**
+     * Split the assertions into consecutive groups.
+     */
+    static Assertion[][] group(Assertion[] assertions, int groupSize) {
+        if (groupSize < 1) {
+            throw new IllegalArgumentException("Group size must be positive, not " + groupSize + ".");
+        }
+        Assertion[][] groups = new Assertion[(assertions.length + groupSize - 1) / groupSize][];
+        for (int i = 0; i < groups.length; i++) {
+            groups[i] = Arrays.copyOfRange(assertions, i * groupSize,
+                    Math.min(assertions.length, (i + 1) * groupSize));
+        }
+        return groups;
+    }
+}
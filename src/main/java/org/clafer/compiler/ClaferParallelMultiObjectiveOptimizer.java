@@ -0,0 +1,351 @@
+package org.clafer.compiler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.variables.IntVar;
+import org.clafer.choco.constraint.PropagatorProfile;
+import org.clafer.instance.InstanceModel;
+
+/**
+ * Explores the Pareto front with several copies of the same model in
+ * parallel. The objective space is partitioned into boxes along the first
+ * objective. Each copy takes the next unexplored box and runs the guided
+ * improvement algorithm inside the box. Every Pareto point found by a copy is
+ * published to the other copies, which exclude every solution the point
+ * dominates before their next search.
+ *
+ * A point that is optimal inside its box can still be dominated by a point in
+ * another box, so the points are merged and filtered once every box is
+ * explored. The Pareto points are then returned one by one, each with a
+ * solution found on the main copy, which none of the boxes or cuts are posted
+ * to.
+ */
+public class ClaferParallelMultiObjectiveOptimizer extends AbstractImprovementOptimizer {
+
+    /**
+     * The number of boxes per copy. More boxes balance the work better at the
+     * cost of more restarts.
+     */
+    private static final int BoxesPerCopy = 4;
+    private final Solver[] solvers;
+    private final ClaferSolutionMap[] solutionMaps;
+    private final IntVar[][] copyScores;
+    private final Portfolio portfolio;
+    /**
+     * The points found by any copy, in the order they were found.
+     */
+    private final List<Point> found = new ArrayList<>();
+    private List<Point> front = null;
+    private int count = 0;
+    private boolean more = true;
+    private int[] optimalValues;
+    private Solution solution = null;
+
+    ClaferParallelMultiObjectiveOptimizer(Solver solver, ClaferSolutionMap solutionMap,
+            boolean[] maximizes, IntVar[] scores,
+            Solver[] solvers, ClaferSolutionMap[] solutionMaps, IntVar[][] copyScores) {
+        super(solver, solutionMap, maximizes, scores);
+        if (solvers.length != solutionMaps.length || solvers.length != copyScores.length) {
+            throw new IllegalArgumentException();
+        }
+        this.solvers = solvers;
+        this.solutionMaps = solutionMaps;
+        this.copyScores = copyScores;
+        this.portfolio = new Portfolio(solvers);
+    }
+
+    @Override
+    public boolean find() throws ReachedLimitException {
+        if (!more) {
+            return false;
+        }
+        if (front == null) {
+            front = explore();
+        }
+        while (count < front.size()) {
+            Point point = front.get(count);
+            solution = solveEquivalent(point.values);
+            if (solver.isStopCriterionMet()) {
+                more = false;
+                throw new ReachedLimitBestKnownException(
+                        solutionMaps[point.copy].getInstance(point.solution), point.values.clone());
+            }
+            count++;
+            if (solution != null) {
+                optimalValues = point.values;
+                return true;
+            }
+        }
+        more = false;
+        return false;
+    }
+
+    /**
+     * Find a solution on the main copy with the given objective values.
+     */
+    private Solution solveEquivalent(int[] values) {
+        Model model = solver.getModel();
+        solver.reset();
+        Constraint[] equal = new Constraint[values.length];
+        for (int i = 0; i < equal.length; i++) {
+            equal[i] = model.arithm(scores[i], "=", values[i]);
+            equal[i].post();
+        }
+        try {
+            return solver.findSolution();
+        } finally {
+            for (Constraint c : equal) {
+                model.unpost(c);
+            }
+        }
+    }
+
+    private List<Point> explore() {
+        int low = scores[0].getLB();
+        int high = scores[0].getUB();
+        long range = (long) high - low + 1;
+        int boxes = (int) Math.min(range, (long) BoxesPerCopy * solvers.length);
+        AtomicInteger nextBox = new AtomicInteger();
+        boolean[] limited = new boolean[solvers.length];
+        portfolio.race(i -> {
+            Worker worker = new Worker(i);
+            int box;
+            while (!limited[i] && (box = nextBox.getAndIncrement()) < boxes) {
+                // Explore from the best end of the first objective.
+                int b = maximizes[0] ? boxes - 1 - box : box;
+                int boxLow = (int) (low + range * b / boxes);
+                int boxHigh = (int) (low + range * (b + 1) / boxes - 1);
+                limited[i] = !worker.explore(boxLow, boxHigh);
+            }
+            if (limited[i]) {
+                portfolio.stop();
+            }
+        });
+        boolean limit = false;
+        for (boolean l : limited) {
+            limit |= l;
+        }
+        if (limit) {
+            more = false;
+            List<Point> pareto;
+            synchronized (found) {
+                pareto = nonDominated(found);
+            }
+            if (!pareto.isEmpty()) {
+                Point point = pareto.get(0);
+                throw new ReachedLimitBestKnownException(
+                        solutionMaps[point.copy].getInstance(point.solution), point.values.clone());
+            }
+            throw new ReachedLimitException();
+        }
+        return nonDominated(found);
+    }
+
+    /**
+     * @return the points not dominated by any other point, best first
+     */
+    private List<Point> nonDominated(List<Point> points) {
+        List<Point> pareto = new ArrayList<>();
+        for (Point point : points) {
+            if (points.stream().noneMatch(other -> dominates(other.values, point.values))) {
+                pareto.add(point);
+            }
+        }
+        pareto.sort(Comparator.comparing(point -> point.values, this::compare));
+        return pareto;
+    }
+
+    private boolean dominates(int[] a, int[] b) {
+        boolean strict = false;
+        for (int i = 0; i < a.length; i++) {
+            int c = maximizes[i] ? Integer.compare(a[i], b[i]) : Integer.compare(b[i], a[i]);
+            if (c < 0) {
+                return false;
+            }
+            strict |= c > 0;
+        }
+        return strict;
+    }
+
+    /**
+     * Best first, lexicographically by objective.
+     */
+    private int compare(int[] a, int[] b) {
+        for (int i = 0; i < a.length; i++) {
+            int c = maximizes[i] ? Integer.compare(b[i], a[i]) : Integer.compare(a[i], b[i]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public InstanceModel instance() {
+        if (count == 0 || !more) {
+            throw new IllegalStateException("No instances. Did you forget to call find?");
+        }
+        return solutionMap.getInstance(solution);
+    }
+
+    @Override
+    public Solution solution() {
+        return solution;
+    }
+
+    @Override
+    public int[] optimalValues() {
+        if (count == 0) {
+            throw new IllegalStateException("No instances. Did you forget to call find?");
+        }
+        return optimalValues.clone();
+    }
+
+    @Override
+    public int instanceCount() {
+        return count;
+    }
+
+    @Override
+    public ClaferSearch limitTime(long ms) {
+        solver.limitTime(ms);
+        portfolio.limitTime(ms);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc} The main copy enumerates the solutions of the Pareto
+     * points, the other copies explore the boxes.
+     */
+    @Override
+    public Optional<PropagatorProfile> getPropagatorProfile() {
+        Solver[] all = new Solver[solvers.length + 1];
+        all[0] = solver;
+        System.arraycopy(solvers, 0, all, 1, solvers.length);
+        return Portfolio.getPropagatorProfile(all);
+    }
+
+    private static class Point {
+
+        final int[] values;
+        final int copy;
+        final Solution solution;
+
+        Point(int[] values, int copy, Solution solution) {
+            this.values = values;
+            this.copy = copy;
+            this.solution = solution;
+        }
+    }
+
+    /**
+     * Runs the guided improvement algorithm on one copy, one box at a time.
+     */
+    private class Worker {
+
+        private final int copy;
+        private final Solver solver;
+        private final Model model;
+        private final IntVar[] scores;
+        /**
+         * The number of published points already excluded on this copy.
+         */
+        private int excluded = 0;
+
+        Worker(int copy) {
+            this.copy = copy;
+            this.solver = solvers[copy];
+            this.model = solver.getModel();
+            this.scores = copyScores[copy];
+        }
+
+        /**
+         * Find every Pareto point inside the box.
+         *
+         * @return false if the search was stopped early, true otherwise
+         */
+        boolean explore(int low, int high) {
+            Constraint box = model.member(scores[0], low, high);
+            box.post();
+            List<Constraint> stack = new ArrayList<>();
+            try {
+                while (true) {
+                    solver.reset();
+                    exclude();
+                    Solution solution = solver.findSolution();
+                    if (solution == null) {
+                        return !solver.isStopCriterionMet();
+                    }
+                    int[] best;
+                    Solution next = solution;
+                    do {
+                        solution = next;
+                        best = values();
+                        Solution improving = solution;
+                        int[] values = best.clone();
+                        synchronized (found) {
+                            improved(() -> solutionMaps[copy].getInstance(improving), values);
+                        }
+                        List<Constraint> strictlyBetter = new ArrayList<>(scores.length);
+                        for (int i = 0; i < scores.length; i++) {
+                            push(stack, model.arithm(scores[i], maximizes[i] ? ">=" : "<=", best[i]));
+                            strictlyBetter.add(model.arithm(scores[i], maximizes[i] ? ">" : "<", best[i]));
+                        }
+                        push(stack, model.or(strictlyBetter.toArray(new Constraint[strictlyBetter.size()])));
+                    } while ((next = solver.findSolution()) != null);
+                    stack.forEach(model::unpost);
+                    stack.clear();
+                    if (solver.isStopCriterionMet()) {
+                        return false;
+                    }
+                    synchronized (found) {
+                        found.add(new Point(best, copy, solution));
+                    }
+                }
+            } finally {
+                stack.forEach(model::unpost);
+                model.unpost(box);
+                solver.reset();
+            }
+        }
+
+        private void push(List<Constraint> stack, Constraint constraint) {
+            constraint.post();
+            stack.add(constraint);
+        }
+
+        private int[] values() {
+            int[] values = new int[scores.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = scores[i].getValue();
+            }
+            return values;
+        }
+
+        /**
+         * Exclude every solution weakly dominated by a point published since
+         * the last call. The cuts stay posted for the rest of the boxes.
+         */
+        private void exclude() {
+            List<Point> points;
+            synchronized (found) {
+                points = new ArrayList<>(found.subList(excluded, found.size()));
+                excluded = found.size();
+            }
+            for (Point point : points) {
+                Constraint[] strictlyBetter = new Constraint[scores.length];
+                for (int i = 0; i < scores.length; i++) {
+                    strictlyBetter[i] = model.arithm(scores[i], maximizes[i] ? ">" : "<", point.values[i]);
+                }
+                model.or(strictlyBetter).post();
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package org.clafer.compiler;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.objective.ObjectiveManager;
+import org.chocosolver.solver.search.SearchState;
+import org.chocosolver.solver.search.loop.monitors.IMonitorOpenNode;
+import org.chocosolver.solver.search.loop.monitors.IMonitorSolution;
+import org.chocosolver.solver.variables.IntVar;
+import org.clafer.choco.constraint.PropagatorProfile;
+import org.clafer.instance.InstanceModel;
+
+/**
+ * Optimizes a single objective with several differently configured copies of
+ * the same model in parallel. Whenever a copy finds a better solution, the
+ * other copies are told so they can prune with the new bound. The first copy
+ * to prove optimality stops the others. The optimal solution is then taken
+ * from whichever copy found it.
+ */
+public class ClaferPortfolioOptimizer extends AbstractImprovementOptimizer {
+
+    private final Solver[] solvers;
+    private final ClaferSolutionMap[] solutionMaps;
+    private final IntVar[] copyScores;
+    private final Portfolio portfolio;
+    /**
+     * Whether or not to keep restarting while enumerating the optimal
+     * instances. Restarts find duplicate instances.
+     */
+    private final boolean restarts;
+    /**
+     * The best objective value found by any of the copies.
+     */
+    private final AtomicInteger bestValue = new AtomicInteger();
+    /**
+     * The number of times the best value improved. Zero until a copy finds a
+     * solution.
+     */
+    private final AtomicInteger bestCount = new AtomicInteger();
+    private int winner = 0;
+    private int count = 0;
+    private boolean more = true;
+    private int optimalValue;
+    private Solution optimalSolution = null;
+
+    ClaferPortfolioOptimizer(Solver[] solvers, ClaferSolutionMap[] solutionMaps,
+            boolean maximize, IntVar[] scores, boolean restarts) {
+        super(solvers[0], solutionMaps[0], new boolean[]{maximize}, new IntVar[]{scores[0]});
+        if (solvers.length != solutionMaps.length || solvers.length != scores.length) {
+            throw new IllegalArgumentException();
+        }
+        this.solvers = solvers;
+        this.solutionMaps = solutionMaps;
+        this.copyScores = scores;
+        this.portfolio = new Portfolio(solvers);
+        this.restarts = restarts;
+        for (int i = 0; i < solvers.length; i++) {
+            solvers[i].plugMonitor(new ShareBound(solvers[i], solutionMaps[i], scores[i]));
+        }
+    }
+
+    public boolean isMaximize() {
+        return maximizes[0];
+    }
+
+    public boolean isMinimize() {
+        return !isMaximize();
+    }
+
+    @Override
+    public boolean find() throws ReachedLimitException {
+        if (!more || count == 1) {
+            more = false;
+            return false;
+        }
+        Solution[] solutions = new Solution[solvers.length];
+        boolean[] complete = new boolean[solvers.length];
+        portfolio.race(i -> {
+            solutions[i] = solvers[i].findOptimalSolution(copyScores[i], isMaximize());
+            complete[i] = solvers[i].getSearchState() == SearchState.TERMINATED;
+            if (complete[i]) {
+                portfolio.stop();
+            }
+        });
+        // A copy that proves optimality might not hold the optimal solution
+        // itself if it pruned with a bound found by another copy.
+        int best = -1;
+        for (int i = 0; i < solutions.length; i++) {
+            if (solutions[i] != null
+                    && (best == -1 || better(value(i, solutions[i]), value(best, solutions[best])))) {
+                best = i;
+            }
+        }
+        boolean proved = false;
+        for (boolean c : complete) {
+            proved |= c;
+        }
+        if (!proved) {
+            more = false;
+            if (best != -1) {
+                throw new ReachedLimitBestKnownException(
+                        solutionMaps[best].getInstance(solutions[best]),
+                        new int[]{value(best, solutions[best])});
+            }
+            throw new ReachedLimitException();
+        }
+        if (best == -1) {
+            more = false;
+            return false;
+        }
+        winner = best;
+        portfolio.finish(winner, restarts);
+        optimalSolution = solutions[winner];
+        optimalValue = value(winner, optimalSolution);
+        count++;
+        return true;
+    }
+
+    private int value(int copy, Solution solution) {
+        return solution.getIntVal(copyScores[copy]);
+    }
+
+    private boolean better(int a, int b) {
+        return isMaximize() ? a > b : a < b;
+    }
+
+    @Override
+    public InstanceModel instance() {
+        if (count == 0 || !more) {
+            throw new IllegalStateException("No instances. Did you forget to call find?");
+        }
+        return solutionMaps[winner].getInstance(optimalSolution);
+    }
+
+    @Override
+    public Solution solution() {
+        if (count == 0 || !more) {
+            throw new IllegalStateException("No instances. Did you forget to call find?");
+        }
+        return optimalSolution;
+    }
+
+    @Override
+    public int[] optimalValues() {
+        if (count == 0) {
+            throw new IllegalStateException("No instances. Did you forget to call find?");
+        }
+        return new int[]{optimalValue};
+    }
+
+    @Override
+    public int instanceCount() {
+        return count;
+    }
+
+    @Override
+    public ClaferSearch limitTime(long ms) {
+        portfolio.limitTime(ms);
+        return this;
+    }
+
+    /**
+     * Returns the solver of the copy that found the optimal solution.
+     *
+     * @return the solver of the winning copy
+     */
+    @Override
+    public Optional<PropagatorProfile> getPropagatorProfile() {
+        return portfolio.getPropagatorProfile();
+    }
+
+    @Override
+    public Solver getInternalSolver() {
+        return solvers[winner];
+    }
+
+    @Override
+    public ClaferSolutionMap getSolutionMap() {
+        return solutionMaps[winner];
+    }
+
+    @Override
+    public IntVar[] getScores() {
+        return new IntVar[]{copyScores[winner]};
+    }
+
+    /**
+     * Publishes the objective value of every solution a copy finds and, before
+     * each node, tightens the copy's own bound with the best value published
+     * by any copy. Solutions that improve on every copy are published as
+     * improvements.
+     */
+    private class ShareBound implements IMonitorSolution, IMonitorOpenNode {
+
+        private final Solver solver;
+        private final ClaferSolutionMap solutionMap;
+        private final IntVar score;
+
+        ShareBound(Solver solver, ClaferSolutionMap solutionMap, IntVar score) {
+            this.solver = solver;
+            this.solutionMap = solutionMap;
+            this.score = score;
+        }
+
+        @Override
+        public void onSolution() {
+            int value = score.getValue();
+            synchronized (bestValue) {
+                if (bestCount.get() == 0 || better(value, bestValue.get())) {
+                    bestValue.set(value);
+                    bestCount.incrementAndGet();
+                    improved(solutionMap::getInstance, new int[]{value});
+                }
+            }
+        }
+
+        @Override
+        public void beforeOpenNode() {
+            if (bestCount.get() == 0) {
+                return;
+            }
+            ObjectiveManager<IntVar, Integer> objective = solver.getObjectiveManager();
+            if (objective.isOptimization()) {
+                int value = bestValue.get();
+                if (isMaximize()) {
+                    objective.updateBestLB(value);
+                } else {
+                    objective.updateBestUB(value);
+                }
+            }
+        }
+    }
+}
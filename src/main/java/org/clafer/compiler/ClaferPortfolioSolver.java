@@ -0,0 +1,119 @@
+package org.clafer.compiler;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.chocosolver.solver.Solver;
+import org.clafer.choco.constraint.PropagatorProfile;
+import org.clafer.common.Check;
+import org.clafer.instance.InstanceModel;
+
+/**
+ * Searches for the first instance with several differently configured copies
+ * of the same model in parallel. The first copy to find an instance, or to
+ * prove that there are none, wins. The other copies are stopped and the rest of
+ * the instances are found by the winner alone.
+ */
+public class ClaferPortfolioSolver extends ClaferSolver {
+
+    private final ClaferSolver[] copies;
+    private final Portfolio portfolio;
+    private ClaferSolver winner = null;
+    private boolean more = true;
+
+    ClaferPortfolioSolver(ClaferSolver... copies) {
+        super(Check.noNullsNotEmpty(copies)[0].getInternalSolver(), copies[0].getSolutionMap());
+        this.copies = copies;
+        Solver[] solvers = new Solver[copies.length];
+        for (int i = 0; i < solvers.length; i++) {
+            solvers[i] = copies[i].getInternalSolver();
+        }
+        this.portfolio = new Portfolio(solvers);
+    }
+
+    /**
+     * Returns the copy that won the race, or null if the race has not happened
+     * yet.
+     *
+     * @return the copy that won the race
+     */
+    public ClaferSolver getWinner() {
+        return winner;
+    }
+
+    @Override
+    public ClaferSolutionMap getSolutionMap() {
+        return winner == null ? copies[0].getSolutionMap() : winner.getSolutionMap();
+    }
+
+    @Override
+    public boolean find() throws ReachedLimitException {
+        if (!more) {
+            return false;
+        }
+        if (winner != null) {
+            return winner.find();
+        }
+        AtomicInteger first = new AtomicInteger(-1);
+        boolean[] found = new boolean[copies.length];
+        portfolio.race(i -> {
+            try {
+                found[i] = copies[i].find();
+                if (portfolio.stop()) {
+                    first.set(i);
+                }
+            } catch (ReachedLimitException e) {
+                // Either stopped by the winner or reached the resource limit.
+            }
+        });
+        if (first.get() == -1) {
+            more = false;
+            throw new ReachedLimitException();
+        }
+        portfolio.finish(first.get());
+        winner = copies[first.get()];
+        more = found[first.get()];
+        return more;
+    }
+
+    @Override
+    public InstanceModel instance() {
+        if (winner == null) {
+            throw new IllegalStateException("No instances. Did you forget to call find?");
+        }
+        return winner.instance();
+    }
+
+    @Override
+    public InstanceSnapshot snapshot() {
+        if (winner == null) {
+            throw new IllegalStateException("No instances. Did you forget to call find?");
+        }
+        return winner.snapshot();
+    }
+
+    @Override
+    public int instanceCount() {
+        return winner == null ? 0 : winner.instanceCount();
+    }
+
+    @Override
+    public ClaferSearch limitTime(long ms) {
+        portfolio.limitTime(ms);
+        return this;
+    }
+
+    @Override
+    public Optional<PropagatorProfile> getPropagatorProfile() {
+        return portfolio.getPropagatorProfile();
+    }
+
+    @Override
+    public Solver getInternalSolver() {
+        return winner == null ? copies[0].getInternalSolver() : winner.getInternalSolver();
+    }
+
+    @Override
+    public String toString() {
+        return getInternalSolver().toString();
+    }
+}
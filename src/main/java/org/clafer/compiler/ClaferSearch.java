@@ -1,6 +1,10 @@
 package org.clafer.compiler;
 
+import java.util.Optional;
+import java.util.function.Supplier;
 import org.chocosolver.solver.Solver;
+import org.clafer.choco.constraint.PropagatorProfile;
+import org.clafer.instance.InstanceModel;
 
 /**
  * Search for instances.
@@ -17,11 +21,37 @@ public interface ClaferSearch extends InstanceIterator {
     @Override
     public boolean find() throws ReachedLimitException;
 
+    /**
+     * Return a snapshot of the instance from the last {@link #find()}
+     * operation, if successful. Taking the snapshot is cheaper than
+     * {@link #instance()}. The instance is built when the snapshot is asked
+     * for it, which can happen later and on another thread while the search
+     * continues.
+     *
+     * @return the snapshot
+     */
+    public default Supplier<InstanceModel> snapshot() {
+        InstanceModel instance = instance();
+        return () -> instance;
+    }
+
     public default ClaferSearch limitTime(long ms) {
         getInternalSolver().limitTime(ms);
         return this;
     }
 
+    /**
+     * Returns the statistics of the propagators so far. Only available if the
+     * search was compiled with {@link ClaferOption#profilePropagators()}. The
+     * statistics of every copy of a portfolio are summed, including the copies
+     * that lost the race.
+     *
+     * @return the statistics of the propagators, or empty if not profiled
+     */
+    public default Optional<PropagatorProfile> getPropagatorProfile() {
+        return Portfolio.getPropagatorProfile(getInternalSolver());
+    }
+
     /**
      * Returns the internal Choco solver. For debugging purposes only.
      *
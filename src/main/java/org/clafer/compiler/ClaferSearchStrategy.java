@@ -8,5 +8,31 @@ public enum ClaferSearchStrategy {
 
     PreferSmallerInstances,
     PreferLargerInstances,
-    Random;
+    Random,
+    /**
+     * Prefer smaller instances, deciding which Clafers exist top-down along
+     * the hierarchy before deciding their references.
+     */
+    TopDown,
+    /**
+     * Branch on the variable with the smallest domain relative to the number
+     * of failures of its constraints, restarting on failures.
+     */
+    DomOverWDeg,
+    /**
+     * Branch on the variable whose domain reductions led to the most failures
+     * during sampling and the search. Ignores the branching priorities since
+     * the activities are learned over all the decision variables.
+     */
+    ActivityBased,
+    /**
+     * Prefer smaller instances, but branch first on the variables that failed
+     * most recently, restarting on failures.
+     */
+    ConflictHistory,
+    /**
+     * Prefer smaller instances, but branch first on the last variable that
+     * failed, restarting on failures.
+     */
+    LastConflict;
 }
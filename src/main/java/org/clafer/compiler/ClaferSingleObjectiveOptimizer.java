@@ -2,6 +2,7 @@ package org.clafer.compiler;
 
 import org.chocosolver.solver.Solution;
 import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.search.loop.monitors.IMonitorSolution;
 import org.chocosolver.solver.variables.IntVar;
 import org.clafer.instance.InstanceModel;
 
@@ -59,7 +60,14 @@ public class ClaferSingleObjectiveOptimizer extends AbstractImprovementOptimizer
      */
     private boolean solveFirst() {
         IntVar scoreVar = scores[0];
-        firstSolution = solver.findOptimalSolution(scoreVar, isMaximize());
+        // Every solution is strictly better than the last.
+        IMonitorSolution improvement = this::improved;
+        solver.plugMonitor(improvement);
+        try {
+            firstSolution = solver.findOptimalSolution(scoreVar, isMaximize());
+        } finally {
+            solver.unplugMonitor(improvement);
+        }
         return firstSolution != null && !solver.isStopCriterionMet();
     }
 
@@ -1,21 +1,25 @@
 package org.clafer.compiler;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.SetVar;
+import org.chocosolver.util.objects.setDataStructures.ISetIterator;
 import org.clafer.ast.AstAbstractClafer;
 import org.clafer.ast.AstClafer;
 import org.clafer.ast.AstConcreteClafer;
 import org.clafer.ast.AstStringClafer;
+import org.clafer.ast.analysis.Analysis;
 import org.clafer.ast.compiler.AstSolutionMap;
+import org.clafer.collection.Either;
 import org.clafer.collection.Pair;
 import org.clafer.common.Check;
 import org.clafer.instance.InstanceClafer;
 import org.clafer.instance.InstanceModel;
-import org.clafer.ir.IrIntVar;
-import org.clafer.ir.IrSetVar;
 import org.clafer.ir.IrStringVar;
 import org.clafer.ir.compiler.IrSolutionMap;
 
@@ -27,6 +31,7 @@ public class ClaferSolutionMap {
 
     private final AstSolutionMap astSolution;
     private final IrSolutionMap irSolution;
+    private volatile Layout layout = null;
 
     ClaferSolutionMap(AstSolutionMap astSolution, IrSolutionMap irSolution) {
         this.astSolution = Check.notNull(astSolution);
@@ -34,96 +39,337 @@ public class ClaferSolutionMap {
     }
 
     public InstanceModel getInstance() {
-        return getInstance(irSolution);
+        return getInstance(getSnapshot());
     }
 
     public InstanceModel getInstance(Solution solution) {
-        return getInstance(irSolution.fromSolution(solution));
+        return getInstance(getSnapshot(solution));
     }
 
-    private InstanceModel getInstance(IrSolutionMap irSolution) {
-        Map<Pair<AstClafer, Integer>, InstanceClafer> referenceMap = new HashMap<>();
-        List<InstanceClafer> topInstances = new ArrayList<>();
-        for (AstConcreteClafer child : astSolution.getModel().getChildren()) {
-            // [0] because top clafers only have exactly one children set
-            IrSetVar topSetIrVar = astSolution.getSiblingVars(child)[0];
-            int[] topIds = irSolution.getValue(topSetIrVar);
-            for (int topId : topIds) {
-                topInstances.add(getInstanceClafer(child, topId, referenceMap, irSolution));
-            }
-        }
-        return new InstanceModel(topInstances.toArray(new InstanceClafer[topInstances.size()]));
+    /**
+     * Take a snapshot of the solution the solver is currently at.
+     *
+     * @return the snapshot
+     */
+    public InstanceSnapshot getSnapshot() {
+        return getLayout().snapshot(null);
     }
 
-    private InstanceClafer getInstanceClafer(AstConcreteClafer clafer, int id,
-            final Map<Pair<AstClafer, Integer>, InstanceClafer> referenceMap, IrSolutionMap irSolution) {
-        InstanceClafer instanceClafer = getInstanceClaferImpl(clafer, id, referenceMap, irSolution);
-        referenceMap.put(new Pair<>(clafer, id), instanceClafer);
-        return instanceClafer;
+    /**
+     * Take a snapshot of a recorded solution.
+     *
+     * @param solution the solution
+     * @return the snapshot
+     */
+    public InstanceSnapshot getSnapshot(Solution solution) {
+        return getLayout().snapshot(Check.notNull(solution));
     }
 
-    private InstanceClafer getInstanceClaferImpl(AstConcreteClafer clafer, int id,
-            final Map<Pair<AstClafer, Integer>, InstanceClafer> referenceMap, IrSolutionMap irSolution) {
-        List<InstanceClafer> children = new ArrayList<>();
-        Pair<AstClafer, Object> ref = getInstanceClaferImpl(clafer, id, children, referenceMap, irSolution);
-        InstanceClafer[] childrenArray = children.toArray(new InstanceClafer[children.size()]);
-        if (ref == null) {
-            return new InstanceClafer(clafer, id, null, childrenArray);
+    /**
+     * Build the instance of the snapshot.
+     *
+     * @param snapshot the snapshot of a solution of this map
+     * @return the instance
+     */
+    public InstanceModel getInstance(InstanceSnapshot snapshot) {
+        if (snapshot.getSolutionMap() != this) {
+            throw new IllegalArgumentException("Snapshot from a different solution map.");
         }
-        if (ref.getFst().isPrimitive()) {
-            return new InstanceClafer(clafer, id, ref.getSnd(), childrenArray);
+        return new InstanceBuilder(getLayout(), snapshot).build();
+    }
+
+    private Layout getLayout() {
+        Layout l = layout;
+        if (l == null) {
+            synchronized (this) {
+                l = layout;
+                if (l == null) {
+                    l = new Layout();
+                    layout = l;
+                }
+            }
         }
-        final Pair<AstClafer, Integer> key = new Pair<>(ref.getFst(), (Integer) ref.getSnd());
-        if (referenceMap.containsKey(key)) {
-            return new InstanceClafer(clafer, id, referenceMap.get(key), childrenArray);
+        return l;
+    }
+
+    /**
+     * Where each value is stored in a snapshot. The parents of the instances
+     * of a Clafer are stored in a block with one value per id, or -1 if the id
+     * is not an instance. The references of a Clafer are stored in a block
+     * with one value per id, or 0 if the id is not an instance. The blocks of
+     * string references are stored separately.
+     */
+    private class Layout {
+
+        private final AstConcreteClafer[] children;
+        private final Map<AstClafer, Integer> childIndices = new HashMap<>();
+        private final int[] parentOffsets;
+        private final Either<int[], SetVar>[][] siblings;
+        private final AstClafer[] refs;
+        private final Map<AstClafer, Integer> refOffsets = new HashMap<>();
+        private final Either<Integer, IntVar>[][] refVars;
+        private final AstClafer[] strings;
+        private final Map<AstClafer, Integer> stringOffsets = new HashMap<>();
+        private final IrStringVar[][] stringVars;
+        private final int size;
+        private final int stringSize;
+
+        @SuppressWarnings("unchecked")
+        Layout() {
+            Analysis analysis = astSolution.getAnalysis();
+            IrSolutionMap irSolution = ClaferSolutionMap.this.irSolution;
+            List<AstConcreteClafer> childList = new ArrayList<>();
+            for (AstConcreteClafer clafer : analysis.getConcreteClafers()) {
+                if (clafer.hasParent()) {
+                    childList.add(clafer);
+                }
+            }
+            List<AstClafer> refList = new ArrayList<>();
+            List<AstClafer> stringList = new ArrayList<>();
+            for (AstClafer clafer : analysis.getClafers()) {
+                if (clafer.hasRef()) {
+                    if (clafer.getRef().getTargetType() instanceof AstStringClafer) {
+                        stringList.add(clafer);
+                    } else {
+                        refList.add(clafer);
+                    }
+                }
+            }
+            this.children = childList.toArray(new AstConcreteClafer[childList.size()]);
+            this.parentOffsets = new int[children.length];
+            this.siblings = new Either[children.length][];
+            int offset = 0;
+            for (int i = 0; i < children.length; i++) {
+                childIndices.put(children[i], i);
+                parentOffsets[i] = offset;
+                siblings[i] = irSolution.getVars(astSolution.getSiblingVars(children[i]));
+                offset += analysis.getScope(children[i]);
+            }
+            this.refs = refList.toArray(new AstClafer[refList.size()]);
+            this.refVars = new Either[refs.length][];
+            for (int i = 0; i < refs.length; i++) {
+                refOffsets.put(refs[i], offset);
+                refVars[i] = irSolution.getVars(astSolution.getRefVars(refs[i]));
+                offset += refVars[i].length;
+            }
+            this.size = offset;
+            this.strings = stringList.toArray(new AstClafer[stringList.size()]);
+            this.stringVars = new IrStringVar[strings.length][];
+            int stringOffset = 0;
+            for (int i = 0; i < strings.length; i++) {
+                stringOffsets.put(strings[i], stringOffset);
+                stringVars[i] = astSolution.getRefStrings(strings[i]);
+                stringOffset += stringVars[i].length;
+            }
+            this.stringSize = stringOffset;
         }
-        return new InstanceClafer(clafer, id, null, childrenArray) {
 
-            @Override
-            public boolean hasRef() {
-                return true;
+        /**
+         * @param solution the recorded solution, or null for the solution the
+         * solver is currently at
+         */
+        InstanceSnapshot snapshot(Solution solution) {
+            int[] values = new int[size];
+            for (int i = 0; i < children.length; i++) {
+                int offset = parentOffsets[i];
+                Arrays.fill(values, offset, offset + astSolution.getAnalysis().getScope(children[i]), -1);
+                Either<int[], SetVar>[] sets = siblings[i];
+                for (int parent = 0; parent < sets.length; parent++) {
+                    Either<int[], SetVar> set = sets[parent];
+                    if (set.isLeft()) {
+                        for (int child : set.getLeft()) {
+                            values[offset + child] = parent;
+                        }
+                    } else if (solution != null) {
+                        for (int child : solution.getSetVal(set.getRight())) {
+                            values[offset + child] = parent;
+                        }
+                    } else {
+                        ISetIterator iter = set.getRight().getValue().iterator();
+                        while (iter.hasNext()) {
+                            values[offset + iter.nextInt()] = parent;
+                        }
+                    }
+                }
+            }
+            for (int i = 0; i < refs.length; i++) {
+                int offset = refOffsets.get(refs[i]);
+                Either<Integer, IntVar>[] vars = refVars[i];
+                for (int id = 0; id < vars.length; id++) {
+                    if (isInstance(values, refs[i], id)) {
+                        Either<Integer, IntVar> var = vars[id];
+                        values[offset + id] = var.isLeft()
+                                ? var.getLeft()
+                                : solution != null
+                                        ? solution.getIntVal(var.getRight())
+                                        : var.getRight().getValue();
+                    }
+                }
             }
+            String[] stringValues = new String[stringSize];
+            if (stringSize > 0) {
+                IrSolutionMap stringSolution = solution == null ? irSolution : irSolution.fromSolution(solution);
+                for (int i = 0; i < strings.length; i++) {
+                    int offset = stringOffsets.get(strings[i]);
+                    IrStringVar[] vars = stringVars[i];
+                    for (int id = 0; id < vars.length; id++) {
+                        if (isInstance(values, strings[i], id)) {
+                            stringValues[offset + id] = stringSolution.getValue(vars[id]);
+                        }
+                    }
+                }
+            }
+            return new InstanceSnapshot(ClaferSolutionMap.this, values, stringValues);
+        }
 
-            @Override
-            public Object getRef() {
-                return referenceMap.get(key);
+        private boolean isInstance(int[] values, AstClafer clafer, int id) {
+            AstClafer concrete = clafer;
+            int concreteId = id;
+            if (clafer instanceof AstAbstractClafer) {
+                Pair<AstConcreteClafer, Integer> pair = astSolution.getAnalysis().getConcreteId(clafer, id);
+                concrete = pair.getFst();
+                concreteId = pair.getSnd();
             }
-        };
+            Integer index = childIndices.get(concrete);
+            return index != null && values[parentOffsets[index] + concreteId] != -1;
+        }
     }
 
-    private Pair<AstClafer, Object> getInstanceClaferImpl(AstClafer clafer, int id, List<InstanceClafer> children,
-            final Map<Pair<AstClafer, Integer>, InstanceClafer> referenceMap, IrSolutionMap irSolution) {
-        for (AstConcreteClafer child : clafer.getChildren()) {
-            IrSetVar childSetIrVar = astSolution.getSiblingVars(child)[id];
-            int[] childIds = irSolution.getValue(childSetIrVar);
-            for (int childId : childIds) {
-                children.add(getInstanceClafer(child, childId, referenceMap, irSolution));
+    /**
+     * Builds the instance of a snapshot.
+     */
+    private class InstanceBuilder {
+
+        private final Layout layout;
+        private final int[] values;
+        private final String[] strings;
+        /**
+         * The children of each parent, grouped by parent. Built on demand.
+         */
+        private final int[][] childStarts;
+        private final int[][] childIds;
+        private final InstanceClafer[][] built;
+
+        InstanceBuilder(Layout layout, InstanceSnapshot snapshot) {
+            this.layout = layout;
+            this.values = snapshot.getValues();
+            this.strings = snapshot.getStrings();
+            this.childStarts = new int[layout.children.length][];
+            this.childIds = new int[layout.children.length][];
+            this.built = new InstanceClafer[layout.children.length][];
+        }
+
+        InstanceModel build() {
+            List<InstanceClafer> topInstances = new ArrayList<>();
+            for (AstConcreteClafer child : astSolution.getModel().getChildren()) {
+                // 0 because top clafers only have exactly one parent
+                addChildren(child, 0, topInstances);
+            }
+            return new InstanceModel(topInstances.toArray(new InstanceClafer[topInstances.size()]));
+        }
+
+        private void addChildren(AstConcreteClafer child, int parent, List<InstanceClafer> instances) {
+            int index = layout.childIndices.get(child);
+            if (childStarts[index] == null) {
+                groupByParent(index);
+            }
+            int[] starts = childStarts[index];
+            int[] ids = childIds[index];
+            for (int i = starts[parent]; i < starts[parent + 1]; i++) {
+                instances.add(getInstanceClafer(child, index, ids[i]));
+            }
+        }
+
+        private void groupByParent(int index) {
+            int parentScope = layout.siblings[index].length;
+            int offset = layout.parentOffsets[index];
+            int scope = astSolution.getAnalysis().getScope(layout.children[index]);
+            int[] starts = new int[parentScope + 1];
+            int count = 0;
+            for (int id = 0; id < scope; id++) {
+                int parent = values[offset + id];
+                if (parent != -1) {
+                    starts[parent + 1]++;
+                    count++;
+                }
+            }
+            for (int i = 0; i < parentScope; i++) {
+                starts[i + 1] += starts[i];
+            }
+            int[] next = Arrays.copyOf(starts, parentScope);
+            int[] ids = new int[count];
+            for (int id = 0; id < scope; id++) {
+                int parent = values[offset + id];
+                if (parent != -1) {
+                    ids[next[parent]++] = id;
+                }
             }
+            childStarts[index] = starts;
+            childIds[index] = ids;
+            built[index] = new InstanceClafer[scope];
         }
-        Pair<AstClafer, Object> ref = null;
-        if (clafer.hasRef()) {
-            AstClafer targetType = clafer.getRef().getTargetType();
-            if (targetType instanceof AstStringClafer) {
-                IrStringVar refIrVar = astSolution.getRefStrings(clafer)[id];
-                String value = irSolution.getValue(refIrVar);
-                ref = new Pair<>(targetType, value);
-            } else {
-                IrIntVar refIrVar = astSolution.getRefVars(clafer)[id];
-                Integer value = irSolution.getValue(refIrVar);
-                if (targetType instanceof AstAbstractClafer) {
-                    Pair<AstConcreteClafer, Integer> concreteRef = astSolution.getAnalysis().getConcreteId(
-                            targetType, value);
-                    targetType = concreteRef.getFst();
-                    value = concreteRef.getSnd();
+
+        private InstanceClafer getInstanceClafer(AstConcreteClafer clafer, int index, int id) {
+            InstanceClafer instanceClafer = getInstanceClaferImpl(clafer, id);
+            built[index][id] = instanceClafer;
+            return instanceClafer;
+        }
+
+        private InstanceClafer getInstanceClaferImpl(AstConcreteClafer clafer, int id) {
+            List<InstanceClafer> children = new ArrayList<>();
+            Pair<AstClafer, Object> ref = getInstanceClaferImpl(clafer, id, children);
+            InstanceClafer[] childrenArray = children.toArray(new InstanceClafer[children.size()]);
+            if (ref == null) {
+                return new InstanceClafer(clafer, id, null, childrenArray);
+            }
+            if (ref.getFst().isPrimitive()) {
+                return new InstanceClafer(clafer, id, ref.getSnd(), childrenArray);
+            }
+            int refIndex = layout.childIndices.get(ref.getFst());
+            int refId = (Integer) ref.getSnd();
+            if (built[refIndex] != null && built[refIndex][refId] != null) {
+                return new InstanceClafer(clafer, id, built[refIndex][refId], childrenArray);
+            }
+            return new InstanceClafer(clafer, id, null, childrenArray) {
+
+                @Override
+                public boolean hasRef() {
+                    return true;
+                }
+
+                @Override
+                public Object getRef() {
+                    return built[refIndex][refId];
+                }
+            };
+        }
+
+        private Pair<AstClafer, Object> getInstanceClaferImpl(AstClafer clafer, int id, List<InstanceClafer> children) {
+            for (AstConcreteClafer child : clafer.getChildren()) {
+                addChildren(child, id, children);
+            }
+            Pair<AstClafer, Object> ref = null;
+            if (clafer.hasRef()) {
+                AstClafer targetType = clafer.getRef().getTargetType();
+                if (targetType instanceof AstStringClafer) {
+                    ref = new Pair<>(targetType, strings[layout.stringOffsets.get(clafer) + id]);
+                } else {
+                    Integer value = values[layout.refOffsets.get(clafer) + id];
+                    if (targetType instanceof AstAbstractClafer) {
+                        Pair<AstConcreteClafer, Integer> concreteRef = astSolution.getAnalysis().getConcreteId(
+                                targetType, value);
+                        targetType = concreteRef.getFst();
+                        value = concreteRef.getSnd();
+                    }
+                    ref = new Pair<>(targetType, value);
                 }
-                ref = new Pair<>(targetType, value);
+            } else if (clafer.hasSuperClafer()) {
+                ref = getInstanceClaferImpl(clafer.getSuperClafer(),
+                        id + astSolution.getAnalysis().getOffsets(clafer.getSuperClafer()).getOffset(clafer),
+                        children);
             }
-        } else if (clafer.hasSuperClafer()) {
-            ref = getInstanceClaferImpl(clafer.getSuperClafer(),
-                    id + astSolution.getAnalysis().getOffsets(clafer.getSuperClafer()).getOffset(clafer),
-                    children, referenceMap, irSolution);
+            return ref;
         }
-        return ref;
     }
 
     public AstSolutionMap getAstSolution() {
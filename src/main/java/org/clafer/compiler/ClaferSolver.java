@@ -68,6 +68,14 @@ public class ClaferSolver implements ClaferSearch {
         return solutionMap.getInstance();
     }
 
+    @Override
+    public InstanceSnapshot snapshot() {
+        if (count == 0 || !more) {
+            throw new IllegalStateException("No instances. Did you forget to call find?");
+        }
+        return solutionMap.getSnapshot();
+    }
+
     @Override
     public int instanceCount() {
         return count;
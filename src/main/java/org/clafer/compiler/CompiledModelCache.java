@@ -0,0 +1,174 @@
+package org.clafer.compiler;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.clafer.ast.AstClafer;
+import org.clafer.ast.AstModel;
+import org.clafer.ast.AstUtil;
+import org.clafer.ast.compiler.AstSolutionMap;
+import org.clafer.collection.Pair;
+import org.clafer.common.Check;
+import org.clafer.ir.IrModule;
+import org.clafer.ir.analysis.deduction.Coalesce;
+import org.clafer.objective.Objective;
+import org.clafer.scope.Scope;
+
+/**
+ * Remembers the most recently compiled models so that compiling the same model
+ * again with the same scope and options skips the analysis, the AST compiler,
+ * and the IR optimizations, and goes straight to building the Choco model.
+ *
+ * Models are compared by structure, not by identity: the paths of the
+ * Clafers, their supertypes, references, cardinalities, and scopes, the
+ * constraints, and the objectives. A model that is read again from a file, or
+ * built again, is found in the cache. On a hit, the compiled model is moved
+ * onto the Clafers, constraints, and objectives of the model being compiled,
+ * so the instances and the objectives refer to the caller's model. A model
+ * that is modified after it is compiled no longer has the same structure and
+ * misses the cache. The least recently used model is evicted once the cache
+ * is full.
+ *
+ * Safe to share between threads.
+ */
+public class CompiledModelCache {
+
+    private final int capacity;
+    private final Map<String, CompiledModel> cache;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * @param capacity the maximum number of compiled models to remember
+     */
+    public CompiledModelCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive, not " + capacity + ".");
+        }
+        this.capacity = capacity;
+        this.cache = new LinkedHashMap<String, CompiledModel>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledModel> eldest) {
+                return size() > CompiledModelCache.this.capacity;
+            }
+        };
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    /**
+     * @return the number of compiles that skipped to building the Choco model
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of compiles that were not in the cache
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Look up the compiled model or compile it if it is not cached. Does not
+     * hold a lock while compiling so different models can be compiled
+     * concurrently.
+     */
+    CompiledModel get(AstModel model, Scope scope, Objective[] objectives, ClaferOption options,
+            Supplier<CompiledModel> compile) {
+        String key = ModelFingerprint.fingerprint(model, scope, objectives, options);
+        synchronized (this) {
+            CompiledModel compiled = cache.get(key);
+            if (compiled != null) {
+                hits++;
+                return compiled.rebind(model, objectives);
+            }
+            misses++;
+        }
+        CompiledModel compiled = compile.get();
+        synchronized (this) {
+            cache.put(key, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * The output of the AST compiler and the IR optimizations, ready to be
+     * compiled to Choco any number of times.
+     */
+    static class CompiledModel {
+
+        private final AstModel model;
+        /**
+         * The Clafers of the model when it was compiled.
+         */
+        private final List<AstClafer> clafers;
+        private final AstSolutionMap astSolution;
+        private final Pair<Coalesce, IrModule> optimized;
+
+        CompiledModel(AstModel model, AstSolutionMap astSolution, Pair<Coalesce, IrModule> optimized) {
+            this.model = Check.notNull(model);
+            this.clafers = AstUtil.getClafers(model);
+            this.astSolution = Check.notNull(astSolution);
+            this.optimized = Check.notNull(optimized);
+        }
+
+        /**
+         * @return the model the compiled model was compiled from
+         */
+        AstModel getModel() {
+            return model;
+        }
+
+        AstSolutionMap getAstSolution() {
+            return astSolution;
+        }
+
+        Pair<Coalesce, IrModule> getOptimized() {
+            return optimized;
+        }
+
+        /**
+         * Move the compiled model onto a model with the same fingerprint. The
+         * Clafers of the two models correspond one to one in the order of
+         * {@link AstUtil#getClafers}. The optimized IR does not refer to the
+         * model so it is shared.
+         *
+         * @param to a model with the same fingerprint
+         * @param objectives the objectives of {@code to}
+         * @return the compiled model for {@code to}
+         */
+        CompiledModel rebind(AstModel to, Objective[] objectives) {
+            List<AstClafer> toClafers = AstUtil.getClafers(to);
+            if (clafers.size() != toClafers.size()) {
+                throw new IllegalArgumentException();
+            }
+            Map<AstClafer, AstClafer> rebound = new HashMap<>(clafers.size());
+            for (int i = 0; i < clafers.size(); i++) {
+                AstClafer from = clafers.get(i);
+                AstClafer clafer = toClafers.get(i);
+                if (!ModelFingerprint.path(from).equals(ModelFingerprint.path(clafer))) {
+                    throw new IllegalArgumentException(
+                            ModelFingerprint.path(from) + " is not " + ModelFingerprint.path(clafer));
+                }
+                rebound.put(from, clafer);
+            }
+            return new CompiledModel(to, astSolution.rebind(to, rebound, objectives), optimized);
+        }
+    }
+}
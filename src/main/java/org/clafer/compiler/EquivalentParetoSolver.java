@@ -1,14 +1,15 @@
 package org.clafer.compiler;
 
-import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.BiConsumer;
 import org.chocosolver.solver.Solution;
 import org.chocosolver.solver.Solver;
 import org.chocosolver.solver.constraints.Constraint;
 import org.chocosolver.solver.variables.IntVar;
-import org.chocosolver.solver.variables.SetVar;
-import org.chocosolver.solver.variables.Variable;
+import org.clafer.choco.constraint.PropagatorProfile;
 import org.clafer.common.Check;
 import org.clafer.instance.InstanceModel;
+import org.clafer.ir.compiler.IrSolutionMap;
 
 /**
  * Takes an improvement-style optimizer that only returns one solution per
@@ -19,14 +20,26 @@ import org.clafer.instance.InstanceModel;
 public class EquivalentParetoSolver implements ClaferOptimizer {
 
     private final AbstractImprovementOptimizer optimizer;
+    /**
+     * Whether or not to keep restarting while enumerating the optimal
+     * instances. Restarts find duplicate instances.
+     */
+    private final boolean restarts;
     private int count = 0;
     private boolean more = true;
     private Solution paretoSolution = null;
     private int paretoCount = 0;
     private Constraint[] equivalentConstraint;
+    private IrSolutionMap matcherMap = null;
+    private SolutionMatcher matcher = null;
 
     public EquivalentParetoSolver(AbstractImprovementOptimizer optimizer) {
+        this(optimizer, true);
+    }
+
+    public EquivalentParetoSolver(AbstractImprovementOptimizer optimizer, boolean restarts) {
         this.optimizer = Check.notNull(optimizer);
+        this.restarts = restarts;
     }
 
     @Override
@@ -42,9 +55,19 @@ public class EquivalentParetoSolver implements ClaferOptimizer {
             }
             paretoCount = 1;
             paretoSolution = optimizer.solution();
+            // The solution map changes if the optimizer is a portfolio.
+            IrSolutionMap solutionMap = optimizer.getSolutionMap().getIrSolution();
+            if (matcher == null || matcherMap != solutionMap) {
+                matcher = new SolutionMatcher(solutionMap);
+                matcherMap = solutionMap;
+            }
         } else {
             if (paretoCount == 1) {
                 solver.reset();
+                Portfolio.stopLargeNeighborhoodSearch(solver);
+                if (!restarts) {
+                    Portfolio.stopRestarts(solver);
+                }
                 solver.getModel().clearObjective();
                 IntVar[] scores = optimizer.getScores();
                 int[] paretoPoint = optimizer.optimalValues();
@@ -93,11 +116,28 @@ public class EquivalentParetoSolver implements ClaferOptimizer {
         return optimizer.optimalValues();
     }
 
+    @Override
+    public ClaferOptimizer onImprovement(BiConsumer<InstanceModel, int[]> listener) {
+        optimizer.onImprovement(listener);
+        return this;
+    }
+
     @Override
     public int instanceCount() {
         return count;
     }
 
+    @Override
+    public ClaferSearch limitTime(long ms) {
+        optimizer.limitTime(ms);
+        return this;
+    }
+
+    @Override
+    public Optional<PropagatorProfile> getPropagatorProfile() {
+        return optimizer.getPropagatorProfile();
+    }
+
     @Override
     public Solver getInternalSolver() {
         return optimizer.getInternalSolver();
@@ -107,20 +147,6 @@ public class EquivalentParetoSolver implements ClaferOptimizer {
         if (paretoSolution == null) {
             return false;
         }
-        for (IntVar var : optimizer.getSolutionMap().getIrSolution().getIntVars()) {
-            if ((var.getTypeAndKind() & Variable.CSTE) == 0) {
-                if (var.getValue() != paretoSolution.getIntVal(var)) {
-                    return false;
-                }
-            }
-        }
-        for (SetVar var : optimizer.getSolutionMap().getIrSolution().getSetVars()) {
-            if ((var.getTypeAndKind() & Variable.CSTE) == 0) {
-                if (!Arrays.equals(var.getLB().toArray(), paretoSolution.getSetVal(var))) {
-                    return false;
-                }
-            }
-        }
-        return true;
+        return matcher.matches(paretoSolution);
     }
 }
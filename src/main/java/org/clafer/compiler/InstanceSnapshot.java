@@ -0,0 +1,70 @@
+package org.clafer.compiler;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+import org.clafer.common.Check;
+import org.clafer.instance.InstanceModel;
+
+/**
+ * A compact copy of a solution. The parent of every Clafer and the value of
+ * every reference are stored in a flat array, in blocks laid out by the
+ * solution map. The instance is only built when asked for, so counting,
+ * hashing, or queueing snapshots does not build an instance per solution.
+ *
+ * Two snapshots are equal if they come from the same solution map and hold
+ * the same values.
+ */
+public class InstanceSnapshot implements Supplier<InstanceModel> {
+
+    private final ClaferSolutionMap solutionMap;
+    private final int[] values;
+    private final String[] strings;
+    private int hash = 0;
+
+    InstanceSnapshot(ClaferSolutionMap solutionMap, int[] values, String[] strings) {
+        this.solutionMap = Check.notNull(solutionMap);
+        this.values = Check.notNull(values);
+        this.strings = Check.notNull(strings);
+    }
+
+    ClaferSolutionMap getSolutionMap() {
+        return solutionMap;
+    }
+
+    int[] getValues() {
+        return values;
+    }
+
+    String[] getStrings() {
+        return strings;
+    }
+
+    /**
+     * Builds the instance. Every call builds a new instance.
+     *
+     * @return the instance
+     */
+    @Override
+    public InstanceModel get() {
+        return solutionMap.getInstance(this);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof InstanceSnapshot) {
+            InstanceSnapshot other = (InstanceSnapshot) obj;
+            return solutionMap == other.solutionMap
+                    && Arrays.equals(values, other.values)
+                    && Arrays.equals(strings, other.strings);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        if (hash == 0) {
+            hash = Arrays.hashCode(values) ^ Arrays.hashCode(strings);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,452 @@
+package org.clafer.compiler;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.clafer.ast.AstAbstractClafer;
+import org.clafer.ast.AstArithm;
+import org.clafer.ast.AstBoolArithm;
+import org.clafer.ast.AstCard;
+import org.clafer.ast.AstChildRelation;
+import org.clafer.ast.AstClafer;
+import org.clafer.ast.AstCompare;
+import org.clafer.ast.AstConcat;
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstConnected;
+import org.clafer.ast.AstConstant;
+import org.clafer.ast.AstConstraint;
+import org.clafer.ast.AstDecl;
+import org.clafer.ast.AstDifference;
+import org.clafer.ast.AstDomainRestriction;
+import org.clafer.ast.AstDowncast;
+import org.clafer.ast.AstExpr;
+import org.clafer.ast.AstExprVisitor;
+import org.clafer.ast.AstGlobal;
+import org.clafer.ast.AstIfThenElse;
+import org.clafer.ast.AstIntersection;
+import org.clafer.ast.AstInverse;
+import org.clafer.ast.AstJoin;
+import org.clafer.ast.AstJoinParent;
+import org.clafer.ast.AstJoinRef;
+import org.clafer.ast.AstLength;
+import org.clafer.ast.AstLocal;
+import org.clafer.ast.AstMax;
+import org.clafer.ast.AstMembership;
+import org.clafer.ast.AstMin;
+import org.clafer.ast.AstMinus;
+import org.clafer.ast.AstMod;
+import org.clafer.ast.AstModel;
+import org.clafer.ast.AstNot;
+import org.clafer.ast.AstParentRelation;
+import org.clafer.ast.AstPrefix;
+import org.clafer.ast.AstProduct;
+import org.clafer.ast.AstQuantify;
+import org.clafer.ast.AstRangeRestriction;
+import org.clafer.ast.AstRef;
+import org.clafer.ast.AstRefRelation;
+import org.clafer.ast.AstSetTest;
+import org.clafer.ast.AstStringConstant;
+import org.clafer.ast.AstSuffix;
+import org.clafer.ast.AstSum;
+import org.clafer.ast.AstTernary;
+import org.clafer.ast.AstThis;
+import org.clafer.ast.AstTransitiveClosure;
+import org.clafer.ast.AstUnion;
+import org.clafer.ast.AstUpcast;
+import org.clafer.ast.AstUtil;
+import org.clafer.ast.ProductType;
+import org.clafer.objective.Objective;
+import org.clafer.scope.Scope;
+
+/**
+ * Prints everything that affects the compiled model: the Clafers with their
+ * paths, supertypes, references, cardinalities, and scopes, the constraints,
+ * the objectives, the bounds of the scope, and the options that change the
+ * compiled model. Two models with the same fingerprint compile to the same IR
+ * and their Clafers correspond one to one in the order of
+ * {@link AstUtil#getClafers}.
+ *
+ * Clafers in expressions are printed with their position in that order so
+ * two Clafers with the same path are never confused. Locals are printed with
+ * the order they are declared in.
+ */
+class ModelFingerprint implements AstExprVisitor<Void, Void> {
+
+    private final StringBuilder fingerprint = new StringBuilder();
+    private final Map<AstClafer, Integer> positions = new IdentityHashMap<>();
+    private final Map<AstLocal, Integer> locals = new IdentityHashMap<>();
+
+    private ModelFingerprint(List<AstClafer> clafers) {
+        for (int i = 0; i < clafers.size(); i++) {
+            positions.put(clafers.get(i), i);
+        }
+    }
+
+    /**
+     * @param model the model
+     * @param scope the scope
+     * @param objectives the objectives, possibly empty
+     * @param options the options
+     * @return the fingerprint
+     */
+    static String fingerprint(AstModel model, Scope scope, Objective[] objectives, ClaferOption options) {
+        List<AstClafer> clafers = AstUtil.getClafers(model);
+        ModelFingerprint printer = new ModelFingerprint(clafers);
+        StringBuilder fingerprint = printer.fingerprint;
+        for (AstClafer clafer : clafers) {
+            fingerprint.append(clafer instanceof AstAbstractClafer ? "abstract " : "").append(path(clafer));
+            if (clafer instanceof AstConcreteClafer) {
+                fingerprint.append(' ').append(((AstConcreteClafer) clafer).getCard());
+            }
+            if (clafer.hasSuperClafer()) {
+                fingerprint.append(" : ");
+                printer.clafer(clafer.getSuperClafer());
+            }
+            if (clafer.hasGroupCard()) {
+                fingerprint.append(" <").append(clafer.getGroupCard()).append('>');
+            }
+            if (clafer.hasRef()) {
+                AstRef ref = clafer.getRef();
+                fingerprint.append(ref.isUnique() ? " -> " : " ->> ");
+                printer.clafer(ref.getTargetType());
+            }
+            fingerprint.append(" scope ").append(scope.getScope(clafer)).append('\n');
+            for (AstConstraint constraint : clafer.getConstraints()) {
+                fingerprint.append(constraint.isHard() ? "    [" : "    (");
+                printer.expr(constraint.getExpr());
+                fingerprint.append(constraint.isHard() ? "]\n" : ")\n");
+            }
+        }
+        for (Objective objective : objectives) {
+            fingerprint.append(objective.isMaximize() ? "<< max " : "<< min ");
+            printer.expr(objective.getExpr());
+            fingerprint.append(" >>\n");
+        }
+        fingerprint.append(scope.getDefaultScope())
+                .append(' ').append(scope.getIntLow()).append(' ').append(scope.getIntHigh())
+                .append(' ').append(scope.getMulLow()).append(' ').append(scope.getMulHigh())
+                .append(' ').append(scope.getStringLength())
+                .append(' ').append((int) scope.getCharLow()).append(' ').append((int) scope.getCharHigh())
+                .append('\n')
+                .append(options.isFullSymmetryBreaking()).append(' ').append(options.isFullOptimizations());
+        return fingerprint.toString();
+    }
+
+    /**
+     * @param clafer the Clafer
+     * @return the names of the Clafer and its ancestors, outermost first
+     */
+    static String path(AstClafer clafer) {
+        return clafer.hasParent() ? path(clafer.getParent()) + "/" + clafer.getName() : clafer.getName();
+    }
+
+    private void clafer(AstClafer clafer) {
+        Integer position = positions.get(clafer);
+        if (position == null) {
+            // Primitive types are shared by every model.
+            fingerprint.append(clafer.getName());
+        } else {
+            fingerprint.append(path(clafer)).append('#').append(position);
+        }
+    }
+
+    private void type(ProductType type) {
+        fingerprint.append('<');
+        for (AstClafer clafer : type.getProduct()) {
+            clafer(clafer);
+            fingerprint.append(' ');
+        }
+        fingerprint.append('>');
+    }
+
+    private void expr(AstExpr expr) {
+        expr.accept(this, null);
+    }
+
+    private void node(String name, AstExpr... children) {
+        fingerprint.append('(').append(name);
+        for (AstExpr child : children) {
+            fingerprint.append(' ');
+            expr(child);
+        }
+        fingerprint.append(')');
+    }
+
+    @Override
+    public Void visit(AstThis ast, Void a) {
+        fingerprint.append("this");
+        return null;
+    }
+
+    @Override
+    public Void visit(AstGlobal ast, Void a) {
+        clafer(ast.getType());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstConstant ast, Void a) {
+        fingerprint.append(Arrays.deepToString(ast.getValue())).append("::");
+        type(ast.getType());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstStringConstant ast, Void a) {
+        // The length makes the end of the string unambiguous.
+        fingerprint.append('"').append(ast.getValue().length()).append(':').append(ast.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstJoin ast, Void a) {
+        node("join", ast.getLeft(), ast.getRight());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstJoinParent ast, Void a) {
+        node("parent", ast.getChildren());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstJoinRef ast, Void a) {
+        node("ref", ast.getDeref());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstNot ast, Void a) {
+        node("not", ast.getExpr());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstMinus ast, Void a) {
+        node("minus", ast.getExpr());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstCard ast, Void a) {
+        node("card", ast.getSet());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstMax ast, Void a) {
+        node("max", ast.getSet());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstMin ast, Void a) {
+        node("min", ast.getSet());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstSetTest ast, Void a) {
+        node("test " + ast.getOp(), ast.getLeft(), ast.getRight());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstCompare ast, Void a) {
+        node("compare " + ast.getOp(), ast.getLeft(), ast.getRight());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstArithm ast, Void a) {
+        node("arithm " + ast.getOp(), ast.getOperands());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstMod ast, Void a) {
+        node("mod", ast.getDividend(), ast.getDivisor());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstSum ast, Void a) {
+        node("sum", ast.getSet());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstProduct ast, Void a) {
+        node("product", ast.getSet());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstBoolArithm ast, Void a) {
+        node("bool " + ast.getOp(), ast.getOperands());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstDifference ast, Void a) {
+        node("diff", ast.getLeft(), ast.getRight());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstIntersection ast, Void a) {
+        node("inter", ast.getLeft(), ast.getRight());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstUnion ast, Void a) {
+        node("union", ast.getLeft(), ast.getRight());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstMembership ast, Void a) {
+        node("membership " + ast.getOp(), ast.getMember(), ast.getSet());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstTernary ast, Void a) {
+        node("ternary", ast.getAntecedent(), ast.getConsequent(), ast.getAlternative());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstIfThenElse ast, Void a) {
+        node("ifThenElse", ast.getAntecedent(), ast.getConsequent(), ast.getAlternative());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstDowncast ast, Void a) {
+        fingerprint.append("(downcast ");
+        type(ast.getTarget());
+        fingerprint.append(' ');
+        expr(ast.getBase());
+        fingerprint.append(')');
+        return null;
+    }
+
+    @Override
+    public Void visit(AstUpcast ast, Void a) {
+        fingerprint.append("(upcast ");
+        type(ast.getTarget());
+        fingerprint.append(' ');
+        expr(ast.getBase());
+        fingerprint.append(')');
+        return null;
+    }
+
+    @Override
+    public Void visit(AstLocal ast, Void a) {
+        Integer local = locals.get(ast);
+        fingerprint.append('$').append(local == null ? ast.getName() : local.toString());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstQuantify ast, Void a) {
+        fingerprint.append('(').append(ast.getQuantifier());
+        for (AstDecl decl : ast.getDecls()) {
+            fingerprint.append(decl.isDisjoint() ? " (disj" : " (decl");
+            for (AstLocal local : decl.getLocals()) {
+                locals.put(local, locals.size());
+                fingerprint.append(' ');
+                expr(local);
+            }
+            fingerprint.append(' ');
+            expr(decl.getBody());
+            fingerprint.append(')');
+        }
+        fingerprint.append(' ');
+        expr(ast.getBody());
+        fingerprint.append(')');
+        return null;
+    }
+
+    @Override
+    public Void visit(AstLength ast, Void a) {
+        node("length", ast.getString());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstConcat ast, Void a) {
+        node("concat", ast.getLeft(), ast.getRight());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstPrefix ast, Void a) {
+        node("prefix", ast.getPrefix(), ast.getWord());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstSuffix ast, Void a) {
+        node("suffix", ast.getSuffix(), ast.getWord());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstChildRelation ast, Void a) {
+        fingerprint.append("(childRelation ");
+        clafer(ast.getChildType());
+        fingerprint.append(')');
+        return null;
+    }
+
+    @Override
+    public Void visit(AstParentRelation ast, Void a) {
+        fingerprint.append("(parentRelation ");
+        clafer(ast.getParentRelation());
+        fingerprint.append(')');
+        return null;
+    }
+
+    @Override
+    public Void visit(AstRefRelation ast, Void a) {
+        fingerprint.append("(refRelation ");
+        clafer(ast.getRef().getSourceType());
+        fingerprint.append(')');
+        return null;
+    }
+
+    @Override
+    public Void visit(AstDomainRestriction ast, Void a) {
+        node("domainRestriction", ast.getDomain(), ast.getRelation());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstRangeRestriction ast, Void a) {
+        node("rangeRestriction", ast.getRelation(), ast.getRange());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstInverse ast, Void a) {
+        node("inverse", ast.getRelation());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstTransitiveClosure ast, Void a) {
+        node(ast.isReflexive() ? "reflexiveClosure" : "transitiveClosure", ast.getRelation());
+        return null;
+    }
+
+    @Override
+    public Void visit(AstConnected ast, Void a) {
+        node(ast.isDirected() ? "directedConnected" : "connected", ast.getNodes(), ast.getRelation());
+        return null;
+    }
+}
@@ -1,6 +1,9 @@
 package org.clafer.compiler;
 
+import java.util.Optional;
+import java.util.function.BiConsumer;
 import org.chocosolver.solver.Solver;
+import org.clafer.choco.constraint.PropagatorProfile;
 import org.clafer.common.Check;
 import org.clafer.instance.InstanceModel;
 
@@ -40,14 +43,23 @@ public class PartiallyKnownOptimizer implements ClaferOptimizer {
 
     @Override
     public int[] optimalValues() {
-        int[] variableOptimalValues = optimizer.optimalValues();
-        int[] optimalValues = new int[scores.length];
+        return withKnownScores(optimizer.optimalValues());
+    }
+
+    private int[] withKnownScores(int[] variableValues) {
+        int[] values = new int[scores.length];
         int j = 0;
-        for (int i = 0; i < optimalValues.length; i++) {
-            optimalValues[i] = scores[i] == null ? variableOptimalValues[j++] : scores[i];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = scores[i] == null ? variableValues[j++] : scores[i];
         }
-        assert j == variableOptimalValues.length;
-        return optimalValues;
+        assert j == variableValues.length;
+        return values;
+    }
+
+    @Override
+    public ClaferOptimizer onImprovement(BiConsumer<InstanceModel, int[]> listener) {
+        optimizer.onImprovement((instance, values) -> listener.accept(instance, withKnownScores(values)));
+        return this;
     }
 
     @Override
@@ -55,6 +67,17 @@ public class PartiallyKnownOptimizer implements ClaferOptimizer {
         return optimizer.instanceCount();
     }
 
+    @Override
+    public ClaferSearch limitTime(long ms) {
+        optimizer.limitTime(ms);
+        return this;
+    }
+
+    @Override
+    public Optional<PropagatorProfile> getPropagatorProfile() {
+        return optimizer.getPropagatorProfile();
+    }
+
     @Override
     public Solver getInternalSolver() {
         return optimizer.getInternalSolver();
@@ -0,0 +1,181 @@
+package org.clafer.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.propagation.IPropagationEngine;
+import org.chocosolver.solver.search.loop.move.Move;
+import org.chocosolver.solver.search.loop.move.MoveLNS;
+import org.chocosolver.solver.search.loop.move.MoveRestart;
+import org.chocosolver.util.criteria.Criterion;
+import org.clafer.choco.constraint.ProfilingPropagationEngine;
+import org.clafer.choco.constraint.PropagatorProfile;
+import org.clafer.common.Check;
+
+/**
+ * Races independent copies of the same problem, each on its own thread. The
+ * copies share a stop criterion so that the first copy to finish can stop the
+ * others.
+ */
+class Portfolio {
+
+    private final Solver[] solvers;
+    private final AtomicBoolean stopped = new AtomicBoolean();
+    private final Criterion stop = stopped::get;
+
+    Portfolio(Solver... solvers) {
+        this.solvers = Check.noNullsNotEmpty(solvers);
+        for (Solver solver : solvers) {
+            solver.addStopCriterion(stop);
+        }
+    }
+
+    int size() {
+        return solvers.length;
+    }
+
+    /**
+     * @return the statistics of the propagators summed over every copy, or
+     * empty if not profiled
+     */
+    Optional<PropagatorProfile> getPropagatorProfile() {
+        return getPropagatorProfile(solvers);
+    }
+
+    /**
+     * @param solvers the solvers
+     * @return the statistics of the propagators summed over the solvers, or
+     * empty if not profiled
+     */
+    static Optional<PropagatorProfile> getPropagatorProfile(Solver... solvers) {
+        List<PropagatorProfile> profiles = new ArrayList<>(solvers.length);
+        for (Solver solver : solvers) {
+            IPropagationEngine engine = solver.getEngine();
+            if (engine instanceof ProfilingPropagationEngine) {
+                profiles.add(((ProfilingPropagationEngine) engine).getProfile());
+            }
+        }
+        if (profiles.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(profiles.size() == 1 ? profiles.get(0) : PropagatorProfile.sum(profiles));
+    }
+
+    /**
+     * Stop every copy.
+     *
+     * @return true if this call stopped the copies, false if they were already
+     * stopped
+     */
+    boolean stop() {
+        return stopped.compareAndSet(false, true);
+    }
+
+    /**
+     * Run the task for every copy on its own thread and wait until they all
+     * return.
+     *
+     * @param task the task to run, given the index of the copy
+     */
+    void race(IntConsumer task) {
+        stopped.set(false);
+        ExecutorService executor = Executors.newFixedThreadPool(solvers.length);
+        try {
+            List<Future<?>> futures = new ArrayList<>(solvers.length);
+            for (int i = 0; i < solvers.length; i++) {
+                int copy = i;
+                futures.add(executor.submit(() -> {
+                    try {
+                        task.accept(copy);
+                    } catch (RuntimeException | Error e) {
+                        stop();
+                        throw e;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            stop();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * The copy continues the search alone. Its later searches can no longer be
+     * stopped by the other copies.
+     *
+     * @param copy the index of the winning copy
+     */
+    void finish(int copy) {
+        finish(copy, true);
+    }
+
+    /**
+     * The copy continues the search alone. Its later searches can no longer be
+     * stopped by the other copies.
+     *
+     * @param copy the index of the winning copy
+     * @param restarts whether or not the copy keeps restarting, if it restarts
+     * at all
+     */
+    void finish(int copy, boolean restarts) {
+        Solver solver = solvers[copy];
+        solver.removeStopCriterion(stop);
+        if (!restarts) {
+            stopRestarts(solver);
+        }
+    }
+
+    /**
+     * The solver continues the search without restarting.
+     *
+     * @param solver the solver
+     */
+    static void stopRestarts(Solver solver) {
+        Move move = solver.getMove();
+        while (move instanceof MoveRestart) {
+            move = move.getChildMoves().get(0);
+        }
+        solver.setMove(move);
+    }
+
+    /**
+     * The solver continues the search without relaxing neighborhoods of the
+     * best solution.
+     *
+     * @param solver the solver
+     */
+    static void stopLargeNeighborhoodSearch(Solver solver) {
+        Move move = solver.getMove();
+        if (move instanceof MoveLNS) {
+            solver.setMove(move.getChildMoves().get(0));
+        }
+    }
+
+    void limitTime(long ms) {
+        for (Solver solver : solvers) {
+            solver.limitTime(ms);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.clafer.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.SetVar;
+import org.chocosolver.solver.variables.Variable;
+import org.chocosolver.util.objects.setDataStructures.ISet;
+import org.clafer.ir.compiler.IrSolutionMap;
+
+/**
+ * Compares the current solution of the solver against a stored solution. The
+ * non-constant variables are gathered once, so comparing does not allocate and
+ * stops at the first variable that differs.
+ */
+class SolutionMatcher {
+
+    private final IntVar[] intVars;
+    private final SetVar[] setVars;
+
+    SolutionMatcher(IrSolutionMap solutionMap) {
+        List<IntVar> ints = new ArrayList<>();
+        for (IntVar var : solutionMap.getIntVars()) {
+            if ((var.getTypeAndKind() & Variable.CSTE) == 0) {
+                ints.add(var);
+            }
+        }
+        List<SetVar> sets = new ArrayList<>();
+        for (SetVar var : solutionMap.getSetVars()) {
+            if ((var.getTypeAndKind() & Variable.CSTE) == 0) {
+                sets.add(var);
+            }
+        }
+        this.intVars = ints.toArray(new IntVar[ints.size()]);
+        this.setVars = sets.toArray(new SetVar[sets.size()]);
+    }
+
+    /**
+     * @param solution the solution
+     * @return {@code true} if and only if the current solution of the solver
+     * is the same as the solution, {@code false} otherwise
+     */
+    boolean matches(Solution solution) {
+        for (IntVar var : intVars) {
+            if (var.getValue() != solution.getIntVal(var)) {
+                return false;
+            }
+        }
+        for (SetVar var : setVars) {
+            ISet value = var.getLB();
+            int[] other = solution.getSetVal(var);
+            if (value.size() != other.length) {
+                return false;
+            }
+            for (int element : other) {
+                if (!value.contains(element)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
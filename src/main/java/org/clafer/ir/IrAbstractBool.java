@@ -9,6 +9,11 @@ import org.clafer.domain.BoolDomain;
  */
 public abstract class IrAbstractBool implements IrBoolExpr {
 
+    /**
+     * The cached hash code. Expressions are hashed frequently during the
+     * optimization passes and hashing an expression is proportional to its size.
+     */
+    private int hash;
     private final BoolDomain domain;
 
     public IrAbstractBool(BoolDomain domain) {
@@ -45,9 +50,22 @@ public abstract class IrAbstractBool implements IrBoolExpr {
     }
 
     @Override
-    public int hashCode() {
-        // Subclasses can choose not to call this hashCode function since it can
-        // be expensive.
+    public final int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = hashCodeImpl();
+            hash = h;
+        }
+        return h;
+    }
+
+    /**
+     * Computes the hash code. Only called once per expression since the
+     * expressions are immutable, the result is cached by {@link #hashCode()}.
+     *
+     * @return the hash code
+     */
+    protected int hashCodeImpl() {
         return domain.hashCode();
     }
 }
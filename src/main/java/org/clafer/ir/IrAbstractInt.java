@@ -9,6 +9,11 @@ import org.clafer.domain.Domain;
  */
 public abstract class IrAbstractInt implements IrIntExpr {
 
+    /**
+     * The cached hash code. Expressions are hashed frequently during the
+     * optimization passes and hashing an expression is proportional to its size.
+     */
+    private int hash;
     private final Domain domain;
 
     public IrAbstractInt(Domain domain) {
@@ -49,9 +54,22 @@ public abstract class IrAbstractInt implements IrIntExpr {
     }
 
     @Override
-    public int hashCode() {
-        // Subclasses can choose not to call this hashCode function since it can
-        // be expensive.
+    public final int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = hashCodeImpl();
+            hash = h;
+        }
+        return h;
+    }
+
+    /**
+     * Computes the hash code. Only called once per expression since the
+     * expressions are immutable, the result is cached by {@link #hashCode()}.
+     *
+     * @return the hash code
+     */
+    protected int hashCodeImpl() {
         return domain.hashCode();
     }
 }
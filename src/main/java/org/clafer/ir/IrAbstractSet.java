@@ -8,6 +8,11 @@ import org.clafer.domain.Domain;
  */
 public abstract class IrAbstractSet implements IrSetExpr {
 
+    /**
+     * The cached hash code. Expressions are hashed frequently during the
+     * optimization passes and hashing an expression is proportional to its size.
+     */
+    private int hash;
     private final Domain env, ker, card;
     private final boolean isConstant;
 
@@ -73,9 +78,22 @@ public abstract class IrAbstractSet implements IrSetExpr {
     }
 
     @Override
-    public int hashCode() {
-        // Subclasses can choose not to call this hashCode function since it can
-        // be expensive.
+    public final int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = hashCodeImpl();
+            hash = h;
+        }
+        return h;
+    }
+
+    /**
+     * Computes the hash code. Only called once per expression since the
+     * expressions are immutable, the result is cached by {@link #hashCode()}.
+     *
+     * @return the hash code
+     */
+    protected int hashCodeImpl() {
         return env.hashCode() ^ ker.hashCode() ^ card.hashCode();
     }
 }
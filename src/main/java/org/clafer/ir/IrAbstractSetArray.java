@@ -11,6 +11,11 @@ import org.clafer.domain.Domain;
  */
 public abstract class IrAbstractSetArray implements IrSetArrayExpr {
 
+    /**
+     * The cached hash code. Expressions are hashed frequently during the
+     * optimization passes and hashing an expression is proportional to its size.
+     */
+    private int hash;
     private final Domain[] envDomains, kerDomains, cardDomains;
     private final boolean isConstant;
 
@@ -64,7 +69,22 @@ public abstract class IrAbstractSetArray implements IrSetArrayExpr {
     }
 
     @Override
-    public int hashCode() {
+    public final int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = hashCodeImpl();
+            hash = h;
+        }
+        return h;
+    }
+
+    /**
+     * Computes the hash code. Only called once per expression since the
+     * expressions are immutable, the result is cached by {@link #hashCode()}.
+     *
+     * @return the hash code
+     */
+    protected int hashCodeImpl() {
         return Arrays.hashCode(envDomains) ^ Arrays.hashCode(kerDomains) ^ Arrays.hashCode(cardDomains);
     }
 }
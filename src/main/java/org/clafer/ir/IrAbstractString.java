@@ -10,6 +10,11 @@ import org.clafer.domain.Domain;
  */
 public abstract class IrAbstractString implements IrStringExpr {
 
+    /**
+     * The cached hash code. Expressions are hashed frequently during the
+     * optimization passes and hashing an expression is proportional to its size.
+     */
+    private int hash;
     private final Domain[] charDomains;
     private final Domain lengthDomain;
     private final boolean isConstant;
@@ -75,7 +80,22 @@ public abstract class IrAbstractString implements IrStringExpr {
     }
 
     @Override
-    public int hashCode() {
+    public final int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = hashCodeImpl();
+            hash = h;
+        }
+        return h;
+    }
+
+    /**
+     * Computes the hash code. Only called once per expression since the
+     * expressions are immutable, the result is cached by {@link #hashCode()}.
+     *
+     * @return the hash code
+     */
+    protected int hashCodeImpl() {
         return Arrays.hashCode(charDomains) ^ lengthDomain.hashCode();
     }
 }
@@ -43,15 +43,19 @@ public class IrAcyclic extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrAcyclic) {
             IrAcyclic other = (IrAcyclic) obj;
-            return Arrays.equals(edges, other.edges) && super.equals(other);
+            return hashCode() == other.hashCode()
+                    && Arrays.equals(edges, other.edges) && super.equals(other);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return 739 * Arrays.hashCode(edges);
     }
 
@@ -36,15 +36,19 @@ public class IrAdd extends IrAbstractInt {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrAdd) {
             IrAdd other = (IrAdd) obj;
-            return Arrays.equals(addends, other.addends) && offset == other.offset && super.equals(other);
+            return hashCode() == other.hashCode()
+                    && Arrays.equals(addends, other.addends) && offset == other.offset && super.equals(other);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return Arrays.hashCode(addends) ^ offset;
     }
 
@@ -44,15 +44,19 @@ public class IrAllDifferent extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrAllDifferent) {
             IrAllDifferent other = (IrAllDifferent) obj;
-            return Arrays.equals(operands, other.operands);
+            return hashCode() == other.hashCode()
+                    && Arrays.equals(operands, other.operands);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return Arrays.hashCode(operands);
     }
 
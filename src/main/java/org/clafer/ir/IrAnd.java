@@ -48,15 +48,19 @@ public class IrAnd extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrAnd) {
             IrAnd other = (IrAnd) obj;
-            return Arrays.equals(operands, other.operands) && super.equals(other);
+            return hashCode() == other.hashCode()
+                    && Arrays.equals(operands, other.operands) && super.equals(other);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return 7 * Arrays.hashCode(operands);
     }
 
@@ -42,15 +42,19 @@ public class IrArrayToSet extends IrAbstractSet {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrArrayToSet) {
             IrArrayToSet other = (IrArrayToSet) obj;
-            return Arrays.equals(array, other.array) && Util.equals(globalCardinality, other.globalCardinality) && super.equals(other);
+            return hashCode() == other.hashCode()
+                    && Arrays.equals(array, other.array) && Util.equals(globalCardinality, other.globalCardinality) && super.equals(other);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return Arrays.hashCode(array) ^ Util.hashCode(globalCardinality);
     }
 
@@ -49,15 +49,19 @@ public class IrBoolChannel extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrBoolChannel) {
             IrBoolChannel other = (IrBoolChannel) obj;
-            return Arrays.equals(bools, other.bools) && set.equals(other.set);
+            return hashCode() == other.hashCode()
+                    && Arrays.equals(bools, other.bools) && set.equals(other.set);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return Arrays.hashCode(bools) ^ set.hashCode();
     }
 
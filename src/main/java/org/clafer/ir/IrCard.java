@@ -27,15 +27,19 @@ public class IrCard extends IrAbstractInt {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrCard) {
             IrCard other = (IrCard) obj;
-            return set.equals(other.set);
+            return hashCode() == other.hashCode()
+                    && set.equals(other.set);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return 31 * set.hashCode();
     }
 
@@ -33,15 +33,19 @@ public class IrConcat extends IrAbstractString {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrConcat) {
             IrConcat other = (IrConcat) obj;
-            return left.equals(other.left) && left.equals(other.right);
+            return hashCode() == other.hashCode()
+                    && left.equals(other.left) && left.equals(other.right);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return left.hashCode() ^ right.hashCode();
     }
 
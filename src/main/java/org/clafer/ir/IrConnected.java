@@ -54,15 +54,19 @@ public class IrConnected extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrConnected) {
             IrConnected other = (IrConnected) obj;
-            return nodes.equals(other.nodes) && relation.equals(other.relation) && directed == other.directed;
+            return hashCode() == other.hashCode()
+                    && nodes.equals(other.nodes) && relation.equals(other.relation) && directed == other.directed;
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return 117 * nodes.hashCode() ^ relation.hashCode() ^ (directed ? 16 : 0);
     }
 
@@ -39,16 +39,20 @@ public class IrContainsSetTernary extends IrAbstractSet {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrContainsSetTernary) {
             IrContainsSetTernary other = (IrContainsSetTernary) obj;
-            return antecedent.equals(other.antecedent) && x == other.x
+            return hashCode() == other.hashCode()
+                    && antecedent.equals(other.antecedent) && x == other.x
                     && consequent.equals(other.consequent) && super.equals(other);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return antecedent.hashCode() ^ Integer.hashCode(x) ^ consequent.hashCode();
     }
 
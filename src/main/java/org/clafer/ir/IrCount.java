@@ -33,15 +33,19 @@ public class IrCount extends IrAbstractInt {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrCount) {
             IrCount other = (IrCount) obj;
-            return value == other.value && array.equals(other.array);
+            return hashCode() == other.hashCode()
+                    && value == other.value && array.equals(other.array);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return value ^ array.hashCode();
     }
 
@@ -38,15 +38,19 @@ public class IrDiv extends IrAbstractInt {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrDiv) {
             IrDiv other = (IrDiv) obj;
-            return dividend.equals(other.dividend) && divisor.equals(other.divisor);
+            return hashCode() == other.hashCode()
+                    && dividend.equals(other.dividend) && divisor.equals(other.divisor);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return dividend.hashCode() ^ divisor.hashCode();
     }
 
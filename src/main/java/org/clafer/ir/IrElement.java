@@ -34,15 +34,19 @@ public class IrElement extends IrAbstractInt {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrElement) {
             IrElement other = (IrElement) obj;
-            return array.equals(other.array) && index.equals(other.index);
+            return hashCode() == other.hashCode()
+                    && array.equals(other.array) && index.equals(other.index);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return array.hashCode() ^ index.hashCode();
     }
 
@@ -47,15 +47,19 @@ public class IrIfOnlyIf extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrIfOnlyIf) {
             IrIfOnlyIf other = (IrIfOnlyIf) obj;
-            return left.equals(other.left) && right.equals(other.right) && super.equals(other);
+            return hashCode() == other.hashCode()
+                    && left.equals(other.left) && right.equals(other.right) && super.equals(other);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return left.hashCode() ^ right.hashCode();
     }
 
@@ -54,9 +54,13 @@ public class IrIfThenElse extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrIfThenElse) {
             IrIfThenElse other = (IrIfThenElse) obj;
-            return antecedent.equals(other.antecedent)
+            return hashCode() == other.hashCode()
+                    && antecedent.equals(other.antecedent)
                     && consequent.equals(other.consequent)
                     && alternative.equals(other.alternative)
                     && super.equals(other);
@@ -65,7 +69,7 @@ public class IrIfThenElse extends IrAbstractBool {
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return antecedent.hashCode() ^ consequent.hashCode() ^ alternative.hashCode();
     }
 
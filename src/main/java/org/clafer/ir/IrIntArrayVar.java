@@ -47,7 +47,7 @@ public class IrIntArrayVar extends IrAbstractIntArray {
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return Arrays.hashCode(array);
     }
 
@@ -49,15 +49,19 @@ public class IrIntChannel extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrIntChannel) {
             IrIntChannel other = (IrIntChannel) obj;
-            return Arrays.equals(ints, other.ints) && Arrays.equals(sets, other.sets) && super.equals(other);
+            return hashCode() == other.hashCode()
+                    && Arrays.equals(ints, other.ints) && Arrays.equals(sets, other.sets) && super.equals(other);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return Arrays.hashCode(ints) ^ Arrays.hashCode(sets);
     }
 
@@ -46,7 +46,7 @@ public class IrIntVar extends IrAbstractInt implements IrVar {
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return name.hashCode();
     }
 
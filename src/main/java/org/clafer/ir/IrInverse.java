@@ -27,15 +27,19 @@ public class IrInverse extends IrAbstractSetArray {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrInverse) {
             IrInverse other = (IrInverse) obj;
-            return relation.equals(other.relation);
+            return hashCode() == other.hashCode()
+                    && relation.equals(other.relation);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return ~relation.hashCode();
     }
 
@@ -44,15 +44,19 @@ public class IrJoinFunction extends IrAbstractSet {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrJoinFunction) {
             IrJoinFunction other = (IrJoinFunction) obj;
-            return take.equals(other.take) && refs.equals(other.refs) && Util.equals(globalCardinality, other.globalCardinality) && super.equals(other);
+            return hashCode() == other.hashCode()
+                    && take.equals(other.take) && refs.equals(other.refs) && Util.equals(globalCardinality, other.globalCardinality) && super.equals(other);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return take.hashCode() ^ refs.hashCode() ^ Util.hashCode(globalCardinality);
     }
 
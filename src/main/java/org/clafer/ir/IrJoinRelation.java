@@ -39,15 +39,19 @@ public class IrJoinRelation extends IrAbstractSet {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrJoinRelation) {
             IrJoinRelation other = (IrJoinRelation) obj;
-            return take.equals(other.take) && children.equals(other.children) && injective == other.injective;
+            return hashCode() == other.hashCode()
+                    && take.equals(other.take) && children.equals(other.children) && injective == other.injective;
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return take.hashCode() ^ children.hashCode() ^ (isInjective() ? 1 : 0);
     }
 
@@ -27,15 +27,19 @@ public class IrLength extends IrAbstractInt {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrLength) {
             IrLength other = (IrLength) obj;
-            return string.equals(other.string) ;
+            return hashCode() == other.hashCode()
+                    && string.equals(other.string) ;
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return 41 * string.hashCode();
     }
 
@@ -44,15 +44,19 @@ public class IrLone extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrLone) {
             IrLone other = (IrLone) obj;
-            return Arrays.equals(operands, other.operands) && super.equals(other);
+            return hashCode() == other.hashCode()
+                    && Arrays.equals(operands, other.operands) && super.equals(other);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return 15 * Arrays.hashCode(operands);
     }
 
@@ -44,15 +44,19 @@ public class IrMask extends IrAbstractSet {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrMask) {
             IrMask other = (IrMask) obj;
-            return set.equals(other.set) & from == other.from && to == other.to && super.equals(other);
+            return hashCode() == other.hashCode()
+                    && set.equals(other.set) & from == other.from && to == other.to && super.equals(other);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return set.hashCode() ^ from ^ to;
     }
 
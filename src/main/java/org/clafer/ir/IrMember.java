@@ -48,15 +48,19 @@ public class IrMember extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrMember) {
             IrMember other = (IrMember) obj;
-            return element.equals(other.element) && set.equals(other.set);
+            return hashCode() == other.hashCode()
+                    && element.equals(other.element) && set.equals(other.set);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return element.hashCode() ^ set.hashCode();
     }
 
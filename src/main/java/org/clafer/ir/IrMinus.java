@@ -27,15 +27,19 @@ public class IrMinus extends IrAbstractInt {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrMinus) {
             IrMinus other = (IrMinus) obj;
-            return expr.equals(other.expr) && super.equals(other);
+            return hashCode() == other.hashCode()
+                    && expr.equals(other.expr) && super.equals(other);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return ~expr.hashCode();
     }
 
@@ -51,16 +51,20 @@ public class IrMul extends IrAbstractInt {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrMul) {
             IrMul other = (IrMul) obj;
-            return multiplicand.equals(other.multiplicand) && multiplier.equals(other.multiplier)
+            return hashCode() == other.hashCode()
+                    && multiplicand.equals(other.multiplicand) && multiplier.equals(other.multiplier)
                     && intRange.equals(other.intRange);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return multiplicand.hashCode() ^ multiplier.hashCode() ^ intRange.hashCode();
     }
 
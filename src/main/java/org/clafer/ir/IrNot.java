@@ -42,15 +42,19 @@ public class IrNot extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrNot) {
             IrNot other = (IrNot) obj;
-            return expr.equals(other.expr) && super.equals(other);
+            return hashCode() == other.hashCode()
+                    && expr.equals(other.expr) && super.equals(other);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return ~expr.hashCode();
     }
 
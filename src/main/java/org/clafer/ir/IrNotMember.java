@@ -48,15 +48,19 @@ public class IrNotMember extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrNotMember) {
             IrNotMember other = (IrNotMember) obj;
-            return element.equals(other.element) && set.equals(other.set) && super.equals(other);
+            return hashCode() == other.hashCode()
+                    && element.equals(other.element) && set.equals(other.set) && super.equals(other);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return ~(element.hashCode() ^ set.hashCode());
     }
 
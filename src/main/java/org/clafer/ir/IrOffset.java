@@ -34,15 +34,19 @@ public class IrOffset extends IrAbstractSet {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrOffset) {
             IrOffset other = (IrOffset) obj;
-            return set.equals(other.set) & offset == other.offset && super.equals(other);
+            return hashCode() == other.hashCode()
+                    && set.equals(other.set) & offset == other.offset && super.equals(other);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return set.hashCode() ^ offset;
     }
 
@@ -44,15 +44,19 @@ public class IrOne extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrOne) {
             IrOne other = (IrOne) obj;
-            return Arrays.equals(operands, other.operands) && super.equals(other);
+            return hashCode() == other.hashCode()
+                    && Arrays.equals(operands, other.operands) && super.equals(other);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return 31 * Arrays.hashCode(operands);
     }
 
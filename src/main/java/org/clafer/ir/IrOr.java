@@ -48,15 +48,19 @@ public class IrOr extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrOr) {
             IrOr other = (IrOr) obj;
-            return Arrays.equals(operands, other.operands) && super.equals(other);
+            return hashCode() == other.hashCode()
+                    && Arrays.equals(operands, other.operands) && super.equals(other);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return 3 * Arrays.hashCode(operands);
     }
 
@@ -48,15 +48,19 @@ public class IrPrefix extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrPrefix) {
             IrPrefix other = (IrPrefix) obj;
-            return prefix.equals(other.prefix) && word.equals(other.word);
+            return hashCode() == other.hashCode()
+                    && prefix.equals(other.prefix) && word.equals(other.word);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return prefix.hashCode() ^ word.hashCode();
     }
 
@@ -43,15 +43,19 @@ public class IrRegister extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrRegister) {
             IrRegister other = (IrRegister) obj;
-            return variable.equals(other.variable);
+            return hashCode() == other.hashCode()
+                    && variable.equals(other.variable);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return 973 ^ variable.hashCode();
     }
 
@@ -49,15 +49,19 @@ public class IrSelectN extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSelectN) {
             IrSelectN other = (IrSelectN) obj;
-            return Arrays.equals(bools, other.bools) && n.equals(other.n);
+            return hashCode() == other.hashCode()
+                    && Arrays.equals(bools, other.bools) && n.equals(other.n);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return Arrays.hashCode(bools) ^ n.hashCode();
     }
 
@@ -63,7 +63,7 @@ public class IrSetArrayVar extends IrAbstractSetArray {
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return Arrays.hashCode(array);
     }
 
@@ -33,15 +33,19 @@ public class IrSetDifference extends IrAbstractSet {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSetDifference) {
             IrSetDifference other = (IrSetDifference) obj;
-            return minuend.equals(other.minuend) && subtrahend.equals(other.subtrahend) && super.equals(other);
+            return hashCode() == other.hashCode()
+                    && minuend.equals(other.minuend) && subtrahend.equals(other.subtrahend) && super.equals(other);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return 7 * minuend.hashCode() * subtrahend.hashCode();
     }
 
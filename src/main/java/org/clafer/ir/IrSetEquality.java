@@ -54,15 +54,19 @@ public class IrSetEquality extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSetEquality) {
             IrSetEquality other = (IrSetEquality) obj;
-            return left.equals(other.left) && op.equals(other.op) && right.equals(other.right) && super.equals(other);
+            return hashCode() == other.hashCode()
+                    && left.equals(other.left) && op.equals(other.op) && right.equals(other.right) && super.equals(other);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         // op.hashCode() can change between runs which makes the output change
         // every time.
         return left.hashCode() ^ op.ordinal() ^ right.hashCode();
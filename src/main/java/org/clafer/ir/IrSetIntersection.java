@@ -29,15 +29,19 @@ public class IrSetIntersection extends IrAbstractSet {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSetIntersection) {
             IrSetIntersection other = (IrSetIntersection) obj;
-            return Arrays.equals(operands, other.operands) && super.equals(other);
+            return hashCode() == other.hashCode()
+                    && Arrays.equals(operands, other.operands) && super.equals(other);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return 3 * Arrays.hashCode(operands);
     }
 
@@ -34,15 +34,19 @@ public class IrSetMax extends IrAbstractInt {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSetMax) {
             IrSetMax other = (IrSetMax) obj;
-            return set.equals(other.set) && defaultValue == other.defaultValue && super.equals(other);
+            return hashCode() == other.hashCode()
+                    && set.equals(other.set) && defaultValue == other.defaultValue && super.equals(other);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return 93 * set.hashCode() ^ defaultValue;
     }
 
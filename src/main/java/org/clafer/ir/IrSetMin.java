@@ -34,15 +34,19 @@ public class IrSetMin extends IrAbstractInt {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSetMin) {
             IrSetMin other = (IrSetMin) obj;
-            return set.equals(other.set) && defaultValue == other.defaultValue && super.equals(other);
+            return hashCode() == other.hashCode()
+                    && set.equals(other.set) && defaultValue == other.defaultValue && super.equals(other);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return 103 * set.hashCode() ^ defaultValue;
     }
 
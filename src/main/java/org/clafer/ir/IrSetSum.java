@@ -27,15 +27,19 @@ public class IrSetSum extends IrAbstractInt {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSetSum) {
             IrSetSum other = (IrSetSum) obj;
-            return set.equals(other.set);
+            return hashCode() == other.hashCode()
+                    && set.equals(other.set);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return 3 * set.hashCode();
     }
 
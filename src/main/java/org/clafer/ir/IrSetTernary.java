@@ -39,9 +39,13 @@ public class IrSetTernary extends IrAbstractSet {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSetTernary) {
             IrSetTernary other = (IrSetTernary) obj;
-            return antecedent.equals(other.antecedent)
+            return hashCode() == other.hashCode()
+                    && antecedent.equals(other.antecedent)
                     && consequent.equals(other.consequent)
                     && alternative.equals(other.alternative)
                     && super.equals(other);
@@ -50,7 +54,7 @@ public class IrSetTernary extends IrAbstractSet {
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return antecedent.hashCode() ^ consequent.hashCode() ^ alternative.hashCode();
     }
 
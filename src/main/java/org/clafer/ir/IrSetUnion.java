@@ -35,9 +35,13 @@ public class IrSetUnion extends IrAbstractSet {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSetUnion) {
             IrSetUnion other = (IrSetUnion) obj;
-            return Arrays.equals(operands, other.operands)
+            return hashCode() == other.hashCode()
+                    && Arrays.equals(operands, other.operands)
                     && disjoint == other.disjoint
                     && super.equals(other);
         }
@@ -45,7 +49,7 @@ public class IrSetUnion extends IrAbstractSet {
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return Arrays.hashCode(operands) ^ (disjoint ? 1231 : 1237);
     }
 
@@ -51,7 +51,7 @@ public class IrSetVar extends IrAbstractSet implements IrVar {
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return name.hashCode();
     }
 
@@ -31,15 +31,19 @@ public class IrSingleton extends IrAbstractSet {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSingleton) {
             IrSingleton other = (IrSingleton) obj;
-            return value.equals(other.value) && super.equals(other);
+            return hashCode() == other.hashCode()
+                    && value.equals(other.value) && super.equals(other);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return 511 * value.hashCode();
     }
 
@@ -36,15 +36,19 @@ public class IrSingletonFilter extends IrAbstractSet {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSingletonFilter) {
             IrSingletonFilter other = (IrSingletonFilter) obj;
-            return value.equals(other.value) && filter == other.filter && super.equals(other);
+            return hashCode() == other.hashCode()
+                    && value.equals(other.value) && filter == other.filter && super.equals(other);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return 511 * value.hashCode() ^ filter;
     }
 
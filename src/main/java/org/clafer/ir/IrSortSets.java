@@ -52,15 +52,19 @@ public class IrSortSets extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSortSets) {
             IrSortSets other = (IrSortSets) obj;
-            return Arrays.equals(sets, other.sets) && Arrays.equals(bounds, other.bounds);
+            return hashCode() == other.hashCode()
+                    && Arrays.equals(sets, other.sets) && Arrays.equals(bounds, other.bounds);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return Arrays.deepHashCode(sets) ^ Arrays.deepHashCode(bounds);
     }
 
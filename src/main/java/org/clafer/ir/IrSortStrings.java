@@ -49,15 +49,19 @@ public class IrSortStrings extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSortStrings) {
             IrSortStrings other = (IrSortStrings) obj;
-            return Arrays.deepEquals(strings, other.strings) && strict == other.strict;
+            return hashCode() == other.hashCode()
+                    && Arrays.deepEquals(strings, other.strings) && strict == other.strict;
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return Arrays.deepHashCode(strings) ^ (strict ? 1 : 0);
     }
 
@@ -55,9 +55,13 @@ public class IrSortStringsChannel extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSortStringsChannel) {
             IrSortStringsChannel other = (IrSortStringsChannel) obj;
-            return Arrays.deepEquals(strings, other.strings)
+            return hashCode() == other.hashCode()
+                    && Arrays.deepEquals(strings, other.strings)
                     && Arrays.equals(ints, other.ints)
                     && super.equals(other);
         }
@@ -65,7 +69,7 @@ public class IrSortStringsChannel extends IrAbstractBool {
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return Arrays.deepHashCode(strings) ^ Arrays.hashCode(ints);
     }
 
@@ -65,16 +65,20 @@ public class IrStringCompare extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrStringCompare) {
             IrStringCompare other = (IrStringCompare) obj;
-            return left.equals(other.left) && op.equals(other.op)
+            return hashCode() == other.hashCode()
+                    && left.equals(other.left) && op.equals(other.op)
                     && right.equals(other.right) && super.equals(other);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         // op.hashCode() can change between runs which makes the output change
         // every time.
         return left.hashCode() ^ op.ordinal() ^ right.hashCode();
@@ -36,15 +36,19 @@ public class IrStringElement extends IrAbstractString {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrStringElement) {
             IrStringElement other = (IrStringElement) obj;
-            return Arrays.equals(array, other.array) && index.equals(other.index);
+            return hashCode() == other.hashCode()
+                    && Arrays.equals(array, other.array) && index.equals(other.index);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return Arrays.hashCode(array) ^ index.hashCode();
     }
 
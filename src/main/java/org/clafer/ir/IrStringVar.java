@@ -60,7 +60,7 @@ public class IrStringVar extends IrAbstractString implements IrVar {
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return Arrays.hashCode(chars) ^ length.hashCode();
     }
 
@@ -37,15 +37,19 @@ public class IrSubarray extends IrAbstractIntArray {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSubarray) {
             IrSubarray other = (IrSubarray) obj;
-            return array.equals(other.array) && index.equals(other.index) && sublength.equals(other.sublength);
+            return hashCode() == other.hashCode()
+                    && array.equals(other.array) && index.equals(other.index) && sublength.equals(other.sublength);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return array.hashCode() ^ index.hashCode() ^ sublength.hashCode();
     }
 
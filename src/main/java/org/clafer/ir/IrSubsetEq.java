@@ -47,15 +47,19 @@ public class IrSubsetEq extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSubsetEq) {
             IrSubsetEq other = (IrSubsetEq) obj;
-            return subset.equals(other.subset) && superset.equals(other.superset) && super.equals(other);
+            return hashCode() == other.hashCode()
+                    && subset.equals(other.subset) && superset.equals(other.superset) && super.equals(other);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return subset.hashCode() ^ superset.hashCode();
     }
 
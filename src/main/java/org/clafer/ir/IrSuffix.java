@@ -48,15 +48,19 @@ public class IrSuffix extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSuffix) {
             IrSuffix other = (IrSuffix) obj;
-            return suffix.equals(other.suffix) && word.equals(other.word);
+            return hashCode() == other.hashCode()
+                    && suffix.equals(other.suffix) && word.equals(other.word);
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return suffix.hashCode() ^ word.hashCode();
     }
 
@@ -32,15 +32,19 @@ public class IrTransitiveClosure extends IrAbstractSetArray {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrTransitiveClosure) {
             IrTransitiveClosure other = (IrTransitiveClosure) obj;
-            return relation.equals(other.relation) && reflexive == other.reflexive;
+            return hashCode() == other.hashCode()
+                    && relation.equals(other.relation) && reflexive == other.reflexive;
         }
         return false;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return 51 * relation.hashCode() ^ (reflexive ? 16 : 0);
     }
 
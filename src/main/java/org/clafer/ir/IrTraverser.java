@@ -94,6 +94,7 @@ public abstract class IrTraverser<T>
 
     @Override
     public Void visit(IrNot ir, T a) {
+        traverse(ir.getExpr(), a);
         return null;
     }
 
@@ -208,6 +209,7 @@ public abstract class IrTraverser<T>
     @Override
     public Void visit(IrSortSets ir, T a) {
         traverse(ir.getSets(), a);
+        traverse(ir.getBounds(), a);
         return null;
     }
 
@@ -488,6 +490,7 @@ public abstract class IrTraverser<T>
 
     @Override
     public Void visit(IrConnected ir, T a) {
+        traverse(ir.getNodes(), a);
         traverse(ir.getRelation(), a);
         return null;
     }
@@ -54,9 +54,13 @@ public class IrUnreachable extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrUnreachable) {
             IrUnreachable other = (IrUnreachable) obj;
-            return Arrays.equals(edges, other.edges)
+            return hashCode() == other.hashCode()
+                    && Arrays.equals(edges, other.edges)
                     && from == other.from && to == other.to
                     && super.equals(other);
         }
@@ -64,7 +68,7 @@ public class IrUnreachable extends IrAbstractBool {
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeImpl() {
         return 17 * Arrays.hashCode(edges);
     }
 
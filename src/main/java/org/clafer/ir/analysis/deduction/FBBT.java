@@ -1,10 +1,20 @@
 package org.clafer.ir.analysis.deduction;
 
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import org.clafer.collection.Pair;
 import org.clafer.common.UnsatisfiableException;
 import org.clafer.domain.Domain;
@@ -52,6 +62,7 @@ import org.clafer.ir.IrStringCompare;
 import org.clafer.ir.IrStringVar;
 import org.clafer.ir.IrSubsetEq;
 import org.clafer.ir.IrTernary;
+import org.clafer.ir.IrUtil;
 import org.clafer.ir.IrVar;
 
 /**
@@ -64,6 +75,15 @@ import org.clafer.ir.IrVar;
  */
 public class FBBT {
 
+    /**
+     * The maximum number of rounds of coalescing for each case of a probe.
+     */
+    private static final int MaxProbeEffort = 16;
+    /**
+     * The maximum number of times a boolean is probed.
+     */
+    private static final int MaxProbeRounds = 3;
+
     private final Map<Class<?>, BoolDeducer<?>> boolDeducers;
     private final Map<Class<?>, IntDeducer<?>> intDeducers;
     private final Map<Class<?>, SetDeducer<?>> setDeducers;
@@ -128,7 +148,11 @@ public class FBBT {
         }
     }
 
-    private Coalesce propagate(Deduction deduction, State state) {
+    /**
+     * @param effort the maximum number of rounds of coalescing, stopping early
+     * only loses deductions
+     */
+    private Coalesce propagate(Deduction deduction, State state, int effort) {
         try {
             Coalesce coalesce = deduction.apply(state.setVars, state.stringVars);
 
@@ -140,7 +164,7 @@ public class FBBT {
             state.apply(coalesce, changed);
 
             Coalesce cur = coalesce;
-            while (!cur.isEmpty()) {
+            for (int round = 1; round < effort && !cur.isEmpty(); round++) {
                 cur = propagateImpl(state, changed);
                 coalesce = coalesce.compose(cur);
             }
@@ -176,20 +200,94 @@ public class FBBT {
 
         assert deduction.checkInvariants();
 
+        State state = new State(module);
+        state.index();
+        try {
+            constructiveDisjunction(case1, case2, deduction, state, Integer.MAX_VALUE).accept(deduction);
+        } catch (IllegalIntException | IllegalSetException | IllegalStringException e) {
+            throw new UnsatisfiableException(e);
+        }
+        Coalesce coalesce = propagate(deduction, state, Integer.MAX_VALUE);
+        return new Pair<>(coalesce, state.toModule());
+    }
+
+    /**
+     * Probe every boolean with constructive disjunction. Every probe in a round
+     * starts from the same deduction over the module and runs on its own
+     * thread. The deductions of the probes are then combined, since each one
+     * holds for the module regardless of the others. A boolean is probed again
+     * in the next round only if a constraint it occurs in was rewritten.
+     *
+     * @param bools the booleans to probe
+     * @param module the module
+     * @return the coalesced variables and the module
+     */
+    public Pair<Coalesce, IrModule> probe(Collection<IrBoolVar> bools, IrModule module) {
+        Coalesce coalesce = new Coalesce();
+        Set<IrBoolVar> pending = new LinkedHashSet<>();
+        for (IrBoolVar bool : bools) {
+            if (!bool.isConstant()) {
+                pending.add(bool);
+            }
+        }
+        for (int round = 0; round < MaxProbeRounds && !pending.isEmpty(); round++) {
+            Deduction base = new Deduction(boolDeducers, intDeducers, setDeducers);
+
+            module.getConstraints().forEach(base::tautology);
+
+            assert base.checkInvariants();
+
+            State state = new State(module);
+            state.index();
+            List<Consumer<Deduction>> probes = pending.parallelStream()
+                    .map(bool -> constructiveDisjunction(bool, bool.negate(), base, state, MaxProbeEffort))
+                    .collect(Collectors.toList());
+            Deduction deduction = new Deduction(base);
+            try {
+                probes.forEach(probe -> probe.accept(deduction));
+            } catch (IllegalIntException | IllegalSetException | IllegalStringException e) {
+                throw new UnsatisfiableException(e);
+            }
+            Coalesce cur = propagate(deduction, state, Integer.MAX_VALUE);
+            coalesce = coalesce.compose(cur);
+            module = state.toModule();
+
+            Set<IrBoolVar> next = new LinkedHashSet<>();
+            for (IrBoolVar bool : pending) {
+                IrBoolVar coalesced = cur.get(bool);
+                if (!coalesced.isConstant() && state.isTouched(bool)) {
+                    next.add(coalesced);
+                }
+            }
+            pending = next;
+        }
+        return new Pair<>(coalesce, module);
+    }
+
+    /**
+     * Propagate both cases on their own copies of the deduction and the state.
+     * Neither the deduction nor the state are modified, so several cases can
+     * be propagated at once.
+     *
+     * @return what holds for the module in either case
+     */
+    private Consumer<Deduction> constructiveDisjunction(IrBoolExpr case1, IrBoolExpr case2,
+            Deduction deduction, State state, int effort) {
         try {
             Deduction case1Deduction = new Deduction(deduction);
             case1Deduction.tautology(case1);
-            Coalesce coalesce1 = propagate(case1Deduction, new State(module, case1));
+            Coalesce coalesce1 = propagate(case1Deduction, new State(state, case1), effort);
             try {
                 Deduction case2Deduction = new Deduction(deduction);
                 case2Deduction.tautology(case2);
-                Coalesce coalesce2 = propagate(case2Deduction, new State(module, case2));
+                Coalesce coalesce2 = propagate(case2Deduction, new State(state, case2), effort);
 
+                List<Consumer<Deduction>> deductions = new ArrayList<>();
                 coalesce1.forEachIntVar((key, value1) -> {
                     IrIntVar value2 = coalesce2.get(key);
                     if (value2 != key) {
                         Domain combine = value1.getDomain().union(value2.getDomain());
-                        deduction.within(key, combine);
+                        deductions.add(d -> d.within(key, combine));
                     }
                 });
 
@@ -199,20 +297,20 @@ public class FBBT {
                         Domain combineKer = value1.getKer().intersection(value2.getKer());
                         Domain combineEnv = value1.getEnv().union(value2.getEnv());
                         Domain combineCard = value1.getCard().union(value2.getCard());
-                        deduction.kerContains(key, combineKer);
-                        deduction.envSubsetOf(key, combineEnv);
-                        deduction.cardWithin(key, combineCard);
+                        deductions.add(d -> {
+                            d.kerContains(key, combineKer);
+                            d.envSubsetOf(key, combineEnv);
+                            d.cardWithin(key, combineCard);
+                        });
                     }
                 });
+                return d -> deductions.forEach(x -> x.accept(d));
             } catch (UnsatisfiableException e) {
-                deduction.contradiction(case2);
+                return d -> d.contradiction(case2);
             }
         } catch (UnsatisfiableException e) {
-            deduction.contradiction(case1);
+            return d -> d.contradiction(case1);
         }
-        State state = new State(module);
-        Coalesce coalesce = propagate(deduction, state);
-        return new Pair<>(coalesce, state.toModule());
     }
 
     private static class State {
@@ -221,8 +319,27 @@ public class FBBT {
         int size;
         Set<IrSetVar> setVars = new HashSet<>();
         Set<IrStringVar> stringVars = new HashSet<>();
-        Set<IrSetVar> reuseSetVars = new HashSet<>();
         Set<IrStringVar> reuseStringVars = new HashSet<>();
+        /**
+         * The constraints every variable occurs in. Built on the first
+         * coalesce so that states that never coalesce do not pay for it. A
+         * constraint is identified by its position when the index was built,
+         * since removing a constraint moves the last constraint into its
+         * place. The index can be stale, a variable can map to constraints it
+         * no longer occurs in, which are then rewritten for nothing.
+         */
+        Map<IrVar, TIntList> occurrences = null;
+        /**
+         * The index of the state this state was copied from. Read only, the
+         * occurrences in this state are added to its own index.
+         */
+        Map<IrVar, TIntList> sharedOccurrences = Collections.emptyMap();
+        int[] ids;
+        int[] positions;
+        /**
+         * The constraints rewritten or removed, by id.
+         */
+        final BitSet touched = new BitSet();
 
         State(IrModule module, IrBoolExpr tautology) {
             Collection<IrBoolExpr> c = module.getConstraints();
@@ -249,29 +366,145 @@ public class FBBT {
             this(module, null);
         }
 
+        /**
+         * Copy an indexed state and add a constraint. The index is shared with
+         * the other state, so this costs a copy of the constraints but not a
+         * traversal of them. The other state must be indexed and not yet
+         * applied, so that its ids are its positions.
+         */
+        State(State state, IrBoolExpr tautology) {
+            assert state.occurrences != null && state.sharedOccurrences.isEmpty() && state.touched.isEmpty();
+            this.constraints = Arrays.copyOf(state.constraints, state.size + 1);
+            this.constraints[state.size] = tautology;
+            this.size = constraints.length;
+            this.setVars.addAll(state.setVars);
+            this.stringVars.addAll(state.stringVars);
+            this.occurrences = new HashMap<>();
+            this.sharedOccurrences = state.occurrences;
+            this.ids = new int[size];
+            this.positions = new int[size];
+            for (int i = 0; i < size; i++) {
+                ids[i] = i;
+                positions[i] = i;
+            }
+            index(tautology, state.size);
+        }
+
+        void index() {
+            occurrences = new HashMap<>();
+            ids = new int[size];
+            positions = new int[size];
+            for (int i = 0; i < size; i++) {
+                ids[i] = i;
+                positions[i] = i;
+                index(constraints[i], i);
+            }
+        }
+
+        private void index(IrBoolExpr constraint, int id) {
+            for (IrVar var : IrUtil.getVariables(constraint)) {
+                index(var, id);
+                if (var instanceof IrSetVar) {
+                    index(((IrSetVar) var).getCardVar(), id);
+                } else if (var instanceof IrStringVar) {
+                    IrStringVar string = (IrStringVar) var;
+                    for (IrIntVar c : string.getCharVars()) {
+                        index(c, id);
+                    }
+                    index(string.getLengthVar(), id);
+                }
+            }
+        }
+
+        private void index(IrVar var, int id) {
+            TIntList list = occurrences.get(var);
+            if (list == null) {
+                list = new TIntArrayList(2);
+                occurrences.put(var, list);
+            }
+            list.add(id);
+        }
+
+        private void occurrences(IrVar var, BitSet affected) {
+            occurrences(sharedOccurrences.get(var), affected);
+            occurrences(occurrences.get(var), affected);
+        }
+
+        private void occurrences(TIntList ids, BitSet affected) {
+            if (ids != null) {
+                ids.forEach(id -> {
+                    int position = positions[id];
+                    if (position >= 0) {
+                        affected.set(position);
+                    }
+                    return true;
+                });
+            }
+        }
+
+        /**
+         * @param var the variable
+         * @return whether or not a constraint the variable occurs in was
+         * rewritten or removed
+         */
+        boolean isTouched(IrVar var) {
+            return isTouched(sharedOccurrences.get(var)) || isTouched(occurrences.get(var));
+        }
+
+        private boolean isTouched(TIntList ids) {
+            return ids != null && !ids.forEach(id -> !touched.get(id));
+        }
+
+        /**
+         * Rewrite the constraints that mention a coalesced variable. The rest
+         * of the constraints would be rewritten to themselves.
+         *
+         * @param coalesce the coalesced variables
+         * @param changed the rewritten constraints are added here
+         */
         void apply(Coalesce coalesce, Set<IrBoolExpr> changed) {
-            for (int i = 0; i < size;) {
+            if (occurrences == null) {
+                index();
+            }
+            BitSet affected = new BitSet(size);
+            coalesce.forEachIntVar((key, value) -> occurrences(key, affected));
+            coalesce.forEachSetVar((key, value) -> occurrences(key, affected));
+            int i = affected.nextSetBit(0);
+            while (i >= 0 && i < size) {
                 IrBoolExpr newConstraint = coalesce.rewrite(constraints[i], null);
                 if (newConstraint.getDomain().isFalse()) {
                     throw new UnsatisfiableException();
                 } else if (newConstraint.getDomain().isTrue()) {
+                    touched.set(ids[i]);
                     size--;
+                    positions[ids[i]] = -1;
                     constraints[i] = constraints[size];
                     constraints[size] = null;
-                } else {
-                    if (constraints[i] != newConstraint) {
-                        changed.add(newConstraint);
-                        constraints[i] = newConstraint;
+                    ids[i] = ids[size];
+                    if (i < size) {
+                        positions[ids[i]] = i;
+                        if (affected.get(size)) {
+                            // Rewrite the moved constraint in its new place.
+                            affected.clear(size);
+                            continue;
+                        }
                     }
-                    i++;
+                } else if (constraints[i] != newConstraint) {
+                    touched.set(ids[i]);
+                    changed.add(newConstraint);
+                    constraints[i] = newConstraint;
+                    index(newConstraint, ids[i]);
                 }
+                i = affected.nextSetBit(i + 1);
             }
 
-            setVars.forEach(x -> reuseSetVars.add((IrSetVar) coalesce.rewrite(x, null)));
-            Set<IrSetVar> tempSetVars = setVars;
-            setVars = reuseSetVars;
-            reuseSetVars = tempSetVars;
-            reuseSetVars.clear();
+            List<IrSetVar> coalescedSetVars = new ArrayList<>();
+            coalesce.forEachSetVar((key, value) -> {
+                if (setVars.remove(key)) {
+                    coalescedSetVars.add(value);
+                }
+            });
+            setVars.addAll(coalescedSetVars);
 
             stringVars.forEach(x -> reuseStringVars.add((IrStringVar) coalesce.rewrite(x, null)));
             Set<IrStringVar> tempStringVars = stringVars;
@@ -1,9 +1,11 @@
 package org.clafer.ir.compiler;
 
 import gnu.trove.set.hash.TIntHashSet;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.chocosolver.solver.Model;
@@ -119,12 +121,10 @@ import org.clafer.ir.analysis.deduction.FBBT;
 public class IrCompiler {
 
     private final Model model;
-    private final boolean coalesceVariables;
     private int varNum = 0;
 
-    private IrCompiler(Model model, boolean coalesceVariables) {
+    private IrCompiler(Model model) {
         this.model = Check.notNull(model);
-        this.coalesceVariables = coalesceVariables;
     }
 
     public static IrSolutionMap compile(IrModule in, Model out) {
@@ -132,37 +132,59 @@ public class IrCompiler {
     }
 
     public static IrSolutionMap compile(IrModule in, Model out, boolean coalesceVariables) {
-        IrCompiler compiler = new IrCompiler(out, coalesceVariables);
-        return compiler.compile(in);
-    }
-
-    private IrSolutionMap compile(IrModule module) {
-        IrModule optModule = Optimizer.optimize(module);
+        return compileOptimized(optimize(in, coalesceVariables), out);
+    }
+
+    /**
+     * Optimize the module without compiling it. The result can be compiled any
+     * number of times with {@link #compileOptimized(Pair, Model)}, skipping
+     * the optimizations each time.
+     *
+     * @param in the module
+     * @param coalesceVariables whether or not to coalesce variables
+     * @return the coalesced variables and the optimized module
+     */
+    public static Pair<Coalesce, IrModule> optimize(IrModule in, boolean coalesceVariables) {
+        IrModule optModule = Optimizer.optimize(in);
         Coalesce coalesce = new Coalesce();
         if (coalesceVariables) {
             Pair<Coalesce, IrModule> coalescePair = new FBBT().propagate(optModule);
             coalesce = coalescePair.getFst();
             optModule = coalescePair.getSnd();
 
-            Set<IrVar> processed = new HashSet<>();
+            List<IrBoolVar> bools = new ArrayList<>();
             for (IrExpr expr : optModule.getConstraints()) {
                 if (expr instanceof IrRegister) {
                     IrVar var = ((IrRegister) expr).getVariable();
                     if (var instanceof IrBoolVar) {
-                        IrBoolVar bool = (IrBoolVar) var;
-                        bool = coalesce.get(bool);
-                        if (!bool.isConstant() && processed.add(bool)) {
-                            coalescePair = new FBBT().constructiveDisjunction(bool, bool.negate(), optModule);
-                            coalesce = coalesce.compose(coalescePair.getFst());
-                            optModule = coalescePair.getSnd();
-                        }
+                        bools.add(coalesce.get((IrBoolVar) var));
                     }
                 }
             }
+            coalescePair = new FBBT().probe(bools, optModule);
+            coalesce = coalesce.compose(coalescePair.getFst());
+            optModule = coalescePair.getSnd();
 
             optModule = DuplicateConstraints.removeDuplicates(optModule);
         }
         optModule = LinearEquationOptimizer.optimize(optModule);
+        return new Pair<>(coalesce, optModule);
+    }
+
+    /**
+     * Compile a module previously optimized by
+     * {@link #optimize(IrModule, boolean)}.
+     *
+     * @param in the coalesced variables and the optimized module
+     * @param out the Choco model to compile to
+     * @return the mapping from the IR variables to the Choco variables
+     */
+    public static IrSolutionMap compileOptimized(Pair<Coalesce, IrModule> in, Model out) {
+        IrCompiler compiler = new IrCompiler(out);
+        return compiler.compile(in.getFst(), in.getSnd());
+    }
+
+    private IrSolutionMap compile(Coalesce coalesce, IrModule optModule) {
         commonSubexpressions.addAll(CommonSubexpression.findCommonSubexpressions(optModule));
 
         for (IrBoolExpr constraint : optModule.getConstraints()) {
@@ -986,9 +1008,13 @@ public class IrCompiler {
                             string1.getChars(), string1.getLength(),
                             string2.getChars(), string2.getLength());
                 case LessThan:
-                    return Constraints.lessThan(string1.getChars(), string2.getChars());
+                    return Constraints.lessThan(
+                            string1.getChars(), string1.getLength(),
+                            string2.getChars(), string2.getLength());
                 case LessThanEqual:
-                    return Constraints.lessThanEqual(string1.getChars(), string2.getChars());
+                    return Constraints.lessThanEqual(
+                            string1.getChars(), string1.getLength(),
+                            string2.getChars(), string2.getLength());
                 default:
                     throw new IllegalArgumentException("Unexpected operator.");
             }
@@ -1076,7 +1102,6 @@ public class IrCompiler {
         public Object visit(IrConnected ir, BoolArg a) {
             SetVar[] relation = compile(ir.getRelation());
             SetVar nodes = compile(ir.getNodes());
-            //TODO handle directed graph in the future
             return Constraints.connected(nodes, relation, ir.isDirected());
         }
 
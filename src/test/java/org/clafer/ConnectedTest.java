@@ -0,0 +1,112 @@
+package org.clafer;
+
+import org.clafer.ast.AstBoolExpr;
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstLocal;
+import org.clafer.ast.AstModel;
+import org.clafer.ast.AstSetExpr;
+import static org.clafer.ast.Asts.Mandatory;
+import static org.clafer.ast.Asts.all;
+import static org.clafer.ast.Asts.connected;
+import static org.clafer.ast.Asts.connectedDirected;
+import static org.clafer.ast.Asts.decl;
+import static org.clafer.ast.Asts.global;
+import static org.clafer.ast.Asts.in;
+import static org.clafer.ast.Asts.inverse;
+import static org.clafer.ast.Asts.join;
+import static org.clafer.ast.Asts.joinRef;
+import static org.clafer.ast.Asts.local;
+import static org.clafer.ast.Asts.newModel;
+import static org.clafer.ast.Asts.ref;
+import static org.clafer.ast.Asts.relation;
+import static org.clafer.ast.Asts.transitiveClosure;
+import static org.clafer.ast.Asts.transitiveReflexiveClosure;
+import static org.clafer.ast.Asts.union;
+import org.clafer.compiler.ClaferCompiler;
+import org.clafer.compiler.ClaferSolver;
+import org.clafer.scope.Scope;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ConnectedTest {
+
+    /**
+     * <pre>
+     * Node 4
+     *     Edge -> Node ?
+     * [ connected(Node, Node -> Edge . Edge -> ref) ]
+     * </pre>
+     *
+     * or the same constraint written with the closure
+     *
+     * <pre>
+     * [ all n : Node | Node in n.(Node -> Edge . Edge -> ref)+ ]
+     * </pre>
+     *
+     * if directed, otherwise with the reflexive closure of the edges in both
+     * directions.
+     */
+    private static ClaferSolver cycle(boolean directed, boolean closure) {
+        AstModel model = newModel();
+
+        AstConcreteClafer node = model.addChild("Node").withCard(4, 4);
+        AstConcreteClafer edge = node.addChild("Edge").refToUnique(node).withCard(0, 1);
+        model.addConstraint(connectedConstraint(global(node), join(relation(edge), ref(edge)), directed, closure));
+
+        return ClaferCompiler.compile(model, Scope.defaultScope(4));
+    }
+
+    /**
+     * <pre>
+     * Node *
+     *     Edge -> Node *
+     * Root -> Node
+     * [ connected(Root.ref ++ Root.ref.(Node -> Edge . Edge -> ref), Node -> Edge . Edge -> ref) ]
+     * </pre>
+     */
+    private static ClaferSolver neighbours(boolean directed, boolean closure) {
+        AstModel model = newModel();
+
+        AstConcreteClafer node = model.addChild("Node");
+        AstConcreteClafer edge = node.addChild("Edge").refToUnique(node);
+        AstConcreteClafer root = model.addChild("Root").refToUnique(node).withCard(Mandatory);
+        AstSetExpr edges = join(relation(edge), ref(edge));
+        model.addConstraint(connectedConstraint(union(joinRef(global(root)), join(joinRef(global(root)), edges)),
+                edges, directed, closure));
+
+        return ClaferCompiler.compile(model, Scope.defaultScope(3));
+    }
+
+    private static AstBoolExpr connectedConstraint(AstSetExpr nodes, AstSetExpr edges, boolean directed, boolean closure) {
+        if (closure) {
+            AstLocal n = local("n");
+            return directed
+                    ? all(decl(n, nodes), in(nodes, join(n, transitiveClosure(edges))))
+                    : all(decl(n, nodes), in(nodes, join(n, transitiveReflexiveClosure(union(edges, inverse(edges))))));
+        }
+        return directed ? connectedDirected(nodes, edges) : connected(nodes, edges);
+    }
+
+    private static void testConnected(boolean directed) {
+        ClaferSolver connected = cycle(directed, false);
+        ClaferSolver closure = cycle(directed, true);
+        assertEquals(closure.allInstances().length, connected.allInstances().length);
+        // Prunes more than the closure.
+        assertTrue(connected.getInternalSolver().getFailCount()
+                < closure.getInternalSolver().getFailCount());
+
+        assertEquals(neighbours(directed, true).allInstances().length,
+                neighbours(directed, false).allInstances().length);
+    }
+
+    @Test(timeout = 60000)
+    public void testConnected() {
+        testConnected(false);
+    }
+
+    @Test(timeout = 60000)
+    public void testConnectedDirected() {
+        testConnected(true);
+    }
+}
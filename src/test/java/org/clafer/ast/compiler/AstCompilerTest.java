@@ -0,0 +1,49 @@
+package org.clafer.ast.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import org.clafer.ir.IrModule;
+import org.clafer.javascript.Javascript;
+import org.clafer.javascript.JavascriptFile;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class AstCompilerTest {
+
+    @Parameter
+    public File testFile;
+
+    @Parameters(name = "{0}")
+    public static List<File[]> testFiles() throws URISyntaxException {
+        List<File[]> files = new ArrayList<>();
+        for (File file : new File(AstCompilerTest.class.getResource("/solve-positive").toURI()).listFiles()) {
+            files.add(new File[]{file});
+        }
+        return files;
+    }
+
+    @Test
+    public void testParallelExpansionIsDeterministic() throws IOException {
+        JavascriptFile p = Javascript.readModel(testFile);
+
+        IrModule serial = new IrModule();
+        AstCompiler.compile(p.getModel(), p.getScope(), p.getObjectives(), serial,
+                AstCompiler.DefaultAnalyzers, true, false);
+        IrModule parallel = new IrModule();
+        AstCompiler.compile(p.getModel(), p.getScope(), p.getObjectives(), parallel,
+                AstCompiler.DefaultAnalyzers, true, true);
+
+        assertEquals(serial.getConstraints().size(), parallel.getConstraints().size());
+        for (int i = 0; i < serial.getConstraints().size(); i++) {
+            assertEquals(serial.getConstraints().get(i).toString(), parallel.getConstraints().get(i).toString());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.clafer.choco.constraint;
+
+import gnu.trove.iterator.TIntIterator;
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.variables.SetVar;
+import static org.chocosolver.solver.variables.Var.env;
+import static org.chocosolver.solver.variables.Var.ker;
+import static org.clafer.choco.constraint.ConstraintQuickTest.$;
+import org.clafer.choco.constraint.ConstraintQuickTest.Check;
+import org.clafer.choco.constraint.ConstraintQuickTest.Input;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(ConstraintQuickTest.class)
+public class ConnectedTest {
+
+    @Input(solutions = 3848)
+    public Object testConnected(Model model) {
+        /*
+         * import Control.Monad
+         * import Data.List
+         *
+         * powerset = filterM (const [True, False])
+         *
+         * reach edges i = go [i] [i]
+         *     where
+         *         neighbours j = nub $ (edges !! j) ++ [k | k <- [0..2], j `elem` edges !! k]
+         *         go seen [] = seen
+         *         go seen (j:js) = let new = neighbours j \\ seen in go (seen ++ new) (new ++ js)
+         *
+         * solutions = do
+         *     nodes <- powerset [0..2]
+         *     edges <- replicateM 3 $ powerset [0..2]
+         *     guard $ and [j `elem` reach edges i | i <- nodes, j <- nodes]
+         *     return (nodes, edges)
+         */
+        return $(model.setVar("nodes", ker(), env(0, 1, 2)),
+                model.setVarArray("edges", 3, ker(), env(0, 1, 2)),
+                false);
+    }
+
+    @Input(solutions = 2408)
+    public Object testStronglyConnected(Model model) {
+        /*
+         * import Control.Monad
+         * import Data.List
+         *
+         * powerset = filterM (const [True, False])
+         *
+         * reach edges i = go (edges !! i) (edges !! i)
+         *     where
+         *         go seen [] = seen
+         *         go seen (j:js) = let new = (edges !! j) \\ seen in go (seen ++ new) (new ++ js)
+         *
+         * solutions = do
+         *     nodes <- powerset [0..2]
+         *     edges <- replicateM 3 $ powerset [0..2]
+         *     guard $ and [j `elem` reach edges i | i <- nodes, j <- nodes]
+         *     return (nodes, edges)
+         */
+        return $(model.setVar("nodes", ker(), env(0, 1, 2)),
+                model.setVarArray("edges", 3, ker(), env(0, 1, 2)),
+                true);
+    }
+
+    private static TIntSet reach(int[][] edges, int from, boolean directed) {
+        TIntSet seen = new TIntHashSet();
+        if (directed) {
+            // Only reaches itself through a cycle.
+            for (int j : edges[from]) {
+                if (j >= 0 && j < edges.length) {
+                    seen.add(j);
+                }
+            }
+        } else {
+            seen.add(from);
+        }
+        boolean changed;
+        do {
+            changed = false;
+            for (int i = 0; i < edges.length; i++) {
+                for (int j : edges[i]) {
+                    if (j >= 0 && j < edges.length) {
+                        if (seen.contains(i)) {
+                            changed |= seen.add(j);
+                        }
+                        if (!directed && seen.contains(j)) {
+                            changed |= seen.add(i);
+                        }
+                    }
+                }
+            }
+        } while (changed);
+        return seen;
+    }
+
+    @Check
+    public void check(TIntSet nodes, int[][] edges, boolean directed) {
+        TIntIterator iter = nodes.iterator();
+        while (iter.hasNext()) {
+            int node = iter.next();
+            assertTrue(node >= 0 && node < edges.length);
+            assertTrue(reach(edges, node, directed).containsAll(nodes));
+        }
+    }
+
+    @Test(timeout = 60000)
+    public Constraint setup(SetVar nodes, SetVar[] edges, boolean directed) {
+        return Constraints.connected(nodes, edges, directed);
+    }
+}
@@ -0,0 +1,43 @@
+package org.clafer.choco.constraint;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.variables.CStringVar;
+import static org.chocosolver.solver.variables.Var.chars;
+import static org.chocosolver.solver.variables.Var.cstring;
+import static org.clafer.choco.constraint.ConstraintQuickTest.$;
+import org.clafer.choco.constraint.ConstraintQuickTest.Check;
+import org.clafer.choco.constraint.ConstraintQuickTest.Input;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(ConstraintQuickTest.class)
+public class StringEqualTest {
+
+    @Input(solutions = 13)
+    public Object testStringEqual(Model model) {
+        /*
+         * import Control.Monad
+         *
+         * solutions = do
+         *     length <- [0..2]
+         *     string <- replicateM length ['a', 'b', 'c']
+         *     return (string, string)
+         */
+        return $(cstring("string1", chars(0, 1, 2, 3), 3, model),
+                cstring("string2", chars(0, 1, 2, 3), 2, model));
+    }
+
+    @Check
+    public void check(String string1, String string2) {
+        assertEquals(string1, string2);
+    }
+
+    @Test(timeout = 60000)
+    public Constraint setup(CStringVar string1, CStringVar string2) {
+        return Constraints.equal(
+                string1.getChars(), string1.getLength(),
+                string2.getChars(), string2.getLength());
+    }
+}
@@ -0,0 +1,46 @@
+package org.clafer.choco.constraint;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.variables.CStringVar;
+import static org.chocosolver.solver.variables.Var.chars;
+import static org.chocosolver.solver.variables.Var.cstring;
+import static org.clafer.choco.constraint.ConstraintQuickTest.$;
+import org.clafer.choco.constraint.ConstraintQuickTest.Check;
+import org.clafer.choco.constraint.ConstraintQuickTest.Input;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(ConstraintQuickTest.class)
+public class StringLessThanTest {
+
+    @Input(solutions = 213)
+    public Object testStringLessThan(Model model) {
+        /*
+         * import Control.Monad
+         *
+         * solutions = do
+         *     length1 <- [0..3]
+         *     string1 <- replicateM length1 ['a', 'b', 'c']
+         *     length2 <- [0..2]
+         *     string2 <- replicateM length2 ['a', 'b', 'c']
+         *     guard $ string1 < string2
+         *     return (string1, string2)
+         */
+        return $(cstring("string1", chars(0, 1, 2, 3), 3, model),
+                cstring("string2", chars(0, 1, 2, 3), 2, model));
+    }
+
+    @Check
+    public void check(String string1, String string2) {
+        assertTrue(string1.compareTo(string2) < 0);
+    }
+
+    @Test(timeout = 60000)
+    public Constraint setup(CStringVar string1, CStringVar string2) {
+        return Constraints.lessThan(
+                string1.getChars(), string1.getLength(),
+                string2.getChars(), string2.getLength());
+    }
+}
@@ -0,0 +1,133 @@
+package org.clafer.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import org.clafer.assertion.Assertion;
+import org.clafer.ast.AstAbstractClafer;
+import org.clafer.ast.AstModel;
+import static org.clafer.ast.Asts.IntType;
+import static org.clafer.ast.Asts.newModel;
+import org.clafer.compiler.ClaferCompiler;
+import org.clafer.compiler.ClaferOption;
+import org.clafer.compiler.ClaferSolver;
+import org.clafer.instance.InstanceModel;
+import org.clafer.javascript.JavascriptFile;
+import org.clafer.objective.Objective;
+import org.clafer.scope.Scope;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sysml.ast.SysmlPropertyDef;
+import org.sysml.compiler.AstSysmlCompiler;
+import org.sysml.pprinter.SysmlPrinter;
+
+public class SysmlOutputTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * <pre>
+     * abstract SysmlProperty
+     * abstract Part : SysmlProperty
+     * abstract Motor : Part
+     *     power -> int
+     * motor : Motor 1..2
+     * </pre>
+     */
+    private static AstModel model() {
+        AstModel model = newModel();
+
+        AstAbstractClafer property = model.addAbstract("SysmlProperty");
+        AstAbstractClafer part = model.addAbstract("Part").extending(property);
+        AstAbstractClafer motor = model.addAbstract("Motor").extending(part);
+        motor.addChild("power").refToUnique(IntType).withCard(1, 1);
+        model.addChild("motor").extending(motor).withCard(1, 2);
+        return model;
+    }
+
+    /**
+     * How every instance was printed before the definitions were cached.
+     */
+    private static String printPerInstance(AstModel top, InstanceModel instance) throws IOException {
+        StringBuilder out = new StringBuilder();
+        out.append("package Architecture {\n");
+        out.append("    import ScalarValues::*;\n");
+        SysmlPrinter pprinter = new SysmlPrinter(out);
+        AstSysmlCompiler compiler = new AstSysmlCompiler();
+        SysmlPropertyDef[] models = compiler.compile(top, top);
+        for (SysmlPropertyDef model : models) {
+            pprinter.visit(model, "    ");
+        }
+        instance.printSysml(out, "    ");
+        out.append("}\n");
+        return out.toString();
+    }
+
+    private static String printPerInstance(AstModel model, Scope scope, int n) throws IOException {
+        ClaferSolver solver = ClaferCompiler.compile(model, scope);
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < n && solver.find(); i++) {
+            out.append(printPerInstance(model, solver.instance()));
+        }
+        return out.toString();
+    }
+
+    private static OptionSet parse(String... args) {
+        OptionParser parser = new OptionParser();
+        parser.accepts("n").withRequiredArg().ofType(Integer.class);
+        parser.accepts("output").withRequiredArg().ofType(File.class);
+        parser.accepts("stream");
+        parser.accepts("sysml");
+        return parser.parse(args);
+    }
+
+    @Test(timeout = 60000)
+    public void testSameAsPerInstance() throws IOException {
+        AstModel model = model();
+        ClaferSolver solver = ClaferCompiler.compile(model, Scope.defaultScope(2).intLow(0).intHigh(1));
+        SysmlOutput output = new SysmlOutput(model);
+        int index = 0;
+        while (solver.find()) {
+            InstanceModel instance = solver.instance();
+            StringBuilder out = new StringBuilder();
+            output.printInstance(++index, instance, out);
+            assertTrue(out.toString(), out.toString().contains("part def Motor"));
+            assertEquals(printPerInstance(model, instance), out.toString());
+        }
+        // One motor with power 0 or 1, or two motors with powers {0,0}, {0,1} or {1,1}.
+        assertEquals(5, index);
+    }
+
+    @Test(timeout = 60000)
+    public void testNormal() throws Exception {
+        AstModel model = model();
+        JavascriptFile file = new JavascriptFile(model, Scope.defaultScope(2).toScope(),
+                ClaferOption.Default, new Objective[0], new Assertion[0]);
+        OptionSet options = parse("--sysml", "-n", "2");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Normal.runNormal(file, options, new PrintStream(bytes, true, "UTF-8"));
+        assertEquals(printPerInstance(model, Utils.resolveScopes(file, options), 2),
+                new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test(timeout = 60000)
+    public void testNormalStream() throws Exception {
+        AstModel model = model();
+        JavascriptFile file = new JavascriptFile(model, Scope.defaultScope(2).toScope(),
+                ClaferOption.Default, new Objective[0], new Assertion[0]);
+        File output = folder.newFile();
+        OptionSet options = parse("--stream", "--sysml", "-n", "2", "--output", output.getPath());
+        Normal.runNormal(file, options, new PrintStream(new ByteArrayOutputStream()));
+        assertEquals(printPerInstance(model, Utils.resolveScopes(file, options), 2),
+                new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8));
+    }
+}
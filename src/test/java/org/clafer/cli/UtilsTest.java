@@ -0,0 +1,42 @@
+package org.clafer.cli;
+
+import java.io.IOException;
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstModel;
+import static org.clafer.ast.Asts.StringType;
+import static org.clafer.ast.Asts.newModel;
+import org.clafer.instance.InstanceClafer;
+import org.clafer.instance.InstanceModel;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class UtilsTest {
+
+    @Test(timeout = 60000)
+    public void testPrintCompactInstance() throws IOException {
+        AstModel model = newModel();
+        AstConcreteClafer person = model.addChild("Person");
+        AstConcreteClafer name = person.addChild("name").refToUnique(StringType);
+
+        InstanceModel instance = new InstanceModel(
+                new InstanceClafer(person, 0, null, new InstanceClafer(name, 0, "Alice")),
+                new InstanceClafer(person, 1, null, new InstanceClafer(name, 1, "Bob")));
+        StringBuilder out = new StringBuilder();
+        Utils.printCompactInstance(3, instance, out);
+        assertEquals("3: Person { name = \"Alice\" } Person$1 { name$1 = \"Bob\" }"
+                + System.lineSeparator(), out.toString());
+    }
+
+    @Test(timeout = 60000)
+    public void testPrintCompactInstanceEscapesStrings() throws IOException {
+        AstModel model = newModel();
+        AstConcreteClafer name = model.addChild("name").refToUnique(StringType);
+
+        InstanceModel instance = new InstanceModel(
+                new InstanceClafer(name, 0, "a \"b\" {c}\\\nd\te\u0001"));
+        StringBuilder out = new StringBuilder();
+        Utils.printCompactInstance(0, instance, out);
+        assertEquals("0: name = \"a \\\"b\\\" {c}\\\\\\nd\\te\\u0001\""
+                + System.lineSeparator(), out.toString());
+    }
+}
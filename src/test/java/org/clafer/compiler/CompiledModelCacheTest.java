@@ -0,0 +1,216 @@
+package org.clafer.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstModel;
+import static org.clafer.ast.Asts.IntType;
+import static org.clafer.ast.Asts.constant;
+import static org.clafer.ast.Asts.global;
+import static org.clafer.ast.Asts.in;
+import static org.clafer.ast.Asts.joinRef;
+import static org.clafer.ast.Asts.newModel;
+import static org.clafer.ast.Asts.some;
+import org.clafer.instance.InstanceClafer;
+import org.clafer.instance.InstanceModel;
+import org.clafer.javascript.Javascript;
+import org.clafer.javascript.JavascriptFile;
+import org.clafer.objective.Objective;
+import org.clafer.scope.Scope;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class CompiledModelCacheTest {
+
+    /**
+     * <pre>
+     * A *
+     *     B ->> int ?
+     * </pre>
+     */
+    private static AstModel model() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A");
+        a.addChild("B").refTo(IntType).withCard(0, 1);
+        return model;
+    }
+
+    @Test(timeout = 60000)
+    public void testHit() {
+        CompiledModelCache cache = new CompiledModelCache(4);
+        AstModel model = model();
+        Scope scope = Scope.defaultScope(2).intLow(-1).intHigh(1).toScope();
+
+        int count = ClaferCompiler.compile(model, scope).allInstances().length;
+        assertEquals(count, ClaferCompiler.compile(model, scope, ClaferOption.Default, cache).allInstances().length);
+        assertEquals(count, ClaferCompiler.compile(model, scope, ClaferOption.Default, cache).allInstances().length);
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.size());
+    }
+
+    @Test(timeout = 60000)
+    public void testStructurallyEqualModel() {
+        CompiledModelCache cache = new CompiledModelCache(4);
+        Scope scope = Scope.defaultScope(2).intLow(-1).intHigh(1).toScope();
+
+        AstModel model1 = model();
+        AstModel model2 = model();
+        ClaferSolver solver1 = ClaferCompiler.compile(model1, scope, ClaferOption.Default, cache);
+        ClaferSolver solver2 = ClaferCompiler.compile(model2, scope, ClaferOption.Default, cache);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        // The instances refer to the Clafers of the model the caller compiled.
+        InstanceModel[] instances1 = solver1.allInstances();
+        InstanceModel[] instances2 = solver2.allInstances();
+        assertEquals(instances1.length, instances2.length);
+        for (InstanceModel instance : instances2) {
+            for (InstanceClafer top : instance.getTopClafers()) {
+                assertSame(model2.getChildren().get(0), top.getType());
+                for (InstanceClafer child : top.getChildren()) {
+                    assertSame(model2.getChildren().get(0).getChildren().get(0), child.getType());
+                }
+            }
+        }
+    }
+
+    /**
+     * Constants that print the same are still different constraints.
+     *
+     * <pre>
+     * A ->> int *
+     * [A.ref in {0, 1}]
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testConstantsDiffer() {
+        CompiledModelCache cache = new CompiledModelCache(4);
+        Scope scope = Scope.defaultScope(3).intLow(-2).intHigh(2).toScope();
+
+        AstModel model1 = newModel();
+        AstConcreteClafer a1 = model1.addChild("A").refTo(IntType);
+        model1.addConstraint(in(joinRef(global(a1)), constant(IntType, 0, 1)));
+        AstModel model2 = newModel();
+        AstConcreteClafer a2 = model2.addChild("A").refTo(IntType);
+        model2.addConstraint(in(joinRef(global(a2)), constant(IntType, 0, 2)));
+
+        assertEquals(ClaferCompiler.compile(model1, scope).allInstances().length,
+                ClaferCompiler.compile(model1, scope, ClaferOption.Default, cache).allInstances().length);
+        assertEquals(ClaferCompiler.compile(model2, scope).allInstances().length,
+                ClaferCompiler.compile(model2, scope, ClaferOption.Default, cache).allInstances().length);
+        assertEquals(0, cache.getHits());
+    }
+
+    /**
+     * A compiled model is never reused after the model is modified.
+     */
+    @Test(timeout = 60000)
+    public void testModifiedModel() {
+        CompiledModelCache cache = new CompiledModelCache(4);
+        Scope scope = Scope.defaultScope(2).intLow(-1).intHigh(1).toScope();
+        AstModel model = model();
+        AstConcreteClafer a = model.getChildren().get(0);
+
+        ClaferCompiler.compile(model, scope, ClaferOption.Default, cache);
+        model.addConstraint(some(global(a)));
+        assertEquals(ClaferCompiler.compile(model, scope).allInstances().length,
+                ClaferCompiler.compile(model, scope, ClaferOption.Default, cache).allInstances().length);
+        a.withCard(1, 1);
+        assertEquals(ClaferCompiler.compile(model, scope).allInstances().length,
+                ClaferCompiler.compile(model, scope, ClaferOption.Default, cache).allInstances().length);
+        AstConcreteClafer c = a.addChild("C").withCard(0, 1);
+        assertEquals(ClaferCompiler.compile(model, scope).allInstances().length,
+                ClaferCompiler.compile(model, scope, ClaferOption.Default, cache).allInstances().length);
+        c.refTo(IntType);
+        assertEquals(ClaferCompiler.compile(model, scope).allInstances().length,
+                ClaferCompiler.compile(model, scope, ClaferOption.Default, cache).allInstances().length);
+        assertEquals(0, cache.getHits());
+        assertEquals(5, cache.getMisses());
+
+        ClaferCompiler.compile(model, scope, ClaferOption.Default, cache);
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test(timeout = 60000)
+    public void testMiss() {
+        CompiledModelCache cache = new CompiledModelCache(4);
+        AstModel model = model();
+
+        int count2 = ClaferCompiler.compile(model, Scope.defaultScope(2), ClaferOption.Default, cache).allInstances().length;
+        int count3 = ClaferCompiler.compile(model, Scope.defaultScope(3), ClaferOption.Default, cache).allInstances().length;
+        ClaferCompiler.compile(model, Scope.defaultScope(3), ClaferOption.Default.basicOptimizations(), cache);
+        assertEquals(0, cache.getHits());
+        assertEquals(3, cache.getMisses());
+        assertEquals(count2, ClaferCompiler.compile(model, Scope.defaultScope(2), ClaferOption.Default, cache).allInstances().length);
+        assertEquals(count3, ClaferCompiler.compile(model, Scope.defaultScope(3), ClaferOption.Default, cache).allInstances().length);
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test(timeout = 60000)
+    public void testEvictLeastRecentlyUsed() {
+        CompiledModelCache cache = new CompiledModelCache(2);
+        AstModel model = model();
+
+        ClaferCompiler.compile(model, Scope.defaultScope(1), ClaferOption.Default, cache);
+        ClaferCompiler.compile(model, Scope.defaultScope(2), ClaferOption.Default, cache);
+        ClaferCompiler.compile(model, Scope.defaultScope(1), ClaferOption.Default, cache);
+        ClaferCompiler.compile(model, Scope.defaultScope(3), ClaferOption.Default, cache);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getHits());
+        ClaferCompiler.compile(model, Scope.defaultScope(1), ClaferOption.Default, cache);
+        assertEquals(2, cache.getHits());
+        ClaferCompiler.compile(model, Scope.defaultScope(2), ClaferOption.Default, cache);
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test(timeout = 60000)
+    public void testReloadOptimization() throws IOException, URISyntaxException {
+        CompiledModelCache cache = new CompiledModelCache(4);
+        File file = new File(CompiledModelCacheTest.class.getResource("/optimization/contractorPackaging_small.js").toURI());
+
+        JavascriptFile p1 = Javascript.readModel(file);
+        ClaferOptimizer optimizer1 = ClaferCompiler.compile(p1.getModel(), p1.getScope(), p1.getObjectives(), p1.getOption(), cache);
+        ClaferOptimizer optimizer2 = ClaferCompiler.compile(p1.getModel(), p1.getScope(), p1.getObjectives(), p1.getOption(), cache);
+        assertEquals(1, cache.getHits());
+        // A model read again has the same structure.
+        JavascriptFile p3 = Javascript.readModel(file);
+        ClaferOptimizer optimizer3 = ClaferCompiler.compile(p3.getModel(), p3.getScope(), p3.getObjectives(), p3.getOption(), cache);
+        assertEquals(2, cache.getHits());
+        while (optimizer1.find()) {
+            optimizer2.find();
+            optimizer3.find();
+            assertArrayEquals(optimizer1.optimalValues(), optimizer2.optimalValues());
+            assertArrayEquals(optimizer1.optimalValues(), optimizer3.optimalValues());
+            for (InstanceClafer top : optimizer3.instance().getTopClafers()) {
+                assertTrue(p3.getModel().getChildren().contains(top.getType()));
+            }
+        }
+        assertEquals(optimizer1.instanceCount(), optimizer2.instanceCount());
+        assertEquals(optimizer1.instanceCount(), optimizer3.instanceCount());
+    }
+
+    @Test(timeout = 60000)
+    public void testDifferentObjectives() {
+        CompiledModelCache cache = new CompiledModelCache(4);
+        AstModel model = newModel();
+        AstConcreteClafer a = model.addChild("A").refTo(IntType).withCard(1, 1);
+        Scope scope = Scope.defaultScope(1).intLow(-3).intHigh(3).toScope();
+
+        ClaferOptimizer max = ClaferCompiler.compile(model, scope,
+                new Objective[]{Objective.maximize(joinRef(global(a)))},
+                ClaferOption.Default, cache);
+        ClaferOptimizer min = ClaferCompiler.compile(model, scope,
+                new Objective[]{Objective.minimize(joinRef(global(a)))},
+                ClaferOption.Default, cache);
+        assertEquals(0, cache.getHits());
+        max.find();
+        min.find();
+        assertArrayEquals(new int[]{3}, max.optimalValues());
+        assertArrayEquals(new int[]{-3}, min.optimalValues());
+    }
+}
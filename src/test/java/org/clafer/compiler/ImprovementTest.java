@@ -0,0 +1,146 @@
+package org.clafer.compiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstModel;
+import static org.clafer.ast.Asts.$this;
+import static org.clafer.ast.Asts.IntType;
+import static org.clafer.ast.Asts.card;
+import static org.clafer.ast.Asts.constant;
+import static org.clafer.ast.Asts.global;
+import static org.clafer.ast.Asts.greaterThan;
+import static org.clafer.ast.Asts.joinRef;
+import static org.clafer.ast.Asts.newModel;
+import static org.clafer.ast.Asts.sum;
+import org.clafer.instance.InstanceModel;
+import org.clafer.objective.Objective;
+import org.clafer.scope.Scopable;
+import org.clafer.scope.Scope;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ImprovementTest {
+
+    private static List<int[]> listen(ClaferOptimizer optimizer) {
+        List<int[]> improvements = new ArrayList<>();
+        optimizer.onImprovement((InstanceModel instance, int[] values) -> {
+            assertNotNull(instance);
+            improvements.add(values);
+        });
+        return improvements;
+    }
+
+    /**
+     * <pre>
+     * A ->> int 0..3
+     *     [this.ref > 0]
+     *
+     * << max sum A >>
+     * </pre>
+     */
+    private static AstModel maximizeModel() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").refTo(IntType).withCard(0, 3);
+        a.addConstraint(greaterThan(joinRef($this()), constant(0)));
+        return model;
+    }
+
+    private static void testSingleObjective(ClaferOption options) {
+        AstModel model = maximizeModel();
+        AstConcreteClafer a = model.getChildren().get(0);
+        Scopable scope = Scope.defaultScope(3).intLow(-3).intHigh(3);
+        ClaferOptimizer optimizer = ClaferCompiler.compile(model, scope,
+                new Objective[]{Objective.maximize(sum(global(a)))}, options);
+        List<int[]> improvements = listen(optimizer);
+
+        assertTrue(optimizer.find());
+        assertFalse(improvements.isEmpty());
+        for (int i = 1; i < improvements.size(); i++) {
+            assertTrue(improvements.get(i)[0] > improvements.get(i - 1)[0]);
+        }
+        assertArrayEquals(optimizer.optimalValues(), improvements.get(improvements.size() - 1));
+
+        // Enumerating the rest of the optimal instances improves nothing.
+        int size = improvements.size();
+        optimizer.allInstances();
+        assertEquals(size, improvements.size());
+    }
+
+    @Test(timeout = 60000)
+    public void testSingleObjective() {
+        testSingleObjective(ClaferOption.Default);
+    }
+
+    @Test(timeout = 60000)
+    public void testSingleObjectivePortfolio() {
+        testSingleObjective(ClaferOption.Default.portfolio(2));
+    }
+
+    /**
+     * <pre>
+     * A ->> int 0..3
+     *     [this.ref > 0]
+     *
+     * << max sum A >>
+     * << min #A >>
+     * << max 1 >>
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testMultiObjective() {
+        AstModel model = maximizeModel();
+        AstConcreteClafer a = model.getChildren().get(0);
+        Scopable scope = Scope.defaultScope(3).intLow(-3).intHigh(3);
+        ClaferOptimizer optimizer = ClaferCompiler.compile(model, scope,
+                Objective.maximize(sum(global(a))),
+                Objective.minimize(card(global(a))),
+                Objective.maximize(constant(1)));
+        List<int[]> improvements = listen(optimizer);
+
+        assertTrue(optimizer.find());
+        assertFalse(improvements.isEmpty());
+        for (int[] improvement : improvements) {
+            assertEquals(3, improvement.length);
+            assertEquals(1, improvement[2]);
+        }
+        assertArrayEquals(optimizer.optimalValues(), improvements.get(improvements.size() - 1));
+    }
+
+    /**
+     * <pre>
+     * A ->> int 0..3
+     *     [this.ref > 0]
+     * B ->> int 0..3
+     *     [this.ref > 0]
+     *
+     * << max sum A >>
+     * << max sum B >>
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testMultiObjectivePortfolio() {
+        AstModel model = maximizeModel();
+        AstConcreteClafer a = model.getChildren().get(0);
+        AstConcreteClafer b = model.addChild("B").refTo(IntType).withCard(0, 3);
+        b.addConstraint(greaterThan(joinRef($this()), constant(0)));
+        Scopable scope = Scope.defaultScope(3).intLow(-3).intHigh(3);
+        ClaferOptimizer optimizer = ClaferCompiler.compile(model, scope,
+                new Objective[]{Objective.maximize(sum(global(a))), Objective.maximize(sum(global(b)))},
+                ClaferOption.Default.portfolio(2));
+        List<int[]> improvements = listen(optimizer);
+
+        assertTrue(optimizer.find());
+        assertArrayEquals(new int[]{9, 9}, optimizer.optimalValues());
+        assertTrue(improvements.stream().anyMatch(improvement -> Arrays.equals(improvement, new int[]{9, 9})));
+        // The point found in each box maximizes B, so an improvement with a
+        // smaller B can only be published while searching inside a box.
+        assertTrue(improvements.stream().anyMatch(improvement -> improvement[1] < 9));
+    }
+}
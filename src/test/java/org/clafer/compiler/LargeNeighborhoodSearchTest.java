@@ -0,0 +1,94 @@
+package org.clafer.compiler;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstModel;
+import static org.clafer.ast.Asts.$this;
+import static org.clafer.ast.Asts.IntType;
+import static org.clafer.ast.Asts.constant;
+import static org.clafer.ast.Asts.global;
+import static org.clafer.ast.Asts.greaterThan;
+import static org.clafer.ast.Asts.implies;
+import static org.clafer.ast.Asts.join;
+import static org.clafer.ast.Asts.joinRef;
+import static org.clafer.ast.Asts.lessThanEqual;
+import static org.clafer.ast.Asts.newModel;
+import static org.clafer.ast.Asts.none;
+import static org.clafer.ast.Asts.some;
+import static org.clafer.ast.Asts.sub;
+import static org.clafer.ast.Asts.sum;
+import org.clafer.objective.Objective;
+import org.clafer.scope.Scopable;
+import org.clafer.scope.Scope;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class LargeNeighborhoodSearchTest {
+
+    private static final ClaferOption Lns = ClaferOption.Default.largeNeighborhoodSearch();
+
+    private static Set<String> instances(ClaferSearch search) {
+        Set<String> instances = new HashSet<>();
+        while (search.find()) {
+            assertTrue(instances.add(search.instance().toString()));
+        }
+        return instances;
+    }
+
+    /**
+     * <pre>
+     * A ->> int 0..3
+     *     [this.ref > 0]
+     *
+     * << max sum A >>
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testMaximize() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").refTo(IntType).withCard(0, 3);
+        a.addConstraint(greaterThan(joinRef($this()), constant(0)));
+
+        Scopable scope = Scope.defaultScope(3).intLow(-3).intHigh(3);
+        Objective[] objectives = {Objective.maximize(sum(global(a)))};
+        ClaferOptimizer expected = ClaferCompiler.compile(model, scope, objectives, ClaferOption.Default);
+        ClaferOptimizer lns = ClaferCompiler.compile(model, scope, objectives, Lns);
+        assertEquals(instances(expected), instances(lns));
+        assertArrayEquals(expected.optimalValues(), lns.optimalValues());
+    }
+
+    /**
+     * <pre>
+     * A 0..3
+     *     B ->> int
+     *     C ?
+     * D ->> int 0..2
+     * [sum A.B <= 4]
+     * [some A.C => no D]
+     *
+     * << min sum A.B - sum D >>
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testMinimizeSubtrees() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").withCard(0, 3);
+        AstConcreteClafer b = a.addChild("B").refTo(IntType).withCard(1, 1);
+        AstConcreteClafer c = a.addChild("C").withCard(0, 1);
+        AstConcreteClafer d = model.addChild("D").refTo(IntType).withCard(0, 2);
+        model.addConstraint(lessThanEqual(sum(join(global(a), b)), constant(4)));
+        model.addConstraint(implies(some(join(global(a), c)), none(global(d))));
+
+        Scopable scope = Scope.defaultScope(3).intLow(-2).intHigh(2);
+        Objective[] objectives = {Objective.minimize(sub(sum(join(global(a), b)), sum(global(d))))};
+        ClaferOptimizer expected = ClaferCompiler.compile(model, scope, objectives, ClaferOption.Default);
+        ClaferOptimizer lns = ClaferCompiler.compile(model, scope, objectives, Lns);
+        assertEquals(instances(expected), instances(lns));
+        assertArrayEquals(expected.optimalValues(), lns.optimalValues());
+    }
+}
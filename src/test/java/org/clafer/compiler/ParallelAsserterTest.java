@@ -0,0 +1,109 @@
+package org.clafer.compiler;
+
+import java.io.File;
+import org.clafer.assertion.Assertion;
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstModel;
+import static org.clafer.ast.Asts.IntType;
+import static org.clafer.ast.Asts.Mandatory;
+import static org.clafer.ast.Asts.constant;
+import static org.clafer.ast.Asts.equal;
+import static org.clafer.ast.Asts.greaterThan;
+import static org.clafer.ast.Asts.joinRef;
+import static org.clafer.ast.Asts.lessThan;
+import static org.clafer.ast.Asts.newModel;
+import org.clafer.compiler.ClaferParallelAsserter.Status;
+import org.clafer.compiler.ClaferParallelAsserter.Verdict;
+import org.clafer.javascript.Javascript;
+import org.clafer.javascript.JavascriptFile;
+import org.clafer.scope.Scope;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ParallelAsserterTest {
+
+    /**
+     * <pre>
+     * Age -> integer
+     * [Age.ref = 2]
+     *
+     * assert [Age.ref < 1]
+     * assert [Age.ref < 3]
+     * assert [Age.ref > 1]
+     * assert [Age.ref > 2]
+     * assert [Age.ref = 3]
+     * </pre>
+     */
+    private static void testMultipleAssertions(int groupSize, int threads) {
+        AstModel model = newModel();
+
+        AstConcreteClafer age = model.addChild("Age").withCard(Mandatory).refTo(IntType);
+        model.addConstraint(equal(joinRef(age), constant(2)));
+
+        Assertion[] assertions = {
+            new Assertion(lessThan(joinRef(age), constant(1))),
+            new Assertion(lessThan(joinRef(age), constant(3))),
+            new Assertion(greaterThan(joinRef(age), constant(1))),
+            new Assertion(greaterThan(joinRef(age), constant(2))),
+            new Assertion(equal(joinRef(age), constant(3)))
+        };
+        Status[] expected = {Status.Violated, Status.Holds, Status.Holds, Status.Violated, Status.Violated};
+
+        Verdict[] verdicts = ClaferCompiler.compileParallelAsserter(model, Scope.defaultScope(2), assertions,
+                ClaferOption.Default, groupSize).check(threads);
+        assertEquals(assertions.length, verdicts.length);
+        for (int i = 0; i < verdicts.length; i++) {
+            assertSame(assertions[i], verdicts[i].getAssertion());
+            assertEquals(expected[i], verdicts[i].getStatus());
+            if (expected[i] == Status.Violated) {
+                assertNotNull(verdicts[i].getCounterexample());
+                assertEquals(2, verdicts[i].getCounterexample().getTopClafer(age).getRef());
+            } else {
+                assertNull(verdicts[i].getCounterexample());
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testMultipleAssertions() {
+        testMultipleAssertions(1, 3);
+    }
+
+    @Test(timeout = 60000)
+    public void testMultipleAssertionsGrouped() {
+        testMultipleAssertions(2, 2);
+    }
+
+    @Test(timeout = 60000)
+    public void testMultipleAssertionsSingleThread() {
+        testMultipleAssertions(3, 1);
+    }
+
+    /**
+     * Every assertion in the assert-positive models holds and some assertion
+     * in the assert-negative models is violated, same as the sequential
+     * asserter.
+     */
+    @Test(timeout = 60000)
+    public void testAgreesWithAsserter() throws Exception {
+        for (String dir : new String[]{"/assert-positive", "/assert-negative"}) {
+            boolean positive = dir.equals("/assert-positive");
+            for (File file : new File(ParallelAsserterTest.class.getResource(dir).toURI()).listFiles()) {
+                JavascriptFile p = Javascript.readModel(file);
+                Verdict[] verdicts = ClaferCompiler.compileParallelAsserter(p.getModel(), p.getScope(),
+                        p.getAssertions(), ClaferOption.Default, 1).check(4);
+                boolean violated = false;
+                for (Verdict verdict : verdicts) {
+                    assertFalse(file.getName(), verdict.getStatus() == Status.Unknown);
+                    violated |= verdict.getStatus() == Status.Violated;
+                }
+                assertTrue(file.getName(), violated != positive);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package org.clafer.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstModel;
+import static org.clafer.ast.Asts.$this;
+import static org.clafer.ast.Asts.IntType;
+import static org.clafer.ast.Asts.add;
+import static org.clafer.ast.Asts.card;
+import static org.clafer.ast.Asts.constant;
+import static org.clafer.ast.Asts.global;
+import static org.clafer.ast.Asts.greaterThan;
+import static org.clafer.ast.Asts.joinRef;
+import static org.clafer.ast.Asts.lessThanEqual;
+import static org.clafer.ast.Asts.newModel;
+import org.clafer.instance.InstanceModel;
+import org.clafer.javascript.Javascript;
+import org.clafer.javascript.JavascriptFile;
+import org.clafer.objective.Objective;
+import org.clafer.scope.Scopable;
+import org.clafer.scope.Scope;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class PortfolioTest {
+
+    private static final ClaferOption Portfolio = ClaferOption.Default.portfolio(4);
+
+    /**
+     * <pre>
+     * A ->> int *
+     * [#A > 1]
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testSameInstances() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").refTo(IntType);
+        model.addConstraint(greaterThan(card(global(a)), constant(1)));
+
+        Scopable scope = Scope.defaultScope(3).intLow(-2).intHigh(2);
+        ClaferSolver solver = ClaferCompiler.compile(model, scope, Portfolio);
+        assertTrue(solver instanceof ClaferPortfolioSolver);
+        Set<String> instances = new HashSet<>();
+        while (solver.find()) {
+            assertTrue(instances.add(solver.instance().toString()));
+        }
+        assertEquals(solver.instanceCount(), instances.size());
+        assertEquals(ClaferCompiler.compile(model, scope).allInstances().length, instances.size());
+    }
+
+    /**
+     * <pre>
+     * A -> int 4
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testUnsat() {
+        AstModel model = newModel();
+
+        model.addChild("A").refToUnique(IntType).withCard(4, 4);
+
+        ClaferSolver solver = ClaferCompiler.compile(model, Scope.defaultScope(4).intLow(0).intHigh(2), Portfolio);
+        assertFalse(solver.find());
+        assertFalse(solver.find());
+        assertEquals(0, solver.instanceCount());
+    }
+
+    /**
+     * <pre>
+     * A ->> int 0..3
+     *     [this.ref > 0]
+     *
+     * << max A.ref >>
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testMaximize() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").refTo(IntType).withCard(0, 3);
+        a.addConstraint(greaterThan(joinRef($this()), constant(0)));
+
+        Scopable scope = Scope.defaultScope(3).intLow(-3).intHigh(3);
+        Objective[] objectives = {Objective.maximize(joinRef(global(a)))};
+        ClaferOptimizer serial = ClaferCompiler.compile(model, scope, objectives, ClaferOption.Default);
+        ClaferOptimizer portfolio = ClaferCompiler.compile(model, scope, objectives, Portfolio);
+        assertTrue(serial.find());
+        assertTrue(portfolio.find());
+        assertArrayEquals(serial.optimalValues(), portfolio.optimalValues());
+        assertEquals(serial.allInstances().length, portfolio.allInstances().length);
+    }
+
+    @Test(timeout = 120000)
+    public void testSameOptimum() throws IOException, URISyntaxException {
+        File file = new File(PortfolioTest.class.getResource("/optimization/contractorPackaging_small.js").toURI());
+        JavascriptFile p = Javascript.readModel(file);
+        Objective[] objectives = {p.getObjectives()[0]};
+
+        ClaferOptimizer serial = ClaferCompiler.compile(p.getModel(), p.getScope(), objectives, p.getOption());
+        ClaferOptimizer portfolio = ClaferCompiler.compile(p.getModel(), p.getScope(), objectives, p.getOption().portfolio(4));
+        assertTrue(serial.find());
+        assertTrue(portfolio.find());
+        assertArrayEquals(serial.optimalValues(), portfolio.optimalValues());
+        InstanceModel[] serialInstances = serial.allInstances();
+        InstanceModel[] portfolioInstances = portfolio.allInstances();
+        assertEquals(serialInstances.length, portfolioInstances.length);
+    }
+
+    private static Set<String> front(ClaferOptimizer optimizer) {
+        Set<String> front = new HashSet<>();
+        while (optimizer.find()) {
+            front.add(Arrays.toString(optimizer.optimalValues()) + optimizer.instance());
+        }
+        return front;
+    }
+
+    /**
+     * <pre>
+     * A ->> int 0..3
+     * B ->> int 0..3
+     *
+     * << max A.ref >>
+     * << min B.ref >>
+     * [sum A.ref <= sum B.ref + 2]
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testSameParetoFront() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").refTo(IntType).withCard(0, 3);
+        AstConcreteClafer b = model.addChild("B").refTo(IntType).withCard(0, 3);
+        model.addConstraint(lessThanEqual(joinRef(global(a)), add(joinRef(global(b)), constant(2))));
+
+        Scopable scope = Scope.defaultScope(3).intLow(-2).intHigh(2);
+        Objective[] objectives = {Objective.maximize(joinRef(global(a))), Objective.minimize(joinRef(global(b)))};
+        ClaferOptimizer serial = ClaferCompiler.compile(model, scope, objectives, ClaferOption.Default);
+        ClaferOptimizer parallel = ClaferCompiler.compile(model, scope, objectives, Portfolio);
+        assertEquals(front(serial), front(parallel));
+        assertEquals(serial.instanceCount(), parallel.instanceCount());
+    }
+
+    @Test(timeout = 120000)
+    public void testSameParetoFrontMultipleObjectives() throws IOException, URISyntaxException {
+        File file = new File(PortfolioTest.class.getResource("/optimization/contractorPackaging_small.js").toURI());
+        JavascriptFile p = Javascript.readModel(file);
+
+        ClaferOptimizer serial = ClaferCompiler.compile(p.getModel(), p.getScope(), p.getObjectives(), p.getOption());
+        ClaferOptimizer parallel = ClaferCompiler.compile(p.getModel(), p.getScope(), p.getObjectives(), p.getOption().portfolio(4));
+        Set<String> serialPoints = new HashSet<>();
+        while (serial.find()) {
+            serialPoints.add(Arrays.toString(serial.optimalValues()));
+        }
+        Set<String> parallelPoints = new HashSet<>();
+        while (parallel.find()) {
+            parallelPoints.add(Arrays.toString(parallel.optimalValues()));
+        }
+        assertEquals(serialPoints, parallelPoints);
+        assertEquals(serial.instanceCount(), parallel.instanceCount());
+    }
+}
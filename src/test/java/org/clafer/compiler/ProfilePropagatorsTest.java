@@ -0,0 +1,138 @@
+package org.clafer.compiler;
+
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstModel;
+import static org.clafer.ast.Asts.$this;
+import static org.clafer.ast.Asts.IntType;
+import static org.clafer.ast.Asts.card;
+import static org.clafer.ast.Asts.constant;
+import static org.clafer.ast.Asts.global;
+import static org.clafer.ast.Asts.greaterThan;
+import static org.clafer.ast.Asts.joinRef;
+import static org.clafer.ast.Asts.newModel;
+import org.clafer.choco.constraint.PropagatorProfile;
+import org.clafer.objective.Objective;
+import org.clafer.scope.Scopable;
+import org.clafer.scope.Scope;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ProfilePropagatorsTest {
+
+    private static final ClaferOption Profile = ClaferOption.Default.profilePropagators();
+
+    private static long sum(PropagatorProfile profile, boolean calls) {
+        long sum = 0;
+        for (PropagatorProfile.Entry entry : profile.getByPropagator()) {
+            sum += calls ? entry.getCalls() : entry.getFails();
+        }
+        return sum;
+    }
+
+    /**
+     * <pre>
+     * A ->> int *
+     * [#A > 1]
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testSameInstances() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").refTo(IntType);
+        model.addConstraint(greaterThan(card(global(a)), constant(1)));
+
+        Scopable scope = Scope.defaultScope(3).intLow(-2).intHigh(2);
+        ClaferSolver serial = ClaferCompiler.compile(model, scope);
+        ClaferSolver profiled = ClaferCompiler.compile(model, scope, Profile);
+        assertEquals(serial.allInstances().length, profiled.allInstances().length);
+        assertFalse(serial.getPropagatorProfile().isPresent());
+
+        PropagatorProfile profile = profiled.getPropagatorProfile().get();
+        assertFalse(profile.getByPropagator().isEmpty());
+        assertFalse(profile.getByConstraint().isEmpty());
+        assertTrue(sum(profile, true) > 0);
+    }
+
+    /**
+     * <pre>
+     * A ->> int 0..3
+     *     [this.ref > 0]
+     *
+     * << max A.ref >>
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testMaximize() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").refTo(IntType).withCard(0, 3);
+        a.addConstraint(greaterThan(joinRef($this()), constant(0)));
+
+        Scopable scope = Scope.defaultScope(3).intLow(-3).intHigh(3);
+        Objective[] objectives = {Objective.maximize(joinRef(global(a)))};
+        ClaferOptimizer serial = ClaferCompiler.compile(model, scope, objectives, ClaferOption.Default);
+        ClaferOptimizer profiled = ClaferCompiler.compile(model, scope, objectives, Profile);
+        assertTrue(serial.find());
+        assertTrue(profiled.find());
+        assertArrayEquals(serial.optimalValues(), profiled.optimalValues());
+        assertEquals(serial.allInstances().length, profiled.allInstances().length);
+        PropagatorProfile profile = profiled.getPropagatorProfile().get();
+        assertTrue(sum(profile, true) > 0);
+        assertTrue(sum(profile, false) > 0);
+    }
+
+    /**
+     * The profile of a portfolio includes the copies that lost the race, so
+     * it holds more calls than the profile of the internal solver alone.
+     */
+    private static void assertSummed(ClaferSearch portfolio) {
+        long total = sum(portfolio.getPropagatorProfile().get(), true);
+        long internal = sum(Portfolio.getPropagatorProfile(portfolio.getInternalSolver()).get(), true);
+        assertTrue(internal > 0);
+        assertTrue(total + " <= " + internal, total > internal);
+    }
+
+    /**
+     * <pre>
+     * A ->> int 0..3
+     *     [this.ref > 0]
+     * B ->> int 0..3
+     *     [this.ref > 0]
+     *
+     * << max A.ref >>
+     * << max B.ref >>
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testPortfolio() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").refTo(IntType).withCard(0, 3);
+        a.addConstraint(greaterThan(joinRef($this()), constant(0)));
+        AstConcreteClafer b = model.addChild("B").refTo(IntType).withCard(0, 3);
+        b.addConstraint(greaterThan(joinRef($this()), constant(0)));
+
+        Scopable scope = Scope.defaultScope(3).intLow(-3).intHigh(3);
+        ClaferOption portfolio = Profile.portfolio(2);
+
+        ClaferSolver solver = ClaferCompiler.compile(model, scope, portfolio);
+        assertTrue(solver instanceof ClaferPortfolioSolver);
+        assertTrue(solver.find());
+        assertSummed(solver);
+
+        ClaferOptimizer single = ClaferCompiler.compile(model, scope,
+                new Objective[]{Objective.maximize(joinRef(global(a)))}, portfolio);
+        assertTrue(single.find());
+        assertSummed(single);
+
+        ClaferOptimizer multi = ClaferCompiler.compile(model, scope,
+                new Objective[]{Objective.maximize(joinRef(global(a))), Objective.maximize(joinRef(global(b)))},
+                portfolio);
+        assertTrue(multi.find());
+        assertSummed(multi);
+    }
+}
@@ -0,0 +1,216 @@
+package org.clafer.compiler;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.search.limits.FailCounter;
+import org.chocosolver.solver.search.loop.monitors.IMonitorRestart;
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstModel;
+import static org.clafer.ast.Asts.$this;
+import static org.clafer.ast.Asts.IntType;
+import static org.clafer.ast.Asts.card;
+import static org.clafer.ast.Asts.constant;
+import static org.clafer.ast.Asts.equal;
+import static org.clafer.ast.Asts.global;
+import static org.clafer.ast.Asts.greaterThan;
+import static org.clafer.ast.Asts.implies;
+import static org.clafer.ast.Asts.join;
+import static org.clafer.ast.Asts.joinRef;
+import static org.clafer.ast.Asts.newModel;
+import static org.clafer.ast.Asts.some;
+import static org.clafer.ast.Asts.sum;
+import org.clafer.instance.InstanceModel;
+import org.clafer.objective.Objective;
+import org.clafer.scope.Scopable;
+import org.clafer.scope.Scope;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class SearchStrategyTest {
+
+    private static final ClaferSearchStrategy[] Learning = {
+        ClaferSearchStrategy.DomOverWDeg,
+        ClaferSearchStrategy.ActivityBased,
+        ClaferSearchStrategy.ConflictHistory,
+        ClaferSearchStrategy.LastConflict
+    };
+
+    private static Set<String> instances(ClaferSearch search) {
+        Set<String> instances = new HashSet<>();
+        while (search.find()) {
+            InstanceModel instance = search.instance();
+            assertTrue("Duplicate " + instance, instances.add(instance.toString()));
+        }
+        return instances;
+    }
+
+    /**
+     * <pre>
+     * A ->> int *
+     *     B ->> int 0..2
+     * [#A > 1]
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testSameInstances() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").refTo(IntType);
+        a.addChild("B").refTo(IntType).withCard(0, 2);
+        model.addConstraint(greaterThan(card(global(a)), constant(1)));
+
+        Scopable scope = Scope.defaultScope(3).intLow(-1).intHigh(1);
+        Set<String> expected = instances(ClaferCompiler.compile(model, scope));
+        for (ClaferSearchStrategy strategy : Learning) {
+            ClaferSolver solver = ClaferCompiler.compile(model, scope, ClaferOption.Default.setStrategy(strategy));
+            assertEquals(strategy.toString(), expected, instances(solver));
+        }
+    }
+
+    /**
+     * <pre>
+     * A ->> int 0..3
+     *     [this.ref > 0]
+     *
+     * << max A.ref >>
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testSameOptimalInstances() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").refTo(IntType).withCard(0, 3);
+        a.addConstraint(greaterThan(joinRef($this()), constant(0)));
+
+        Scopable scope = Scope.defaultScope(3).intLow(-3).intHigh(3);
+        Objective[] objectives = {Objective.maximize(joinRef(global(a)))};
+        ClaferOptimizer expected = ClaferCompiler.compile(model, scope, objectives, ClaferOption.Default);
+        Set<String> expectedInstances = instances(expected);
+        for (ClaferSearchStrategy strategy : Learning) {
+            ClaferOptimizer optimizer = ClaferCompiler.compile(model, scope, objectives,
+                    ClaferOption.Default.setStrategy(strategy));
+            assertEquals(strategy.toString(), expectedInstances, instances(optimizer));
+            assertArrayEquals(strategy.toString(), expected.optimalValues(), optimizer.optimalValues());
+        }
+    }
+
+    /**
+     * Restart after every couple of fails, far more often than the restart
+     * policies of the strategies, so that the small models restart many times.
+     * The restarts of the strategy are kept underneath.
+     *
+     * @return the number of restarts so far
+     */
+    private static int[] restartOften(Solver solver) {
+        solver.setLubyRestart(2, 2, new FailCounter(solver.getModel(), 2), Integer.MAX_VALUE);
+        int[] restarts = new int[1];
+        solver.plugMonitor(new IMonitorRestart() {
+            @Override
+            public void afterRestart() {
+                restarts[0]++;
+            }
+        });
+        return restarts;
+    }
+
+    /**
+     * <pre>
+     * A ->> int *
+     * [sum A = 6]
+     * [#A > 2]
+     * </pre>
+     */
+    private static AstModel sumModel() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").refToUnique(IntType);
+        model.addConstraint(equal(sum(global(a)), constant(6)));
+        model.addConstraint(greaterThan(card(global(a)), constant(2)));
+        return model;
+    }
+
+    @Test(timeout = 60000)
+    public void testSameInstancesWithRestarts() {
+        AstModel model = sumModel();
+
+        Scopable scope = Scope.defaultScope(6).intLow(-6).intHigh(6);
+        Set<String> expected = instances(ClaferCompiler.compile(model, scope));
+        for (ClaferSearchStrategy strategy : Learning) {
+            if (strategy == ClaferSearchStrategy.ActivityBased) {
+                // Does not restart while enumerating.
+                continue;
+            }
+            ClaferSolver solver = ClaferCompiler.compile(model, scope, ClaferOption.Default.setStrategy(strategy));
+            restartOften(solver.getInternalSolver());
+            assertEquals(strategy.toString(), expected, instances(solver));
+            assertTrue(strategy.toString(), solver.getInternalSolver().getMeasures().getRestartCount() > 1);
+        }
+    }
+
+    /**
+     * <pre>
+     * A ->> int *
+     * [sum A = 6]
+     * [#A > 2]
+     *
+     * << max #A >>
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testSameOptimalInstancesWithRestarts() {
+        AstModel model = sumModel();
+        AstConcreteClafer a = model.getChildren().get(0);
+
+        Scopable scope = Scope.defaultScope(6).intLow(-6).intHigh(6);
+        Objective[] objectives = {Objective.maximize(card(global(a)))};
+        ClaferOptimizer expected = ClaferCompiler.compile(model, scope, objectives, ClaferOption.Default);
+        Set<String> expectedInstances = instances(expected);
+        for (ClaferSearchStrategy strategy : Learning) {
+            ClaferOptimizer optimizer = ClaferCompiler.compile(model, scope, objectives,
+                    ClaferOption.Default.setStrategy(strategy));
+            // The measures are reset before enumerating the optimal instances.
+            int[] restarts = restartOften(optimizer.getInternalSolver());
+            assertEquals(strategy.toString(), expectedInstances, instances(optimizer));
+            assertArrayEquals(strategy.toString(), expected.optimalValues(), optimizer.optimalValues());
+            assertTrue(strategy.toString(), restarts[0] > 1);
+        }
+    }
+
+    /**
+     * <pre>
+     * A *
+     *     B ->> int 0..2
+     *         C ?
+     * D ->> int ?
+     * [#C > 1]
+     * [some D => #A = 1]
+     *
+     * << min A.B.ref >>
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testTopDownSameInstances() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A");
+        AstConcreteClafer b = a.addChild("B").refTo(IntType).withCard(0, 2);
+        AstConcreteClafer c = b.addChild("C").withCard(0, 1);
+        AstConcreteClafer d = model.addChild("D").refTo(IntType).withCard(0, 1);
+        model.addConstraint(greaterThan(card(global(c)), constant(1)));
+        model.addConstraint(implies(some(global(d)), equal(card(global(a)), constant(1))));
+
+        Scopable scope = Scope.defaultScope(3).intLow(-1).intHigh(1);
+        ClaferOption topDown = ClaferOption.Default.setStrategy(ClaferSearchStrategy.TopDown);
+        assertEquals(instances(ClaferCompiler.compile(model, scope)),
+                instances(ClaferCompiler.compile(model, scope, topDown)));
+
+        Objective[] objectives = {Objective.minimize(joinRef(join(global(a), b)))};
+        ClaferOptimizer expected = ClaferCompiler.compile(model, scope, objectives, ClaferOption.Default);
+        ClaferOptimizer optimizer = ClaferCompiler.compile(model, scope, objectives, topDown);
+        assertEquals(instances(expected), instances(optimizer));
+        assertArrayEquals(expected.optimalValues(), optimizer.optimalValues());
+    }
+}
@@ -0,0 +1,98 @@
+package org.clafer.compiler;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.clafer.ast.AstAbstractClafer;
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstModel;
+import static org.clafer.ast.Asts.IntType;
+import static org.clafer.ast.Asts.global;
+import static org.clafer.ast.Asts.joinRef;
+import static org.clafer.ast.Asts.newModel;
+import org.clafer.instance.InstanceModel;
+import org.clafer.objective.Objective;
+import org.clafer.scope.Scope;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class SnapshotTest {
+
+    /**
+     * <pre>
+     * A *
+     *     B ->> int ?
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testSnapshotOutlivesFind() {
+        AstModel model = newModel();
+        AstConcreteClafer a = model.addChild("A");
+        a.addChild("B").refTo(IntType).withCard(0, 1);
+        Scope scope = Scope.defaultScope(2).intLow(-1).intHigh(1).toScope();
+
+        ClaferSolver solver = ClaferCompiler.compile(model, scope);
+        List<InstanceModel> instances = new ArrayList<>();
+        List<Supplier<InstanceModel>> snapshots = new ArrayList<>();
+        while (solver.find()) {
+            instances.add(solver.instance());
+            snapshots.add(solver.snapshot());
+        }
+        assertEquals(instances.size(), snapshots.size());
+        for (int i = 0; i < instances.size(); i++) {
+            assertEquals(instances.get(i), snapshots.get(i).get());
+        }
+    }
+
+    /**
+     * <pre>
+     * abstract A
+     *     B ->> int ?
+     * C : A 1..2
+     * D : A ?
+     *     E -> A
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testSnapshotsDistinct() {
+        AstModel model = newModel();
+        AstAbstractClafer a = model.addAbstract("A");
+        a.addChild("B").refTo(IntType).withCard(0, 1);
+        model.addChild("C").extending(a).withCard(1, 2);
+        model.addChild("D").extending(a).withCard(0, 1).addChild("E").refTo(a).withCard(1, 1);
+        Scope scope = Scope.defaultScope(3).intLow(-1).intHigh(1).toScope();
+
+        ClaferSolver solver = ClaferCompiler.compile(model, scope);
+        Set<InstanceSnapshot> snapshots = new HashSet<>();
+        Set<InstanceModel> instances = new HashSet<>();
+        while (solver.find()) {
+            InstanceSnapshot snapshot = solver.snapshot();
+            assertTrue(snapshots.add(snapshot));
+            assertEquals(snapshot, solver.getSolutionMap().getSnapshot());
+            assertTrue(instances.add(snapshot.get()));
+        }
+        assertEquals(solver.instanceCount(), snapshots.size());
+    }
+
+    /**
+     * <pre>
+     * A ->> int
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testOptimizerSnapshot() {
+        AstModel model = newModel();
+        AstConcreteClafer a = model.addChild("A").refTo(IntType).withCard(1, 1);
+        Scope scope = Scope.defaultScope(1).intLow(-3).intHigh(3).toScope();
+
+        ClaferOptimizer optimizer = ClaferCompiler.compile(model, scope,
+                Objective.maximize(joinRef(global(a))));
+        optimizer.find();
+        assertArrayEquals(new int[]{3}, optimizer.optimalValues());
+        assertEquals(optimizer.instance(), optimizer.snapshot().get());
+    }
+}
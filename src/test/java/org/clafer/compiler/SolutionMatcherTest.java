@@ -0,0 +1,42 @@
+package org.clafer.compiler;
+
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.Solver;
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstModel;
+import static org.clafer.ast.Asts.IntType;
+import static org.clafer.ast.Asts.newModel;
+import org.clafer.scope.Scope;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class SolutionMatcherTest {
+
+    /**
+     * <pre>
+     * A *
+     *     B ->> int ?
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testMatches() {
+        AstModel model = newModel();
+        AstConcreteClafer a = model.addChild("A");
+        a.addChild("B").refTo(IntType).withCard(0, 1);
+
+        ClaferSolver solver = ClaferCompiler.compile(model, Scope.defaultScope(2).intLow(-1).intHigh(1));
+        SolutionMatcher matcher = new SolutionMatcher(solver.getSolutionMap().getIrSolution());
+        Solver internal = solver.getInternalSolver();
+        assertTrue(solver.find());
+        Solution first = new Solution(internal.getModel()).record();
+        assertTrue(matcher.matches(first));
+
+        while (solver.find()) {
+            assertFalse(matcher.matches(first));
+            Solution other = new Solution(internal.getModel()).record();
+            assertTrue(matcher.matches(other));
+        }
+        assertTrue(solver.instanceCount() > 1);
+    }
+}
@@ -33,9 +33,13 @@ public class IrStringCompareTest {
                         left.getChars(), left.getLength(),
                         right.getChars(), right.getLength());
             case LessThan:
-                return Constraints.lessThan(left.getChars(), right.getChars());
+                return Constraints.lessThan(
+                        left.getChars(), left.getLength(),
+                        right.getChars(), right.getLength());
             case LessThanEqual:
-                return Constraints.lessThanEqual(left.getChars(), right.getChars());
+                return Constraints.lessThanEqual(
+                        left.getChars(), left.getLength(),
+                        right.getChars(), right.getLength());
             default:
                 throw new IllegalArgumentException();
         }
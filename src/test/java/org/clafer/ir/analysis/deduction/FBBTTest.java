@@ -1,5 +1,6 @@
 package org.clafer.ir.analysis.deduction;
 
+import java.util.Arrays;
 import org.clafer.domain.Domains;
 import org.clafer.ir.IrBoolVar;
 import org.clafer.ir.IrIntVar;
@@ -12,6 +13,7 @@ import static org.clafer.ir.Irs.constant;
 import static org.clafer.ir.Irs.equal;
 import static org.clafer.ir.Irs.greaterThan;
 import static org.clafer.ir.Irs.implies;
+import static org.clafer.ir.Irs.not;
 import static org.clafer.ir.Irs.set;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -47,6 +49,19 @@ public class FBBTTest {
         assertEquals(Domains.boundDomain(0, 5), coalesced.getDomain());
     }
 
+    @Test
+    public void testCoalesceBehindNot() {
+        IrModule module = new IrModule();
+        IrBoolVar b = bool("b");
+        IrIntVar var = boundInt("var", 0, 10);
+        module.addConstraint(b);
+        module.addConstraint(equal(var, add(not(b), constant(2))));
+
+        IrIntVar coalesced = new FBBT().propagate(module).getFst().get(var);
+        assertTrue(coalesced.isConstant());
+        assertEquals(2, coalesced.getLowBound());
+    }
+
     @Test
     public void testCoalesceSetConstant() {
         IrModule module = new IrModule();
@@ -99,4 +114,22 @@ public class FBBTTest {
 
         assertEquals(Domains.boundDomain(1, 10), coalesce.get(sum).getDomain());
     }
+
+    @Test
+    public void testProbe() {
+        IrModule module = new IrModule();
+        IrBoolVar b1 = bool("b1");
+        IrBoolVar b2 = bool("b2");
+        IrIntVar var1 = boundInt("var1", 0, 10);
+        IrIntVar var2 = boundInt("var2", 0, 10);
+        module.addConstraint(implies(b1, equal(var1, 5)));
+        module.addConstraint(implies(b1.negate(), equal(var1, 4)));
+        module.addConstraint(implies(b2, equal(var2, 1)));
+        module.addConstraint(implies(b2.negate(), equal(var2, 9)));
+
+        Coalesce coalesce = new FBBT().probe(Arrays.asList(b1, b2), module).getFst();
+
+        assertEquals(Domains.enumDomain(4, 5), coalesce.get(var1).getDomain());
+        assertEquals(Domains.enumDomain(1, 9), coalesce.get(var2).getDomain());
+    }
 }
@@ -165,12 +165,25 @@ public class TestReflection {
     }
 
     public static Object randVar(String name, Annotation[] annotations, Class<?> type, Model model) {
-        return randVar(name, annotations, type, model, null);
+        return randVar(name, annotations, type, model, 4);
     }
 
-    private static Object randVar(String name, Annotation[] annotations, Class<?> type, Model model, Integer sameLength) {
-        int low = hasAnnotation(Positive.class, annotations) ? 0 : -4;
-        int high = 4;
+    /**
+     * @param name the name of the variable
+     * @param annotations the annotations of the parameter
+     * @param type the type of the parameter
+     * @param model the model
+     * @param bound the integers range from -bound to bound, or from 0 to bound
+     * if positive
+     * @return a random variable for the parameter
+     */
+    public static Object randVar(String name, Annotation[] annotations, Class<?> type, Model model, int bound) {
+        return randVar(name, annotations, type, model, null, bound);
+    }
+
+    private static Object randVar(String name, Annotation[] annotations, Class<?> type, Model model, Integer sameLength, int bound) {
+        int low = hasAnnotation(Positive.class, annotations) ? 0 : -bound;
+        int high = bound;
         if (BoolVar.class.equals(type)) {
             return randBoolVar(model);
         } else if (IntVar.class.equals(type)) {
@@ -202,7 +215,7 @@ public class TestReflection {
             }
             Object array = Array.newInstance(type.getComponentType(), length);
             for (int i = 0; i < length; i++) {
-                Array.set(array, i, randVar(name + "[" + i + "]", annotations, type.getComponentType(), model, recurSameLength));
+                Array.set(array, i, randVar(name + "[" + i + "]", annotations, type.getComponentType(), model, recurSameLength, bound));
             }
             return array;
         }
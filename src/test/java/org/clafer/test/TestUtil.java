@@ -101,6 +101,15 @@ public class TestUtil {
         }
     }
 
+    /**
+     * Generate the same random variables and strategies again.
+     *
+     * @param seed the seed
+     */
+    public static void setSeed(long seed) {
+        rand.setSeed(seed);
+    }
+
     public static boolean randBool() {
         return rand.nextBoolean();
     }